@@ -0,0 +1,53 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Cost of one AnomalyDetector update, as the AlertPipeline does for every incoming reading.
+// The target is 100k readings per second on one core, i.e. well under 10 µs per reading.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnomalyDetectorBenchmark {
+    private static final int READINGS = 4096; // Power of two for the index mask
+
+    @Param({"100", "100000"})
+    public int lands;
+
+    private AnomalyDetector detector;
+    private final SensorReading[] readings = new SensorReading[READINGS];
+    private int next;
+
+    @Setup
+    public void warmUpState() {
+        detector = new AnomalyDetector(0.05, 4, 20, 30);
+        for (int i = 0; i < READINGS; i++) {
+            readings[i] = BenchmarkDatabase.reading(i * 7919, lands);
+        }
+        // Past the warm-up of every land, so outlier checks run as in steady state
+        for (int land = 1; land <= lands; land++) {
+            for (int i = 0; i < 25; i++) {
+                detector.observe(BenchmarkDatabase.reading(land + i * lands, lands));
+            }
+        }
+    }
+
+    @Benchmark
+    public int observe() {
+        return detector.observe(readings[next++ & (READINGS - 1)]);
+    }
+}
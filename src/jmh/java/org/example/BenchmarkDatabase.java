@@ -0,0 +1,115 @@
+package org.example;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// In-memory H2 database in MySQL mode with the lands, crops and sensors tables, so the benchmarks
+// run offline. The schema follows V1 of SchemaMigrations without the MySQL-only triggers and
+// partitions. Each benchmark uses its own database name so trials don't see each other's rows.
+final class BenchmarkDatabase {
+    static final String USER = "sa";
+    static final String PASSWORD = "";
+
+    private static final String[] SCHEMA = {
+            """
+            CREATE TABLE IF NOT EXISTS lands (
+                land_id INT AUTO_INCREMENT PRIMARY KEY,
+                sector_name VARCHAR(255),
+                soil_type VARCHAR(255),
+                area DECIMAL(10, 2)
+            )
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS crops (
+                crop_id INT AUTO_INCREMENT PRIMARY KEY,
+                crop_name VARCHAR(255),
+                ideal_temperature INT,
+                ideal_moisture INT,
+                ideal_ph DECIMAL(3, 1),
+                land_id INT,
+                FOREIGN KEY (land_id) REFERENCES lands(land_id) ON DELETE CASCADE
+            )
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS sensors (
+                sensor_id INT AUTO_INCREMENT PRIMARY KEY,
+                land_id INT,
+                temperature DECIMAL(5, 2),
+                soil_moisture DECIMAL(5, 2),
+                ph DECIMAL(3, 1),
+                timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                FOREIGN KEY (land_id) REFERENCES lands(land_id) ON DELETE CASCADE
+            )
+            """,
+            "CREATE INDEX IF NOT EXISTS idx_sensors_land_timestamp ON sensors (land_id, timestamp)"
+    };
+
+    private static final String[] CROP_NAMES = {"Wheat", "Maize", "Tomato", "Olive", "Barley", "Potato"};
+    private static final String[] SOIL_TYPES = {"Clay", "Loam", "Sand", "Silt"};
+
+    private BenchmarkDatabase() {
+    }
+
+    // DB_CLOSE_DELAY keeps the database alive between connections
+    static String url(String name) {
+        return "jdbc:h2:mem:" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    }
+
+    static Connection connect(String name) throws SQLException {
+        return DriverManager.getConnection(url(name), USER, PASSWORD);
+    }
+
+    // Creates the tables and fills lands with land_ids 1..lands, each carrying cropsPerLand crops
+    static void create(String name, int lands, int cropsPerLand) throws SQLException {
+        try (Connection connection = connect(name)) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DROP ALL OBJECTS");
+                for (String sql : SCHEMA) {
+                    statement.execute(sql);
+                }
+            }
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO lands (sector_name, soil_type, area) VALUES (?, ?, ?)")) {
+                for (int land = 1; land <= lands; land++) {
+                    statement.setString(1, "Sector " + land);
+                    statement.setString(2, SOIL_TYPES[land % SOIL_TYPES.length]);
+                    statement.setDouble(3, 500 + land % 1000);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO crops (crop_name, ideal_temperature, ideal_moisture, ideal_ph, land_id) VALUES (?, ?, ?, ?, ?)")) {
+                for (int land = 1; land <= lands; land++) {
+                    for (int crop = 0; crop < cropsPerLand; crop++) {
+                        statement.setString(1, CROP_NAMES[(land + crop) % CROP_NAMES.length]);
+                        statement.setInt(2, 18 + (land + crop) % 10);
+                        statement.setInt(3, 40 + (land * 7 + crop) % 30);
+                        statement.setDouble(4, 5.5 + ((land + crop) % 20) / 10.0);
+                        statement.setInt(5, land);
+                        statement.addBatch();
+                    }
+                }
+                statement.executeBatch();
+            }
+            connection.commit();
+        }
+    }
+
+    static void truncateSensors(String name) throws SQLException {
+        try (Connection connection = connect(name);
+             Statement statement = connection.createStatement()) {
+            statement.execute("TRUNCATE TABLE sensors RESTART IDENTITY");
+        }
+    }
+
+    // A plausible reading for one of the lands; the values sweep through and beyond the crops' windows
+    static SensorReading reading(int index, int lands) {
+        return new SensorReading(1 + index % lands, 10 + (index % 250) / 10.0, 20 + (index % 700) / 10.0,
+                4 + (index % 50) / 10.0, 1_700_000_000_000L + index * 1_000L);
+    }
+}
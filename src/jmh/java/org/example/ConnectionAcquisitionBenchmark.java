@@ -0,0 +1,75 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+// Borrow-and-return cost of a ConnectionPool connection, against opening a DriverManager connection
+// per call as DatabaseConnection did before the pool. An in-memory H2 connection is far cheaper to
+// open than a MySQL one (no TCP handshake or authentication), so the unpooled numbers are a lower bound.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConnectionAcquisitionBenchmark {
+    private static final String DATABASE = "connection_acquisition";
+
+    // Borrow-site stack traces for leak detection are captured on every borrow when enabled
+    @Param({"0", "60000"})
+    public long leakDetectionMillis;
+
+    private ConnectionPool pool;
+
+    @Setup
+    public void openPool() throws SQLException {
+        BenchmarkDatabase.create(DATABASE, 1, 0);
+        pool = new ConnectionPool(new PoolConfig(BenchmarkDatabase.url(DATABASE), BenchmarkDatabase.USER,
+                BenchmarkDatabase.PASSWORD, 2, 10, 10_000, 300_000, leakDetectionMillis, 5_000));
+    }
+
+    @TearDown
+    public void closePool() {
+        pool.close();
+    }
+
+    @Benchmark
+    public boolean pooled() throws SQLException {
+        try (Connection connection = pool.getConnection()) {
+            return connection.getAutoCommit();
+        }
+    }
+
+    // More threads than idle connections, so borrowers wait on the pool's semaphore
+    @Benchmark
+    @Threads(16)
+    public boolean pooledContended() throws SQLException {
+        try (Connection connection = pool.getConnection()) {
+            return connection.getAutoCommit();
+        }
+    }
+
+    @Benchmark
+    public boolean unpooled() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(BenchmarkDatabase.url(DATABASE),
+                BenchmarkDatabase.USER, BenchmarkDatabase.PASSWORD)) {
+            return connection.getAutoCommit();
+        }
+    }
+}
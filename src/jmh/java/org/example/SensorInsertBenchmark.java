@@ -0,0 +1,88 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Sensor insert throughput: one auto-committed INSERT per reading, as the panel used to do, against the
+// JDBC batches of SensorIngestor.insertBatch. Every invocation writes READINGS rows; scores are per reading.
+// H2 in memory has no network or fsync cost, so the gap to MySQL is larger than measured here.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SensorInsertBenchmark {
+    private static final String DATABASE = "sensor_insert";
+    private static final int LANDS = 200;
+    private static final int READINGS = 10_000;
+
+    @Param({"100", "1000", "10000"})
+    public int batchSize;
+
+    private Connection connection;
+    private final List<SensorReading> readings = new ArrayList<>(READINGS);
+
+    @Setup(Level.Trial)
+    public void createDatabase() throws SQLException {
+        BenchmarkDatabase.create(DATABASE, LANDS, 0);
+        connection = BenchmarkDatabase.connect(DATABASE);
+        for (int i = 0; i < READINGS; i++) {
+            readings.add(BenchmarkDatabase.reading(i, LANDS));
+        }
+    }
+
+    // Starts every iteration from an empty table so index growth doesn't skew later iterations
+    @Setup(Level.Iteration)
+    public void truncate() throws SQLException {
+        BenchmarkDatabase.truncateSensors(DATABASE);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(READINGS)
+    public void singleInserts() throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(SensorIngestor.INSERT_SQL)) {
+            for (SensorReading reading : readings) {
+                statement.setInt(1, reading.landId());
+                statement.setDouble(2, reading.temperature());
+                statement.setDouble(3, reading.soilMoisture());
+                statement.setDouble(4, reading.ph());
+                statement.setTimestamp(5, new Timestamp(reading.timestampMillis()));
+                statement.executeUpdate();
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(READINGS)
+    public void batchedInserts() throws SQLException {
+        for (int from = 0; from < READINGS; from += batchSize) {
+            SensorIngestor.insertBatch(connection, readings.subList(from, Math.min(READINGS, from + batchSize)));
+        }
+    }
+}
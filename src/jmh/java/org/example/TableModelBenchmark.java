@@ -0,0 +1,132 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.swing.table.DefaultTableModel;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+
+// Compares ColumnarTableModel with the Vector-based DefaultTableModel the panels used to build,
+// over a synthetic sensors ResultSet so no database is needed. Add -prof gc to see allocation per load.
+// Run with: mvn -Pjmh verify -Djmh.args="TableModelBenchmark -p rows=1000000"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+public class TableModelBenchmark {
+    private static final String[] COLUMN_NAMES = {"sensor_id", "land_id", "temperature", "soil_moisture", "ph", "timestamp"};
+    private static final int[] COLUMN_TYPES = {Types.INTEGER, Types.INTEGER, Types.DECIMAL, Types.DECIMAL, Types.DECIMAL, Types.TIMESTAMP};
+    private static final long START_MILLIS = 1_700_000_000_000L;
+
+    @Param({"10000", "100000", "1000000", "10000000"})
+    public int rows;
+
+    private ResultSet resultSet;
+
+    // Every measured load consumes a fresh forward-only ResultSet
+    @Setup(Level.Iteration)
+    public void openResultSet() {
+        resultSet = sensorsResultSet(rows);
+    }
+
+    @Benchmark
+    public DefaultTableModel vectorModel() throws SQLException {
+        return buildVectorModel(resultSet);
+    }
+
+    @Benchmark
+    public ColumnarTableModel columnarModel() throws SQLException {
+        return ColumnarTableModel.fromResultSet(resultSet);
+    }
+
+    // The buildTableModel the panels used before ColumnarTableModel, kept as the baseline
+    static DefaultTableModel buildVectorModel(ResultSet rs) throws SQLException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        int columnCount = metaData.getColumnCount();
+
+        Vector<String> columnNames = new Vector<>();
+        for (int column = 1; column <= columnCount; column++) {
+            columnNames.add(metaData.getColumnName(column));
+        }
+
+        Vector<Vector<Object>> data = new Vector<>();
+        while (rs.next()) {
+            Vector<Object> vector = new Vector<>();
+            for (int columnIndex = 1; columnIndex <= columnCount; columnIndex++) {
+                vector.add(rs.getObject(columnIndex));
+            }
+            data.add(vector);
+        }
+        return new DefaultTableModel(data, columnNames);
+    }
+
+    // A forward-only ResultSet shaped like "SELECT * FROM sensors" that computes its values from the row number.
+    // getObject returns the same types as MySQL Connector/J (Integer, BigDecimal, Timestamp).
+    static ResultSet sensorsResultSet(int rows) {
+        ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(
+                TableModelBenchmark.class.getClassLoader(),
+                new Class<?>[]{ResultSetMetaData.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getColumnCount" -> COLUMN_NAMES.length;
+                    case "getColumnName", "getColumnLabel" -> COLUMN_NAMES[(Integer) args[0] - 1];
+                    case "getColumnType" -> COLUMN_TYPES[(Integer) args[0] - 1];
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+
+        int[] row = {0};
+        return (ResultSet) Proxy.newProxyInstance(
+                TableModelBenchmark.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "next" -> ++row[0] <= rows;
+                    case "getMetaData" -> metaData;
+                    case "wasNull" -> false;
+                    case "getInt" -> intValue(row[0], (Integer) args[0]);
+                    case "getDouble" -> doubleValue(row[0], (Integer) args[0]);
+                    case "getTimestamp" -> new Timestamp(START_MILLIS + row[0] * 60_000L);
+                    case "getObject" -> objectValue(row[0], (Integer) args[0]);
+                    case "close" -> null;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static int intValue(int row, int column) {
+        return column == 1 ? row : 1 + row % 200;
+    }
+
+    private static double doubleValue(int row, int column) {
+        return switch (column) {
+            case 3 -> 15 + (row % 2000) / 100.0;
+            case 4 -> 20 + (row % 6000) / 100.0;
+            default -> 5 + (row % 30) / 10.0;
+        };
+    }
+
+    private static Object objectValue(int row, int column) {
+        return switch (column) {
+            case 1, 2 -> intValue(row, column);
+            case 3, 4, 5 -> BigDecimal.valueOf(doubleValue(row, column));
+            default -> new Timestamp(START_MILLIS + row * 60_000L);
+        };
+    }
+}
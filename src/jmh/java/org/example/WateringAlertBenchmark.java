@@ -0,0 +1,82 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Cost of checking one sensor reading against the crops of its land, as WateringAlert does per saved reading.
+// The lands and crops are loaded from H2 with the ReferenceDataCache queries into a snapshot, so the
+// measured path is the in-memory lookup without a database round trip.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WateringAlertBenchmark {
+    private static final String DATABASE = "watering_alert";
+    private static final int READINGS = 4096; // Power of two for the index mask
+
+    @Param({"100", "10000"})
+    public int lands;
+
+    @Param({"3"})
+    public int cropsPerLand;
+
+    private final WateringEvaluator evaluator = WateringEvaluator.getInstance();
+    private ReferenceDataCache.Snapshot snapshot;
+    private final SensorReading[] readings = new SensorReading[READINGS];
+    private int next;
+
+    @Setup
+    public void loadSnapshot() throws SQLException {
+        BenchmarkDatabase.create(DATABASE, lands, cropsPerLand);
+        try (Connection connection = BenchmarkDatabase.connect(DATABASE);
+             Statement statement = connection.createStatement()) {
+            ColumnarTableModel landsModel;
+            try (ResultSet resultSet = statement.executeQuery(JdbcRepositories.LANDS_QUERY + " ORDER BY land_id")) {
+                landsModel = ColumnarTableModel.fromResultSet(resultSet);
+            }
+            ColumnarTableModel cropsModel;
+            try (ResultSet resultSet = statement.executeQuery(JdbcRepositories.CROPS_QUERY + " ORDER BY crop_id")) {
+                cropsModel = ColumnarTableModel.fromResultSet(resultSet);
+            }
+            snapshot = ReferenceDataCache.Snapshot.of(landsModel, cropsModel);
+        }
+        for (int i = 0; i < READINGS; i++) {
+            // Spread over the lands, with some land_ids that have no crops
+            readings[i] = BenchmarkDatabase.reading(i * 7919, lands + lands / 10);
+        }
+    }
+
+    private SensorReading nextReading() {
+        return readings[next++ & (READINGS - 1)];
+    }
+
+    @Benchmark
+    public List<WateringEvaluator.Deviation> evaluate() {
+        return evaluator.evaluate(snapshot, nextReading());
+    }
+
+    // Evaluation plus the alert text shown to the user
+    @Benchmark
+    public String evaluateAndFormat() {
+        List<WateringEvaluator.Deviation> deviations = evaluator.evaluate(snapshot, nextReading());
+        return deviations.isEmpty() ? null : WateringAlert.alertMessage(deviations);
+    }
+}
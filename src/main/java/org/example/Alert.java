@@ -0,0 +1,55 @@
+package org.example;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+// One notification from the AlertPipeline.
+// Watering alerts concern a (land, crop, metric) pair: RAISED when a reading first leaves the crop's range,
+// REPEATED when it is still out of range after the re-notify interval, CLEARED once a reading is back
+// inside the range by the hysteresis margin. deviation holds the out-of-range reading that raised (or last
+// repeated) the alert; value is the reading that produced this notification.
+// ANOMALY alerts come from the AnomalyDetector (outliers and stuck sensors); deviation is null for them.
+public record Alert(Kind kind, WateringEvaluator.Deviation deviation, AnomalyDetector.Anomaly anomaly, double value,
+                    long epochMillis, int suppressed) {
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    public enum Kind { RAISED, REPEATED, CLEARED, ANOMALY }
+
+    public static Alert watering(Kind kind, WateringEvaluator.Deviation deviation, double value, long epochMillis, int suppressed) {
+        return new Alert(kind, deviation, null, value, epochMillis, suppressed);
+    }
+
+    public static Alert anomaly(AnomalyDetector.Anomaly anomaly, long epochMillis, int suppressed) {
+        return new Alert(Kind.ANOMALY, null, anomaly, anomaly.value(), epochMillis, suppressed);
+    }
+
+    public int landId() {
+        return deviation != null ? deviation.landId() : anomaly.landId();
+    }
+
+    public String message() {
+        if (kind == Kind.ANOMALY) {
+            String message = anomaly.describe();
+            return suppressed > 0 ? message + " (" + suppressed + " similar alerts suppressed)" : message;
+        }
+        if (kind == Kind.CLEARED) {
+            WateringEvaluator.Metric metric = deviation.metric();
+            return "Cleared: Land ID " + deviation.landId() + " (" + deviation.cropName() + ") " + metric.label()
+                    + " is back in range (" + value + metric.unit() + ").";
+        }
+        String message = WateringAlert.formatAlert(deviation);
+        return suppressed > 0 ? message + " (" + suppressed + " similar alerts suppressed)" : message;
+    }
+
+    public String formattedTime() {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault()).format(TIME_FORMAT);
+    }
+
+    // e.g. "2024-05-01 14:03:12 RAISED Alert: Land ID 3 (Maize) has low moisture (12.0%). ..."
+    @Override
+    public String toString() {
+        return formattedTime() + " " + kind + " " + message();
+    }
+}
@@ -0,0 +1,136 @@
+package org.example;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Non-modal list of the alerts raised in this session, newest first.
+// Its sink hands alerts to the EDT in batches (one invokeLater per burst, not per alert), and the window
+// opens by itself without stealing focus when an alert arrives while it is hidden.
+public class AlertListPanel extends JFrame {
+    private static final int MAX_ROWS = 1_000;
+
+    private static AlertListPanel instance;
+    private static final ConcurrentLinkedQueue<Alert> pending = new ConcurrentLinkedQueue<>();
+    private static final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private static final AlertSink SINK = alert -> {
+        pending.add(alert);
+        if (drainScheduled.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(AlertListPanel::drain);
+        }
+    };
+
+    private final AlertTableModel alertModel = new AlertTableModel();
+
+    private AlertListPanel() {
+        setTitle("Alerts");
+        setSize(1000, 400);
+        setLocationRelativeTo(null);
+        setDefaultCloseOperation(JFrame.HIDE_ON_CLOSE); // Keeps collecting alerts while hidden
+        setLayout(new BorderLayout());
+
+        JTable alertTable = new JTable(alertModel);
+        alertTable.getColumnModel().getColumn(0).setPreferredWidth(150);
+        alertTable.getColumnModel().getColumn(1).setPreferredWidth(80);
+        alertTable.getColumnModel().getColumn(2).setPreferredWidth(770);
+        add(new JScrollPane(alertTable), BorderLayout.CENTER);
+
+        JPanel buttonPanel = new JPanel();
+        JButton clearButton = new JButton("Clear List");
+        clearButton.addActionListener(e -> alertModel.clear());
+        buttonPanel.add(clearButton);
+        add(buttonPanel, BorderLayout.SOUTH);
+    }
+
+    // Sink to register with the AlertPipeline
+    public static AlertSink sink() {
+        return SINK;
+    }
+
+    // Shows the list; must be called on the EDT
+    public static void open() {
+        AlertListPanel panel = getInstance();
+        panel.setVisible(true);
+        panel.toFront();
+    }
+
+    private static AlertListPanel getInstance() {
+        if (instance == null) {
+            instance = new AlertListPanel();
+        }
+        return instance;
+    }
+
+    private static void drain() {
+        drainScheduled.set(false);
+        List<Alert> alerts = new ArrayList<>();
+        for (Alert alert; (alert = pending.poll()) != null; ) {
+            alerts.add(alert);
+        }
+        if (alerts.isEmpty()) {
+            return;
+        }
+        AlertListPanel panel = getInstance();
+        panel.alertModel.addAll(alerts);
+        if (!panel.isVisible()) {
+            panel.setAutoRequestFocus(false); // Don't take the keyboard away from the form being typed in
+            panel.setVisible(true);
+            panel.setAutoRequestFocus(true);
+        }
+    }
+
+    private static final class AlertTableModel extends AbstractTableModel {
+        private static final String[] COLUMN_NAMES = {"Time", "Kind", "Alert"};
+
+        private final List<Alert> rows = new ArrayList<>();
+
+        // Inserts the alerts at the top, newest first, and drops the oldest beyond MAX_ROWS
+        private void addAll(List<Alert> alerts) {
+            List<Alert> newestFirst = new ArrayList<>(alerts.size());
+            for (int i = alerts.size() - 1; i >= 0; i--) {
+                newestFirst.add(alerts.get(i));
+            }
+            rows.addAll(0, newestFirst);
+            fireTableRowsInserted(0, newestFirst.size() - 1);
+            if (rows.size() > MAX_ROWS) {
+                int oldSize = rows.size();
+                rows.subList(MAX_ROWS, oldSize).clear();
+                fireTableRowsDeleted(MAX_ROWS, oldSize - 1);
+            }
+        }
+
+        private void clear() {
+            rows.clear();
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMN_NAMES.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMN_NAMES[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            Alert alert = rows.get(row);
+            return switch (column) {
+                case 0 -> alert.formattedTime();
+                case 1 -> alert.kind();
+                default -> alert.message();
+            };
+        }
+    }
+}
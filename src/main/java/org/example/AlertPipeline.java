@@ -0,0 +1,302 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Turns sensor readings into watering alerts off the caller's thread.
+// submit() only offers the reading to a bounded queue, so neither the EDT nor the ingestion threads ever
+// wait for the evaluation; when the queue is full the reading skips the watering check (it is still stored).
+// A single "alert-pipeline" thread evaluates the readings and keeps one alert state per (land, crop, metric):
+//  - deduplication: an alert is RAISED once and then stays quiet while the readings remain out of range,
+//    apart from a REPEATED reminder every renotifyMinutes;
+//  - hysteresis: an alert is CLEARED only when a reading is back inside the range by a margin of
+//    hysteresis × range width, so a value hovering at the tolerance edge doesn't flap;
+//  - rate limiting: each land may raise at most maxPerMinute alerts per minute (token bucket); the excess
+//    is suppressed and counted in the next alert that gets through.
+// Every reading also goes through the AnomalyDetector, on the submitting thread and before the queue, so a
+// full queue drops the watering check but never a reading from the detector's running state. observe() feeds
+// the detector alone, for readings that bypass the watering check (the CSV import). Its outliers and stuck
+// sensors are handed to the pipeline thread and published as ANOMALY alerts under the same rate limit.
+// Alerts go to pluggable AlertSinks: the console log, a file (-Dsmartagri.alerts.file) and, in the
+// desktop application, the AlertListPanel.
+public class AlertPipeline {
+    private static final AlertPipeline INSTANCE = new AlertPipeline(
+            Integer.getInteger("smartagri.alerts.queueCapacity", 10_000),
+            Integer.getInteger("smartagri.alerts.maxPerMinute", 6),
+            Double.parseDouble(System.getProperty("smartagri.alerts.hysteresis", "0.1")),
+            Long.getLong("smartagri.alerts.renotifyMinutes", 30L) * 60_000L);
+
+    private final BlockingQueue<SensorReading> queue;
+    private final double tokensPerMilli;
+    private final int burst;
+    private final double hysteresis;
+    private final long renotifyMillis;
+    private final List<AlertSink> sinks = new CopyOnWriteArrayList<>();
+    private final AnomalyDetector anomalyDetector = new AnomalyDetector(); // Guarded by itself
+    // Anomalies found on the submitting threads, waiting for the pipeline thread to publish them
+    private final BlockingQueue<AnomalyDetector.Anomaly> pendingAnomalies;
+
+    // Alert state, confined to the pipeline thread
+    private final Map<Integer, Map<AlertKey, ActiveAlert>> activeByLand = new HashMap<>();
+    private final Map<Integer, RateLimit> rateLimits = new HashMap<>();
+    private volatile int activeCount;
+
+    // Counters
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder evaluated = new LongAdder();
+    private final LongAdder raised = new LongAdder();
+    private final LongAdder repeated = new LongAdder();
+    private final LongAdder cleared = new LongAdder();
+    private final LongAdder anomalies = new LongAdder();
+    private final LongAdder suppressed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    private record AlertKey(int cropId, WateringEvaluator.Metric metric) {
+    }
+
+    private static final class ActiveAlert {
+        private WateringEvaluator.Deviation deviation;
+        private long notifiedMillis;
+
+        private ActiveAlert(WateringEvaluator.Deviation deviation, long notifiedMillis) {
+            this.deviation = deviation;
+            this.notifiedMillis = notifiedMillis;
+        }
+    }
+
+    private static final class RateLimit {
+        private double tokens;
+        private long refilledMillis;
+        private int suppressed;
+    }
+
+    AlertPipeline(int queueCapacity, int maxPerMinute, double hysteresis, long renotifyMillis) {
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.pendingAnomalies = new ArrayBlockingQueue<>(queueCapacity);
+        this.burst = maxPerMinute;
+        this.tokensPerMilli = maxPerMinute / 60_000.0;
+        this.hysteresis = hysteresis;
+        this.renotifyMillis = renotifyMillis;
+        sinks.add(AlertSink.log());
+        String file = System.getProperty("smartagri.alerts.file");
+        if (file != null) {
+            try {
+                sinks.add(new FileAlertSink(Path.of(file)));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        Thread worker = new Thread(this::run, "alert-pipeline");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public static AlertPipeline getInstance() {
+        return INSTANCE;
+    }
+
+    public void addSink(AlertSink sink) {
+        sinks.add(sink);
+    }
+
+    public void removeSink(AlertSink sink) {
+        sinks.remove(sink);
+    }
+
+    // Queues the reading for evaluation without blocking; false if the queue is full, in which case only the
+    // anomaly detector has seen it
+    public boolean submit(SensorReading reading) {
+        observe(reading);
+        if (queue.offer(reading)) {
+            submitted.increment();
+            return true;
+        }
+        dropped.increment();
+        return false;
+    }
+
+    // Runs the reading through the anomaly detector only; never blocks. An anomaly that finds no room
+    // in the pending queue is dropped and counted as such.
+    public void observe(SensorReading reading) {
+        AnomalyDetector.Anomaly[] found;
+        synchronized (anomalyDetector) {
+            if (anomalyDetector.observe(reading) == 0) {
+                return;
+            }
+            found = anomalyDetector.anomalies(reading);
+        }
+        for (AnomalyDetector.Anomaly anomaly : found) {
+            if (!pendingAnomalies.offer(anomaly)) {
+                dropped.increment();
+            }
+        }
+    }
+
+    public PipelineStats stats() {
+        return new PipelineStats(submitted.sum(), dropped.sum(), evaluated.sum(), raised.sum(), repeated.sum(),
+                cleared.sum(), anomalies.sum(), suppressed.sum(), failed.sum(), activeCount, queue.size());
+    }
+
+    private void run() {
+        while (true) {
+            try {
+                // Wakes up now and then for anomalies of readings that never reach the queue
+                SensorReading reading = queue.poll(1, TimeUnit.SECONDS);
+                if (reading != null) {
+                    long start = System.nanoTime();
+                    List<WateringEvaluator.Deviation> deviations = WateringEvaluator.getInstance().evaluate(reading);
+                    Diagnostics.record(Diagnostics.WATERING_CHECK, System.nanoTime() - start);
+                    evaluated.increment();
+                    process(reading, deviations, System.currentTimeMillis());
+                }
+                publishAnomalies(System.currentTimeMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (SQLException | RuntimeException | Error e) {
+                // One bad reading must not end the pipeline thread, and with it all further alerts
+                failed.increment();
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // Updates the alert state of the reading's land and publishes what changed; runs on the pipeline thread
+    void process(SensorReading reading, List<WateringEvaluator.Deviation> deviations, long now) {
+        Map<AlertKey, ActiveAlert> active = activeByLand.get(reading.landId());
+        Set<AlertKey> outOfRange = new HashSet<>();
+        for (WateringEvaluator.Deviation deviation : deviations) {
+            AlertKey key = new AlertKey(deviation.cropId(), deviation.metric());
+            outOfRange.add(key);
+            ActiveAlert alert = active == null ? null : active.get(key);
+            if (alert != null) {
+                // Already reported; only a reminder once the re-notify interval has passed
+                if (now - alert.notifiedMillis >= renotifyMillis && acquire(reading.landId(), now)) {
+                    alert.deviation = deviation;
+                    alert.notifiedMillis = now;
+                    repeated.increment();
+                    publish(Alert.Kind.REPEATED, deviation, deviation.value(), now);
+                }
+            } else if (acquire(reading.landId(), now)) {
+                if (active == null) {
+                    active = new HashMap<>();
+                    activeByLand.put(reading.landId(), active);
+                }
+                active.put(key, new ActiveAlert(deviation, now));
+                activeCount++;
+                raised.increment();
+                publish(Alert.Kind.RAISED, deviation, deviation.value(), now);
+            }
+        }
+
+        // Clear alerts whose metric is back inside the range by the hysteresis margin
+        if (active != null) {
+            for (Iterator<Map.Entry<AlertKey, ActiveAlert>> iterator = active.entrySet().iterator(); iterator.hasNext(); ) {
+                Map.Entry<AlertKey, ActiveAlert> entry = iterator.next();
+                if (outOfRange.contains(entry.getKey())) {
+                    continue;
+                }
+                WateringEvaluator.Deviation deviation = entry.getValue().deviation;
+                double value = valueOf(reading, deviation.metric());
+                double margin = hysteresis * (deviation.upperLimit() - deviation.lowerLimit());
+                if (value >= deviation.lowerLimit() + margin && value <= deviation.upperLimit() - margin) {
+                    iterator.remove();
+                    activeCount--;
+                    cleared.increment();
+                    publish(Alert.Kind.CLEARED, deviation, value, now);
+                }
+            }
+            if (active.isEmpty()) {
+                activeByLand.remove(reading.landId());
+            }
+        }
+    }
+
+    // Outliers and stuck sensors share the land's rate limit with the watering alerts
+    private void publishAnomalies(long now) {
+        AnomalyDetector.Anomaly anomaly;
+        while ((anomaly = pendingAnomalies.poll()) != null) {
+            if (acquire(anomaly.landId(), now)) {
+                anomalies.increment();
+                publish(Alert.anomaly(anomaly, now, takeSuppressed(anomaly.landId())));
+            }
+        }
+    }
+
+    // Takes a token from the land's bucket; false (and counted as suppressed) if it is empty
+    private boolean acquire(int landId, long now) {
+        RateLimit limit = rateLimits.get(landId);
+        if (limit == null) {
+            limit = new RateLimit();
+            limit.tokens = burst;
+            limit.refilledMillis = now;
+            rateLimits.put(landId, limit);
+        }
+        limit.tokens = Math.min(burst, limit.tokens + (now - limit.refilledMillis) * tokensPerMilli);
+        limit.refilledMillis = now;
+        if (limit.tokens >= 1) {
+            limit.tokens--;
+            return true;
+        }
+        limit.suppressed++;
+        suppressed.increment();
+        return false;
+    }
+
+    private void publish(Alert.Kind kind, WateringEvaluator.Deviation deviation, double value, long now) {
+        int suppressedSinceLast = kind == Alert.Kind.CLEARED ? 0 : takeSuppressed(deviation.landId());
+        publish(Alert.watering(kind, deviation, value, now, suppressedSinceLast));
+    }
+
+    // Suppressed alerts of the land since its last published alert
+    private int takeSuppressed(int landId) {
+        RateLimit limit = rateLimits.get(landId);
+        if (limit == null) {
+            return 0;
+        }
+        int count = limit.suppressed;
+        limit.suppressed = 0;
+        return count;
+    }
+
+    private void publish(Alert alert) {
+        for (AlertSink sink : sinks) {
+            try {
+                sink.publish(alert);
+            } catch (RuntimeException e) {
+                e.printStackTrace(); // One broken sink must not starve the others
+            }
+        }
+    }
+
+    private static double valueOf(SensorReading reading, WateringEvaluator.Metric metric) {
+        return switch (metric) {
+            case MOISTURE -> reading.soilMoisture();
+            case TEMPERATURE -> reading.temperature();
+            case PH -> reading.ph();
+        };
+    }
+
+    public record PipelineStats(long submitted, long dropped, long evaluated, long raised, long repeated,
+                                long cleared, long anomalies, long suppressed, long failed, int active, int queued) {
+        @Override
+        public String toString() {
+            return String.format("submitted=%d, dropped=%d, evaluated=%d, raised=%d, repeated=%d, cleared=%d, "
+                            + "anomalies=%d, suppressed=%d, failed=%d, active=%d, queued=%d",
+                    submitted, dropped, evaluated, raised, repeated, cleared, anomalies, suppressed, failed, active, queued);
+        }
+    }
+}
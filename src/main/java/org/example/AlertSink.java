@@ -0,0 +1,13 @@
+package org.example;
+
+// Receives alerts from the AlertPipeline, on the pipeline's thread.
+// A sink that does slow work (Swing, disk) must not hold that thread up for long.
+public interface AlertSink {
+
+    void publish(Alert alert);
+
+    // Prints every alert to standard output
+    static AlertSink log() {
+        return alert -> System.out.println(alert);
+    }
+}
@@ -0,0 +1,242 @@
+package org.example;
+
+import java.util.Arrays;
+
+// Streaming anomaly detection on sensor readings, with O(1) state per land and metric and no history queries.
+// For moisture, temperature and pH it keeps an exponentially weighted mean and variance (weight alpha) and
+// the number of consecutive identical values, in primitive arrays indexed by slot * METRICS + metric, where
+// slots are handed out in order of first appearance through an open-addressed land_id -> slot table:
+//  - OUTLIER: after warmup readings, a value more than zThreshold standard deviations from the mean.
+//    The outlier itself is winsorized to the threshold before it updates the mean and variance, so one
+//    spike doesn't widen the band enough to hide the next one. The standard deviation has a per-metric
+//    floor at the resolution of the sensors columns, so a steady signal doesn't turn rounding into outliers.
+//  - STUCK: the same value stuckReadings times in a row, flagged once until the value changes. pH is
+//    stored with one decimal and legitimately repeats far longer, so it needs PH_STUCK_FACTOR times more.
+// Non-finite values (NaN, infinities) are skipped, so they neither raise anomalies nor poison the state, and
+// so are readings older than the land's last one (e.g. an imported backfill), which must not rewind it.
+// Not thread-safe; the AlertPipeline calls it under a lock.
+public class AnomalyDetector {
+    public static final int OUTLIER = 1;
+    public static final int STUCK = 2;
+
+    private static final int METRICS = 3;
+    private static final int MOISTURE = 0;
+    private static final int TEMPERATURE = 1;
+    private static final int PH = 2;
+    private static final WateringEvaluator.Metric[] METRIC_BY_INDEX = {
+            WateringEvaluator.Metric.MOISTURE, WateringEvaluator.Metric.TEMPERATURE, WateringEvaluator.Metric.PH};
+    private static final double[] MIN_STD_DEV = {0.5, 0.25, 0.05};
+    private static final int PH_STUCK_FACTOR = 12;
+
+    private final double alpha;
+    private final double zThreshold;
+    private final int warmup;
+    private final int[] stuckReadings = new int[METRICS];
+
+    // Open-addressed land_id -> slot + 1 table (0 = empty), linear probing, at most half full
+    private int[] tableKeys = new int[16];
+    private int[] tableSlots = new int[16];
+    private int lands;
+
+    // State per slot * METRICS + metric
+    private double[] means = new double[0];
+    private double[] variances = new double[0];
+    private double[] lastValues = new double[0];
+    private int[] counts = new int[0];
+    private int[] repeats = new int[0];
+    // Per slot: timestamp of the land's latest reading observed
+    private long[] lastTimestamps = new long[0];
+
+    // Details of the last anomalous reading passed to observe()
+    private final int[] flags = new int[METRICS];
+    private final double[] expected = new double[METRICS];
+    private final double[] stdDevs = new double[METRICS];
+
+    // One anomaly of one metric
+    public record Anomaly(int landId, WateringEvaluator.Metric metric, int type, double value, double mean,
+                          double stdDev, int repeats) {
+        public String describe() {
+            String unit = metric.unit();
+            if (type == STUCK) {
+                return "Sensor on Land ID " + landId + " looks stuck: " + metric.label() + " has read " + value + unit
+                        + " " + repeats + " times in a row.";
+            }
+            return String.format("Sensor on Land ID %d reported unusual %s: %s%s (expected %.1f%s ± %.1f).",
+                    landId, metric.label(), value, unit, mean, unit, stdDev);
+        }
+    }
+
+    // Configured from -Dsmartagri.anomaly.* system properties
+    public AnomalyDetector() {
+        this(Double.parseDouble(System.getProperty("smartagri.anomaly.alpha", "0.05")),
+                Double.parseDouble(System.getProperty("smartagri.anomaly.zThreshold", "4")),
+                Integer.getInteger("smartagri.anomaly.warmup", 20),
+                Integer.getInteger("smartagri.anomaly.stuckReadings", 30));
+    }
+
+    public AnomalyDetector(double alpha, double zThreshold, int warmup, int stuckReadings) {
+        this.alpha = alpha;
+        this.zThreshold = zThreshold;
+        this.warmup = warmup;
+        this.stuckReadings[MOISTURE] = stuckReadings;
+        this.stuckReadings[TEMPERATURE] = stuckReadings;
+        this.stuckReadings[PH] = stuckReadings * PH_STUCK_FACTOR;
+    }
+
+    // Updates the land's state with the reading; returns OUTLIER | STUCK bits of all metrics, 0 if normal.
+    // Allocates nothing unless the land is new; anomalies() describes a non-zero result.
+    public int observe(SensorReading reading) {
+        int slot = slotOf(reading.landId(), true);
+        if (reading.timestampMillis() < lastTimestamps[slot]) {
+            Arrays.fill(flags, 0);
+            return 0;
+        }
+        lastTimestamps[slot] = reading.timestampMillis();
+        int base = slot * METRICS;
+        return observe(base + MOISTURE, MOISTURE, reading.soilMoisture())
+                | observe(base + TEMPERATURE, TEMPERATURE, reading.temperature())
+                | observe(base + PH, PH, reading.ph());
+    }
+
+    // The anomalies found by the last observe() of this reading
+    public Anomaly[] anomalies(SensorReading reading) {
+        int count = 0;
+        for (int metric = 0; metric < METRICS; metric++) {
+            count += Integer.bitCount(flags[metric]);
+        }
+        Anomaly[] anomalies = new Anomaly[count];
+        int next = 0;
+        double[] values = {reading.soilMoisture(), reading.temperature(), reading.ph()};
+        int base = count == 0 ? 0 : slotOf(reading.landId(), false) * METRICS;
+        for (int metric = 0; metric < METRICS; metric++) {
+            int slot = base + metric;
+            if ((flags[metric] & OUTLIER) != 0) {
+                anomalies[next++] = new Anomaly(reading.landId(), METRIC_BY_INDEX[metric], OUTLIER, values[metric],
+                        expected[metric], stdDevs[metric], 0);
+            }
+            if ((flags[metric] & STUCK) != 0) {
+                anomalies[next++] = new Anomaly(reading.landId(), METRIC_BY_INDEX[metric], STUCK, values[metric],
+                        expected[metric], stdDevs[metric], repeats[slot]);
+            }
+        }
+        return anomalies;
+    }
+
+    // Forgets a land, e.g. after its probe was replaced
+    public void reset(int landId) {
+        int slot = slotOf(landId, false);
+        if (slot >= 0) {
+            int base = slot * METRICS;
+            Arrays.fill(counts, base, base + METRICS, 0);
+            Arrays.fill(repeats, base, base + METRICS, 0);
+            lastTimestamps[slot] = 0;
+        }
+    }
+
+    private int observe(int slot, int metric, double value) {
+        if (!Double.isFinite(value)) {
+            flags[metric] = 0;
+            return 0;
+        }
+        int flag = 0;
+        int count = counts[slot];
+
+        // Stuck: identical consecutive values
+        if (count > 0 && value == lastValues[slot]) {
+            if (++repeats[slot] == stuckReadings[metric]) {
+                flag |= STUCK;
+            }
+        } else {
+            repeats[slot] = 1;
+        }
+        lastValues[slot] = value;
+
+        if (count == 0) {
+            means[slot] = value;
+            variances[slot] = 0;
+            counts[slot] = 1;
+            flags[metric] = flag;
+            return flag;
+        }
+
+        double mean = means[slot];
+        double stdDev = Math.max(Math.sqrt(variances[slot]), MIN_STD_DEV[metric]);
+        double limit = zThreshold * stdDev;
+        double diff = value - mean;
+        if (count >= warmup && Math.abs(diff) > limit) {
+            flag |= OUTLIER;
+            diff = diff > 0 ? limit : -limit; // Winsorize before updating
+        }
+        expected[metric] = mean;
+        stdDevs[metric] = stdDev;
+
+        double increment = alpha * diff;
+        means[slot] = mean + increment;
+        variances[slot] = (1 - alpha) * (variances[slot] + diff * increment);
+        if (count < Integer.MAX_VALUE) {
+            counts[slot] = count + 1;
+        }
+        flags[metric] = flag;
+        return flag;
+    }
+
+    // The land's slot; with add, a new slot for a land seen for the first time, else -1
+    private int slotOf(int landId, boolean add) {
+        int mask = tableKeys.length - 1;
+        int index = mix(landId) & mask;
+        while (tableSlots[index] != 0) {
+            if (tableKeys[index] == landId) {
+                return tableSlots[index] - 1;
+            }
+            index = (index + 1) & mask;
+        }
+        if (!add) {
+            return -1;
+        }
+        int slot = lands++;
+        tableKeys[index] = landId;
+        tableSlots[index] = slot + 1;
+        if (lands * 2 > tableKeys.length) {
+            rehash(tableKeys.length * 2);
+        }
+        if ((slot + 1) * METRICS > means.length) {
+            grow((slot + 1) * METRICS);
+        }
+        if (slot >= lastTimestamps.length) {
+            lastTimestamps = Arrays.copyOf(lastTimestamps, means.length / METRICS);
+        }
+        return slot;
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = tableKeys;
+        int[] oldSlots = tableSlots;
+        tableKeys = new int[capacity];
+        tableSlots = new int[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldSlots[i] != 0) {
+                int index = mix(oldKeys[i]) & mask;
+                while (tableSlots[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+                tableKeys[index] = oldKeys[i];
+                tableSlots[index] = oldSlots[i];
+            }
+        }
+    }
+
+    private void grow(int minLength) {
+        int length = Math.max(minLength, means.length * 2);
+        means = Arrays.copyOf(means, length);
+        variances = Arrays.copyOf(variances, length);
+        lastValues = Arrays.copyOf(lastValues, length);
+        counts = Arrays.copyOf(counts, length);
+        repeats = Arrays.copyOf(repeats, length);
+    }
+}
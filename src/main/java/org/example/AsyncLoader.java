@@ -0,0 +1,105 @@
+package org.example;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableModel;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+// Runs panel database loads on background threads and hands the results back on the Swing event thread.
+// Each panel owns one loader and cancels it when its window is disposed.
+public class AsyncLoader {
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "panel-loader-" + THREAD_COUNTER.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // A unit of background work, usually a JDBC query
+    @FunctionalInterface
+    public interface Query<T> {
+        T run() throws Exception;
+    }
+
+    // Latest load per target; a newer load for the same target supersedes the older one
+    private final Map<Object, Future<?>> inFlight = new ConcurrentHashMap<>();
+    private volatile boolean cancelled;
+
+    // Runs the query in the background and swaps the model in on the EDT.
+    // An empty table shows a loading placeholder meanwhile; a refresh keeps showing the old rows.
+    // The time until the rows are shown is recorded as the "load.<label>" latency.
+    public <M extends TableModel> void loadTable(String label, JTable table, Query<M> query, Consumer<? super M> onLoaded) {
+        if (table.getColumnCount() == 0) {
+            table.setModel(messageModel("Loading..."));
+        }
+        long start = System.nanoTime();
+        load(table, query, model -> {
+            table.setModel(model);
+            onLoaded.accept(model);
+            Diagnostics.record("load." + label, System.nanoTime() - start);
+        }, e -> table.setModel(messageModel("Failed to load data")));
+    }
+
+    // Runs the query in the background; exactly one of the callbacks is invoked on the EDT unless the load is cancelled
+    public <T> void load(Object key, Query<T> query, Consumer<? super T> onLoaded, Consumer<? super Exception> onFailed) {
+        if (cancelled) {
+            return;
+        }
+        AtomicReference<Future<?>> self = new AtomicReference<>();
+        FutureTask<Void> task = new FutureTask<>(() -> {
+            try {
+                T result = query.run();
+                deliver(key, self.get(), () -> onLoaded.accept(result));
+            } catch (Exception e) {
+                if (!Thread.currentThread().isInterrupted()) {
+                    e.printStackTrace();
+                    deliver(key, self.get(), () -> onFailed.accept(e));
+                }
+            }
+            return null;
+        });
+        self.set(task);
+
+        Future<?> previous = inFlight.put(key, task);
+        if (previous != null) {
+            previous.cancel(true);
+        }
+        EXECUTOR.execute(task);
+    }
+
+    private void deliver(Object key, Future<?> task, Runnable action) {
+        SwingUtilities.invokeLater(() -> {
+            // Drop results of loads that were cancelled or superseded while the query was running
+            if (!cancelled && inFlight.remove(key, task)) {
+                action.run();
+            }
+        });
+    }
+
+    // Cancels every in-flight load; called when the owning window is disposed
+    public void cancelAll() {
+        cancelled = true;
+        for (Future<?> task : inFlight.values()) {
+            task.cancel(true);
+        }
+        inFlight.clear();
+    }
+
+    // A one-cell read-only model used as a placeholder while data is loading
+    public static TableModel messageModel(String message) {
+        return new DefaultTableModel(new Object[][]{{message}}, new Object[]{""}) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+    }
+}
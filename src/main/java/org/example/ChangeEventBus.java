@@ -0,0 +1,203 @@
+package org.example;
+
+import javax.swing.*;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// In-process bus for row changes made through the panels, so every open window can follow them.
+// Publishing is cheap and works from any thread. Changes are collected and delivered on the Swing
+// event thread at most once per frame, so a burst of writes produces a single round of UI updates.
+// Within a frame, repeated changes to the same row from the same source are merged.
+public final class ChangeEventBus {
+    private static final int FRAME_MILLIS = 16;
+    private static final ChangeEventBus INSTANCE = new ChangeEventBus();
+
+    public enum Table { LANDS, CROPS, SENSORS, IRRIGATION }
+
+    public enum Kind { INSERTED, UPDATED, DELETED }
+
+    // One changed row. landId is the land the row belongs to (the row's own id for lands), so
+    // subscribers can follow joins on land_id; source is the publisher, usually a panel.
+    public record Change(Table table, Kind kind, int id, int landId, Object source) {
+    }
+
+    @FunctionalInterface
+    public interface Listener {
+        // Called on the event thread with the changes of one frame, in publication order
+        void changed(List<Change> changes);
+    }
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Map<ChangeKey, Change> pending = new LinkedHashMap<>();
+    private final Timer frameTimer = new Timer(FRAME_MILLIS, e -> deliver());
+
+    private ChangeEventBus() {
+        frameTimer.setRepeats(false);
+    }
+
+    public static ChangeEventBus getInstance() {
+        return INSTANCE;
+    }
+
+    public void subscribe(Listener listener) {
+        listeners.add(listener);
+    }
+
+    // Subscribes ahead of the other listeners; for caches that other subscribers read from
+    public void subscribeFirst(Listener listener) {
+        listeners.add(0, listener);
+    }
+
+    public void unsubscribe(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public void publish(Table table, Kind kind, int id, int landId, Object source) {
+        Change change = new Change(table, kind, id, landId, source);
+        boolean start;
+        synchronized (pending) {
+            ChangeKey key = new ChangeKey(table, id, source);
+            Change merged = merge(pending.remove(key), change);
+            if (merged != null) {
+                pending.put(key, merged);
+            }
+            start = pending.size() == 1;
+        }
+        if (start) {
+            // Timer.start() is thread-safe; the first change of a frame arms it
+            frameTimer.start();
+        }
+    }
+
+    // Folds a later change of the same row into an earlier one; null if the two cancel out
+    private static Change merge(Change earlier, Change later) {
+        if (earlier == null) {
+            return later;
+        }
+        if (earlier.kind() == Kind.INSERTED) {
+            // Nobody saw the insert yet: an update is still an insert, a delete cancels it
+            return later.kind() == Kind.DELETED ? null
+                    : new Change(later.table(), Kind.INSERTED, later.id(), later.landId(), later.source());
+        }
+        if (earlier.kind() == Kind.DELETED && later.kind() == Kind.INSERTED) {
+            return new Change(later.table(), Kind.UPDATED, later.id(), later.landId(), later.source());
+        }
+        return later;
+    }
+
+    private void deliver() {
+        List<Change> changes;
+        synchronized (pending) {
+            changes = new ArrayList<>(pending.values());
+            pending.clear();
+        }
+        if (changes.isEmpty()) {
+            return;
+        }
+        for (Listener listener : listeners) {
+            try {
+                listener.changed(changes);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // Rows of one table to refresh or remove, in the order they were last changed
+    public record Delta(Set<Integer> upserted, Set<Integer> deleted) {
+        // Above this many rows a subscriber reloads the table instead of applying the rows one by one
+        static final int RELOAD_THRESHOLD = 500;
+
+        // The changes to the given table that were not published by self
+        public static Delta of(List<Change> changes, Table table, Object self) {
+            Delta delta = new Delta(new LinkedHashSet<>(), new LinkedHashSet<>());
+            for (Change change : changes) {
+                if (change.table() != table || change.source() == self) {
+                    continue;
+                }
+                if (change.kind() == Kind.DELETED) {
+                    delta.upserted.remove(change.id());
+                    delta.deleted.add(change.id());
+                } else {
+                    delta.deleted.remove(change.id());
+                    delta.upserted.add(change.id());
+                }
+            }
+            return delta;
+        }
+
+        // The lands touched by changes to the given tables that were not published by self, as rows to refresh
+        public static Delta ofLands(List<Change> changes, Object self, Table... tables) {
+            Delta delta = new Delta(new LinkedHashSet<>(), new LinkedHashSet<>());
+            for (Change change : changes) {
+                if (change.source() != self && List.of(tables).contains(change.table())) {
+                    delta.upserted.add(change.landId());
+                }
+            }
+            return delta;
+        }
+
+        // True if any row of the table was deleted by someone else
+        public static boolean anyDeleted(List<Change> changes, Table table, Object self) {
+            for (Change change : changes) {
+                if (change.table() == table && change.kind() == Kind.DELETED && change.source() != self) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public boolean isEmpty() {
+            return upserted.isEmpty() && deleted.isEmpty();
+        }
+
+        // Applies the delta to a table model keyed by its first column: deleted rows are removed on the
+        // spot and changed rows are re-read in the background with finder, e.g. LandRepository::findByIds.
+        // Falls back to reload when the model isn't loaded yet or the delta is too large.
+        public void applyTo(ColumnarTableModel model, AsyncLoader loader, RowFinder finder, Runnable reload) {
+            if (isEmpty()) {
+                return;
+            }
+            if (model == null || upserted.size() + deleted.size() > RELOAD_THRESHOLD) {
+                reload.run();
+                return;
+            }
+            for (int id : deleted) {
+                model.removeKey(id);
+            }
+            if (upserted.isEmpty()) {
+                return;
+            }
+            List<Integer> ids = new ArrayList<>(upserted);
+            // A fresh key so a second delta doesn't cancel this one
+            loader.load(new Object(), () -> finder.find(ids), model::upsertRows, e -> reload.run());
+        }
+    }
+
+    // Reads the rows with the given keys, ordered by key
+    @FunctionalInterface
+    public interface RowFinder {
+        ColumnarTableModel find(Collection<Integer> ids) throws SQLException;
+    }
+
+    private record ChangeKey(Table table, int id, Object source) {
+        @Override
+        public boolean equals(Object other) {
+            // Sources are compared by identity: two panels of the same kind are different sources
+            return other instanceof ChangeKey key && key.table == table && key.id == id && key.source == source;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(table, id, System.identityHashCode(source));
+        }
+    }
+}
@@ -0,0 +1,559 @@
+package org.example;
+
+import javax.swing.table.AbstractTableModel;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// TableModel that stores a ResultSet column by column.
+// Integer and decimal columns (land_id, temperature, soil_moisture, ph, area, ...) live in primitive arrays,
+// dates and times as epoch millis, and strings are dictionary-encoded so repeated values such as
+// soil_type or crop_name are stored once. Cells are only boxed when the JTable asks for them.
+// When the first column is an integer key and the rows are ordered by it, single rows can be
+// upserted or removed by key after a write instead of reloading the whole table.
+public class ColumnarTableModel extends AbstractTableModel {
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final String[] columnNames;
+    private final int[] sqlTypes;
+    private final Column[] columns;
+    private int rowCount;
+    private int capacity;
+
+    private ColumnarTableModel(String[] columnNames, int[] sqlTypes) {
+        this.columnNames = columnNames;
+        this.sqlTypes = sqlTypes;
+        this.columns = new Column[sqlTypes.length];
+        for (int column = 0; column < sqlTypes.length; column++) {
+            columns[column] = Column.forSqlType(sqlTypes[column]);
+        }
+    }
+
+    // Builds a model from the remaining rows of the ResultSet; the metadata is read once up front
+    public static ColumnarTableModel fromResultSet(ResultSet rs) throws SQLException {
+        DiagnosticEvents.TableModelBuild event = new DiagnosticEvents.TableModelBuild();
+        event.begin();
+        long start = System.nanoTime();
+        ResultSetMetaData metaData = rs.getMetaData();
+        int columnCount = metaData.getColumnCount();
+
+        String[] names = new String[columnCount];
+        int[] types = new int[columnCount];
+        for (int column = 1; column <= columnCount; column++) {
+            names[column - 1] = metaData.getColumnLabel(column); // Alias if the query gave one
+            types[column - 1] = metaData.getColumnType(column);
+        }
+
+        ColumnarTableModel model = new ColumnarTableModel(names, types);
+        model.ensureCapacity(INITIAL_CAPACITY);
+        while (rs.next()) {
+            model.ensureCapacity(model.rowCount + 1);
+            model.readRow(rs, model.rowCount);
+            model.rowCount++;
+        }
+        Diagnostics.tableModelBuilt(event, start, model.rowCount, columnCount);
+        return model;
+    }
+
+    // Builds a model from rows held in memory; values must suit the column's SQL type
+    // (Number for numeric columns, java.util.Date for TIMESTAMP, DATE and TIME, String for text), or be null
+    public static ColumnarTableModel fromRows(String[] names, int[] types, List<Object[]> rows) {
+        ColumnarTableModel model = new ColumnarTableModel(names, types);
+        model.ensureCapacity(Math.max(rows.size(), INITIAL_CAPACITY));
+        for (Object[] values : rows) {
+            for (int column = 0; column < model.columns.length; column++) {
+                model.columns[column].set(values[column], model.rowCount);
+            }
+            model.rowCount++;
+        }
+        return model;
+    }
+
+    // Independent copy of the rows, for handing a shared model to a table that will modify it
+    public ColumnarTableModel copy() {
+        ColumnarTableModel copy = new ColumnarTableModel(columnNames, sqlTypes);
+        copy.ensureCapacity(Math.max(rowCount, INITIAL_CAPACITY));
+        for (int row = 0; row < rowCount; row++) {
+            copy.copyRow(this, row, row);
+        }
+        copy.rowCount = rowCount;
+        return copy;
+    }
+
+    // Inserts or replaces every row of the ResultSet by the key in its first column.
+    // The ResultSet must have the same columns as the one the model was built from.
+    public void upsertRows(ResultSet rs) throws SQLException {
+        upsertRows(fromResultSet(rs));
+    }
+
+    // Inserts or replaces every row of another model with the same columns, by key
+    public void upsertRows(ColumnarTableModel rows) {
+        IntColumn keys = keyColumn(rows);
+        for (int source = 0; source < rows.rowCount; source++) {
+            int row = indexOfKey(keys.values[source]);
+            if (row >= 0) {
+                copyRow(rows, source, row);
+                fireTableRowsUpdated(row, row);
+            } else {
+                row = -(row + 1);
+                ensureCapacity(rowCount + 1);
+                if (row < rowCount) {
+                    // Auto-increment keys append at the end, so this shift is rare
+                    moveRows(row, row + 1, rowCount - row);
+                }
+                copyRow(rows, source, row);
+                rowCount++;
+                fireTableRowsInserted(row, row);
+            }
+        }
+    }
+
+    // Removes the row with the given key; returns false if it isn't in the model
+    public boolean removeKey(int key) {
+        int row = indexOfKey(key);
+        if (row < 0) {
+            return false;
+        }
+        moveRows(row + 1, row, rowCount - row - 1);
+        rowCount--;
+        fireTableRowsDeleted(row, row);
+        return true;
+    }
+
+    // Binary search on the first column; returns -(insertion point) - 1 if the key is not present
+    public int indexOfKey(int key) {
+        return Arrays.binarySearch(keyColumn(this).values, 0, rowCount, key);
+    }
+
+    private static IntColumn keyColumn(ColumnarTableModel model) {
+        if (!(model.columns[0] instanceof IntColumn keys)) {
+            throw new IllegalStateException("First column " + model.columnNames[0] + " is not an integer key");
+        }
+        return keys;
+    }
+
+    private void ensureCapacity(int rows) {
+        if (rows <= capacity) {
+            return;
+        }
+        capacity = Math.max(rows, capacity * 2);
+        for (Column column : columns) {
+            column.ensureCapacity(capacity);
+        }
+    }
+
+    private void readRow(ResultSet rs, int row) throws SQLException {
+        for (int column = 0; column < columns.length; column++) {
+            columns[column].nulls.clear(row);
+            columns[column].read(rs, column + 1, row);
+        }
+    }
+
+    private void copyRow(ColumnarTableModel source, int sourceRow, int row) {
+        for (int column = 0; column < columns.length; column++) {
+            Column from = source.columns[column];
+            columns[column].nulls.set(row, from.nulls.get(sourceRow));
+            columns[column].copyFrom(from, sourceRow, row);
+        }
+    }
+
+    private void moveRows(int from, int to, int length) {
+        for (Column column : columns) {
+            column.move(from, to, length);
+        }
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return columns[column].valueClass();
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        if (row >= rowCount) {
+            throw new IndexOutOfBoundsException("row " + row + " of " + rowCount);
+        }
+        return columns[column].get(row);
+    }
+
+    // Storage for one column; rows are written by read() and shifted by move()
+    private abstract static class Column {
+        final BitSet nulls = new BitSet();
+
+        static Column forSqlType(int sqlType) {
+            return switch (sqlType) {
+                case Types.INTEGER, Types.SMALLINT, Types.TINYINT -> new IntColumn();
+                case Types.BIGINT -> new LongColumn();
+                case Types.DECIMAL, Types.NUMERIC, Types.DOUBLE, Types.FLOAT, Types.REAL -> new DoubleColumn();
+                case Types.TIMESTAMP, Types.TIMESTAMP_WITH_TIMEZONE -> new TimeColumn(Timestamp.class);
+                case Types.DATE -> new TimeColumn(Date.class);
+                case Types.TIME, Types.TIME_WITH_TIMEZONE -> new TimeColumn(Time.class);
+                case Types.CHAR, Types.VARCHAR, Types.LONGVARCHAR, Types.NCHAR, Types.NVARCHAR, Types.LONGNVARCHAR ->
+                        new StringColumn();
+                default -> new ObjectColumn();
+            };
+        }
+
+        abstract Class<?> valueClass();
+
+        abstract void ensureCapacity(int capacity);
+
+        abstract void read(ResultSet rs, int column, int row) throws SQLException;
+
+        // Stores a value given as an object; null marks the row null
+        abstract void set(Object value, int row);
+
+        abstract Object get(int row);
+
+        // Copies the values of rows [from, from + length) to rows starting at to
+        abstract void copy(int from, int to, int length);
+
+        // Copies one value from a column of the same type in another model
+        abstract void copyFrom(Column source, int sourceRow, int row);
+
+        // Moves rows [from, from + length) to start at to, carrying their null flags along
+        final void move(int from, int to, int length) {
+            copy(from, to, length);
+            BitSet moved = nulls.get(from, from + length);
+            nulls.clear(Math.min(from, to), Math.max(from, to) + length);
+            for (int row = moved.nextSetBit(0); row >= 0; row = moved.nextSetBit(row + 1)) {
+                nulls.set(to + row);
+            }
+        }
+    }
+
+    private static final class IntColumn extends Column {
+        private int[] values = new int[0];
+
+        @Override
+        Class<?> valueClass() {
+            return Integer.class;
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        void read(ResultSet rs, int column, int row) throws SQLException {
+            values[row] = rs.getInt(column);
+            if (rs.wasNull()) {
+                nulls.set(row);
+            }
+        }
+
+        @Override
+        void set(Object value, int row) {
+            if (value == null) {
+                nulls.set(row);
+            } else {
+                values[row] = ((Number) value).intValue();
+            }
+        }
+
+        @Override
+        Object get(int row) {
+            return nulls.get(row) ? null : values[row];
+        }
+
+        @Override
+        void copy(int from, int to, int length) {
+            System.arraycopy(values, from, values, to, length);
+        }
+
+        @Override
+        void copyFrom(Column source, int sourceRow, int row) {
+            values[row] = ((IntColumn) source).values[sourceRow];
+        }
+    }
+
+    private static final class LongColumn extends Column {
+        private long[] values = new long[0];
+
+        @Override
+        Class<?> valueClass() {
+            return Long.class;
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        void read(ResultSet rs, int column, int row) throws SQLException {
+            values[row] = rs.getLong(column);
+            if (rs.wasNull()) {
+                nulls.set(row);
+            }
+        }
+
+        @Override
+        void set(Object value, int row) {
+            if (value == null) {
+                nulls.set(row);
+            } else {
+                values[row] = ((Number) value).longValue();
+            }
+        }
+
+        @Override
+        Object get(int row) {
+            return nulls.get(row) ? null : values[row];
+        }
+
+        @Override
+        void copy(int from, int to, int length) {
+            System.arraycopy(values, from, values, to, length);
+        }
+
+        @Override
+        void copyFrom(Column source, int sourceRow, int row) {
+            values[row] = ((LongColumn) source).values[sourceRow];
+        }
+    }
+
+    private static final class DoubleColumn extends Column {
+        private double[] values = new double[0];
+
+        @Override
+        Class<?> valueClass() {
+            return Double.class;
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        void read(ResultSet rs, int column, int row) throws SQLException {
+            values[row] = rs.getDouble(column);
+            if (rs.wasNull()) {
+                nulls.set(row);
+            }
+        }
+
+        @Override
+        void set(Object value, int row) {
+            if (value == null) {
+                nulls.set(row);
+            } else {
+                values[row] = ((Number) value).doubleValue();
+            }
+        }
+
+        @Override
+        Object get(int row) {
+            return nulls.get(row) ? null : values[row];
+        }
+
+        @Override
+        void copy(int from, int to, int length) {
+            System.arraycopy(values, from, values, to, length);
+        }
+
+        @Override
+        void copyFrom(Column source, int sourceRow, int row) {
+            values[row] = ((DoubleColumn) source).values[sourceRow];
+        }
+    }
+
+    // TIMESTAMP, DATE and TIME columns stored as epoch millis
+    private static final class TimeColumn extends Column {
+        private final Class<?> type;
+        private long[] values = new long[0];
+
+        private TimeColumn(Class<?> type) {
+            this.type = type;
+        }
+
+        // Reported as Object so JTable renders the value's toString() instead of a date-only format
+        @Override
+        Class<?> valueClass() {
+            return Object.class;
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        void read(ResultSet rs, int column, int row) throws SQLException {
+            java.util.Date value;
+            if (type == Time.class) {
+                value = rs.getTime(column);
+            } else if (type == Date.class) {
+                value = rs.getDate(column);
+            } else {
+                value = rs.getTimestamp(column);
+            }
+            if (value == null) {
+                nulls.set(row);
+            } else {
+                values[row] = value.getTime();
+            }
+        }
+
+        @Override
+        void set(Object value, int row) {
+            if (value == null) {
+                nulls.set(row);
+            } else {
+                values[row] = ((java.util.Date) value).getTime();
+            }
+        }
+
+        @Override
+        Object get(int row) {
+            if (nulls.get(row)) {
+                return null;
+            }
+            if (type == Time.class) {
+                return new Time(values[row]);
+            }
+            if (type == Date.class) {
+                return new Date(values[row]);
+            }
+            return new Timestamp(values[row]);
+        }
+
+        @Override
+        void copy(int from, int to, int length) {
+            System.arraycopy(values, from, values, to, length);
+        }
+
+        @Override
+        void copyFrom(Column source, int sourceRow, int row) {
+            values[row] = ((TimeColumn) source).values[sourceRow];
+        }
+    }
+
+    // Dictionary-encoded strings: each distinct value is stored once and rows hold an int code
+    private static final class StringColumn extends Column {
+        private static final int NULL_CODE = -1;
+
+        private int[] codes = new int[0];
+        private final List<String> dictionary = new ArrayList<>();
+        private final Map<String, Integer> index = new HashMap<>();
+
+        @Override
+        Class<?> valueClass() {
+            return String.class;
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            codes = Arrays.copyOf(codes, capacity);
+        }
+
+        @Override
+        void read(ResultSet rs, int column, int row) throws SQLException {
+            String value = rs.getString(column);
+            if (value == null) {
+                codes[row] = NULL_CODE;
+                return;
+            }
+            codes[row] = encode(value);
+        }
+
+        private int encode(String value) {
+            Integer code = index.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.add(value);
+                index.put(value, code);
+            }
+            return code;
+        }
+
+        @Override
+        void set(Object value, int row) {
+            codes[row] = value == null ? NULL_CODE : encode(value.toString());
+        }
+
+        @Override
+        Object get(int row) {
+            int code = codes[row];
+            return code == NULL_CODE ? null : dictionary.get(code);
+        }
+
+        @Override
+        void copy(int from, int to, int length) {
+            System.arraycopy(codes, from, codes, to, length);
+        }
+
+        @Override
+        void copyFrom(Column source, int sourceRow, int row) {
+            String value = (String) source.get(sourceRow);
+            codes[row] = value == null ? NULL_CODE : encode(value);
+        }
+    }
+
+    // Fallback for column types without a specialised layout
+    private static final class ObjectColumn extends Column {
+        private Object[] values = new Object[0];
+
+        @Override
+        Class<?> valueClass() {
+            return Object.class;
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        void read(ResultSet rs, int column, int row) throws SQLException {
+            values[row] = rs.getObject(column);
+        }
+
+        @Override
+        void set(Object value, int row) {
+            values[row] = value;
+        }
+
+        @Override
+        Object get(int row) {
+            return values[row];
+        }
+
+        @Override
+        void copy(int from, int to, int length) {
+            System.arraycopy(values, from, values, to, length);
+        }
+
+        @Override
+        void copyFrom(Column source, int sourceRow, int row) {
+            values[row] = ((ObjectColumn) source).values[sourceRow];
+        }
+    }
+}
@@ -0,0 +1,424 @@
+package org.example;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Bounded pool of validated JDBC connections.
+// Callers borrow with getConnection() and hand the connection back by closing it, exactly like a
+// DriverManager connection, so existing try-with-resources code works unchanged.
+public class ConnectionPool implements AutoCloseable {
+    private static final long HOUSEKEEPING_PERIOD_MILLIS = 10_000;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final PoolConfig config;
+    private final Semaphore borrowPermits;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger total = new AtomicInteger();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    // Statistics
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder destroyed = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder leaks = new LongAdder();
+
+    public ConnectionPool(PoolConfig config) {
+        this.config = config;
+        this.borrowPermits = new Semaphore(config.maxSize(), true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep, 0, HOUSEKEEPING_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    // Borrows a connection, waiting up to maxWaitMillis when the pool is exhausted
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(config.maxWaitMillis());
+        try {
+            if (!borrowPermits.tryAcquire(config.maxWaitMillis(), TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new SQLTransientConnectionException("Timed out after " + config.maxWaitMillis()
+                        + " ms waiting for a database connection (" + stats() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            PooledConnection pooled = takeOrCreate(deadline);
+            pooled.borrowedAt = System.currentTimeMillis();
+            pooled.borrowSite = config.leakDetectionMillis() > 0 ? new Throwable("Connection borrowed here") : null;
+            pooled.leakReported = false;
+            borrowed.add(pooled);
+            recordWait(System.nanoTime() - start);
+            return pooled.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            borrowPermits.release();
+            throw e;
+        }
+    }
+
+    // Takes a valid idle connection, or opens a new one if there is room in the pool
+    private PooledConnection takeOrCreate(long deadline) throws SQLException {
+        while (true) {
+            PooledConnection pooled = idle.pollFirst();
+            if (pooled != null) {
+                if (isUsable(pooled)) {
+                    return pooled;
+                }
+                destroy(pooled);
+                continue;
+            }
+            if (reserveSlot()) {
+                try {
+                    return open();
+                } catch (SQLException | RuntimeException e) {
+                    total.decrementAndGet();
+                    throw e;
+                }
+            }
+            // The pool is full of connections that are being opened or returned; wait for one to come back
+            try {
+                long remaining = deadline - System.nanoTime();
+                pooled = remaining > 0 ? idle.pollFirst(remaining, TimeUnit.NANOSECONDS) : null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a database connection", e);
+            }
+            if (pooled == null) {
+                timeouts.increment();
+                throw new SQLTransientConnectionException("Timed out waiting for a database connection (" + stats() + ")");
+            }
+            idle.offerFirst(pooled);
+        }
+    }
+
+    private boolean reserveSlot() {
+        while (true) {
+            int current = total.get();
+            if (current >= config.maxSize()) {
+                return false;
+            }
+            if (total.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private PooledConnection open() throws SQLException {
+        Connection physical = DriverManager.getConnection(config.url(), config.user(), config.password());
+        created.increment();
+        return new PooledConnection(physical);
+    }
+
+    // Connections that sat idle longer than the validation interval are pinged before being handed out
+    private boolean isUsable(PooledConnection pooled) {
+        if (pooled.broken) {
+            return false;
+        }
+        if (System.currentTimeMillis() - pooled.returnedAt < config.validationIntervalMillis()) {
+            return true;
+        }
+        try {
+            return pooled.physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void recordWait(long nanos) {
+        acquisitions.increment();
+        waitNanos.add(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    // Called when a borrowed handle is closed
+    private void release(PooledConnection pooled) {
+        borrowed.remove(pooled);
+        try {
+            if (!pooled.broken && !closed && pooled.reset()) {
+                pooled.returnedAt = System.currentTimeMillis();
+                idle.offerFirst(pooled);
+            } else {
+                destroy(pooled);
+            }
+        } finally {
+            borrowPermits.release();
+        }
+    }
+
+    private void destroy(PooledConnection pooled) {
+        total.decrementAndGet();
+        destroyed.increment();
+        try {
+            pooled.physical.close();
+        } catch (SQLException ignored) {
+            // The connection is being thrown away anyway
+        }
+    }
+
+    // Evicts idle connections, tops the pool up to minIdle and reports leaked connections
+    private void housekeep() {
+        if (closed) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+
+        Iterator<PooledConnection> it = idle.descendingIterator();
+        while (it.hasNext() && idle.size() > config.minIdle()) {
+            PooledConnection pooled = it.next();
+            if (now - pooled.returnedAt > config.idleTimeoutMillis() && idle.removeFirstOccurrence(pooled)) {
+                destroy(pooled);
+            }
+        }
+
+        while (idle.size() < config.minIdle() && reserveSlot()) {
+            try {
+                PooledConnection pooled = open();
+                pooled.returnedAt = now;
+                idle.offerLast(pooled);
+            } catch (SQLException e) {
+                total.decrementAndGet();
+                break; // Database unreachable, try again on the next run
+            }
+        }
+
+        if (config.leakDetectionMillis() > 0) {
+            for (PooledConnection pooled : borrowed) {
+                if (!pooled.leakReported && now - pooled.borrowedAt > config.leakDetectionMillis()) {
+                    pooled.leakReported = true;
+                    leaks.increment();
+                    System.err.println("Possible connection leak: connection held for " + (now - pooled.borrowedAt) + " ms");
+                    if (pooled.borrowSite != null) {
+                        pooled.borrowSite.printStackTrace();
+                    }
+                }
+            }
+        }
+    }
+
+    public PoolStats stats() {
+        long count = acquisitions.sum();
+        return new PoolStats(
+                borrowed.size(),
+                idle.size(),
+                total.get(),
+                config.maxSize(),
+                borrowPermits.getQueueLength(),
+                count,
+                count == 0 ? 0 : waitNanos.sum() / count,
+                maxWaitNanos.get(),
+                timeouts.sum(),
+                created.sum(),
+                destroyed.sum(),
+                leaks.sum());
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            destroy(pooled);
+        }
+    }
+
+    // Snapshot of the pool counters; wait times are in nanoseconds
+    public record PoolStats(int active, int idle, int total, int maxSize, int waiting,
+                            long acquisitions, long averageWaitNanos, long maxWaitNanos,
+                            long timeouts, long created, long destroyed, long leaksDetected) {
+        @Override
+        public String toString() {
+            return "active=" + active + ", idle=" + idle + ", total=" + total + "/" + maxSize
+                    + ", waiting=" + waiting + ", acquisitions=" + acquisitions
+                    + ", avgWait=" + averageWaitNanos / 1_000 + "us, maxWait=" + maxWaitNanos / 1_000 + "us"
+                    + ", timeouts=" + timeouts + ", leaks=" + leaksDetected;
+        }
+    }
+
+    // A physical connection owned by the pool
+    private final class PooledConnection {
+        private final Connection physical;
+        // Statements not closed yet; a statement removes itself when it is closed
+        private final Set<Statement> openStatements = Collections.newSetFromMap(new IdentityHashMap<>());
+        private volatile long borrowedAt;
+        private volatile long returnedAt;
+        private volatile Throwable borrowSite;
+        private volatile boolean leakReported;
+        private volatile boolean broken;
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        private Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new Handle(this));
+        }
+
+        // Closes statements the caller forgot about and restores the default connection state
+        private boolean reset() {
+            synchronized (openStatements) {
+                for (Statement statement : openStatements) {
+                    try {
+                        statement.close();
+                    } catch (SQLException ignored) {
+                        // Statement was already unusable
+                    }
+                }
+                openStatements.clear();
+            }
+            try {
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                if (physical.isReadOnly()) {
+                    physical.setReadOnly(false);
+                }
+                physical.clearWarnings();
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        // Wraps a statement returned by the physical connection so it is tracked until it is closed
+        private Object track(Object result, Class<?> type, Connection handle) {
+            if (!(result instanceof Statement statement) || !type.isInterface()) {
+                return result;
+            }
+            synchronized (openStatements) {
+                openStatements.add(statement);
+            }
+            return Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), new Class<?>[]{type},
+                    new TrackedStatement(this, statement, handle));
+        }
+
+        // SQL state class 08 means the connection itself failed; don't put it back in the pool
+        private void checkBroken(Throwable cause) {
+            if (cause instanceof SQLException sqlException && sqlException.getSQLState() != null
+                    && sqlException.getSQLState().startsWith("08")) {
+                broken = true;
+            }
+        }
+    }
+
+    // A Statement handed to callers; closing it stops the pool from tracking it
+    private static final class TrackedStatement implements InvocationHandler {
+        private final PooledConnection pooled;
+        private final Statement statement;
+        private final Connection handle;
+
+        private TrackedStatement(PooledConnection pooled, Statement statement, Connection handle) {
+            this.pooled = pooled;
+            this.statement = statement;
+            this.handle = handle;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    synchronized (pooled.openStatements) {
+                        pooled.openStatements.remove(statement);
+                    }
+                    statement.close();
+                    return null;
+                case "getConnection":
+                    return handle;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            try {
+                return method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                pooled.checkBroken(e.getCause());
+                throw e.getCause();
+            }
+        }
+    }
+
+    // The Connection handed to callers. Closing it returns the physical connection to the pool.
+    private final class Handle implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean closed;
+
+        private Handle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    synchronized (this) {
+                        if (!closed) {
+                            closed = true;
+                            release(pooled);
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled.physical + (closed ? ", closed]" : "]");
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Connection is closed");
+            }
+            try {
+                Object result = method.invoke(pooled.physical, args);
+                return pooled.track(result, method.getReturnType(), (Connection) proxy);
+            } catch (InvocationTargetException e) {
+                pooled.checkBroken(e.getCause());
+                throw e.getCause();
+            }
+        }
+    }
+}
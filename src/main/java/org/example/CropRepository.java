@@ -0,0 +1,26 @@
+package org.example;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+
+// Data access for the crops table. Table models are ordered by crop_id and have the columns
+// crop_id, crop_name, ideal_temperature, ideal_moisture, ideal_ph, land_id.
+public interface CropRepository {
+
+    ColumnarTableModel findAll() throws SQLException;
+
+    ColumnarTableModel findByIds(Collection<Integer> cropIds) throws SQLException;
+
+    // Inserts a crop and returns its crop_id; fails if the land does not exist
+    int insert(String cropName, int idealTemperature, int idealMoisture, double idealPh, int landId) throws SQLException;
+
+    // Returns false if there is no such crop
+    boolean update(int cropId, String cropName, int idealTemperature, int idealMoisture, double idealPh, int landId)
+            throws SQLException;
+
+    boolean delete(int cropId) throws SQLException;
+
+    // Values that change whenever the table does, to notice changes made by other processes
+    List<Long> changeMarker() throws SQLException;
+}
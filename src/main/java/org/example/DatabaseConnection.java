@@ -1,16 +1,60 @@
 package org.example;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 
 public class DatabaseConnection {
-    private static final String URL = "jdbc:mysql://localhost:3306/smart_agriculture";
-    private static final String USER = "root";
-    private static final String PASSWORD = "12345678";
 
+    // The pool is created on first use so that classes which never touch the database don't open connections
+    private static final class PoolHolder {
+        private static final ConnectionPool POOL = createPool();
+
+        private static ConnectionPool createPool() {
+            ConnectionPool pool = new ConnectionPool(PoolConfig.fromSystemProperties());
+            Runtime.getRuntime().addShutdownHook(new Thread(pool::close, "connection-pool-shutdown"));
+            return pool;
+        }
+    }
+
+    // Borrows a pooled connection; closing it returns the connection to the pool
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(URL, USER, PASSWORD);
+        DiagnosticEvents.ConnectionAcquire event = new DiagnosticEvents.ConnectionAcquire();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            return PoolHolder.POOL.getConnection();
+        } finally {
+            Diagnostics.connectionAcquired(event, start, PoolHolder.POOL);
+        }
+    }
+
+    // Runs an INSERT prepared with RETURN_GENERATED_KEYS and returns the new row's auto-increment key
+    public static int insertReturningKey(PreparedStatement statement) throws SQLException {
+        try (Diagnostics.QueryTimer timer = Diagnostics.query("insert")) {
+            timer.rows(statement.executeUpdate());
+        }
+        try (ResultSet keys = statement.getGeneratedKeys()) {
+            if (!keys.next()) {
+                throw new SQLException("INSERT did not return a generated key");
+            }
+            return keys.getInt(1);
+        }
+    }
+
+    // Prepares a forward-only, read-only query whose rows are streamed instead of buffered in memory.
+    // MySQL Connector/J streams row by row only with a fetch size of Integer.MIN_VALUE; other drivers get a
+    // regular fetch size.
+    public static PreparedStatement prepareStreaming(Connection connection, String sql) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        boolean mysql = connection.getMetaData().getDriverName().startsWith("MySQL");
+        statement.setFetchSize(mysql ? Integer.MIN_VALUE : 1_000);
+        return statement;
     }
-}
 
+    // Current pool statistics (active, idle, wait times, leaks)
+    public static ConnectionPool.PoolStats getPoolStats() {
+        return PoolHolder.POOL.stats();
+    }
+}
@@ -0,0 +1,68 @@
+package org.example;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+// Custom Java Flight Recorder events. They cost next to nothing unless a recording is running; record with
+// java -XX:StartFlightRecording=filename=smartagri.jfr,settings=profile ... and open the file in JDK Mission Control.
+final class DiagnosticEvents {
+    private DiagnosticEvents() {
+    }
+
+    @Name("org.example.ConnectionAcquire")
+    @Label("Connection Acquire")
+    @Category({"Smart Agriculture", "Database"})
+    @Description("Borrowing a connection from the pool")
+    @StackTrace(false)
+    static final class ConnectionAcquire extends Event {
+        @Label("Active Connections")
+        int active;
+
+        @Label("Waiting Threads")
+        int waiting;
+    }
+
+    @Name("org.example.Query")
+    @Label("Query")
+    @Category({"Smart Agriculture", "Database"})
+    @Description("One database statement or batch, from execution until its rows were read")
+    static final class Query extends Event {
+        @Label("Label")
+        String label;
+
+        @Label("Rows")
+        long rows;
+    }
+
+    @Name("org.example.TableModelBuild")
+    @Label("Table Model Build")
+    @Category({"Smart Agriculture", "UI"})
+    @Description("Reading a ResultSet into a ColumnarTableModel")
+    @StackTrace(false)
+    static final class TableModelBuild extends Event {
+        @Label("Rows")
+        int rows;
+
+        @Label("Columns")
+        int columns;
+    }
+
+    @Name("org.example.EdtStall")
+    @Label("EDT Stall")
+    @Category({"Smart Agriculture", "UI"})
+    @Description("An event on the Swing event thread that took long enough to freeze the UI")
+    @Threshold("50 ms")
+    @StackTrace(false)
+    static final class EdtStall extends Event {
+        @Label("AWT Event")
+        String awtEvent;
+
+        @Label("Source")
+        String source;
+    }
+}
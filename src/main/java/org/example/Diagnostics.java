@@ -0,0 +1,169 @@
+package org.example;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Latency instrumentation for the database and the UI.
+// Every timed operation feeds a LatencyHistogram named after it (connection.acquire, query.<label>,
+// load.<table>, tableModel.build, edt.dispatch, ...), exported over JMX as org.example:type=Latency and
+// shown in the DiagnosticsPanel. The same measurements are emitted as JFR events (see DiagnosticEvents)
+// when a flight recording is running.
+public final class Diagnostics {
+    public static final String CONNECTION_ACQUIRE = "connection.acquire";
+    public static final String TABLE_MODEL_BUILD = "tableModel.build";
+    public static final String EDT_DISPATCH = "edt.dispatch";
+    public static final String EDT_STALL = "edt.stall";
+    public static final String WATERING_CHECK = "watering.check";
+    public static final String IRRIGATION_LATENESS = "irrigation.firingLateness";
+
+    // Dispatches slower than this count as EDT stalls
+    private static final long EDT_STALL_NANOS = Long.getLong("smartagri.diagnostics.edtStallMillis", 50L) * 1_000_000L;
+
+    private static final ConcurrentMap<String, LatencyHistogram> HISTOGRAMS = new ConcurrentHashMap<>();
+    private static volatile boolean edtMonitorInstalled;
+
+    private Diagnostics() {
+    }
+
+    // The histogram of an operation, created and registered with JMX on first use
+    public static LatencyHistogram histogram(String operation) {
+        LatencyHistogram histogram = HISTOGRAMS.get(operation);
+        return histogram != null ? histogram : HISTOGRAMS.computeIfAbsent(operation, Diagnostics::register);
+    }
+
+    private static LatencyHistogram register(String operation) {
+        LatencyHistogram histogram = new LatencyHistogram(operation);
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("org.example:type=Latency,name=" + ObjectName.quote(operation));
+            if (!server.isRegistered(name)) {
+                server.registerMBean(histogram, name);
+            }
+        } catch (JMException e) {
+            e.printStackTrace(); // Still recorded and shown in the app, just not over JMX
+        }
+        return histogram;
+    }
+
+    public static void record(String operation, long nanos) {
+        histogram(operation).record(nanos);
+    }
+
+    // Snapshots of every histogram, ordered by operation name
+    public static List<LatencyHistogram.Snapshot> snapshots() {
+        List<LatencyHistogram.Snapshot> snapshots = new ArrayList<>();
+        for (LatencyHistogram histogram : HISTOGRAMS.values()) {
+            snapshots.add(histogram.snapshot());
+        }
+        snapshots.sort(Comparator.comparing(LatencyHistogram.Snapshot::operation));
+        return snapshots;
+    }
+
+    public static void resetAll() {
+        for (LatencyHistogram histogram : HISTOGRAMS.values()) {
+            histogram.reset();
+        }
+    }
+
+    // Starts timing one database statement; close it once the rows were read, e.g.
+    // try (Diagnostics.QueryTimer timer = Diagnostics.query("sensors.page")) { ...; timer.rows(count); }
+    public static QueryTimer query(String label) {
+        return new QueryTimer(label);
+    }
+
+    public static final class QueryTimer implements AutoCloseable {
+        private final DiagnosticEvents.Query event = new DiagnosticEvents.Query();
+        private final String label;
+        private final long start;
+        private long rows = -1;
+
+        private QueryTimer(String label) {
+            this.label = label;
+            event.begin();
+            start = System.nanoTime();
+        }
+
+        // Rows read or written; -1 when unknown
+        public void rows(long rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public void close() {
+            record("query." + label, System.nanoTime() - start);
+            event.end();
+            if (event.shouldCommit()) {
+                event.label = label;
+                event.rows = rows;
+                event.commit();
+            }
+        }
+    }
+
+    static void connectionAcquired(DiagnosticEvents.ConnectionAcquire event, long start, ConnectionPool pool) {
+        record(CONNECTION_ACQUIRE, System.nanoTime() - start);
+        event.end();
+        if (event.shouldCommit()) {
+            ConnectionPool.PoolStats stats = pool.stats();
+            event.active = stats.active();
+            event.waiting = stats.waiting();
+            event.commit();
+        }
+    }
+
+    static void tableModelBuilt(DiagnosticEvents.TableModelBuild event, long start, int rows, int columns) {
+        record(TABLE_MODEL_BUILD, System.nanoTime() - start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.rows = rows;
+            event.columns = columns;
+            event.commit();
+        }
+    }
+
+    // Times every event the Swing event thread dispatches; call once at startup
+    public static synchronized void installEdtMonitor() {
+        if (!edtMonitorInstalled) {
+            edtMonitorInstalled = true;
+            Toolkit.getDefaultToolkit().getSystemEventQueue().push(new TimingEventQueue());
+        }
+    }
+
+    // Event queue that measures how long each dispatch blocks the event thread
+    private static final class TimingEventQueue extends EventQueue {
+        private final LatencyHistogram dispatches = histogram(EDT_DISPATCH);
+        private final LatencyHistogram stalls = histogram(EDT_STALL);
+
+        @Override
+        protected void dispatchEvent(AWTEvent awtEvent) {
+            DiagnosticEvents.EdtStall event = new DiagnosticEvents.EdtStall();
+            event.begin();
+            long start = System.nanoTime();
+            try {
+                super.dispatchEvent(awtEvent);
+            } finally {
+                long nanos = System.nanoTime() - start;
+                dispatches.record(nanos);
+                if (nanos >= EDT_STALL_NANOS) {
+                    stalls.record(nanos);
+                }
+                event.end();
+                if (event.shouldCommit()) {
+                    event.awtEvent = awtEvent.getClass().getSimpleName() + " " + awtEvent.paramString();
+                    event.source = awtEvent.getSource() == null ? null : awtEvent.getSource().getClass().getName();
+                    event.commit();
+                }
+            }
+        }
+    }
+}
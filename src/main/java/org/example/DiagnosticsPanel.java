@@ -0,0 +1,148 @@
+package org.example;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.util.List;
+
+// Live view of the latency histograms (p50/p99 per operation) and the pool, cache, journal, irrigation
+// executor, alert pipeline and rollup statistics.
+// Refreshes once a second while open. There is one window per session; closing it only hides it.
+public class DiagnosticsPanel extends JFrame {
+    private static final int REFRESH_MILLIS = 1_000;
+
+    private static DiagnosticsPanel instance;
+
+    private final LatencyTableModel latencyModel = new LatencyTableModel();
+    private final JTextArea statsArea = new JTextArea(7, 80);
+    private final Timer refreshTimer = new Timer(REFRESH_MILLIS, e -> refresh());
+
+    private DiagnosticsPanel() {
+        setTitle("Diagnostics");
+        setSize(1000, 600);
+        setLocationRelativeTo(null);
+        setDefaultCloseOperation(JFrame.HIDE_ON_CLOSE); // Close only this panel
+        setLayout(new BorderLayout());
+
+        // Pool, cache, journal, irrigation, alert and rollup statistics at the top
+        statsArea.setEditable(false);
+        statsArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        statsArea.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        add(statsArea, BorderLayout.NORTH);
+
+        // Latency per operation
+        JTable latencyTable = new JTable(latencyModel);
+        latencyTable.setAutoCreateRowSorter(true);
+        add(new JScrollPane(latencyTable), BorderLayout.CENTER);
+
+        JPanel buttonPanel = new JPanel();
+        JButton resetButton = new JButton("Reset Latencies");
+        resetButton.addActionListener(e -> {
+            Diagnostics.resetAll();
+            refresh();
+        });
+        buttonPanel.add(resetButton);
+        add(buttonPanel, BorderLayout.SOUTH);
+
+        // Stops refreshing while the window is hidden
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentHidden(ComponentEvent e) {
+                refreshTimer.stop();
+            }
+        });
+    }
+
+    // Shows the window, refreshed; must be called on the EDT
+    public static void open() {
+        DiagnosticsPanel panel = getInstance();
+        panel.refresh();
+        panel.refreshTimer.start();
+        panel.setVisible(true);
+        panel.toFront();
+    }
+
+    private static DiagnosticsPanel getInstance() {
+        if (instance == null) {
+            instance = new DiagnosticsPanel();
+        }
+        return instance;
+    }
+
+    private void refresh() {
+        SensorJournal.JournalStats journalStats = SensorJournal.desktopStats();
+        IrrigationExecutor.ExecutorStats executorStats = IrrigationExecutor.desktopStats();
+        SensorRollups.RollupStats rollupStats = SensorRollups.desktopStats();
+        statsArea.setText("Pool:    " + DatabaseConnection.getPoolStats()
+                + "\nCache:   " + ReferenceDataCache.getInstance().stats()
+                + "\nJournal: " + (journalStats == null ? "not opened (no readings were saved offline)" : journalStats)
+                + "\nIrrigation: " + (executorStats == null ? "executor not running" : executorStats)
+                + "; overlapping stored windows=" + IrrigationScheduler.getInstance().overlappingStored()
+                + "\nAlerts:  " + AlertPipeline.getInstance().stats()
+                + "\nRollups: " + (rollupStats == null ? "not running" : rollupStats));
+        latencyModel.setRows(Diagnostics.snapshots());
+    }
+
+    // One row per operation; times in milliseconds
+    private static final class LatencyTableModel extends AbstractTableModel {
+        private static final String[] COLUMN_NAMES = {"Operation", "Count", "Mean (ms)", "p50 (ms)", "p90 (ms)", "p99 (ms)", "p99.9 (ms)", "Max (ms)"};
+
+        private List<LatencyHistogram.Snapshot> rows = List.of();
+
+        private void setRows(List<LatencyHistogram.Snapshot> rows) {
+            boolean sameOperations = rows.size() == this.rows.size();
+            this.rows = rows;
+            if (sameOperations) {
+                fireTableRowsUpdated(0, rows.size() - 1); // Keeps the selection and sort
+            } else {
+                fireTableDataChanged();
+            }
+        }
+
+        @Override
+        public int getRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMN_NAMES.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMN_NAMES[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return switch (column) {
+                case 0 -> String.class;
+                case 1 -> Long.class;
+                default -> Double.class;
+            };
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            LatencyHistogram.Snapshot snapshot = rows.get(row);
+            return switch (column) {
+                case 0 -> snapshot.operation();
+                case 1 -> snapshot.count();
+                case 2 -> millis(snapshot.meanNanos());
+                case 3 -> millis(snapshot.percentile(50));
+                case 4 -> millis(snapshot.percentile(90));
+                case 5 -> millis(snapshot.percentile(99));
+                case 6 -> millis(snapshot.percentile(99.9));
+                default -> millis(snapshot.maxNanos());
+            };
+        }
+
+        // Rounded to microseconds so the table stays readable
+        private static double millis(double nanos) {
+            return Math.round(nanos / 1e3) / 1e3;
+        }
+    }
+}
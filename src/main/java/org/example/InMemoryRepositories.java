@@ -0,0 +1,498 @@
+package org.example;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+
+// The four tables held in memory, for running without MySQL (-Dsmartagri.backend=memory).
+// Rows live in ConcurrentSkipListMaps keyed by their id, so reads never block and iterate in id order,
+// and ids come from atomic counters like AUTO_INCREMENT. Values are rounded to the scale of their DECIMAL
+// column. The foreign keys behave as in the schema: a crop, reading or schedule needs an existing land,
+// deleting a land cascades to its crops and readings, and a land with schedules can't be deleted.
+// Rows referring to a land are written under the read side of a lock whose write side deletes lands,
+// so a land can't disappear between the check and the write.
+final class InMemoryRepositories {
+    private static final String[] LAND_COLUMNS = {"land_id", "sector_name", "soil_type", "area"};
+    private static final int[] LAND_TYPES = {Types.INTEGER, Types.VARCHAR, Types.VARCHAR, Types.DECIMAL};
+    private static final String[] LAND_WITH_LATEST_COLUMNS = {"land_id", "sector_name", "soil_type", "area",
+            "temperature", "soil_moisture", "ph", "last_reading"};
+    private static final int[] LAND_WITH_LATEST_TYPES = {Types.INTEGER, Types.VARCHAR, Types.VARCHAR, Types.DECIMAL,
+            Types.DECIMAL, Types.DECIMAL, Types.DECIMAL, Types.TIMESTAMP};
+    private static final String[] CROP_COLUMNS = {"crop_id", "crop_name", "ideal_temperature", "ideal_moisture",
+            "ideal_ph", "land_id"};
+    private static final int[] CROP_TYPES = {Types.INTEGER, Types.VARCHAR, Types.INTEGER, Types.INTEGER, Types.DECIMAL,
+            Types.INTEGER};
+    private static final String[] IRRIGATION_COLUMNS = {"irrigation_id", "sector_name", "start_time", "end_time"};
+    private static final int[] IRRIGATION_TYPES = {Types.INTEGER, Types.VARCHAR, Types.TIME, Types.TIME};
+    private static final long MIDNIGHT = Time.valueOf(LocalTime.MIDNIGHT).getTime();
+
+    private final ConcurrentSkipListMap<Integer, ReferenceDataCache.Land> lands = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<Integer, ReferenceDataCache.Crop> crops = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<Integer, SensorReading> sensors = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<Integer, Latest> latest = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<Integer, IrrigationScheduler.Window> irrigation = new ConcurrentSkipListMap<>();
+
+    private final AtomicInteger nextLandId = new AtomicInteger();
+    private final AtomicInteger nextCropId = new AtomicInteger();
+    private final AtomicInteger nextSensorId = new AtomicInteger();
+    // Rows in sensors; ConcurrentSkipListMap.size() walks the whole map
+    private final AtomicInteger sensorCount = new AtomicInteger();
+    private final AtomicInteger nextIrrigationId = new AtomicInteger();
+    // Bumped on every change, as the change markers
+    private final AtomicLong landsVersion = new AtomicLong();
+    private final AtomicLong cropsVersion = new AtomicLong();
+    private final AtomicLong irrigationVersion = new AtomicLong();
+    private final ReadWriteLock landLock = new ReentrantReadWriteLock();
+
+    private final Lands landRepository = new Lands();
+    private final Crops cropRepository = new Crops();
+    private final Sensors sensorRepository = new Sensors();
+    private final Irrigation irrigationRepository = new Irrigation();
+
+    // The reading behind a land's sensor_latest row
+    private record Latest(int sensorId, SensorReading reading) {
+    }
+
+    LandRepository lands() {
+        return landRepository;
+    }
+
+    CropRepository crops() {
+        return cropRepository;
+    }
+
+    SensorRepository sensors() {
+        return sensorRepository;
+    }
+
+    IrrigationRepository irrigation() {
+        return irrigationRepository;
+    }
+
+    // Rounds like a DECIMAL column with the given scale
+    private static double decimal(double value, int scale) {
+        double factor = Math.pow(10, scale);
+        return Double.isNaN(value) ? value : Math.round(value * factor) / factor;
+    }
+
+    private static Double nullable(double value) {
+        return Double.isNaN(value) ? null : value;
+    }
+
+    // Fails like the foreign key to lands, with MySQL's SQLState and error code; callers hold the read lock
+    private void requireLand(String table, int landId) throws SQLException {
+        if (!lands.containsKey(landId)) {
+            throw new SQLIntegrityConstraintViolationException("Cannot add or update a child row: " + table
+                    + ".land_id " + landId + " does not exist in lands", "23000", 1452);
+        }
+    }
+
+    // The rows of a map with the given ids, or all rows if ids is null, in id order
+    private static <V> List<V> rows(ConcurrentSkipListMap<Integer, V> table, Collection<Integer> ids) {
+        if (ids == null) {
+            return new ArrayList<>(table.values());
+        }
+        List<V> rows = new ArrayList<>(ids.size());
+        for (int id : new TreeSet<>(ids)) {
+            V row = table.get(id);
+            if (row != null) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private final class Lands implements LandRepository {
+        @Override
+        public ColumnarTableModel findAll() {
+            return findByIds(null);
+        }
+
+        @Override
+        public ColumnarTableModel findByIds(Collection<Integer> landIds) {
+            List<Object[]> rows = new ArrayList<>();
+            for (ReferenceDataCache.Land land : rows(lands, landIds)) {
+                rows.add(new Object[]{land.landId(), land.sectorName(), land.soilType(), land.area()});
+            }
+            return ColumnarTableModel.fromRows(LAND_COLUMNS, LAND_TYPES, rows);
+        }
+
+        @Override
+        public ColumnarTableModel findAllWithLatestReading() {
+            return findWithLatestReading(null);
+        }
+
+        @Override
+        public ColumnarTableModel findWithLatestReading(Collection<Integer> landIds) {
+            List<Object[]> rows = new ArrayList<>();
+            for (ReferenceDataCache.Land land : rows(lands, landIds)) {
+                Latest last = latest.get(land.landId());
+                SensorReading reading = last == null ? null : last.reading();
+                rows.add(new Object[]{land.landId(), land.sectorName(), land.soilType(), land.area(),
+                        reading == null ? null : nullable(reading.temperature()),
+                        reading == null ? null : nullable(reading.soilMoisture()),
+                        reading == null ? null : nullable(reading.ph()),
+                        reading == null ? null : new Timestamp(reading.timestampMillis())});
+            }
+            return ColumnarTableModel.fromRows(LAND_WITH_LATEST_COLUMNS, LAND_WITH_LATEST_TYPES, rows);
+        }
+
+        @Override
+        public int insert(String sectorName, String soilType, double area) {
+            int landId = nextLandId.incrementAndGet();
+            lands.put(landId, new ReferenceDataCache.Land(landId, sectorName, soilType, decimal(area, 2)));
+            landsVersion.incrementAndGet();
+            return landId;
+        }
+
+        @Override
+        public boolean update(int landId, String sectorName, String soilType, double area) {
+            boolean updated = lands.replace(landId,
+                    new ReferenceDataCache.Land(landId, sectorName, soilType, decimal(area, 2))) != null;
+            if (updated) {
+                landsVersion.incrementAndGet();
+            }
+            return updated;
+        }
+
+        @Override
+        public boolean delete(int landId) throws SQLException {
+            landLock.writeLock().lock();
+            try {
+                if (!lands.containsKey(landId)) {
+                    return false;
+                }
+                for (IrrigationScheduler.Window window : irrigation.values()) {
+                    if (window.landId() == landId) {
+                        throw new SQLIntegrityConstraintViolationException("Cannot delete a parent row: land "
+                                + landId + " has irrigation schedules", "23000", 1451);
+                    }
+                }
+                lands.remove(landId);
+                crops.values().removeIf(crop -> crop.landId() == landId);
+                Iterator<SensorReading> readings = sensors.values().iterator();
+                while (readings.hasNext()) {
+                    if (readings.next().landId() == landId) {
+                        readings.remove();
+                        sensorCount.decrementAndGet();
+                    }
+                }
+                latest.remove(landId);
+                landsVersion.incrementAndGet();
+                cropsVersion.incrementAndGet();
+                return true;
+            } finally {
+                landLock.writeLock().unlock();
+            }
+        }
+
+        @Override
+        public List<Long> changeMarker() {
+            return List.of(landsVersion.get());
+        }
+    }
+
+    private final class Crops implements CropRepository {
+        @Override
+        public ColumnarTableModel findAll() {
+            return findByIds(null);
+        }
+
+        @Override
+        public ColumnarTableModel findByIds(Collection<Integer> cropIds) {
+            List<Object[]> rows = new ArrayList<>();
+            for (ReferenceDataCache.Crop crop : rows(crops, cropIds)) {
+                rows.add(new Object[]{crop.cropId(), crop.cropName(), crop.idealTemperature(), crop.idealMoisture(),
+                        crop.idealPh(), crop.landId()});
+            }
+            return ColumnarTableModel.fromRows(CROP_COLUMNS, CROP_TYPES, rows);
+        }
+
+        @Override
+        public int insert(String cropName, int idealTemperature, int idealMoisture, double idealPh, int landId)
+                throws SQLException {
+            landLock.readLock().lock();
+            try {
+                requireLand("crops", landId);
+                int cropId = nextCropId.incrementAndGet();
+                crops.put(cropId, new ReferenceDataCache.Crop(cropId, cropName, idealTemperature, idealMoisture,
+                        decimal(idealPh, 1), landId));
+                cropsVersion.incrementAndGet();
+                return cropId;
+            } finally {
+                landLock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public boolean update(int cropId, String cropName, int idealTemperature, int idealMoisture, double idealPh,
+                              int landId) throws SQLException {
+            landLock.readLock().lock();
+            try {
+                requireLand("crops", landId);
+                boolean updated = crops.replace(cropId, new ReferenceDataCache.Crop(cropId, cropName, idealTemperature,
+                        idealMoisture, decimal(idealPh, 1), landId)) != null;
+                if (updated) {
+                    cropsVersion.incrementAndGet();
+                }
+                return updated;
+            } finally {
+                landLock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public boolean delete(int cropId) {
+            boolean deleted = crops.remove(cropId) != null;
+            if (deleted) {
+                cropsVersion.incrementAndGet();
+            }
+            return deleted;
+        }
+
+        @Override
+        public List<Long> changeMarker() {
+            return List.of(cropsVersion.get());
+        }
+    }
+
+    private final class Sensors implements SensorRepository {
+        @Override
+        public int insert(SensorReading reading) throws SQLException {
+            SensorReading stored = new SensorReading(reading.landId(), decimal(reading.temperature(), 2),
+                    decimal(reading.soilMoisture(), 2), decimal(reading.ph(), 1), reading.timestampMillis());
+            landLock.readLock().lock();
+            try {
+                requireLand("sensors", reading.landId());
+                int sensorId = nextSensorId.incrementAndGet();
+                sensors.put(sensorId, stored);
+                sensorCount.incrementAndGet();
+                // Like the sensor_latest trigger, an older reading doesn't replace a newer one
+                latest.merge(reading.landId(), new Latest(sensorId, stored), (current, next) ->
+                        next.reading().timestampMillis() >= current.reading().timestampMillis() ? next : current);
+                return sensorId;
+            } finally {
+                landLock.readLock().unlock();
+            }
+        }
+
+        // All or nothing, like the batch's transaction
+        @Override
+        public void insertBatch(List<SensorReading> readings) throws SQLException {
+            landLock.readLock().lock();
+            try {
+                for (SensorReading reading : readings) {
+                    requireLand("sensors", reading.landId());
+                }
+                for (SensorReading reading : readings) {
+                    insert(reading);
+                }
+            } finally {
+                landLock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public int count() {
+            return sensorCount.get();
+        }
+
+        @Override
+        public int scanIds(int fromSensorId, int step, IntConsumer consumer) {
+            int rows = 0;
+            for (int sensorId : sensors.tailMap(fromSensorId, true).keySet()) {
+                if (rows++ % step == 0) {
+                    consumer.accept(sensorId);
+                }
+            }
+            return rows;
+        }
+
+        @Override
+        public int readPage(int fromSensorId, int limit, RowConsumer consumer) {
+            int rows = 0;
+            for (Map.Entry<Integer, SensorReading> entry : sensors.tailMap(fromSensorId, true).entrySet()) {
+                if (rows == limit) {
+                    break;
+                }
+                SensorReading reading = entry.getValue();
+                consumer.accept(entry.getKey(), reading.landId(), reading.temperature(), reading.soilMoisture(),
+                        reading.ph(), reading.timestampMillis());
+                rows++;
+            }
+            return rows;
+        }
+
+        @Override
+        public long readAll(Integer landId, Timestamp from, Timestamp to, RowConsumer consumer) {
+            long rows = 0;
+            for (Map.Entry<Integer, SensorReading> entry : sensors.entrySet()) {
+                SensorReading reading = entry.getValue();
+                if ((landId == null || reading.landId() == landId)
+                        && (from == null || reading.timestampMillis() >= from.getTime())
+                        && (to == null || reading.timestampMillis() < to.getTime())) {
+                    consumer.accept(entry.getKey(), reading.landId(), reading.temperature(), reading.soilMoisture(),
+                            reading.ph(), reading.timestampMillis());
+                    rows++;
+                }
+            }
+            return rows;
+        }
+
+        @Override
+        public List<SensorReading> latestReadings() {
+            List<SensorReading> readings = new ArrayList<>(latest.size());
+            for (Latest last : latest.values()) {
+                readings.add(last.reading());
+            }
+            return readings;
+        }
+
+        // There is no index on land_id and timestamp here, so trends walk every reading
+        @Override
+        public long[] extent(int landId) {
+            long first = Long.MAX_VALUE;
+            long last = Long.MIN_VALUE;
+            for (SensorReading reading : sensors.values()) {
+                if (reading.landId() == landId) {
+                    first = Math.min(first, reading.timestampMillis());
+                    last = Math.max(last, reading.timestampMillis());
+                }
+            }
+            return first > last ? null : new long[]{first, last};
+        }
+
+        // Rollups are kept by SensorRollups in MySQL only
+        @Override
+        public boolean rollupsAvailable() {
+            return false;
+        }
+
+        @Override
+        public void readTrend(int landId, SensorRollups.Resolution resolution, long from, long to,
+                              TrendConsumer consumer) throws InterruptedException {
+            if (resolution != SensorRollups.Resolution.RAW) {
+                throw new IllegalArgumentException("No " + resolution + " rollups in memory");
+            }
+            List<SensorReading> readings = new ArrayList<>();
+            for (SensorReading reading : sensors.values()) {
+                if (reading.landId() == landId && reading.timestampMillis() >= from && reading.timestampMillis() <= to) {
+                    readings.add(reading);
+                }
+            }
+            readings.sort(Comparator.comparingLong(SensorReading::timestampMillis)); // Stable: ties stay in sensor_id order
+            for (int i = 0; i < readings.size(); i++) {
+                if ((i & 4095) == 4095 && Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException();
+                }
+                SensorReading reading = readings.get(i);
+                consumer.accept(reading.timestampMillis(), reading.soilMoisture(), reading.temperature(), reading.ph());
+            }
+        }
+    }
+
+    private final class Irrigation implements IrrigationRepository {
+        @Override
+        public ColumnarTableModel findAll() {
+            return model(new ArrayList<>(irrigation.values()));
+        }
+
+        @Override
+        public ColumnarTableModel findByIds(Collection<Integer> irrigationIds) {
+            return model(rows(irrigation, irrigationIds));
+        }
+
+        @Override
+        public ColumnarTableModel findByLandIds(Collection<Integer> landIds) {
+            Set<Integer> wanted = Set.copyOf(landIds);
+            List<IrrigationScheduler.Window> windows = new ArrayList<>();
+            for (IrrigationScheduler.Window window : irrigation.values()) {
+                if (wanted.contains(window.landId())) {
+                    windows.add(window);
+                }
+            }
+            return model(windows);
+        }
+
+        // Joined with lands for the sector name, as the table shows it
+        private ColumnarTableModel model(List<IrrigationScheduler.Window> windows) {
+            List<Object[]> rows = new ArrayList<>(windows.size());
+            for (IrrigationScheduler.Window window : windows) {
+                ReferenceDataCache.Land land = lands.get(window.landId());
+                if (land != null) {
+                    rows.add(new Object[]{window.irrigationId(), land.sectorName(),
+                            new Time(MIDNIGHT + window.start() * 1000L), new Time(MIDNIGHT + window.end() * 1000L)});
+                }
+            }
+            return ColumnarTableModel.fromRows(IRRIGATION_COLUMNS, IRRIGATION_TYPES, rows);
+        }
+
+        @Override
+        public List<IrrigationScheduler.Window> findAllWindows() {
+            List<IrrigationScheduler.Window> windows = new ArrayList<>(irrigation.values());
+            windows.sort(Comparator.comparingInt(IrrigationScheduler.Window::landId)
+                    .thenComparingInt(IrrigationScheduler.Window::start));
+            return windows;
+        }
+
+        // Synchronized so the deletes and writes of one save are applied together
+        @Override
+        public synchronized List<IrrigationScheduler.Window> save(int replacedId, List<IrrigationScheduler.Window> windows,
+                                                                  Set<Integer> removedIds) throws SQLException {
+            landLock.readLock().lock();
+            try {
+                for (IrrigationScheduler.Window window : windows) {
+                    requireLand("irrigation", window.landId());
+                }
+                if (replacedId > 0 && !windows.isEmpty()
+                        && (!irrigation.containsKey(replacedId) || removedIds.contains(replacedId))) {
+                    throw new SQLException("Irrigation schedule " + replacedId + " no longer exists", "02000");
+                }
+                for (int id : removedIds) {
+                    irrigation.remove(id);
+                }
+                List<IrrigationScheduler.Window> saved = new ArrayList<>(windows.size());
+                for (IrrigationScheduler.Window window : windows) {
+                    int id = replacedId > 0 && saved.isEmpty() ? replacedId : nextIrrigationId.incrementAndGet();
+                    saved.add(window.withId(id));
+                    irrigation.put(id, window.withId(id));
+                }
+                irrigationVersion.incrementAndGet();
+                return saved;
+            } finally {
+                landLock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public synchronized boolean delete(int irrigationId) {
+            boolean deleted = irrigation.remove(irrigationId) != null;
+            if (deleted) {
+                irrigationVersion.incrementAndGet();
+            }
+            return deleted;
+        }
+
+        @Override
+        public List<Long> changeMarker() {
+            return List.of(irrigationVersion.get());
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Self-balancing (AVL) interval tree of irrigation windows.
+// Nodes are ordered by (start, irrigation_id) and each node keeps the largest end in its subtree, so
+// overlap and stabbing queries skip every subtree that ends too early or starts too late:
+// O(log n + k) for k results. Intervals are half-open, [start, end), so back-to-back windows don't overlap.
+// Not thread-safe; IrrigationScheduler guards its trees.
+public class IntervalTree {
+    private Node root;
+    private int size;
+
+    private static final class Node {
+        private final IrrigationScheduler.Window window;
+        private Node left;
+        private Node right;
+        private int height = 1;
+        private int maxEnd;
+
+        private Node(IrrigationScheduler.Window window) {
+            this.window = window;
+            this.maxEnd = window.end();
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        root = null;
+        size = 0;
+    }
+
+    public void insert(IrrigationScheduler.Window window) {
+        root = insert(root, window);
+        size++;
+    }
+
+    // Removes the window with the same start and irrigation_id; false if it isn't in the tree
+    public boolean remove(IrrigationScheduler.Window window) {
+        int before = size;
+        root = remove(root, window);
+        return size < before;
+    }
+
+    // Windows that overlap [start, end), ordered by start
+    public List<IrrigationScheduler.Window> overlapping(int start, int end) {
+        List<IrrigationScheduler.Window> result = new ArrayList<>();
+        overlapping(root, start, end, result);
+        return result;
+    }
+
+    // Every window, ordered by start
+    public List<IrrigationScheduler.Window> toList() {
+        List<IrrigationScheduler.Window> result = new ArrayList<>(size);
+        addAll(root, result);
+        return result;
+    }
+
+    private static void addAll(Node node, List<IrrigationScheduler.Window> result) {
+        if (node != null) {
+            addAll(node.left, result);
+            result.add(node.window);
+            addAll(node.right, result);
+        }
+    }
+
+    // Windows that contain the point, ordered by start
+    public List<IrrigationScheduler.Window> containing(int point) {
+        return overlapping(point, point + 1);
+    }
+
+    private static void overlapping(Node node, int start, int end, List<IrrigationScheduler.Window> result) {
+        // Nothing in this subtree ends after start
+        if (node == null || node.maxEnd <= start) {
+            return;
+        }
+        overlapping(node.left, start, end, result);
+        if (node.window.start() >= end) {
+            return; // This node and everything right of it start too late
+        }
+        if (node.window.end() > start) {
+            result.add(node.window);
+        }
+        overlapping(node.right, start, end, result);
+    }
+
+    // Throws IllegalStateException unless every node is in order, balanced and has the right height and maxEnd;
+    // for tests
+    void checkInvariants() {
+        int count = check(root, null, null);
+        if (count != size) {
+            throw new IllegalStateException("size " + size + " but " + count + " nodes");
+        }
+    }
+
+    // Checks the subtree, whose windows must sort after low and before high; returns its node count
+    private static int check(Node node, IrrigationScheduler.Window low, IrrigationScheduler.Window high) {
+        if (node == null) {
+            return 0;
+        }
+        if ((low != null && compare(node.window, low) <= 0) || (high != null && compare(node.window, high) >= 0)) {
+            throw new IllegalStateException("out of order: " + node.window);
+        }
+        int count = 1 + check(node.left, low, node.window) + check(node.right, node.window, high);
+        int balance = height(node.left) - height(node.right);
+        if (balance < -1 || balance > 1) {
+            throw new IllegalStateException("unbalanced at " + node.window + ": " + balance);
+        }
+        if (node.height != 1 + Math.max(height(node.left), height(node.right))) {
+            throw new IllegalStateException("wrong height at " + node.window);
+        }
+        int maxEnd = node.window.end();
+        maxEnd = node.left == null ? maxEnd : Math.max(maxEnd, node.left.maxEnd);
+        maxEnd = node.right == null ? maxEnd : Math.max(maxEnd, node.right.maxEnd);
+        if (node.maxEnd != maxEnd) {
+            throw new IllegalStateException("wrong maxEnd at " + node.window + ": " + node.maxEnd + " != " + maxEnd);
+        }
+        return count;
+    }
+
+    private static int compare(IrrigationScheduler.Window a, IrrigationScheduler.Window b) {
+        int byStart = Integer.compare(a.start(), b.start());
+        return byStart != 0 ? byStart : Integer.compare(a.irrigationId(), b.irrigationId());
+    }
+
+    private Node insert(Node node, IrrigationScheduler.Window window) {
+        if (node == null) {
+            return new Node(window);
+        }
+        if (compare(window, node.window) < 0) {
+            node.left = insert(node.left, window);
+        } else {
+            node.right = insert(node.right, window);
+        }
+        return rebalance(node);
+    }
+
+    private Node remove(Node node, IrrigationScheduler.Window window) {
+        if (node == null) {
+            return null;
+        }
+        int comparison = compare(window, node.window);
+        if (comparison < 0) {
+            node.left = remove(node.left, window);
+        } else if (comparison > 0) {
+            node.right = remove(node.right, window);
+        } else {
+            size--;
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            // Replace the node with its successor, the leftmost node of the right subtree
+            Node successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            Node replacement = new Node(successor.window);
+            replacement.right = removeLeftmost(node.right);
+            replacement.left = node.left;
+            return rebalance(replacement);
+        }
+        return rebalance(node);
+    }
+
+    private Node removeLeftmost(Node node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = removeLeftmost(node.left);
+        return rebalance(node);
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static void update(Node node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        int maxEnd = node.window.end();
+        if (node.left != null) {
+            maxEnd = Math.max(maxEnd, node.left.maxEnd);
+        }
+        if (node.right != null) {
+            maxEnd = Math.max(maxEnd, node.right.maxEnd);
+        }
+        node.maxEnd = maxEnd;
+    }
+
+    private static Node rebalance(Node node) {
+        update(node);
+        int balance = height(node.left) - height(node.right);
+        if (balance > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        update(left);
+        return left;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        update(right);
+        return right;
+    }
+}
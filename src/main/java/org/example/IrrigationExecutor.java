@@ -0,0 +1,394 @@
+package org.example;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Runs the irrigation schedule: opens a land's valve when one of its windows starts and closes it when
+// the window ends. Every window start and end is an event in one sorted array of primitive keys
+// (second of day << 32 | land_id), and a single scheduler thread sleeps until the next due event, so tens
+// of thousands of daily events cost one pending task. When events fire, each land involved is reconciled
+// to the state its windows want at that moment, so back-to-back windows and the midnight split of a
+// window don't blink the valve, and a late or missed event is caught up on the next firing.
+// Schedules edited in ManageIrrigationPanel arrive through the ChangeEventBus and only touch the events of
+// the lands concerned; changes made by other processes are picked up by polling the irrigation table.
+// All state is confined to the executor thread.
+public class IrrigationExecutor implements AutoCloseable {
+    private static final long RETRY_MILLIS = 5_000;
+    private static final long LAND_MASK = 0xFFFF_FFFFL;
+
+    private static IrrigationExecutor desktop;
+
+    private final IrrigationScheduler scheduler;
+    private final ValveActuator actuator;
+    private final Clock clock;
+    private final long pollSeconds;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "irrigation-executor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ChangeEventBus.Listener changeListener = this::onChanges;
+
+    // Sorted event keys; a land has one key per window start and one per window end
+    private long[] events = new long[64];
+    private int eventCount;
+    private final Map<Integer, List<IrrigationScheduler.Window>> windowsByLand = new HashMap<>();
+    private final Map<Integer, Integer> landByIrrigation = new HashMap<>();
+    private final Set<Integer> openValves = new HashSet<>();
+    private final Set<Integer> failedLands = new HashSet<>();
+    private ScheduledFuture<?> nextFiring;
+    private ScheduledFuture<?> retry;
+    private long lastFiredMillis;
+    private long nextDueMillis;
+
+    // Counters
+    private final LongAdder firings = new LongAdder();
+    private final LongAdder commands = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder reloads = new LongAdder();
+    private volatile int windowCount;
+    private volatile int openValveCount;
+    private volatile long maxLatenessMillis;
+
+    public IrrigationExecutor(IrrigationScheduler scheduler, ValveActuator actuator, Clock clock, long pollSeconds) {
+        this.scheduler = scheduler;
+        this.actuator = actuator;
+        this.clock = clock;
+        this.pollSeconds = pollSeconds;
+    }
+
+    // Loads the schedule, brings every valve to its scheduled state and starts firing events
+    public void start() {
+        executor.execute(this::reloadAll);
+        ChangeEventBus.getInstance().subscribe(changeListener);
+        executor.scheduleWithFixedDelay(this::poll, pollSeconds, pollSeconds, TimeUnit.SECONDS);
+    }
+
+    // Stops firing and closes every valve that is still open, so no water runs unattended
+    @Override
+    public void close() throws InterruptedException {
+        if (executor.isShutdown()) {
+            return;
+        }
+        ChangeEventBus.getInstance().unsubscribe(changeListener);
+        executor.execute(() -> {
+            if (nextFiring != null) {
+                nextFiring.cancel(false);
+            }
+            if (retry != null) {
+                retry.cancel(false);
+            }
+            for (int landId : new ArrayList<>(openValves)) {
+                command(landId, false);
+            }
+            // Shut down only now, so the firing and retry just cancelled are dropped instead of awaited
+            executor.shutdown();
+        });
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+
+    // Desktop: runs the schedule inside the application when -Dsmartagri.irrigation.executor=true
+    public static synchronized void startDesktop() {
+        if (desktop == null && Boolean.getBoolean("smartagri.irrigation.executor")) {
+            desktop = new IrrigationExecutor(IrrigationScheduler.getInstance(),
+                    new SimulatedValveActuator(Clock.systemDefaultZone(), true), Clock.systemDefaultZone(),
+                    Long.getLong("smartagri.irrigation.pollSeconds", 60L));
+            desktop.start();
+        }
+    }
+
+    // Statistics of the desktop executor; null if it isn't running
+    public static synchronized ExecutorStats desktopStats() {
+        return desktop == null ? null : desktop.stats();
+    }
+
+    public ExecutorStats stats() {
+        return new ExecutorStats(windowCount, openValveCount, firings.sum(), commands.sum(), failures.sum(),
+                reloads.sum(), maxLatenessMillis);
+    }
+
+    // Panel edits: re-reads the windows of the lands whose schedules changed
+    private void onChanges(List<ChangeEventBus.Change> changes) {
+        Set<Integer> irrigationIds = new HashSet<>();
+        Set<Integer> landIds = new HashSet<>();
+        for (ChangeEventBus.Change change : changes) {
+            if (change.table() == ChangeEventBus.Table.IRRIGATION) {
+                irrigationIds.add(change.id());
+                landIds.add(change.landId());
+            }
+        }
+        if (irrigationIds.isEmpty()) {
+            return;
+        }
+        executor.execute(() -> {
+            // A schedule moved to another land also leaves its old land
+            for (int irrigationId : irrigationIds) {
+                Integer previousLand = landByIrrigation.get(irrigationId);
+                if (previousLand != null) {
+                    landIds.add(previousLand);
+                }
+            }
+            try {
+                for (int landId : landIds) {
+                    replaceLand(landId, scheduler.windowsOfLand(landId));
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    private void poll() {
+        try {
+            if (scheduler.reloadIfChanged()) {
+                reloadAll();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void reloadAll() {
+        try {
+            rebuild(scheduler.windows());
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Replaces every window and reconciles every land; runs on the executor thread
+    void rebuild(List<IrrigationScheduler.Window> windows) {
+        reloads.increment();
+        eventCount = 0;
+        windowsByLand.clear();
+        landByIrrigation.clear();
+        events = new long[Math.max(64, windows.size() * 2)];
+        for (IrrigationScheduler.Window window : windows) {
+            windowsByLand.computeIfAbsent(window.landId(), land -> new ArrayList<>()).add(window);
+            landByIrrigation.put(window.irrigationId(), window.landId());
+            events[eventCount++] = key(window.start(), window.landId());
+            events[eventCount++] = key(window.end(), window.landId());
+        }
+        Arrays.sort(events, 0, eventCount);
+        windowCount = windows.size();
+
+        Set<Integer> lands = new HashSet<>(windowsByLand.keySet());
+        lands.addAll(openValves);
+        reconcile(lands);
+    }
+
+    // Replaces the windows of one land and reconciles it; runs on the executor thread
+    void replaceLand(int landId, List<IrrigationScheduler.Window> windows) {
+        List<IrrigationScheduler.Window> previous = windowsByLand.remove(landId);
+        if (previous != null) {
+            for (IrrigationScheduler.Window window : previous) {
+                removeEvent(key(window.start(), landId));
+                removeEvent(key(window.end(), landId));
+                landByIrrigation.remove(window.irrigationId());
+            }
+            windowCount -= previous.size();
+        }
+        if (!windows.isEmpty()) {
+            windowsByLand.put(landId, new ArrayList<>(windows));
+            for (IrrigationScheduler.Window window : windows) {
+                insertEvent(key(window.start(), landId));
+                insertEvent(key(window.end(), landId));
+                landByIrrigation.put(window.irrigationId(), landId);
+            }
+            windowCount += windows.size();
+        }
+        reconcile(Set.of(landId));
+    }
+
+    // A window ending at 24:00 fires at 00:00, together with a window of the next day starting then
+    private static long key(int second, int landId) {
+        return (long) (second % IrrigationScheduler.DAY_SECONDS) << 32 | landId;
+    }
+
+    private void insertEvent(long key) {
+        int index = Arrays.binarySearch(events, 0, eventCount, key);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        if (eventCount == events.length) {
+            events = Arrays.copyOf(events, eventCount * 2);
+        }
+        System.arraycopy(events, index, events, index + 1, eventCount - index);
+        events[index] = key;
+        eventCount++;
+    }
+
+    private void removeEvent(long key) {
+        int index = Arrays.binarySearch(events, 0, eventCount, key);
+        if (index >= 0) {
+            System.arraycopy(events, index + 1, events, index, eventCount - index - 1);
+            eventCount--;
+        }
+    }
+
+    // Index of the first event at or after the second of day
+    private int firstEventAt(int second) {
+        int index = Arrays.binarySearch(events, 0, eventCount, (long) second << 32);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    // Lands with an event in (fromSecond, toSecond] of one day
+    private void collectLands(int fromSecond, int toSecond, Set<Integer> lands) {
+        for (int index = firstEventAt(fromSecond + 1); index < eventCount && (int) (events[index] >>> 32) <= toSecond; index++) {
+            lands.add((int) (events[index] & LAND_MASK));
+        }
+    }
+
+    // Fires every event that came due since the last firing, then sleeps until the next one; runs on the
+    // executor thread, or in tests that drive the clock
+    void fire() {
+        long now = clock.millis();
+        if (nextDueMillis > 0 && now >= nextDueMillis) {
+            long lateness = now - nextDueMillis;
+            maxLatenessMillis = Math.max(maxLatenessMillis, lateness);
+            Diagnostics.record(Diagnostics.IRRIGATION_LATENESS, lateness * 1_000_000);
+        }
+        firings.increment();
+
+        ZonedDateTime last = Instant.ofEpochMilli(lastFiredMillis).atZone(clock.getZone());
+        ZonedDateTime current = Instant.ofEpochMilli(now).atZone(clock.getZone());
+        int lastSecond = last.toLocalTime().toSecondOfDay();
+        int currentSecond = current.toLocalTime().toSecondOfDay();
+        Set<Integer> lands = new HashSet<>();
+        if (last.toLocalDate().equals(current.toLocalDate())) {
+            collectLands(lastSecond, currentSecond, lands);
+        } else if (last.toLocalDate().plusDays(1).equals(current.toLocalDate())) {
+            collectLands(lastSecond, IrrigationScheduler.DAY_SECONDS - 1, lands);
+            collectLands(-1, currentSecond, lands);
+        } else {
+            // Asleep for more than a day (e.g. clock change): reconcile everything
+            lands.addAll(windowsByLand.keySet());
+            lands.addAll(openValves);
+        }
+        reconcile(lands);
+    }
+
+    // Brings the lands' valves to the state their windows want now and schedules the next firing
+    private void reconcile(Set<Integer> lands) {
+        long now = clock.millis();
+        int second = LocalTime.ofInstant(Instant.ofEpochMilli(now), clock.getZone()).toSecondOfDay();
+        for (int landId : lands) {
+            boolean wanted = false;
+            for (IrrigationScheduler.Window window : windowsByLand.getOrDefault(landId, List.of())) {
+                if (window.start() <= second && second < window.end()) {
+                    wanted = true;
+                    break;
+                }
+            }
+            if (wanted != openValves.contains(landId)) {
+                command(landId, wanted);
+            }
+        }
+        lastFiredMillis = now;
+        openValveCount = openValves.size();
+        scheduleNext(now);
+    }
+
+    private void command(int landId, boolean open) {
+        try {
+            if (open) {
+                actuator.open(landId);
+                openValves.add(landId);
+            } else {
+                actuator.close(landId);
+                openValves.remove(landId);
+            }
+            failedLands.remove(landId);
+            commands.increment();
+        } catch (IOException | RuntimeException e) {
+            failures.increment();
+            e.printStackTrace();
+            failedLands.add(landId);
+            if (retry == null || retry.isDone()) {
+                retry = executor.schedule(this::retryFailed, RETRY_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    // Reconciles the lands whose last command failed; runs on the executor thread, or in tests
+    void retryFailed() {
+        Set<Integer> lands = new HashSet<>(failedLands);
+        failedLands.clear();
+        reconcile(lands);
+    }
+
+    private void scheduleNext(long now) {
+        if (nextFiring != null) {
+            nextFiring.cancel(false);
+            nextFiring = null;
+        }
+        if (eventCount == 0) {
+            nextDueMillis = 0;
+            return;
+        }
+        LocalDateTime current = LocalDateTime.ofInstant(Instant.ofEpochMilli(now), clock.getZone());
+        int index = firstEventAt(current.toLocalTime().toSecondOfDay() + 1);
+        LocalDate day = current.toLocalDate();
+        if (index == eventCount) {
+            // Nothing left today; the first event of tomorrow
+            index = 0;
+            day = day.plusDays(1);
+        }
+        int second = (int) (events[index] >>> 32);
+        nextDueMillis = LocalDateTime.of(day, LocalTime.ofSecondOfDay(second)).atZone(clock.getZone())
+                .toInstant().toEpochMilli();
+        nextFiring = executor.schedule(this::fire, Math.max(0, nextDueMillis - now), TimeUnit.MILLISECONDS);
+    }
+
+    // Headless executor with simulated valves: java -cp ... org.example.IrrigationExecutor
+    public static void main(String[] args) throws Exception {
+        SchemaMigrator.ensureUpToDate();
+        Clock clock = Clock.systemDefaultZone();
+        IrrigationExecutor irrigationExecutor = new IrrigationExecutor(IrrigationScheduler.getInstance(),
+                new SimulatedValveActuator(clock, true), clock, Long.getLong("smartagri.irrigation.pollSeconds", 60L));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                irrigationExecutor.close();
+                System.out.println("Irrigation executor stopped: " + irrigationExecutor.stats());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "irrigation-executor-shutdown"));
+        irrigationExecutor.start();
+        System.out.println("Irrigation executor running");
+        while (true) {
+            Thread.sleep(60_000);
+            System.out.println("Irrigation: " + irrigationExecutor.stats());
+        }
+    }
+
+    public record ExecutorStats(int windows, int openValves, long firings, long commands, long failures,
+                                long reloads, long maxLatenessMillis) {
+        @Override
+        public String toString() {
+            return String.format("windows=%d, openValves=%d, firings=%d, commands=%d, failures=%d, reloads=%d, "
+                            + "maxLateness=%d ms",
+                    windows, openValves, firings, commands, failures, reloads, maxLatenessMillis);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package org.example;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+// Data access for the irrigation table. Table models are ordered by irrigation_id and have the columns
+// irrigation_id, sector_name, start_time, end_time; windows carry their times as seconds of the day.
+public interface IrrigationRepository {
+
+    ColumnarTableModel findAll() throws SQLException;
+
+    ColumnarTableModel findByIds(Collection<Integer> irrigationIds) throws SQLException;
+
+    // The schedules of the given lands, e.g. after a sector was renamed
+    ColumnarTableModel findByLandIds(Collection<Integer> landIds) throws SQLException;
+
+    // Every schedule as stored, ordered by land_id and start time; a window may still cross midnight
+    List<IrrigationScheduler.Window> findAllWindows() throws SQLException;
+
+    // Writes the windows in one transaction: the schedules in removedIds are deleted, replacedId (0 for none) is
+    // updated to the first window and the other windows are inserted. Returns the saved windows with their ids.
+    // Fails without changing anything if replacedId no longer exists.
+    List<IrrigationScheduler.Window> save(int replacedId, List<IrrigationScheduler.Window> windows,
+                                          Set<Integer> removedIds) throws SQLException;
+
+    boolean delete(int irrigationId) throws SQLException;
+
+    // Values that change whenever the table does, to notice changes made by other processes
+    List<Long> changeMarker() throws SQLException;
+}
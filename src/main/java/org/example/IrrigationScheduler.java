@@ -0,0 +1,283 @@
+package org.example;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// In-memory engine for the daily irrigation schedules.
+// Windows are times of day in seconds, half-open [start, end); a window that crosses midnight is stored
+// as two windows, start-24:00 and 00:00-end. Every land's windows live in their own IntervalTree, so a
+// new window is checked against that land's schedule in O(log n), and all windows also live in one
+// shared tree that answers "which lands are irrigating at time T" with a single stabbing query.
+// The schedules are loaded from the IrrigationRepository on first use (ordered by the
+// irrigation (land_id, start_time) index) and kept up to date by save() and delete(), which also move the
+// change marker past their own writes; reloadIfChanged() picks up changes made by other processes.
+public final class IrrigationScheduler {
+    public static final int DAY_SECONDS = 24 * 60 * 60;
+
+    private static final IrrigationScheduler INSTANCE = new IrrigationScheduler();
+
+    // One irrigation window of a land; irrigationId is 0 until the window is saved
+    public record Window(int irrigationId, int landId, int start, int end) {
+        public boolean overlaps(Window other) {
+            return start < other.end && other.start < end;
+        }
+
+        public Window withId(int id) {
+            return new Window(id, landId, start, end);
+        }
+
+        // e.g. "22:00-24:00"
+        public String describe() {
+            return formatTime(start) + "-" + formatTime(end);
+        }
+    }
+
+    private final Map<Integer, IntervalTree> byLand = new HashMap<>();
+    private final IntervalTree all = new IntervalTree();
+    // A row stored before this validation existed may cross midnight and so map to two windows
+    private final Map<Integer, List<Window>> byId = new HashMap<>();
+    private boolean loaded;
+    private List<Long> marker = List.of();
+    private volatile int overlappingStored;
+
+    private IrrigationScheduler() {
+    }
+
+    public static IrrigationScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    // Seconds of day for "HH:mm" or "HH:mm:ss"; 24:00 is accepted as the end of the day. -1 if invalid.
+    public static int parseTime(String text) {
+        String[] parts = text.trim().split(":");
+        if (parts.length < 2 || parts.length > 3) {
+            return -1;
+        }
+        try {
+            int hours = Integer.parseInt(parts[0]);
+            int minutes = Integer.parseInt(parts[1]);
+            int seconds = parts.length == 3 ? Integer.parseInt(parts[2]) : 0;
+            if (hours < 0 || minutes < 0 || minutes > 59 || seconds < 0 || seconds > 59) {
+                return -1;
+            }
+            int time = hours * 3600 + minutes * 60 + seconds;
+            return time <= DAY_SECONDS ? time : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // "HH:mm", with seconds only when they are set
+    public static String formatTime(int seconds) {
+        String time = String.format("%02d:%02d", seconds / 3600, seconds / 60 % 60);
+        return seconds % 60 == 0 ? time : time + String.format(":%02d", seconds % 60);
+    }
+
+    // The windows for start..end on one land: one window, or two when it crosses midnight.
+    // An end of 00:00 means midnight at the end of the day.
+    public static List<Window> split(int landId, int start, int end) {
+        if (end == 0) {
+            end = DAY_SECONDS;
+        }
+        if (end > start) {
+            return List.of(new Window(0, landId, start, end));
+        }
+        return List.of(new Window(0, landId, start, DAY_SECONDS), new Window(0, landId, 0, end));
+    }
+
+    // The smallest window covering the window and everything it overlaps
+    public static Window merge(Window window, Collection<Window> overlapping) {
+        int start = window.start();
+        int end = window.end();
+        for (Window other : overlapping) {
+            start = Math.min(start, other.start());
+            end = Math.max(end, other.end());
+        }
+        return new Window(window.irrigationId(), window.landId(), start, end);
+    }
+
+    // Saved windows of the land that overlap the window, ignoring the given schedules (e.g. the one being edited)
+    public synchronized List<Window> conflicts(Window window, Set<Integer> ignoredIds) throws SQLException {
+        ensureLoaded();
+        IntervalTree tree = byLand.get(window.landId());
+        if (tree == null) {
+            return List.of();
+        }
+        List<Window> conflicts = tree.overlapping(window.start(), window.end());
+        conflicts.removeIf(conflict -> ignoredIds.contains(conflict.irrigationId()));
+        return conflicts;
+    }
+
+    // Writes the windows in one transaction: the schedules in removedIds are deleted, replacedId (0 for none) is
+    // updated to the first window and the other windows are inserted. Returns the saved windows with their ids.
+    // Throws IllegalStateException if a window overlaps a schedule that is not being removed or replaced, and
+    // SQLException if replacedId was deleted meanwhile.
+    public synchronized List<Window> save(int replacedId, List<Window> windows, Set<Integer> removedIds)
+            throws SQLException {
+        ensureLoaded();
+        Set<Integer> ignored = new HashSet<>(removedIds);
+        ignored.add(replacedId);
+        for (int i = 0; i < windows.size(); i++) {
+            // Checked again under the lock in case another window changed the land's schedule meanwhile
+            List<Window> conflicts = conflicts(windows.get(i), ignored);
+            if (!conflicts.isEmpty()) {
+                throw new IllegalStateException("Irrigation " + windows.get(i).describe() + " overlaps "
+                        + conflicts.get(0).describe() + " on land " + windows.get(i).landId() + ".");
+            }
+            for (int j = 0; j < i; j++) {
+                if (windows.get(i).overlaps(windows.get(j))) {
+                    throw new IllegalStateException("Irrigation windows " + windows.get(j).describe() + " and "
+                            + windows.get(i).describe() + " overlap.");
+                }
+            }
+        }
+
+        boolean current = markerCurrent();
+        List<Window> saved = Repositories.irrigation().save(replacedId, windows, removedIds);
+        for (int id : removedIds) {
+            removeWindows(id);
+        }
+        removeWindows(replacedId);
+        for (Window window : saved) {
+            addWindow(window);
+        }
+        wrote(current);
+        return saved;
+    }
+
+    // Deletes a schedule and returns the land it belonged to, or 0 if it was unknown
+    public synchronized int delete(int irrigationId) throws SQLException {
+        ensureLoaded();
+        boolean current = markerCurrent();
+        Repositories.irrigation().delete(irrigationId);
+        List<Window> removed = removeWindows(irrigationId);
+        wrote(current);
+        return removed.isEmpty() ? 0 : removed.get(0).landId();
+    }
+
+    // Sorted ids of the lands with a window containing the time of day
+    public synchronized int[] landsIrrigatingAt(int secondOfDay) throws SQLException {
+        ensureLoaded();
+        List<Window> active = all.containing(secondOfDay);
+        int[] landIds = new int[active.size()];
+        for (int i = 0; i < landIds.length; i++) {
+            landIds[i] = active.get(i).landId();
+        }
+        Arrays.sort(landIds);
+        // Drop duplicates, in case windows stored before validation overlap
+        int count = 0;
+        for (int i = 0; i < landIds.length; i++) {
+            if (i == 0 || landIds[i] != landIds[i - 1]) {
+                landIds[count++] = landIds[i];
+            }
+        }
+        return Arrays.copyOf(landIds, count);
+    }
+
+    // Number of stored windows that overlap another window of their land, as of the last load
+    public int overlappingStored() {
+        return overlappingStored;
+    }
+
+    // Every window containing the time of day, ordered by start
+    public synchronized List<Window> activeAt(int secondOfDay) throws SQLException {
+        ensureLoaded();
+        return all.containing(secondOfDay);
+    }
+
+    // Every window, ordered by start
+    public synchronized List<Window> windows() throws SQLException {
+        ensureLoaded();
+        return all.toList();
+    }
+
+    // The land's windows, ordered by start
+    public synchronized List<Window> windowsOfLand(int landId) throws SQLException {
+        ensureLoaded();
+        IntervalTree tree = byLand.get(landId);
+        return tree == null ? List.of() : tree.toList();
+    }
+
+    // Reloads if the irrigation table changed since the last load, e.g. in another process; true if it reloaded
+    public synchronized boolean reloadIfChanged() throws SQLException {
+        if (loaded && Repositories.irrigation().changeMarker().equals(marker)) {
+            return false;
+        }
+        reload();
+        return true;
+    }
+
+    // Re-reads every schedule, for changes made outside this application
+    public synchronized void reload() throws SQLException {
+        byLand.clear();
+        all.clear();
+        byId.clear();
+        int overlapping = 0;
+        // Marker first: a change landing between the marker and the data is caught by the next check
+        marker = Repositories.irrigation().changeMarker();
+        for (Window stored : Repositories.irrigation().findAllWindows()) {
+            if (stored.start() == stored.end()) {
+                continue; // Empty window
+            }
+            for (Window window : split(stored.landId(), stored.start(), stored.end())) {
+                window = window.withId(stored.irrigationId());
+                if (!byLand.computeIfAbsent(window.landId(), land -> new IntervalTree())
+                        .overlapping(window.start(), window.end()).isEmpty()) {
+                    overlapping++;
+                }
+                addWindow(window);
+            }
+        }
+        loaded = true;
+        overlappingStored = overlapping;
+    }
+
+    private void ensureLoaded() throws SQLException {
+        if (!loaded) {
+            reload();
+        }
+    }
+
+    // Before one of our own writes: whether the marker still matches the table, i.e. no other process changed it
+    private boolean markerCurrent() throws SQLException {
+        return Repositories.irrigation().changeMarker().equals(marker);
+    }
+
+    // After one of our own writes: takes the new marker, so the next reloadIfChanged() doesn't rebuild the trees
+    // for a change they already have. If the table had changed elsewhere the old marker is kept and the next
+    // check reloads. A change made elsewhere between the write and this read goes unnoticed until the next one.
+    private void wrote(boolean current) throws SQLException {
+        if (current) {
+            marker = Repositories.irrigation().changeMarker();
+        }
+    }
+
+    private void addWindow(Window window) {
+        byLand.computeIfAbsent(window.landId(), land -> new IntervalTree()).insert(window);
+        all.insert(window);
+        byId.computeIfAbsent(window.irrigationId(), id -> new ArrayList<>(1)).add(window);
+    }
+
+    private List<Window> removeWindows(int irrigationId) {
+        List<Window> windows = byId.remove(irrigationId);
+        if (windows == null) {
+            return List.of();
+        }
+        for (Window window : windows) {
+            IntervalTree tree = byLand.get(window.landId());
+            tree.remove(window);
+            if (tree.isEmpty()) {
+                byLand.remove(window.landId());
+            }
+            all.remove(window);
+        }
+        return windows;
+    }
+}
@@ -0,0 +1,531 @@
+package org.example;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+// MySQL implementations of the repositories. Every call borrows a pooled connection and closes its
+// statements and result sets before handing the connection back.
+final class JdbcRepositories {
+    static final String LANDS_QUERY = "SELECT land_id, sector_name, soil_type, area FROM lands";
+    static final String CROPS_QUERY = "SELECT crop_id, crop_name, ideal_temperature, ideal_moisture, ideal_ph, land_id " +
+            "FROM crops";
+    private static final String LANDS_WITH_LATEST_QUERY = "SELECT l.land_id, l.sector_name, l.soil_type, l.area, " +
+            "s.temperature, s.soil_moisture, s.ph, s.timestamp AS last_reading " +
+            "FROM lands l LEFT JOIN sensor_latest s ON s.land_id = l.land_id";
+    private static final String IRRIGATION_QUERY =
+            "SELECT irrigation.irrigation_id, lands.sector_name, irrigation.start_time, irrigation.end_time " +
+                    "FROM irrigation JOIN lands ON irrigation.land_id = lands.land_id";
+
+    private JdbcRepositories() {
+    }
+
+    // Runs the query, restricted to "column IN (ids)" unless ids is null, and ordered by the column orderBy
+    private static ColumnarTableModel model(String label, String query, String column, Collection<Integer> ids,
+                                            String orderBy) throws SQLException {
+        String sql = query;
+        if (ids != null) {
+            sql += ids.isEmpty() ? " WHERE 1 = 0" : " WHERE " + column + " IN (" + "?,".repeat(ids.size() - 1) + "?)";
+        }
+        sql += " ORDER BY " + orderBy;
+        try (Connection connection = DatabaseConnection.getConnection();
+             Diagnostics.QueryTimer timer = Diagnostics.query(label);
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            int index = 1;
+            if (ids != null) {
+                for (int id : ids) {
+                    statement.setInt(index++, id);
+                }
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                ColumnarTableModel model = ColumnarTableModel.fromResultSet(resultSet);
+                timer.rows(model.getRowCount());
+                return model;
+            }
+        }
+    }
+
+    // Runs an UPDATE or DELETE; returns true if it changed a row
+    private static boolean update(String label, String sql, Object... parameters) throws SQLException {
+        try (Connection connection = DatabaseConnection.getConnection();
+             Diagnostics.QueryTimer timer = Diagnostics.query(label);
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            int rows = statement.executeUpdate();
+            timer.rows(rows);
+            return rows > 0;
+        }
+    }
+
+    // Row count, max id and a checksum of the given columns
+    private static List<Long> marker(String label, String table, String idColumn, String columns) throws SQLException {
+        String sql = "SELECT COUNT(*), COALESCE(MAX(" + idColumn + "), 0), " +
+                "COALESCE(BIT_XOR(CRC32(CONCAT_WS('|', " + columns + "))), 0) FROM " + table;
+        try (Connection connection = DatabaseConnection.getConnection();
+             Diagnostics.QueryTimer timer = Diagnostics.query(label);
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            timer.rows(1);
+            return List.of(resultSet.getLong(1), resultSet.getLong(2), resultSet.getLong(3));
+        }
+    }
+
+    private static double readDouble(ResultSet resultSet, int column) throws SQLException {
+        double value = resultSet.getDouble(column);
+        return resultSet.wasNull() ? Double.NaN : value;
+    }
+
+    // TIME literal for seconds of the day; 86400 is written as 24:00:00
+    private static String sqlTime(int seconds) {
+        return String.format("%02d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+    }
+
+    static final class Lands implements LandRepository {
+        private static final int READINGS_DELETE_BATCH = 5_000;
+
+        @Override
+        public ColumnarTableModel findAll() throws SQLException {
+            return model("lands.all", LANDS_QUERY, "land_id", null, "land_id");
+        }
+
+        @Override
+        public ColumnarTableModel findByIds(Collection<Integer> landIds) throws SQLException {
+            return model("lands.byId", LANDS_QUERY, "land_id", landIds, "land_id");
+        }
+
+        @Override
+        public ColumnarTableModel findAllWithLatestReading() throws SQLException {
+            return model("lands.withLatest", LANDS_WITH_LATEST_QUERY, "l.land_id", null, "l.land_id");
+        }
+
+        @Override
+        public ColumnarTableModel findWithLatestReading(Collection<Integer> landIds) throws SQLException {
+            return model("lands.withLatestById", LANDS_WITH_LATEST_QUERY, "l.land_id", landIds, "l.land_id");
+        }
+
+        @Override
+        public int insert(String sectorName, String soilType, double area) throws SQLException {
+            try (Connection connection = DatabaseConnection.getConnection();
+                 PreparedStatement statement = connection.prepareStatement(
+                         "INSERT INTO lands (sector_name, soil_type, area) VALUES (?, ?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+                statement.setString(1, sectorName);
+                statement.setString(2, soilType);
+                statement.setDouble(3, area);
+                return DatabaseConnection.insertReturningKey(statement);
+            }
+        }
+
+        @Override
+        public boolean update(int landId, String sectorName, String soilType, double area) throws SQLException {
+            return JdbcRepositories.update("lands.update",
+                    "UPDATE lands SET sector_name = ?, soil_type = ?, area = ? WHERE land_id = ?",
+                    sectorName, soilType, area, landId);
+        }
+
+        // Without the foreign key (migration V4) nothing cascades to sensors: the land goes first, so the V7
+        // trigger turns away its new readings, then its readings go in batches. They are swept even when the
+        // land is already gone, so deleting it again finishes an interrupted sweep.
+        @Override
+        public boolean delete(int landId) throws SQLException {
+            boolean deleted = JdbcRepositories.update("lands.delete", "DELETE FROM lands WHERE land_id = ?", landId);
+            try (Connection connection = DatabaseConnection.getConnection()) {
+                if (!SensorPartitions.sensorsReferenceLands(connection)) {
+                    deleteReadings(connection, landId);
+                }
+            }
+            return deleted;
+        }
+
+        private static void deleteReadings(Connection connection, int landId) throws SQLException {
+            try (PreparedStatement statement = connection.prepareStatement("DELETE FROM sensors WHERE land_id = ? LIMIT ?")) {
+                statement.setInt(1, landId);
+                statement.setInt(2, READINGS_DELETE_BATCH);
+                while (true) {
+                    int deleted;
+                    try (Diagnostics.QueryTimer timer = Diagnostics.query("lands.deleteReadings")) {
+                        deleted = statement.executeUpdate(); // Auto-commit: each batch releases its locks right away
+                        timer.rows(deleted);
+                    }
+                    if (deleted < READINGS_DELETE_BATCH) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public List<Long> changeMarker() throws SQLException {
+            return marker("lands.marker", "lands", "land_id", "land_id, sector_name, soil_type, area");
+        }
+    }
+
+    static final class Crops implements CropRepository {
+        @Override
+        public ColumnarTableModel findAll() throws SQLException {
+            return model("crops.all", CROPS_QUERY, "crop_id", null, "crop_id");
+        }
+
+        @Override
+        public ColumnarTableModel findByIds(Collection<Integer> cropIds) throws SQLException {
+            return model("crops.byId", CROPS_QUERY, "crop_id", cropIds, "crop_id");
+        }
+
+        @Override
+        public int insert(String cropName, int idealTemperature, int idealMoisture, double idealPh, int landId)
+                throws SQLException {
+            try (Connection connection = DatabaseConnection.getConnection();
+                 PreparedStatement statement = connection.prepareStatement(
+                         "INSERT INTO crops (crop_name, ideal_temperature, ideal_moisture, ideal_ph, land_id) " +
+                                 "VALUES (?, ?, ?, ?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+                statement.setString(1, cropName);
+                statement.setInt(2, idealTemperature);
+                statement.setInt(3, idealMoisture);
+                statement.setDouble(4, idealPh);
+                statement.setInt(5, landId);
+                return DatabaseConnection.insertReturningKey(statement);
+            }
+        }
+
+        @Override
+        public boolean update(int cropId, String cropName, int idealTemperature, int idealMoisture, double idealPh,
+                              int landId) throws SQLException {
+            return JdbcRepositories.update("crops.update", "UPDATE crops SET crop_name = ?, ideal_temperature = ?, " +
+                            "ideal_moisture = ?, ideal_ph = ?, land_id = ? WHERE crop_id = ?",
+                    cropName, idealTemperature, idealMoisture, idealPh, landId, cropId);
+        }
+
+        @Override
+        public boolean delete(int cropId) throws SQLException {
+            return JdbcRepositories.update("crops.delete", "DELETE FROM crops WHERE crop_id = ?", cropId);
+        }
+
+        @Override
+        public List<Long> changeMarker() throws SQLException {
+            return marker("crops.marker", "crops", "crop_id",
+                    "crop_id, crop_name, ideal_temperature, ideal_moisture, ideal_ph, land_id");
+        }
+    }
+
+    // sensor_latest is maintained by the insert trigger of migration V2
+    static final class Sensors implements SensorRepository {
+        private static final String IDS_QUERY = "SELECT sensor_id FROM sensors WHERE sensor_id >= ? ORDER BY sensor_id";
+        private static final String PAGE_QUERY =
+                "SELECT sensor_id, land_id, temperature, soil_moisture, ph, timestamp FROM sensors " +
+                        "WHERE sensor_id >= ? ORDER BY sensor_id LIMIT ?";
+        private static final String ALL_QUERY =
+                "SELECT sensor_id, land_id, temperature, soil_moisture, ph, timestamp FROM sensors WHERE 1 = 1";
+        // Raw rows past the retention horizon only survive in the rollups
+        private static final String EXTENT_QUERY = "SELECT MIN(first_time), MAX(last_time) FROM (" +
+                "SELECT MIN(timestamp) AS first_time, MAX(timestamp) AS last_time FROM sensors WHERE land_id = ? " +
+                "UNION ALL SELECT MIN(bucket_start), MAX(bucket_start) FROM sensors_daily WHERE land_id = ?) extent";
+        private static final String TREND_QUERY = "SELECT timestamp, soil_moisture, temperature, ph FROM sensors " +
+                "WHERE land_id = ? AND timestamp >= ? AND timestamp <= ? ORDER BY timestamp";
+        // Averages per hour or day; %s is sensors_hourly or sensors_daily
+        private static final String ROLLUP_TREND_QUERY = "SELECT bucket_start, soil_moisture_sum / reading_count, " +
+                "temperature_sum / reading_count, ph_sum / reading_count FROM %s " +
+                "WHERE land_id = ? AND bucket_start > ? AND bucket_start <= ? ORDER BY bucket_start";
+        private static final String LATEST_QUERY =
+                "SELECT land_id, temperature, soil_moisture, ph, timestamp FROM sensor_latest ORDER BY land_id";
+
+        @Override
+        public int insert(SensorReading reading) throws SQLException {
+            try (Connection connection = DatabaseConnection.getConnection();
+                 PreparedStatement statement = connection.prepareStatement(
+                         "INSERT INTO sensors (land_id, temperature, soil_moisture, ph, timestamp) VALUES (?, ?, ?, ?, ?)",
+                         Statement.RETURN_GENERATED_KEYS)) {
+                statement.setInt(1, reading.landId());
+                statement.setDouble(2, reading.temperature());
+                statement.setDouble(3, reading.soilMoisture());
+                statement.setDouble(4, reading.ph());
+                statement.setTimestamp(5, new Timestamp(reading.timestampMillis()));
+                return DatabaseConnection.insertReturningKey(statement);
+            }
+        }
+
+        @Override
+        public void insertBatch(List<SensorReading> readings) throws SQLException {
+            try (Connection connection = DatabaseConnection.getConnection()) {
+                SensorIngestor.insertBatch(connection, readings);
+            }
+        }
+
+        @Override
+        public int count() throws SQLException {
+            try (Connection connection = DatabaseConnection.getConnection();
+                 Diagnostics.QueryTimer timer = Diagnostics.query("sensors.count");
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM sensors")) {
+                resultSet.next();
+                timer.rows(1);
+                return resultSet.getInt(1);
+            }
+        }
+
+        @Override
+        public int scanIds(int fromSensorId, int step, IntConsumer consumer) throws SQLException {
+            try (Connection connection = DatabaseConnection.getConnection();
+                 Diagnostics.QueryTimer timer = Diagnostics.query("sensors.scanIds");
+                 PreparedStatement statement = DatabaseConnection.prepareStreaming(connection, IDS_QUERY)) {
+                statement.setInt(1, fromSensorId);
+                int rows = 0;
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        if (rows % step == 0) {
+                            consumer.accept(resultSet.getInt(1));
+                        }
+                        rows++;
+                    }
+                }
+                timer.rows(rows);
+                return rows;
+            }
+        }
+
+        @Override
+        public int readPage(int fromSensorId, int limit, RowConsumer consumer) throws SQLException {
+            try (Connection connection = DatabaseConnection.getConnection();
+                 Diagnostics.QueryTimer timer = Diagnostics.query("sensors.page");
+                 PreparedStatement statement = connection.prepareStatement(PAGE_QUERY)) {
+                statement.setInt(1, fromSensorId);
+                statement.setInt(2, limit);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    int rows = (int) readRows(resultSet, consumer);
+                    timer.rows(rows);
+                    return rows;
+                }
+            }
+        }
+
+        @Override
+        public long readAll(Integer landId, Timestamp from, Timestamp to, RowConsumer consumer) throws SQLException {
+            StringBuilder sql = new StringBuilder(ALL_QUERY);
+            if (landId != null) {
+                sql.append(" AND land_id = ?");
+            }
+            if (from != null) {
+                sql.append(" AND timestamp >= ?");
+            }
+            if (to != null) {
+                sql.append(" AND timestamp < ?");
+            }
+            sql.append(" ORDER BY sensor_id");
+            try (Connection connection = DatabaseConnection.getConnection();
+                 Diagnostics.QueryTimer timer = Diagnostics.query("sensors.all");
+                 PreparedStatement statement = DatabaseConnection.prepareStreaming(connection, sql.toString())) {
+                int parameter = 1;
+                if (landId != null) {
+                    statement.setInt(parameter++, landId);
+                }
+                if (from != null) {
+                    statement.setTimestamp(parameter++, from);
+                }
+                if (to != null) {
+                    statement.setTimestamp(parameter, to);
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    long rows = readRows(resultSet, consumer);
+                    timer.rows(rows);
+                    return rows;
+                }
+            }
+        }
+
+        // Passes sensor_id, land_id, temperature, soil_moisture, ph, timestamp rows to the consumer
+        private static long readRows(ResultSet resultSet, RowConsumer consumer) throws SQLException {
+            long rows = 0;
+            while (resultSet.next()) {
+                int landId = resultSet.getInt(2);
+                if (resultSet.wasNull()) {
+                    landId = NULL_LAND_ID;
+                }
+                Timestamp timestamp = resultSet.getTimestamp(6);
+                consumer.accept(resultSet.getInt(1), landId, readDouble(resultSet, 3),
+                        readDouble(resultSet, 4), readDouble(resultSet, 5),
+                        timestamp == null ? NULL_TIMESTAMP : timestamp.getTime());
+                rows++;
+            }
+            return rows;
+        }
+
+        @Override
+        public List<SensorReading> latestReadings() throws SQLException {
+            try (Connection connection = DatabaseConnection.getConnection();
+                 Diagnostics.QueryTimer timer = Diagnostics.query("sensors.latest");
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(LATEST_QUERY)) {
+                List<SensorReading> readings = new ArrayList<>();
+                while (resultSet.next()) {
+                    readings.add(new SensorReading(resultSet.getInt(1), readDouble(resultSet, 2),
+                            readDouble(resultSet, 3), readDouble(resultSet, 4), resultSet.getTimestamp(5).getTime()));
+                }
+                timer.rows(readings.size());
+                return readings;
+            }
+        }
+
+        @Override
+        public long[] extent(int landId) throws SQLException {
+            try (Connection connection = DatabaseConnection.getConnection();
+                 Diagnostics.QueryTimer timer = Diagnostics.query("sensors.extent");
+                 PreparedStatement statement = connection.prepareStatement(EXTENT_QUERY)) {
+                statement.setInt(1, landId);
+                statement.setInt(2, landId);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    resultSet.next();
+                    timer.rows(1);
+                    Timestamp first = resultSet.getTimestamp(1);
+                    Timestamp last = resultSet.getTimestamp(2);
+                    return first == null ? null : new long[]{first.getTime(), last.getTime()};
+                }
+            }
+        }
+
+        @Override
+        public boolean rollupsAvailable() throws SQLException {
+            try (Connection connection = DatabaseConnection.getConnection()) {
+                return SensorRollups.rollupsAvailable(connection);
+            }
+        }
+
+        @Override
+        public void readTrend(int landId, SensorRollups.Resolution resolution, long from, long to,
+                              TrendConsumer consumer) throws SQLException, InterruptedException {
+            String sql = resolution == SensorRollups.Resolution.RAW ? TREND_QUERY
+                    : String.format(ROLLUP_TREND_QUERY, resolution.table());
+            try (Connection connection = DatabaseConnection.getConnection();
+                 Diagnostics.QueryTimer timer = Diagnostics.query("sensors.trend." + resolution.name().toLowerCase());
+                 PreparedStatement statement = DatabaseConnection.prepareStreaming(connection, sql)) {
+                statement.setInt(1, landId);
+                statement.setTimestamp(2, new Timestamp(from));
+                statement.setTimestamp(3, new Timestamp(to));
+                long rows = 0;
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        consumer.accept(resultSet.getTimestamp(1).getTime(), resultSet.getDouble(2),
+                                resultSet.getDouble(3), resultSet.getDouble(4));
+                        if ((++rows & 4095) == 0 && Thread.currentThread().isInterrupted()) {
+                            // Superseded; stop the server instead of draining the stream
+                            statement.cancel();
+                            throw new InterruptedException();
+                        }
+                    }
+                }
+                timer.rows(rows);
+            }
+        }
+    }
+
+    static final class Irrigation implements IrrigationRepository {
+        private static final String WINDOWS_QUERY =
+                "SELECT irrigation_id, land_id, TIME_TO_SEC(start_time), TIME_TO_SEC(end_time) FROM irrigation " +
+                        "ORDER BY land_id, start_time";
+        private static final String INSERT_SQL = "INSERT INTO irrigation (land_id, start_time, end_time) VALUES (?, ?, ?)";
+        private static final String UPDATE_SQL = "UPDATE irrigation SET land_id = ?, start_time = ?, end_time = ? WHERE irrigation_id = ?";
+        private static final String DELETE_SQL = "DELETE FROM irrigation WHERE irrigation_id = ?";
+
+        @Override
+        public ColumnarTableModel findAll() throws SQLException {
+            return model("irrigation.all", IRRIGATION_QUERY, "irrigation.irrigation_id", null, "irrigation.irrigation_id");
+        }
+
+        @Override
+        public ColumnarTableModel findByIds(Collection<Integer> irrigationIds) throws SQLException {
+            return model("irrigation.byId", IRRIGATION_QUERY, "irrigation.irrigation_id", irrigationIds,
+                    "irrigation.irrigation_id");
+        }
+
+        @Override
+        public ColumnarTableModel findByLandIds(Collection<Integer> landIds) throws SQLException {
+            return model("irrigation.byLand", IRRIGATION_QUERY, "irrigation.land_id", landIds, "irrigation.irrigation_id");
+        }
+
+        @Override
+        public List<IrrigationScheduler.Window> findAllWindows() throws SQLException {
+            try (Connection connection = DatabaseConnection.getConnection();
+                 Diagnostics.QueryTimer timer = Diagnostics.query("irrigation.schedule");
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(WINDOWS_QUERY)) {
+                List<IrrigationScheduler.Window> windows = new ArrayList<>();
+                while (resultSet.next()) {
+                    windows.add(new IrrigationScheduler.Window(resultSet.getInt(1), resultSet.getInt(2),
+                            resultSet.getInt(3), resultSet.getInt(4)));
+                }
+                timer.rows(windows.size());
+                return windows;
+            }
+        }
+
+        @Override
+        public List<IrrigationScheduler.Window> save(int replacedId, List<IrrigationScheduler.Window> windows,
+                                                     Set<Integer> removedIds) throws SQLException {
+            List<IrrigationScheduler.Window> saved = new ArrayList<>(windows.size());
+            try (Connection connection = DatabaseConnection.getConnection()) {
+                boolean autoCommit = connection.getAutoCommit();
+                connection.setAutoCommit(false);
+                try (Diagnostics.QueryTimer timer = Diagnostics.query("irrigation.save")) {
+                    try (PreparedStatement statement = connection.prepareStatement(DELETE_SQL)) {
+                        for (int id : removedIds) {
+                            statement.setInt(1, id);
+                            statement.addBatch();
+                        }
+                        statement.executeBatch();
+                    }
+                    for (IrrigationScheduler.Window window : windows) {
+                        if (replacedId > 0 && saved.isEmpty()) {
+                            try (PreparedStatement statement = connection.prepareStatement(UPDATE_SQL)) {
+                                statement.setInt(1, window.landId());
+                                statement.setString(2, sqlTime(window.start()));
+                                statement.setString(3, sqlTime(window.end()));
+                                statement.setInt(4, replacedId);
+                                if (statement.executeUpdate() == 0) {
+                                    // Deleted in another window meanwhile; nothing of the save is kept
+                                    throw new SQLException("Irrigation schedule " + replacedId + " no longer exists",
+                                            "02000");
+                                }
+                            }
+                            saved.add(window.withId(replacedId));
+                        } else {
+                            try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                                statement.setInt(1, window.landId());
+                                statement.setString(2, sqlTime(window.start()));
+                                statement.setString(3, sqlTime(window.end()));
+                                saved.add(window.withId(DatabaseConnection.insertReturningKey(statement)));
+                            }
+                        }
+                    }
+                    connection.commit();
+                    timer.rows(removedIds.size() + saved.size());
+                } catch (SQLException | RuntimeException | Error e) {
+                    // Restoring autocommit below would commit the statements already run
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(autoCommit);
+                }
+            }
+            return saved;
+        }
+
+        @Override
+        public boolean delete(int irrigationId) throws SQLException {
+            return update("irrigation.delete", DELETE_SQL, irrigationId);
+        }
+
+        @Override
+        public List<Long> changeMarker() throws SQLException {
+            return marker("irrigation.marker", "irrigation", "irrigation_id",
+                    "irrigation_id, land_id, start_time, end_time");
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package org.example;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+
+// Data access for the lands table. Table models are ordered by land_id and have the columns
+// land_id, sector_name, soil_type, area; the WithLatestReading variants add the land's latest
+// temperature, soil_moisture, ph and last_reading (null for a land without readings).
+public interface LandRepository {
+
+    ColumnarTableModel findAll() throws SQLException;
+
+    ColumnarTableModel findByIds(Collection<Integer> landIds) throws SQLException;
+
+    ColumnarTableModel findAllWithLatestReading() throws SQLException;
+
+    ColumnarTableModel findWithLatestReading(Collection<Integer> landIds) throws SQLException;
+
+    // Inserts a land and returns its land_id
+    int insert(String sectorName, String soilType, double area) throws SQLException;
+
+    // Returns false if there is no such land
+    boolean update(int landId, String sectorName, String soilType, double area) throws SQLException;
+
+    // Deletes the land together with its crops and readings; fails while irrigation schedules refer to it
+    boolean delete(int landId) throws SQLException;
+
+    // Values that change whenever the table does, to notice changes made by other processes
+    List<Long> changeMarker() throws SQLException;
+}
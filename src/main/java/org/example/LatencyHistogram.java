@@ -0,0 +1,148 @@
+package org.example;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Lock-free latency histogram with HDR-style log-linear buckets.
+// Values below 2 * SUB_BUCKETS nanoseconds get one bucket each; above that every power of two is split
+// into SUB_BUCKETS equal buckets, so a recorded value is off by at most 1/SUB_BUCKETS (about 3%) whatever
+// its magnitude. Recording is a bucket index computation and two atomic increments, with no allocation,
+// so it can sit on hot paths. Percentiles report the upper bound of their bucket.
+public class LatencyHistogram implements LatencyHistogramMXBean {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Index of Long.MAX_VALUE plus one
+    private static final int BUCKETS = index(Long.MAX_VALUE) + 1;
+
+    private final String operation;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public LatencyHistogram(String operation) {
+        this.operation = operation;
+    }
+
+    public String operation() {
+        return operation;
+    }
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts.incrementAndGet(index(nanos));
+        count.increment();
+        totalNanos.add(nanos);
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    // Bucket of a value: linear below 2 * SUB_BUCKETS, then SUB_BUCKETS buckets per power of two
+    private static int index(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return SUB_BUCKETS * shift + (int) (value >>> shift);
+    }
+
+    // Largest value that falls into the bucket
+    private static long upperBound(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long top = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+
+    // Consistent enough view of the histogram for reporting; concurrent records may be partly included
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long total = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            copy[bucket] = counts.get(bucket);
+            total += copy[bucket];
+        }
+        return new Snapshot(operation, total, totalNanos.sum(), maxNanos.get(), copy);
+    }
+
+    @Override
+    public void reset() {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            counts.set(bucket, 0);
+        }
+        count.reset();
+        totalNanos.reset();
+        maxNanos.set(0);
+    }
+
+    // JMX attributes, in milliseconds
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return snapshot().meanNanos() / 1e6;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return snapshot().percentile(50) / 1e6;
+    }
+
+    @Override
+    public double getP90Millis() {
+        return snapshot().percentile(90) / 1e6;
+    }
+
+    @Override
+    public double getP99Millis() {
+        return snapshot().percentile(99) / 1e6;
+    }
+
+    @Override
+    public double getP999Millis() {
+        return snapshot().percentile(99.9) / 1e6;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return maxNanos.get() / 1e6;
+    }
+
+    public record Snapshot(String operation, long count, long totalNanos, long maxNanos, long[] counts) {
+        public double meanNanos() {
+            return count == 0 ? 0 : (double) totalNanos / count;
+        }
+
+        // Smallest recorded bucket bound that covers the given share of the values, in nanoseconds
+        public long percentile(double percent) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(count * percent / 100.0));
+            long seen = 0;
+            for (int bucket = 0; bucket < counts.length; bucket++) {
+                seen += counts[bucket];
+                if (seen >= rank) {
+                    return Math.min(upperBound(bucket), maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: count=%d, mean=%.2f ms, p50=%.2f ms, p99=%.2f ms, max=%.2f ms",
+                    operation, count, meanNanos() / 1e6, percentile(50) / 1e6, percentile(99) / 1e6, maxNanos / 1e6);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package org.example;
+
+// JMX view of one LatencyHistogram, registered as org.example:type=Latency,name=<operation>
+public interface LatencyHistogramMXBean {
+    long getCount();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP90Millis();
+
+    double getP99Millis();
+
+    double getP999Millis();
+
+    double getMaxMillis();
+
+    void reset();
+}
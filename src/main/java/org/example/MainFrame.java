@@ -3,6 +3,7 @@ package org.example;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionListener;
+import java.sql.SQLException;
 
 public class MainFrame {
     private JFrame frame;
@@ -25,21 +26,25 @@ public class MainFrame {
         frame.add(title, BorderLayout.NORTH);
 
         // Center panel to hold buttons in a simple grid layout
-        JPanel centerPanel = new JPanel(new GridLayout(4, 1, 20, 20)); // 4 rows, 1 column, with spacing
+        JPanel centerPanel = new JPanel(new GridLayout(6, 1, 20, 20)); // 6 rows, 1 column, with spacing
         centerPanel.setOpaque(false); // Transparent panel so background shows through
         centerPanel.setBorder(BorderFactory.createEmptyBorder(50, 200, 50, 200)); // Padding around buttons
 
-        // Buttons for sections
-        JButton manageCropsBtn = createButton("Manage Crops", e -> new ManageCropsPanel());
-        JButton manageLandBtn = createButton("Manage Land", e -> new ManageLandPanel());
-        JButton manageSensorsBtn = createButton("Manage Sensors", e -> new ManageSensorsPanel());
-        JButton manageIrrigationBtn = createButton("Manage Irrigation", e -> new ManageIrrigationPanel());
+        // Buttons for sections; each panel is created once and brought back to front on later clicks
+        JButton manageCropsBtn = createButton("Manage Crops", e -> ManageCropsPanel.open());
+        JButton manageLandBtn = createButton("Manage Land", e -> ManageLandPanel.open());
+        JButton manageSensorsBtn = createButton("Manage Sensors", e -> ManageSensorsPanel.open());
+        JButton manageIrrigationBtn = createButton("Manage Irrigation", e -> ManageIrrigationPanel.open());
+        JButton alertsBtn = createButton("Alerts", e -> AlertListPanel.open());
+        JButton diagnosticsBtn = createButton("Diagnostics", e -> DiagnosticsPanel.open());
 
         // Add buttons to the center panel
         centerPanel.add(manageCropsBtn);
         centerPanel.add(manageLandBtn);
         centerPanel.add(manageSensorsBtn);
         centerPanel.add(manageIrrigationBtn);
+        centerPanel.add(alertsBtn);
+        centerPanel.add(diagnosticsBtn);
 
         frame.add(centerPanel, BorderLayout.CENTER);
 
@@ -55,7 +60,42 @@ public class MainFrame {
         return button;
     }
 
+    // Warms the shared caches in the background, then creates the panels hidden, one per event so the menu
+    // stays responsive. Each panel loads its tables off the EDT and follows later changes, so opening it
+    // is near-instant. Off with -Dsmartagri.preloadPanels=false.
+    private static void preloadPanels() {
+        if (!Boolean.parseBoolean(System.getProperty("smartagri.preloadPanels", "true"))) {
+            return;
+        }
+        Thread preloader = new Thread(() -> {
+            try {
+                ReferenceDataCache.getInstance().snapshot(); // Lands and crops, shown by every panel
+                IrrigationScheduler.getInstance().windows(); // Checked on the first irrigation save
+            } catch (SQLException e) {
+                e.printStackTrace(); // The panels load on their own and show the error
+            }
+            SwingUtilities.invokeLater(ManageLandPanel::preload);
+            SwingUtilities.invokeLater(ManageCropsPanel::preload);
+            SwingUtilities.invokeLater(ManageSensorsPanel::preload);
+            SwingUtilities.invokeLater(ManageIrrigationPanel::preload);
+        }, "panel-preload");
+        preloader.setDaemon(true);
+        preloader.start();
+    }
+
     public static void main(String[] args) {
-        SwingUtilities.invokeLater(MainFrame::new);
+        // The in-memory backend (-Dsmartagri.backend=memory) has no schema, journal or rollups to look after
+        if (!Repositories.inMemory()) {
+            SchemaMigrator.ensureUpToDate(); // Apply any pending schema migrations before the panels query
+            SensorJournal.resumeDesktop(); // Replay readings saved locally while the database was down
+            SensorRollups.startDesktop(); // Keep the rollups current and apply retention when enabled
+        }
+        Diagnostics.installEdtMonitor(); // Time every event-thread dispatch to catch UI stalls
+        AlertPipeline.getInstance().addSink(AlertListPanel.sink()); // Watering alerts go to the alert list
+        IrrigationExecutor.startDesktop(); // Run the irrigation schedule in-process when enabled
+        SwingUtilities.invokeLater(() -> {
+            new MainFrame();
+            preloadPanels(); // After the menu is showing
+        });
     }
 }
@@ -1,21 +1,24 @@
 package org.example;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
-import java.sql.*;
-import java.util.Vector;
+import java.sql.SQLException;
+import java.util.List;
 
 public class ManageCropsPanel extends JFrame {
+    private static ManageCropsPanel instance;
+
     private JTable cropsTable;
-    private DefaultTableModel cropsTableModel;
+    private ColumnarTableModel cropsTableModel;
     private JTable landTable;
-    private DefaultTableModel landTableModel;
+    private ColumnarTableModel landTableModel;
+    private final AsyncLoader loader = new AsyncLoader();
+    private final ChangeEventBus.Listener changeListener = this::onChanges;
 
-    public ManageCropsPanel() {
+    private ManageCropsPanel() {
         setTitle("Manage Crops");
         setExtendedState(JFrame.MAXIMIZED_BOTH); // Fullscreen mode
-        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE); // Close only this panel
+        setDefaultCloseOperation(JFrame.HIDE_ON_CLOSE); // Kept for the next open, following changes while hidden
 
         // Create the main panel with two columns: Form + Tables (land and crops)
         JPanel mainPanel = new JPanel(new BorderLayout());
@@ -29,13 +32,11 @@ public class ManageCropsPanel extends JFrame {
 
         // Land table displayed on the right
         landTable = new JTable();
-        loadLandData();
         JScrollPane landScrollPane = new JScrollPane(landTable);
         tablePanel.add(landScrollPane, BorderLayout.WEST);
 
         // Crops table displayed at the bottom
         cropsTable = new JTable();
-        loadCropsData();
         JScrollPane cropsScrollPane = new JScrollPane(cropsTable);
         tablePanel.add(cropsScrollPane, BorderLayout.SOUTH);
 
@@ -44,7 +45,38 @@ public class ManageCropsPanel extends JFrame {
         // Add the main panel to the JFrame
         add(mainPanel);
 
-        setVisible(true);
+        // Load the tables in the background so the window opens without waiting for them
+        loadLandData();
+        loadCropsData();
+        ChangeEventBus.getInstance().subscribe(changeListener);
+    }
+
+    // Cancels any loads still in flight when the window is closed
+    @Override
+    public void dispose() {
+        ChangeEventBus.getInstance().unsubscribe(changeListener);
+        loader.cancelAll();
+        super.dispose();
+    }
+
+    // Shows the panel, creating it on first use; must be called on the EDT
+    public static void open() {
+        ManageCropsPanel panel = getInstance();
+        panel.setExtendedState(panel.getExtendedState() & ~JFrame.ICONIFIED);
+        panel.setVisible(true);
+        panel.toFront();
+    }
+
+    // Creates the panel hidden so its tables are loaded before it is first opened; must be called on the EDT
+    static void preload() {
+        getInstance();
+    }
+
+    private static ManageCropsPanel getInstance() {
+        if (instance == null) {
+            instance = new ManageCropsPanel();
+        }
+        return instance;
     }
 
     // Creates the form panel for adding or updating crops
@@ -121,31 +153,14 @@ public class ManageCropsPanel extends JFrame {
         return panel;
     }
 
-    // Loads crops data from the database into the crops table
+    // Loads crops data from the reference-data cache into the crops table, ordered by crop_id so rows can be updated by key
     private void loadCropsData() {
-        try (Connection connection = DatabaseConnection.getConnection()) {
-            String query = "SELECT crops.crop_id, crops.crop_name, crops.ideal_temperature, crops.ideal_moisture, crops.ideal_ph, crops.land_id " +
-                    "FROM crops";
-            Statement statement = connection.createStatement();
-            ResultSet resultSet = statement.executeQuery(query);
-            cropsTableModel = buildTableModel(resultSet);
-            cropsTable.setModel(cropsTableModel);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        loader.loadTable("crops", cropsTable, () -> ReferenceDataCache.getInstance().cropsTableModel(), model -> cropsTableModel = model);
     }
 
-    // Loads land data from the database into the land table
+    // Loads land data from the reference-data cache into the land table
     private void loadLandData() {
-        try (Connection connection = DatabaseConnection.getConnection()) {
-            String query = "SELECT * FROM lands";
-            Statement statement = connection.createStatement();
-            ResultSet resultSet = statement.executeQuery(query);
-            landTableModel = buildTableModel(resultSet);
-            landTable.setModel(landTableModel);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        loader.loadTable("lands", landTable, () -> ReferenceDataCache.getInstance().landsTableModel(), model -> landTableModel = model);
     }
 
     // Adds a new crop to the database
@@ -167,17 +182,9 @@ public class ManageCropsPanel extends JFrame {
             double ph = Double.parseDouble(phStr);
             int landId = Integer.parseInt(landIdStr);
 
-            try (Connection connection = DatabaseConnection.getConnection()) {
-                String query = "INSERT INTO crops (crop_name, ideal_temperature, ideal_moisture, ideal_ph, land_id) VALUES (?, ?, ?, ?, ?)";
-                PreparedStatement statement = connection.prepareStatement(query);
-                statement.setString(1, cropName);
-                statement.setInt(2, temperature);
-                statement.setInt(3, moisture);
-                statement.setDouble(4, ph);
-                statement.setInt(5, landId);
-                statement.executeUpdate();
-                loadCropsData(); // Refresh table
-            }
+            int cropId = Repositories.crops().insert(cropName, temperature, moisture, ph, landId);
+            refreshCropRow(cropId); // Show the new row
+            ChangeEventBus.getInstance().publish(ChangeEventBus.Table.CROPS, ChangeEventBus.Kind.INSERTED, cropId, landId, this);
         } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(this, "Invalid input. Please enter numeric values for temperature, moisture, pH, and land ID.");
         } catch (SQLException e) {
@@ -211,18 +218,10 @@ public class ManageCropsPanel extends JFrame {
             double ph = Double.parseDouble(phStr);
             int landId = Integer.parseInt(landIdStr);
 
-            try (Connection connection = DatabaseConnection.getConnection()) {
-                String query = "UPDATE crops SET crop_name = ?, ideal_temperature = ?, ideal_moisture = ?, ideal_ph = ?, land_id = ? WHERE crop_id = ?";
-                PreparedStatement statement = connection.prepareStatement(query);
-                statement.setString(1, cropName);
-                statement.setInt(2, temperature);
-                statement.setInt(3, moisture);
-                statement.setDouble(4, ph);
-                statement.setInt(5, landId);
-                statement.setInt(6, Integer.parseInt(cropId));
-                statement.executeUpdate();
-                loadCropsData(); // Refresh table
-            }
+            Repositories.crops().update(Integer.parseInt(cropId), cropName, temperature, moisture, ph, landId);
+            refreshCropRow(Integer.parseInt(cropId)); // Refresh the updated row
+            ChangeEventBus.getInstance().publish(ChangeEventBus.Table.CROPS, ChangeEventBus.Kind.UPDATED,
+                    Integer.parseInt(cropId), landId, this);
         } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(this, "Invalid input. Please enter numeric values.");
         } catch (SQLException e) {
@@ -239,43 +238,45 @@ public class ManageCropsPanel extends JFrame {
         }
 
         String cropId = cropsTable.getValueAt(selectedRow, 0).toString();
+        int landId = Integer.parseInt(cropsTable.getValueAt(selectedRow, 5).toString());
 
-        try (Connection connection = DatabaseConnection.getConnection()) {
-            String query = "DELETE FROM crops WHERE crop_id = ?";
-            PreparedStatement statement = connection.prepareStatement(query);
-            statement.setInt(1, Integer.parseInt(cropId));
-            statement.executeUpdate();
-            loadCropsData(); // Refresh table
+        try {
+            Repositories.crops().delete(Integer.parseInt(cropId));
+            if (cropsTableModel == null) {
+                loadCropsData(); // Table still loading
+            } else {
+                cropsTableModel.removeKey(Integer.parseInt(cropId)); // Remove just that row
+            }
+            ChangeEventBus.getInstance().publish(ChangeEventBus.Table.CROPS, ChangeEventBus.Kind.DELETED,
+                    Integer.parseInt(cropId), landId, this);
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
-    // Builds a TableModel for displaying ResultSet data in JTable
-    private static DefaultTableModel buildTableModel(ResultSet rs) throws SQLException {
-        ResultSetMetaData metaData = rs.getMetaData();
-        int columnCount = metaData.getColumnCount();
-
-        // Column names
-        Vector<String> columnNames = new Vector<>();
-        for (int column = 1; column <= columnCount; column++) {
-            columnNames.add(metaData.getColumnName(column));
+    // Applies lands and crops changed in other windows
+    private void onChanges(List<ChangeEventBus.Change> changes) {
+        ChangeEventBus.Delta.of(changes, ChangeEventBus.Table.LANDS, this)
+                .applyTo(landTableModel, loader, Repositories.lands()::findByIds, this::loadLandData);
+        if (ChangeEventBus.Delta.anyDeleted(changes, ChangeEventBus.Table.LANDS, this)) {
+            loadCropsData(); // A deleted land takes its crops with it
+        } else {
+            ChangeEventBus.Delta.of(changes, ChangeEventBus.Table.CROPS, this)
+                    .applyTo(cropsTableModel, loader, Repositories.crops()::findByIds, this::loadCropsData);
         }
+    }
 
-        // Data rows
-        Vector<Vector<Object>> data = new Vector<>();
-        while (rs.next()) {
-            Vector<Object> vector = new Vector<>();
-            for (int columnIndex = 1; columnIndex <= columnCount; columnIndex++) {
-                vector.add(rs.getObject(columnIndex));
-            }
-            data.add(vector);
+    // Re-reads one crop and applies it to the table instead of reloading every row
+    private void refreshCropRow(int cropId) throws SQLException {
+        if (cropsTableModel == null) {
+            loadCropsData(); // Table still loading; reload so the change isn't missed
+            return;
         }
-        return new DefaultTableModel(data, columnNames);
+        cropsTableModel.upsertRows(Repositories.crops().findByIds(List.of(cropId)));
     }
 
     // Main method for testing
     public static void main(String[] args) {
-        SwingUtilities.invokeLater(ManageCropsPanel::new);
+        SwingUtilities.invokeLater(ManageCropsPanel::open);
     }
 }
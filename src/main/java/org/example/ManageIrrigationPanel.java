@@ -1,21 +1,29 @@
 package org.example;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
-import java.sql.*;
-import java.util.Vector;
+import java.sql.SQLException;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 public class ManageIrrigationPanel extends JFrame {
+    private static ManageIrrigationPanel instance;
+
     private JTable irrigationTable;
     private JTable landTable;
-    private DefaultTableModel irrigationTableModel;
-    private DefaultTableModel landTableModel;
+    private ColumnarTableModel irrigationTableModel;
+    private ColumnarTableModel landTableModel;
+    private final AsyncLoader loader = new AsyncLoader();
+    private final ChangeEventBus.Listener changeListener = this::onChanges;
 
-    public ManageIrrigationPanel() {
+    private ManageIrrigationPanel() {
         setTitle("Manage Irrigation");
         setExtendedState(JFrame.MAXIMIZED_BOTH); // Fullscreen mode
-        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE); // Close only this panel
+        setDefaultCloseOperation(JFrame.HIDE_ON_CLOSE); // Kept for the next open, following changes while hidden
 
         // Create main panel with two columns: Form + Land Table on the right side
         JPanel mainPanel = new JPanel(new BorderLayout());
@@ -26,7 +34,6 @@ public class ManageIrrigationPanel extends JFrame {
 
         // Land table on the right side
         landTable = new JTable();
-        loadLandData();
         JScrollPane landScrollPane = new JScrollPane(landTable);
         mainPanel.add(landScrollPane, BorderLayout.CENTER);
 
@@ -35,11 +42,41 @@ public class ManageIrrigationPanel extends JFrame {
 
         // Irrigation table displayed below the form panel
         irrigationTable = new JTable();
-        loadIrrigationData();
         JScrollPane irrigationScrollPane = new JScrollPane(irrigationTable);
         add(irrigationScrollPane, BorderLayout.SOUTH);
 
-        setVisible(true);
+        // Load the tables in the background so the window opens without waiting for them
+        loadLandData();
+        loadIrrigationData();
+        ChangeEventBus.getInstance().subscribe(changeListener);
+    }
+
+    // Cancels any loads still in flight when the window is closed
+    @Override
+    public void dispose() {
+        ChangeEventBus.getInstance().unsubscribe(changeListener);
+        loader.cancelAll();
+        super.dispose();
+    }
+
+    // Shows the panel, creating it on first use; must be called on the EDT
+    public static void open() {
+        ManageIrrigationPanel panel = getInstance();
+        panel.setExtendedState(panel.getExtendedState() & ~JFrame.ICONIFIED);
+        panel.setVisible(true);
+        panel.toFront();
+    }
+
+    // Creates the panel hidden so its tables are loaded before it is first opened; must be called on the EDT
+    static void preload() {
+        getInstance();
+    }
+
+    private static ManageIrrigationPanel getInstance() {
+        if (instance == null) {
+            instance = new ManageIrrigationPanel();
+        }
+        return instance;
     }
 
     // Creates the form panel for adding or updating irrigation
@@ -81,15 +118,18 @@ public class ManageIrrigationPanel extends JFrame {
         JButton addButton = new JButton("Add Irrigation");
         JButton updateButton = new JButton("Update Irrigation");
         JButton deleteButton = new JButton("Delete Irrigation");
+        JButton irrigatingNowButton = new JButton("Irrigating Now");
 
         // Add action listeners for the buttons
         addButton.addActionListener(e -> addIrrigation(landField.getText(), startTimeField.getText(), endTimeField.getText()));
         updateButton.addActionListener(e -> updateIrrigation(landField.getText(), startTimeField.getText(), endTimeField.getText()));
         deleteButton.addActionListener(e -> deleteIrrigation());
+        irrigatingNowButton.addActionListener(e -> showIrrigatingNow());
 
         buttonPanel.add(addButton);
         buttonPanel.add(updateButton);
         buttonPanel.add(deleteButton);
+        buttonPanel.add(irrigatingNowButton);
 
         gbc.gridx = 0;
         gbc.gridy = 3;
@@ -99,69 +139,20 @@ public class ManageIrrigationPanel extends JFrame {
         return panel;
     }
 
-    // Loads land data from the database to the land table
+    // Loads land data from the reference-data cache to the land table
     private void loadLandData() {
-        try (Connection connection = DatabaseConnection.getConnection()) {
-            String query = "SELECT * FROM lands";
-            Statement statement = connection.createStatement();
-            ResultSet resultSet = statement.executeQuery(query);
-            landTableModel = buildTableModel(resultSet);
-            landTable.setModel(landTableModel);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        loader.loadTable("lands", landTable, () -> ReferenceDataCache.getInstance().landsTableModel(), model -> landTableModel = model);
     }
 
-    // Loads irrigation schedule data from the database into the table
+    // Loads irrigation schedule data from the database into the table, ordered by irrigation_id so rows can be updated by key
     private void loadIrrigationData() {
-        try (Connection connection = DatabaseConnection.getConnection()) {
-            String query = """
-                    SELECT irrigation.irrigation_id, lands.sector_name, irrigation.start_time, irrigation.end_time
-                    FROM irrigation
-                    JOIN lands ON irrigation.land_id = lands.land_id
-                    """;
-            Statement statement = connection.createStatement();
-            ResultSet resultSet = statement.executeQuery(query);
-            irrigationTableModel = buildTableModel(resultSet);
-            irrigationTable.setModel(irrigationTableModel);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        loader.loadTable("irrigation", irrigationTable, () -> Repositories.irrigation().findAll(),
+                model -> irrigationTableModel = model);
     }
 
     // Adds a new irrigation schedule
     private void addIrrigation(String landIdText, String startTime, String endTime) {
-        if (landIdText.isEmpty() || startTime.isEmpty() || endTime.isEmpty()) {
-            JOptionPane.showMessageDialog(this, "All fields are required.");
-            return;
-        }
-
-        try (Connection connection = DatabaseConnection.getConnection()) {
-            int landId = Integer.parseInt(landIdText);
-
-            // Check if the entered landId exists in the lands table
-            String checkQuery = "SELECT 1 FROM lands WHERE land_id = ?";
-            try (PreparedStatement checkStatement = connection.prepareStatement(checkQuery)) {
-                checkStatement.setInt(1, landId);
-                ResultSet resultSet = checkStatement.executeQuery();
-                if (!resultSet.next()) {
-                    JOptionPane.showMessageDialog(this, "Land ID does not exist.");
-                    return;
-                }
-            }
-
-            String query = "INSERT INTO irrigation (land_id, start_time, end_time) VALUES (?, ?, ?)";
-            try (PreparedStatement statement = connection.prepareStatement(query)) {
-                statement.setInt(1, landId);
-                statement.setString(2, startTime);
-                statement.setString(3, endTime);
-                statement.executeUpdate();
-            }
-
-            loadIrrigationData(); // Refresh the irrigation table
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        saveIrrigation(0, landIdText, startTime, endTime);
     }
 
     // Updates an existing irrigation schedule
@@ -173,38 +164,95 @@ public class ManageIrrigationPanel extends JFrame {
         }
 
         String irrigationId = irrigationTable.getValueAt(selectedRow, 0).toString();
+        saveIrrigation(Integer.parseInt(irrigationId), landIdText, startTime, endTime);
+    }
 
+    // Checks the window against the land's schedule and saves it; replacedId is the schedule being updated, 0 to add one.
+    // A window crossing midnight is saved as two windows and overlapping windows can be merged, both after asking.
+    private void saveIrrigation(int replacedId, String landIdText, String startTime, String endTime) {
         if (landIdText.isEmpty() || startTime.isEmpty() || endTime.isEmpty()) {
             JOptionPane.showMessageDialog(this, "All fields are required.");
             return;
         }
 
-        try (Connection connection = DatabaseConnection.getConnection()) {
+        int start = IrrigationScheduler.parseTime(startTime);
+        int end = IrrigationScheduler.parseTime(endTime);
+        if (start < 0 || end < 0 || start == IrrigationScheduler.DAY_SECONDS) {
+            JOptionPane.showMessageDialog(this, "Please enter times as HH:mm.");
+            return;
+        }
+        if (start == end) {
+            JOptionPane.showMessageDialog(this, "Start and end time must differ.");
+            return;
+        }
+
+        IrrigationScheduler scheduler = IrrigationScheduler.getInstance();
+        try {
             int landId = Integer.parseInt(landIdText);
 
-            // Check if the entered landId exists in the lands table
-            String checkQuery = "SELECT 1 FROM lands WHERE land_id = ?";
-            try (PreparedStatement checkStatement = connection.prepareStatement(checkQuery)) {
-                checkStatement.setInt(1, landId);
-                ResultSet resultSet = checkStatement.executeQuery();
-                if (!resultSet.next()) {
-                    JOptionPane.showMessageDialog(this, "Land ID does not exist.");
-                    return;
-                }
+            // Check if the entered landId exists, without a round trip unless it's new to the cache
+            if (ReferenceDataCache.getInstance().land(landId) == null) {
+                JOptionPane.showMessageDialog(this, "Land ID does not exist.");
+                return;
             }
 
-            String query = "UPDATE irrigation SET land_id = ?, start_time = ?, end_time = ? WHERE irrigation_id = ?";
-            try (PreparedStatement statement = connection.prepareStatement(query)) {
-                statement.setInt(1, landId);
-                statement.setString(2, startTime);
-                statement.setString(3, endTime);
-                statement.setInt(4, Integer.parseInt(irrigationId));
-                statement.executeUpdate();
+            List<IrrigationScheduler.Window> windows = IrrigationScheduler.split(landId, start, end);
+            if (windows.size() > 1 && JOptionPane.showConfirmDialog(this,
+                    "The window " + startTime + "-" + endTime + " crosses midnight.\nSave it as "
+                            + windows.get(0).describe() + " and " + windows.get(1).describe() + "?",
+                    "Irrigation Crosses Midnight", JOptionPane.YES_NO_OPTION) != JOptionPane.YES_OPTION) {
+                return;
+            }
+
+            // Offer to merge each window with the windows of the land it overlaps
+            Set<Integer> ignored = Set.of(replacedId);
+            Set<Integer> removedIds = new LinkedHashSet<>();
+            List<IrrigationScheduler.Window> toSave = new ArrayList<>();
+            for (IrrigationScheduler.Window window : windows) {
+                List<IrrigationScheduler.Window> conflicts = scheduler.conflicts(window, ignored);
+                if (!conflicts.isEmpty()) {
+                    IrrigationScheduler.Window merged = IrrigationScheduler.merge(window, conflicts);
+                    StringBuilder overlapping = new StringBuilder();
+                    for (IrrigationScheduler.Window conflict : conflicts) {
+                        overlapping.append(overlapping.length() > 0 ? ", " : "").append(conflict.describe());
+                    }
+                    if (JOptionPane.showConfirmDialog(this,
+                            "Irrigation " + window.describe() + " overlaps " + overlapping + " on land " + landId
+                                    + ".\nMerge them into " + merged.describe() + "?",
+                            "Overlapping Irrigation", JOptionPane.YES_NO_OPTION) != JOptionPane.YES_OPTION) {
+                        return;
+                    }
+                    for (IrrigationScheduler.Window conflict : conflicts) {
+                        removedIds.add(conflict.irrigationId());
+                    }
+                    window = merged;
+                }
+                toSave.add(window);
             }
 
-            loadIrrigationData(); // Refresh the irrigation table
+            List<IrrigationScheduler.Window> saved = scheduler.save(replacedId, toSave, removedIds);
+
+            // Show the changes and tell the other windows
+            for (int removedId : removedIds) {
+                removeIrrigationRow(removedId);
+                ChangeEventBus.getInstance().publish(ChangeEventBus.Table.IRRIGATION, ChangeEventBus.Kind.DELETED,
+                        removedId, landId, this);
+            }
+            for (IrrigationScheduler.Window window : saved) {
+                refreshIrrigationRow(window.irrigationId());
+                ChangeEventBus.getInstance().publish(ChangeEventBus.Table.IRRIGATION,
+                        window.irrigationId() == replacedId ? ChangeEventBus.Kind.UPDATED : ChangeEventBus.Kind.INSERTED,
+                        window.irrigationId(), landId, this);
+            }
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(this, "Please enter a valid land ID.");
+        } catch (IllegalStateException e) {
+            JOptionPane.showMessageDialog(this, e.getMessage()); // Another window saved an overlapping schedule meanwhile
         } catch (SQLException e) {
             e.printStackTrace();
+            if ("02000".equals(e.getSQLState())) {
+                JOptionPane.showMessageDialog(this, e.getMessage() + "; it was deleted in another window.");
+            }
         }
     }
 
@@ -218,44 +266,58 @@ public class ManageIrrigationPanel extends JFrame {
 
         String irrigationId = irrigationTable.getValueAt(selectedRow, 0).toString();
 
-        try (Connection connection = DatabaseConnection.getConnection()) {
-            String query = "DELETE FROM irrigation WHERE irrigation_id = ?";
-            try (PreparedStatement statement = connection.prepareStatement(query)) {
-                statement.setInt(1, Integer.parseInt(irrigationId));
-                statement.executeUpdate();
-            }
-
-            loadIrrigationData(); // Refresh the irrigation table
+        try {
+            // The scheduler knows the land, which the table doesn't show
+            int landId = IrrigationScheduler.getInstance().delete(Integer.parseInt(irrigationId));
+            removeIrrigationRow(Integer.parseInt(irrigationId));
+            ChangeEventBus.getInstance().publish(ChangeEventBus.Table.IRRIGATION, ChangeEventBus.Kind.DELETED,
+                    Integer.parseInt(irrigationId), landId, this);
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
-    // Builds a TableModel to display ResultSet data in JTable
-    private static DefaultTableModel buildTableModel(ResultSet rs) throws SQLException {
-        ResultSetMetaData metaData = rs.getMetaData();
-        int columnCount = metaData.getColumnCount();
+    // Shows which lands have an irrigation window open right now
+    private void showIrrigatingNow() {
+        try {
+            int[] landIds = IrrigationScheduler.getInstance().landsIrrigatingAt(LocalTime.now().toSecondOfDay());
+            JOptionPane.showMessageDialog(this, landIds.length == 0 ? "No land is being irrigated right now."
+                    : "Lands being irrigated right now: " + Arrays.toString(landIds));
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
 
-        // Column names
-        Vector<String> columnNames = new Vector<>();
-        for (int column = 1; column <= columnCount; column++) {
-            columnNames.add(metaData.getColumnName(column));
+    private void removeIrrigationRow(int irrigationId) {
+        if (irrigationTableModel == null) {
+            loadIrrigationData(); // Table still loading
+        } else {
+            irrigationTableModel.removeKey(irrigationId); // Remove just that row
         }
+    }
 
-        // Data rows
-        Vector<Vector<Object>> data = new Vector<>();
-        while (rs.next()) {
-            Vector<Object> vector = new Vector<>();
-            for (int columnIndex = 1; columnIndex <= columnCount; columnIndex++) {
-                vector.add(rs.getObject(columnIndex));
-            }
-            data.add(vector);
+    // Applies lands and schedules changed in other windows
+    private void onChanges(List<ChangeEventBus.Change> changes) {
+        ChangeEventBus.Delta.of(changes, ChangeEventBus.Table.LANDS, this)
+                .applyTo(landTableModel, loader, Repositories.lands()::findByIds, this::loadLandData);
+        ChangeEventBus.Delta.of(changes, ChangeEventBus.Table.IRRIGATION, this)
+                .applyTo(irrigationTableModel, loader, Repositories.irrigation()::findByIds, this::loadIrrigationData);
+        // Schedules show their land's sector name
+        ChangeEventBus.Delta.ofLands(changes, this, ChangeEventBus.Table.LANDS)
+                .applyTo(irrigationTableModel, loader, Repositories.irrigation()::findByLandIds, this::loadIrrigationData);
+    }
+
+    // Re-reads one schedule and applies it to the table instead of reloading every row
+    private void refreshIrrigationRow(int irrigationId) throws SQLException {
+        if (irrigationTableModel == null) {
+            loadIrrigationData(); // Table still loading; reload so the change isn't missed
+            return;
         }
-        return new DefaultTableModel(data, columnNames);
+        irrigationTableModel.upsertRows(Repositories.irrigation().findByIds(List.of(irrigationId)));
     }
 
     // Main method for testing
     public static void main(String[] args) {
-        SwingUtilities.invokeLater(ManageIrrigationPanel::new);
+        SwingUtilities.invokeLater(ManageIrrigationPanel::open);
     }
 }
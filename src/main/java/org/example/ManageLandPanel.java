@@ -1,21 +1,24 @@
 package org.example;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableColumnModel;
 import java.awt.*;
-import java.sql.*;
-import java.util.Vector;
+import java.sql.SQLException;
+import java.util.List;
 
 public class ManageLandPanel extends JFrame {
+    private static ManageLandPanel instance;
+
     private JTable landTable;
-    private DefaultTableModel tableModel;
+    private ColumnarTableModel tableModel;
     private JTextField sectorNameField, soilTypeField, areaField;
+    private final AsyncLoader loader = new AsyncLoader();
+    private final ChangeEventBus.Listener changeListener = this::onChanges;
 
-    public ManageLandPanel() {
+    private ManageLandPanel() {
         setTitle("Manage Land");
         setExtendedState(JFrame.MAXIMIZED_BOTH); // Fullscreen mode
-        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE); // Close only this panel
+        setDefaultCloseOperation(JFrame.HIDE_ON_CLOSE); // Kept for the next open, following changes while hidden
 
         // Set up the main layout
         setLayout(new BorderLayout());
@@ -57,29 +60,52 @@ public class ManageLandPanel extends JFrame {
 
         // Initialize table to show land data
         landTable = new JTable();
-        loadLandData();
 
         // Add table with scroll pane at the bottom of the window
         JScrollPane tableScrollPane = new JScrollPane(landTable);
         add(tableScrollPane, BorderLayout.SOUTH);
 
-        setVisible(true);
+        // Load the table in the background so the window opens without waiting for it
+        loadLandData();
+        ChangeEventBus.getInstance().subscribe(changeListener);
+    }
+
+    // Cancels any loads still in flight when the window is closed
+    @Override
+    public void dispose() {
+        ChangeEventBus.getInstance().unsubscribe(changeListener);
+        loader.cancelAll();
+        super.dispose();
+    }
+
+    // Shows the panel, creating it on first use; must be called on the EDT
+    public static void open() {
+        ManageLandPanel panel = getInstance();
+        panel.setExtendedState(panel.getExtendedState() & ~JFrame.ICONIFIED);
+        panel.setVisible(true);
+        panel.toFront();
+    }
+
+    // Creates the panel hidden so its tables are loaded before it is first opened; must be called on the EDT
+    static void preload() {
+        getInstance();
+    }
+
+    private static ManageLandPanel getInstance() {
+        if (instance == null) {
+            instance = new ManageLandPanel();
+        }
+        return instance;
     }
 
-    // Loads land data from the database into the table
+    // Loads land data from the reference-data cache into the table, ordered by land_id so rows can be updated by key
     private void loadLandData() {
-        try (Connection connection = DatabaseConnection.getConnection()) {
-            String query = "SELECT * FROM lands"; // Use the correct table name `lands`
-            Statement statement = connection.createStatement();
-            ResultSet resultSet = statement.executeQuery(query);
-            tableModel = buildTableModel(resultSet);
-            landTable.setModel(tableModel);
+        loader.loadTable("lands", landTable, () -> ReferenceDataCache.getInstance().landsTableModel(), model -> {
+            tableModel = model;
 
             // Adjust column widths
             adjustColumnWidths(landTable);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        });
     }
 
     // Adjust the column widths to make sure all columns fit the content
@@ -108,16 +134,10 @@ public class ManageLandPanel extends JFrame {
 
         try {
             double area = Double.parseDouble(areaText);
-            try (Connection connection = DatabaseConnection.getConnection()) {
-                String query = "INSERT INTO lands (sector_name, soil_type, area) VALUES (?, ?, ?)"; // Correct table name `lands`
-                PreparedStatement statement = connection.prepareStatement(query);
-                statement.setString(1, sectorName);
-                statement.setString(2, soilType);
-                statement.setDouble(3, area);
-                statement.executeUpdate();
-                loadLandData(); // Refresh table
-                clearForm();
-            }
+            int landId = Repositories.lands().insert(sectorName, soilType, area);
+            refreshLandRow(landId); // Show the new row
+            ChangeEventBus.getInstance().publish(ChangeEventBus.Table.LANDS, ChangeEventBus.Kind.INSERTED, landId, landId, this);
+            clearForm();
         } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(this, "Please enter a valid area.");
         } catch (SQLException e) {
@@ -145,17 +165,11 @@ public class ManageLandPanel extends JFrame {
 
         try {
             double area = Double.parseDouble(areaText);
-            try (Connection connection = DatabaseConnection.getConnection()) {
-                String query = "UPDATE lands SET sector_name = ?, soil_type = ?, area = ? WHERE land_id = ?"; // Correct table name `lands`
-                PreparedStatement statement = connection.prepareStatement(query);
-                statement.setString(1, sectorName);
-                statement.setString(2, soilType);
-                statement.setDouble(3, area);
-                statement.setInt(4, Integer.parseInt(landId));
-                statement.executeUpdate();
-                loadLandData(); // Refresh table
-                clearForm();
-            }
+            Repositories.lands().update(Integer.parseInt(landId), sectorName, soilType, area);
+            refreshLandRow(Integer.parseInt(landId)); // Refresh the updated row
+            ChangeEventBus.getInstance().publish(ChangeEventBus.Table.LANDS, ChangeEventBus.Kind.UPDATED,
+                    Integer.parseInt(landId), Integer.parseInt(landId), this);
+            clearForm();
         } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(this, "Please enter a valid area.");
         } catch (SQLException e) {
@@ -174,40 +188,34 @@ public class ManageLandPanel extends JFrame {
         String landId = landTable.getValueAt(selectedRow, 0).toString();
 
         try {
-            try (Connection connection = DatabaseConnection.getConnection()) {
-                String query = "DELETE FROM lands WHERE land_id = ?"; // Correct table name `lands`
-                PreparedStatement statement = connection.prepareStatement(query);
-                statement.setInt(1, Integer.parseInt(landId));
-                statement.executeUpdate();
-                loadLandData(); // Refresh table
-                clearForm();
+            Repositories.lands().delete(Integer.parseInt(landId));
+            if (tableModel == null) {
+                loadLandData(); // Table still loading
+            } else {
+                tableModel.removeKey(Integer.parseInt(landId)); // Remove just that row
             }
+            // Other windows also drop the land's crops and readings, which were deleted with it
+            ChangeEventBus.getInstance().publish(ChangeEventBus.Table.LANDS, ChangeEventBus.Kind.DELETED,
+                    Integer.parseInt(landId), Integer.parseInt(landId), this);
+            clearForm();
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
-    // Builds a TableModel to display ResultSet data in JTable
-    private static DefaultTableModel buildTableModel(ResultSet rs) throws SQLException {
-        ResultSetMetaData metaData = rs.getMetaData();
-        int columnCount = metaData.getColumnCount();
-
-        // Column names
-        Vector<String> columnNames = new Vector<>();
-        for (int column = 1; column <= columnCount; column++) {
-            columnNames.add(metaData.getColumnName(column));
-        }
+    // Applies lands changed in other windows
+    private void onChanges(List<ChangeEventBus.Change> changes) {
+        ChangeEventBus.Delta.of(changes, ChangeEventBus.Table.LANDS, this)
+                .applyTo(tableModel, loader, Repositories.lands()::findByIds, this::loadLandData);
+    }
 
-        // Data rows
-        Vector<Vector<Object>> data = new Vector<>();
-        while (rs.next()) {
-            Vector<Object> vector = new Vector<>();
-            for (int columnIndex = 1; columnIndex <= columnCount; columnIndex++) {
-                vector.add(rs.getObject(columnIndex));
-            }
-            data.add(vector);
+    // Re-reads one land and applies it to the table instead of reloading every row
+    private void refreshLandRow(int landId) throws SQLException {
+        if (tableModel == null) {
+            loadLandData(); // Table still loading; reload so the change isn't missed
+            return;
         }
-        return new DefaultTableModel(data, columnNames);
+        tableModel.upsertRows(Repositories.lands().findByIds(List.of(landId)));
     }
 
     // Clear the input fields after adding/updating data
@@ -219,6 +227,6 @@ public class ManageLandPanel extends JFrame {
 
     // Main method for testing
     public static void main(String[] args) {
-        SwingUtilities.invokeLater(ManageLandPanel::new);
+        SwingUtilities.invokeLater(ManageLandPanel::open);
     }
 }
@@ -3,20 +3,26 @@ package org.example;
 import javax.swing.*;
 import javax.swing.table.*;
 import java.awt.*;
-import java.sql.*;
-import java.util.Vector;
+import java.sql.SQLException;
+import java.util.List;
 
 public class ManageSensorsPanel extends JFrame {
+    private static ManageSensorsPanel instance;
+
     private JTable landTable;
     private JTable cropsTable;
     private JTable sensorsTable;
-    private DefaultTableModel landTableModel, cropsTableModel, tableModel;
+    private ColumnarTableModel landTableModel, cropsTableModel;
+    private PagedSensorsTableModel sensorsTableModel;
     private JTextField landIdField, temperatureField, soilMoistureField, phField;
+    private final JLabel statusLabel = new JLabel(" ");
+    private final AsyncLoader loader = new AsyncLoader();
+    private final ChangeEventBus.Listener changeListener = this::onChanges;
 
-    public ManageSensorsPanel() {
+    private ManageSensorsPanel() {
         setTitle("Manage Sensors");
         setExtendedState(JFrame.MAXIMIZED_BOTH);  // Fullscreen mode
-        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE); // Close only this panel
+        setDefaultCloseOperation(JFrame.HIDE_ON_CLOSE); // Kept for the next open, following changes while hidden
 
         // Initialize components for form input
         landIdField = new JTextField(10);
@@ -33,19 +39,17 @@ public class ManageSensorsPanel extends JFrame {
         // Create the Land Table panel
         JPanel landTablePanel = new JPanel();
         landTable = new JTable();
-        loadLandData();
         landTablePanel.add(new JScrollPane(landTable));
 
         // Create the Crops Table panel
         JPanel cropsTablePanel = new JPanel();
         cropsTable = new JTable();
-        loadCropsData();
         cropsTablePanel.add(new JScrollPane(cropsTable));
 
         // Create the Sensor Data Table panel
         JPanel sensorsTablePanel = new JPanel();
-        sensorsTable = new JTable();
-        loadSensorsData();
+        sensorsTableModel = new PagedSensorsTableModel(loader, statusLabel::setText);
+        sensorsTable = new JTable(sensorsTableModel);
         sensorsTablePanel.add(new JScrollPane(sensorsTable));
 
         // Set up the layout for the whole window
@@ -73,7 +77,39 @@ public class ManageSensorsPanel extends JFrame {
         // Add the main panel to the frame
         add(mainPanel);
 
-        setVisible(true);
+        // Load the tables in the background so the window opens without waiting for them
+        loadLandData();
+        loadCropsData();
+        loadSensorsData();
+        ChangeEventBus.getInstance().subscribe(changeListener);
+    }
+
+    // Cancels any loads still in flight when the window is closed
+    @Override
+    public void dispose() {
+        ChangeEventBus.getInstance().unsubscribe(changeListener);
+        loader.cancelAll();
+        super.dispose();
+    }
+
+    // Shows the panel, creating it on first use; must be called on the EDT
+    public static void open() {
+        ManageSensorsPanel panel = getInstance();
+        panel.setExtendedState(panel.getExtendedState() & ~JFrame.ICONIFIED);
+        panel.setVisible(true);
+        panel.toFront();
+    }
+
+    // Creates the panel hidden so its tables are loaded before it is first opened; must be called on the EDT
+    static void preload() {
+        getInstance();
+    }
+
+    private static ManageSensorsPanel getInstance() {
+        if (instance == null) {
+            instance = new ManageSensorsPanel();
+        }
+        return instance;
     }
 
     // Creates and returns the form panel with input fields
@@ -107,46 +143,54 @@ public class ManageSensorsPanel extends JFrame {
         JButton saveButton = new JButton("Save Sensor Data");
         saveButton.addActionListener(e -> saveSensorData());
         panel.add(saveButton);
+        JButton checkAllButton = new JButton("Check All Lands");
+        checkAllButton.addActionListener(e -> checkAllLands());
+        panel.add(checkAllButton);
+        JButton trendsButton = new JButton("Show Trends");
+        trendsButton.addActionListener(e -> new SensorTrendPanel(selectedLandId()));
+        panel.add(trendsButton);
+        panel.add(statusLabel); // Save confirmations, without a dialog to dismiss
         return panel;
     }
 
-    // Loads land data from the database into the table
-    private void loadLandData() {
-        try (Connection connection = DatabaseConnection.getConnection()) {
-            String query = "SELECT * FROM lands";
-            Statement statement = connection.createStatement();
-            ResultSet resultSet = statement.executeQuery(query);
-            landTableModel = buildTableModel(resultSet);
-            landTable.setModel(landTableModel);
-        } catch (SQLException e) {
-            e.printStackTrace();
+    // Land ID typed in the form, else the one selected in the land table; null if neither
+    private Integer selectedLandId() {
+        try {
+            return Integer.parseInt(landIdField.getText().trim());
+        } catch (NumberFormatException e) {
+            int row = landTable.getSelectedRow();
+            if (row < 0 || landTableModel == null) {
+                return null;
+            }
+            return ((Number) landTableModel.getValueAt(landTable.convertRowIndexToModel(row), 0)).intValue();
         }
     }
 
-    // Loads crops data from the database into the table
+    // Loads land data with each land's latest reading from the database into the table, ordered by land_id
+    private void loadLandData() {
+        loader.loadTable("landsWithLatest", landTable, () -> Repositories.lands().findAllWithLatestReading(),
+                model -> landTableModel = model);
+    }
+
+    // Loads crops data from the reference-data cache into the table
     private void loadCropsData() {
-        try (Connection connection = DatabaseConnection.getConnection()) {
-            String query = "SELECT * FROM crops";
-            Statement statement = connection.createStatement();
-            ResultSet resultSet = statement.executeQuery(query);
-            cropsTableModel = buildTableModel(resultSet);
-            cropsTable.setModel(cropsTableModel);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        loader.loadTable("crops", cropsTable, () -> ReferenceDataCache.getInstance().cropsTableModel(), model -> cropsTableModel = model);
     }
 
-    // Loads sensor data from the database into the table
+    // Loads sensor data into the table; rows are paged in from the database as they are scrolled into view
     private void loadSensorsData() {
-        try (Connection connection = DatabaseConnection.getConnection()) {
-            String query = "SELECT * FROM sensors";
-            Statement statement = connection.createStatement();
-            ResultSet resultSet = statement.executeQuery(query);
-            tableModel = buildTableModel(resultSet);
-            sensorsTable.setModel(tableModel);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        sensorsTableModel.refresh();
+    }
+
+    // Runs a watering sweep over every land in the background and shows the lands that are out of range
+    private void checkAllLands() {
+        loader.load("checkAllLands", () -> WateringEvaluator.getInstance().checkAllLands(), report -> {
+            JTextArea text = new JTextArea(report.describe(), 15, 60);
+            text.setEditable(false);
+            JOptionPane.showMessageDialog(this, new JScrollPane(text), "Watering Sweep",
+                    report.size() == 0 ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.WARNING_MESSAGE);
+        }, e -> JOptionPane.showMessageDialog(this, "Error checking watering status. Please try again.",
+                "Error", JOptionPane.ERROR_MESSAGE));
     }
 
     // Saves the sensor data from the form into the database
@@ -168,64 +212,99 @@ public class ManageSensorsPanel extends JFrame {
             double soilMoistureDouble = Double.parseDouble(soilMoisture);
             double phDouble = Double.parseDouble(ph);
 
-            // Insert the sensor data into the database
-            try (Connection connection = DatabaseConnection.getConnection()) {
-                String query = "INSERT INTO sensors (land_id, temperature, soil_moisture, ph) VALUES (?, ?, ?, ?)";
-                PreparedStatement statement = connection.prepareStatement(query);
-                statement.setInt(1, landIdInt);
-                statement.setDouble(2, temperatureDouble);
-                statement.setDouble(3, soilMoistureDouble);
-                statement.setDouble(4, phDouble);
-                statement.executeUpdate();
-
-                // Refresh the table with new data
-                loadSensorsData();
-
-                // Clear form fields
-                landIdField.setText("");
-                temperatureField.setText("");
-                soilMoistureField.setText("");
-                phField.setText("");
-                JOptionPane.showMessageDialog(this, "Sensor data saved successfully.");
-
-                // Trigger watering alert check
-                WateringAlert wateringAlert = new WateringAlert();
-                wateringAlert.checkWateringStatusForSensor(landIdInt);  // Check for specific landId
+            SensorReading reading = SensorReading.now(landIdInt, temperatureDouble, soilMoistureDouble, phDouble);
+
+            // Insert the sensor data into the database, with the timestamp the table shows
+            int sensorId;
+            try {
+                sensorId = Repositories.sensors().insert(reading);
+            } catch (SQLException e) {
+                e.printStackTrace();
+                // Keep the reading in the local journal when the database can't be reached; it is inserted once
+                // the database is back. A refused reading (bad value, unknown land) would be dropped on replay.
+                if (Repositories.inMemory() || !SensorJournal.isConnectionError(e)
+                        || !SensorJournal.appendDesktop(reading)) {
+                    JOptionPane.showMessageDialog(this, "Failed to save sensor data.");
+                    return;
+                }
+                statusLabel.setText("The database is unavailable. The reading was stored locally " +
+                        "and will be saved automatically when the database is back.");
+                sensorId = -1;
+            }
+            if (sensorId >= 0) {
+                showSavedReading(sensorId, reading);
             }
+
+            // Clear form fields
+            landIdField.setText("");
+            temperatureField.setText("");
+            soilMoistureField.setText("");
+            phField.setText("");
+
+            // Queue the watering alert check; any alert shows up in the alert list
+            WateringAlert wateringAlert = new WateringAlert();
+            wateringAlert.checkWateringStatusForSensor(reading);  // Check the reading just saved
         } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(this, "Invalid input. Please enter numeric values.");
-        } catch (SQLException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this, "Failed to save sensor data.");
         }
     }
 
+    // Adds a reading that was just inserted and the land's latest reading instead of reloading both tables.
+    // The reading is already saved, so a failure here only reloads the tables; it must not be journaled again.
+    private void showSavedReading(int sensorId, SensorReading reading) {
+        int landId = reading.landId();
+        try {
+            sensorsTableModel.appendRow(sensorId, reading);
+            refreshLandRow(landId);
+        } catch (SQLException | RuntimeException e) {
+            e.printStackTrace();
+            loadLandData();
+            loadSensorsData();
+        }
+        try {
+            ChangeEventBus.getInstance().publish(ChangeEventBus.Table.SENSORS, ChangeEventBus.Kind.INSERTED,
+                    sensorId, landId, this);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+        statusLabel.setText("Sensor data for land " + landId + " saved.");
+    }
 
-    // Builds a TableModel to display ResultSet data in JTable
-    private static DefaultTableModel buildTableModel(ResultSet rs) throws SQLException {
-        ResultSetMetaData metaData = rs.getMetaData();
-        int columnCount = metaData.getColumnCount();
-
-        // Column names
-        Vector<String> columnNames = new Vector<>();
-        for (int column = 1; column <= columnCount; column++) {
-            columnNames.add(metaData.getColumnName(column));
+    // Applies changes made in other windows
+    private void onChanges(List<ChangeEventBus.Change> changes) {
+        // Lands, and the latest reading of lands that got new readings
+        ChangeEventBus.Delta.of(changes, ChangeEventBus.Table.LANDS, this)
+                .applyTo(landTableModel, loader, Repositories.lands()::findWithLatestReading, this::loadLandData);
+        ChangeEventBus.Delta.ofLands(changes, this, ChangeEventBus.Table.SENSORS)
+                .applyTo(landTableModel, loader, Repositories.lands()::findWithLatestReading, this::loadLandData);
+
+        boolean landDeleted = ChangeEventBus.Delta.anyDeleted(changes, ChangeEventBus.Table.LANDS, this);
+        if (landDeleted) {
+            loadCropsData(); // A deleted land takes its crops with it
+        } else {
+            ChangeEventBus.Delta.of(changes, ChangeEventBus.Table.CROPS, this)
+                    .applyTo(cropsTableModel, loader, Repositories.crops()::findByIds, this::loadCropsData);
+        }
+        // A deleted land takes its readings with it, so the history is paged anew; readings saved elsewhere
+        // come without their values and are picked up from the end of the history once for the whole frame
+        if (landDeleted) {
+            loadSensorsData();
+        } else if (!ChangeEventBus.Delta.of(changes, ChangeEventBus.Table.SENSORS, this).isEmpty()) {
+            sensorsTableModel.refreshTail();
         }
+    }
 
-        // Data rows
-        Vector<Vector<Object>> data = new Vector<>();
-        while (rs.next()) {
-            Vector<Object> vector = new Vector<>();
-            for (int columnIndex = 1; columnIndex <= columnCount; columnIndex++) {
-                vector.add(rs.getObject(columnIndex));
-            }
-            data.add(vector);
+    // Re-reads one land with its latest reading and applies it to the land table
+    private void refreshLandRow(int landId) throws SQLException {
+        if (landTableModel == null) {
+            loadLandData(); // Table still loading; reload so the change isn't missed
+            return;
         }
-        return new DefaultTableModel(data, columnNames);
+        landTableModel.upsertRows(Repositories.lands().findWithLatestReading(List.of(landId)));
     }
 
     // Main method to launch the application
     public static void main(String[] args) {
-        SwingUtilities.invokeLater(ManageSensorsPanel::new);
+        SwingUtilities.invokeLater(ManageSensorsPanel::open);
     }
 }
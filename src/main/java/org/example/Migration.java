@@ -0,0 +1,35 @@
+package org.example;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// One versioned schema change. Versions are applied in ascending order and recorded in schema_version.
+// Optional migrations only run when their -D system property is set to true, and are not recorded until they do.
+public record Migration(int version, String description, String enabledProperty, Step step) {
+
+    @FunctionalInterface
+    public interface Step {
+        void apply(Connection connection) throws SQLException;
+    }
+
+    // A migration made of plain SQL statements run in order
+    public static Migration sql(int version, String description, String... statements) {
+        return new Migration(version, description, null, connection -> {
+            try (Statement statement = connection.createStatement()) {
+                for (String sql : statements) {
+                    statement.execute(sql);
+                }
+            }
+        });
+    }
+
+    // A migration that only runs when the given system property is "true"
+    public static Migration optional(int version, String description, String enabledProperty, Step step) {
+        return new Migration(version, description, enabledProperty, step);
+    }
+
+    public boolean isEnabled() {
+        return enabledProperty == null || Boolean.getBoolean(enabledProperty);
+    }
+}
@@ -0,0 +1,279 @@
+package org.example;
+
+import javax.swing.table.AbstractTableModel;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+// TableModel over the whole sensors history that only keeps a few pages in memory.
+// Pages are fetched from the SensorRepository with keyset pagination on sensor_id: a page is read with
+// "WHERE sensor_id >= ? ORDER BY sensor_id LIMIT ?" from its first sensor_id (its anchor). The anchors of all
+// pages come from one streamed pass over the sensor_ids (one int per page), so any page, including the last
+// one after a drag of the scrollbar, is a single index range read. Readings inserted elsewhere only re-scan
+// the last page; the index is rebuilt only when a loaded page shows that readings were deleted.
+// Pages are loaded in the background when the JTable asks for a row that is not cached; the least
+// recently used pages are dropped once MAX_CACHED_PAGES is reached. Readings saved from the panel are
+// appended with appendRow() instead of a refresh.
+// All state is confined to the Swing event thread.
+public class PagedSensorsTableModel extends AbstractTableModel {
+    static final int PAGE_SIZE = 500;
+    private static final int MAX_CACHED_PAGES = 40;
+    private static final int PREFETCH_PAGES = 1;
+
+    private static final String[] COLUMN_NAMES = {"sensor_id", "land_id", "temperature", "soil_moisture", "ph", "timestamp"};
+    // timestamp is reported as Object so JTable renders the full value instead of a date-only format
+    private static final Class<?>[] COLUMN_CLASSES = {Integer.class, Integer.class, Double.class, Double.class, Double.class, Object.class};
+
+    private final AsyncLoader loader;
+    private final Consumer<String> onError;
+    // First sensor_id of each page
+    private int[] pageAnchors = new int[0];
+    private int rowCount;
+    private int generation;
+    // Rows added by appendRow(), so a tail scan that may have missed one is redone
+    private int appended;
+    private boolean rebuilding;
+    private boolean tailPending;
+    private final Map<Integer, Page> pages = new LinkedHashMap<>(MAX_CACHED_PAGES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Page> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    private final Set<Integer> pendingPages = new HashSet<>();
+
+    // Anchors found by a pass over the sensor_ids from some sensor_id on, and how many readings it passed
+    private record Scan(int[] anchors, int rows) {
+    }
+
+    // onError shows a message when the history can't be read
+    public PagedSensorsTableModel(AsyncLoader loader, Consumer<String> onError) {
+        this.loader = loader;
+        this.onError = onError;
+    }
+
+    // Rebuilds the anchors of every page in the background and drops all cached pages
+    public void refresh() {
+        rebuilding = true;
+        loader.load(this, () -> scan(0), scan -> {
+            rebuilding = false;
+            generation++;
+            pageAnchors = scan.anchors();
+            rowCount = scan.rows();
+            pages.clear();
+            pendingPages.clear();
+            fireTableDataChanged();
+            if (tailPending) {
+                tailPending = false;
+                refreshTail();
+            }
+        }, e -> {
+            rebuilding = false;
+            onError.accept("Failed to load the sensor history: " + e.getMessage());
+        });
+    }
+
+    // Picks up readings inserted elsewhere. New sensor_ids are the largest in the table, so only the last
+    // page is re-scanned; the anchors and cached pages before it stay valid.
+    public void refreshTail() {
+        if (rebuilding) {
+            tailPending = true; // The rebuild may have passed the end of the table already
+            return;
+        }
+        int lastPage = Math.max(0, pageAnchors.length - 1);
+        int from = pageAnchors.length == 0 ? 0 : pageAnchors[lastPage];
+        int requestedGeneration = generation;
+        int requestedAppended = appended;
+        loader.load(this, () -> scan(from), scan -> {
+            if (requestedGeneration != generation || requestedAppended != appended) {
+                refreshTail(); // The last page changed meanwhile; scan it again
+                return;
+            }
+            int oldRowCount = rowCount;
+            int[] anchors = Arrays.copyOf(pageAnchors, lastPage + scan.anchors().length);
+            System.arraycopy(scan.anchors(), 0, anchors, lastPage, scan.anchors().length);
+            pageAnchors = anchors;
+            rowCount = lastPage * PAGE_SIZE + scan.rows();
+            // The last page may have grown, and pages still loading may have been read before the scan;
+            // they are read again when they are shown
+            generation++;
+            pages.keySet().removeIf(index -> index >= lastPage);
+            List<Integer> reloaded = new ArrayList<>(pendingPages);
+            pendingPages.clear();
+            if (rowCount > oldRowCount) {
+                fireTableRowsInserted(oldRowCount, rowCount - 1);
+            } else if (rowCount < oldRowCount) {
+                fireTableRowsDeleted(rowCount, oldRowCount - 1);
+            }
+            reloaded.add(lastPage);
+            for (int index : reloaded) {
+                firePageUpdated(index);
+            }
+        }, e -> onError.accept("Failed to load the sensor history: " + e.getMessage()));
+    }
+
+    // Adds a reading that was just inserted with the given sensor_id. New sensor_ids are the largest in
+    // the table, so the row goes at the end; only the last page is touched.
+    public void appendRow(int sensorId, SensorReading reading) {
+        appended++;
+        if (rebuilding) {
+            tailPending = true; // The rebuild's pass may not have seen the row
+        }
+        int lastPage = (rowCount - 1) / PAGE_SIZE;
+        if (rowCount % PAGE_SIZE == 0) {
+            // Starts a new page; nothing to load for it yet
+            lastPage = rowCount / PAGE_SIZE;
+            pageAnchors = Arrays.copyOf(pageAnchors, lastPage + 1);
+            pageAnchors[lastPage] = sensorId;
+            pages.put(lastPage, new Page());
+        }
+        Page page = pages.get(lastPage);
+        if (page != null) {
+            page.add(sensorId, reading.landId(), reading.temperature(), reading.soilMoisture(), reading.ph(),
+                    reading.timestampMillis());
+        }
+        // An uncached last page picks the row up when it is loaded
+        rowCount++;
+        fireTableRowsInserted(rowCount - 1, rowCount - 1);
+    }
+
+    // Passes over the sensor_ids from the given one on, keeping the first sensor_id of every page
+    private static Scan scan(int fromSensorId) throws SQLException {
+        IntStream.Builder anchors = IntStream.builder();
+        int rows = Repositories.sensors().scanIds(fromSensorId, PAGE_SIZE, anchors);
+        return new Scan(anchors.build().toArray(), rows);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return COLUMN_CLASSES[column];
+    }
+
+    // Returns null for rows whose page is still loading
+    @Override
+    public Object getValueAt(int row, int column) {
+        int pageIndex = row / PAGE_SIZE;
+        Page page = pages.get(pageIndex);
+        if (page == null) {
+            requestPages(pageIndex);
+            return null;
+        }
+        int offset = row - pageIndex * PAGE_SIZE;
+        if (offset >= page.size) {
+            return null;
+        }
+        return page.value(offset, column);
+    }
+
+    // Loads the requested page plus a prefetch margin on each side
+    private void requestPages(int pageIndex) {
+        int first = Math.max(0, pageIndex - PREFETCH_PAGES);
+        int last = Math.min(pageAnchors.length - 1, pageIndex + PREFETCH_PAGES);
+        for (int index = first; index <= last; index++) {
+            if (!pages.containsKey(index) && pendingPages.add(index)) {
+                loadPage(index);
+            }
+        }
+    }
+
+    private void loadPage(int pageIndex) {
+        int requestedGeneration = generation;
+        int from = pageAnchors[pageIndex];
+        loader.load(List.of(this, pageIndex), () -> queryPage(from), page -> {
+            if (requestedGeneration != generation) {
+                return; // Result of a page request made before the last refresh
+            }
+            pendingPages.remove(pageIndex);
+            // A page that doesn't end where the next one starts, or a short last page, means readings were
+            // deleted (a land and its readings, or expired raw readings) since the anchors were found
+            boolean stale = pageIndex + 1 < pageAnchors.length
+                    ? page.size < PAGE_SIZE || page.sensorIds[PAGE_SIZE - 1] >= pageAnchors[pageIndex + 1]
+                    : page.size < rowCount - pageIndex * PAGE_SIZE;
+            if (stale) {
+                if (!rebuilding) {
+                    refresh();
+                }
+                return;
+            }
+            pages.put(pageIndex, page);
+            firePageUpdated(pageIndex);
+        }, e -> {
+            pendingPages.remove(pageIndex);
+            onError.accept("Failed to load sensor readings: " + e.getMessage());
+        });
+    }
+
+    private void firePageUpdated(int pageIndex) {
+        int firstRow = pageIndex * PAGE_SIZE;
+        int lastRow = Math.min(rowCount, firstRow + PAGE_SIZE) - 1;
+        if (lastRow >= firstRow) {
+            fireTableRowsUpdated(firstRow, lastRow);
+        }
+    }
+
+    // Reads the page that starts at the given sensor_id
+    private static Page queryPage(int from) throws SQLException {
+        Page page = new Page();
+        Repositories.sensors().readPage(from, PAGE_SIZE, page::add);
+        return page;
+    }
+
+    // One page of rows stored column-wise in primitive arrays
+    private static final class Page {
+        private final int[] sensorIds = new int[PAGE_SIZE];
+        private final int[] landIds = new int[PAGE_SIZE];
+        private final double[] temperatures = new double[PAGE_SIZE];
+        private final double[] soilMoistures = new double[PAGE_SIZE];
+        private final double[] phs = new double[PAGE_SIZE];
+        private final long[] timestamps = new long[PAGE_SIZE];
+        private int size;
+
+        private void add(int sensorId, int landId, double temperature, double soilMoisture, double ph, long timestamp) {
+            if (size == PAGE_SIZE) {
+                return;
+            }
+            sensorIds[size] = sensorId;
+            landIds[size] = landId;
+            temperatures[size] = temperature;
+            soilMoistures[size] = soilMoisture;
+            phs[size] = ph;
+            timestamps[size] = timestamp;
+            size++;
+        }
+
+        private Object value(int row, int column) {
+            return switch (column) {
+                case 0 -> sensorIds[row];
+                case 1 -> landIds[row] == SensorRepository.NULL_LAND_ID ? null : landIds[row];
+                case 2 -> Double.isNaN(temperatures[row]) ? null : temperatures[row];
+                case 3 -> Double.isNaN(soilMoistures[row]) ? null : soilMoistures[row];
+                case 4 -> Double.isNaN(phs[row]) ? null : phs[row];
+                case 5 -> timestamps[row] == SensorRepository.NULL_TIMESTAMP ? null : new Timestamp(timestamps[row]);
+                default -> throw new IndexOutOfBoundsException("column " + column);
+            };
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.example;
+
+// Settings for the JDBC connection pool. Every value can be overridden with a -Dsmartagri.* system property.
+// Leak detection is opt-in (leakDetectionMillis > 0): it records the stack trace of every borrow.
+public record PoolConfig(String url,
+                         String user,
+                         String password,
+                         int minIdle,
+                         int maxSize,
+                         long maxWaitMillis,
+                         long idleTimeoutMillis,
+                         long leakDetectionMillis,
+                         long validationIntervalMillis) {
+
+    // Defaults match the original DriverManager settings of DatabaseConnection;
+    // rewriteBatchedStatements lets the driver send a JDBC batch as multi-row INSERTs
+    private static final String DEFAULT_URL = "jdbc:mysql://localhost:3306/smart_agriculture?rewriteBatchedStatements=true";
+    private static final String DEFAULT_USER = "root";
+    private static final String DEFAULT_PASSWORD = "12345678";
+
+    public PoolConfig {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be at least 1");
+        }
+        if (minIdle < 0 || minIdle > maxSize) {
+            throw new IllegalArgumentException("minIdle must be between 0 and maxSize");
+        }
+    }
+
+    // Reads the pool settings from system properties, falling back to the defaults
+    public static PoolConfig fromSystemProperties() {
+        return new PoolConfig(
+                System.getProperty("smartagri.db.url", DEFAULT_URL),
+                System.getProperty("smartagri.db.user", DEFAULT_USER),
+                System.getProperty("smartagri.db.password", DEFAULT_PASSWORD),
+                Integer.getInteger("smartagri.pool.minIdle", 2),
+                Integer.getInteger("smartagri.pool.maxSize", 10),
+                Long.getLong("smartagri.pool.maxWaitMillis", 10_000L),
+                Long.getLong("smartagri.pool.idleTimeoutMillis", 300_000L),
+                Long.getLong("smartagri.pool.leakDetectionMillis", 0L),
+                Long.getLong("smartagri.pool.validationIntervalMillis", 5_000L));
+    }
+}
@@ -0,0 +1,279 @@
+package org.example;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Application-wide cache of the lands and crops tables, which are small, rarely written and read all the time.
+// Both tables are held in one immutable Snapshot indexed by land_id and crop_id. A change never modifies a
+// snapshot; a new one is loaded and swapped in (copy-on-write), so readers on any thread need no locking.
+// The snapshot goes stale when lands or crops change on the ChangeEventBus, and a background thread
+// compares the repositories' cheap change markers (row count, max id and a checksum of each table on MySQL)
+// every smartagri.cache.refreshSeconds to pick up changes made by other processes.
+public final class ReferenceDataCache {
+    private static final long REFRESH_SECONDS = Long.getLong("smartagri.cache.refreshSeconds", 30L);
+    // An unknown id reloads the snapshot at most this often, in case another process just added it
+    private static final long MISS_RELOAD_INTERVAL_MILLIS = 1_000;
+
+    private static final ReferenceDataCache INSTANCE = new ReferenceDataCache();
+
+    public record Land(int landId, String sectorName, String soilType, double area) {
+    }
+
+    public record Crop(int cropId, String cropName, int idealTemperature, int idealMoisture, double idealPh, int landId) {
+    }
+
+    // Change markers of both tables from their repositories; a different marker means the tables changed
+    private record Marker(List<Long> lands, List<Long> crops) {
+    }
+
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "reference-data-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicLong changes = new AtomicLong();
+    private volatile Snapshot snapshot;
+    private volatile long lastMissReload;
+
+    // Counters
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder reloads = new LongAdder();
+    private final LongAdder markerChecks = new LongAdder();
+    private volatile long lastLoadNanos;
+
+    private ReferenceDataCache() {
+        // Subscribed first so panels reloading from the cache in the same frame see the change
+        ChangeEventBus.getInstance().subscribeFirst(changeList -> {
+            for (ChangeEventBus.Change change : changeList) {
+                if (change.table() == ChangeEventBus.Table.LANDS || change.table() == ChangeEventBus.Table.CROPS) {
+                    invalidate();
+                    return;
+                }
+            }
+        });
+        refresher.scheduleWithFixedDelay(this::checkMarker, REFRESH_SECONDS, REFRESH_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public static ReferenceDataCache getInstance() {
+        return INSTANCE;
+    }
+
+    // The current snapshot; loads it first if there is none yet or the cached one is stale
+    public Snapshot snapshot() throws SQLException {
+        Snapshot current = snapshot;
+        if (current != null && current.changes >= changes.get()) {
+            hits.increment();
+            return current;
+        }
+        misses.increment();
+        return reload();
+    }
+
+    public Land land(int landId) throws SQLException {
+        Land land = snapshot().land(landId);
+        return land != null || !reloadAfterMiss() ? land : snapshot.land(landId);
+    }
+
+    public Crop crop(int cropId) throws SQLException {
+        Crop crop = snapshot().crop(cropId);
+        return crop != null || !reloadAfterMiss() ? crop : snapshot.crop(cropId);
+    }
+
+    public List<Crop> cropsOfLand(int landId) throws SQLException {
+        return snapshot().cropsOfLand(landId);
+    }
+
+    // Table models for the panels; each call returns a copy the caller may modify
+    public ColumnarTableModel landsTableModel() throws SQLException {
+        return snapshot().landsModel.copy();
+    }
+
+    public ColumnarTableModel cropsTableModel() throws SQLException {
+        return snapshot().cropsModel.copy();
+    }
+
+    // Marks the snapshot stale and reloads it in the background; readers before that reload load it themselves
+    public void invalidate() {
+        changes.incrementAndGet();
+        refresher.execute(() -> {
+            try {
+                if (snapshot == null || snapshot.changes < changes.get()) {
+                    reload();
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    public CacheStats stats() {
+        Snapshot current = snapshot;
+        return new CacheStats(hits.sum(), misses.sum(), reloads.sum(), markerChecks.sum(),
+                current == null ? 0 : current.lands.length, current == null ? 0 : current.crops.length,
+                lastLoadNanos);
+    }
+
+    // Reloads when an id was not found, unless that was done very recently; returns true if it reloaded
+    private boolean reloadAfterMiss() throws SQLException {
+        long now = System.currentTimeMillis();
+        if (now - lastMissReload < MISS_RELOAD_INTERVAL_MILLIS) {
+            return false;
+        }
+        lastMissReload = now;
+        misses.increment();
+        changes.incrementAndGet();
+        reload();
+        return true;
+    }
+
+    // Periodic check for changes made outside this process
+    private void checkMarker() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return;
+        }
+        try {
+            markerChecks.increment();
+            if (!readMarker().equals(current.marker)) {
+                changes.incrementAndGet();
+                reload();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private synchronized Snapshot reload() throws SQLException {
+        long target = changes.get();
+        Snapshot current = snapshot;
+        if (current != null && current.changes >= target) {
+            return current; // Another thread reloaded while this one waited
+        }
+        long start = System.nanoTime();
+        // Marker first: a change landing between the marker and the data is caught by the next check
+        Marker marker = readMarker();
+        current = new Snapshot(target, marker, Repositories.lands().findAll(), Repositories.crops().findAll());
+        snapshot = current;
+        reloads.increment();
+        lastLoadNanos = System.nanoTime() - start;
+        return current;
+    }
+
+    private static Marker readMarker() throws SQLException {
+        return new Marker(Repositories.lands().changeMarker(), Repositories.crops().changeMarker());
+    }
+
+    // Immutable lands and crops, sorted by id for binary search, plus the crops grouped by land
+    public static final class Snapshot {
+        private final long changes;
+        private final Marker marker;
+        private final ColumnarTableModel landsModel;
+        private final ColumnarTableModel cropsModel;
+        private final int[] landIds;
+        private final Land[] lands;
+        private final int[] cropIds;
+        private final Crop[] crops;
+        private final int[] cropLandIds;
+        private final Crop[] cropsByLand;
+
+        private Snapshot(long changes, Marker marker, ColumnarTableModel landsModel, ColumnarTableModel cropsModel) {
+            this.changes = changes;
+            this.marker = marker;
+            this.landsModel = landsModel;
+            this.cropsModel = cropsModel;
+
+            int landCount = landsModel.getRowCount();
+            landIds = new int[landCount];
+            lands = new Land[landCount];
+            for (int row = 0; row < landCount; row++) {
+                lands[row] = new Land((Integer) landsModel.getValueAt(row, 0), (String) landsModel.getValueAt(row, 1),
+                        (String) landsModel.getValueAt(row, 2), doubleAt(landsModel, row, 3));
+                landIds[row] = lands[row].landId();
+            }
+
+            int cropCount = cropsModel.getRowCount();
+            cropIds = new int[cropCount];
+            crops = new Crop[cropCount];
+            for (int row = 0; row < cropCount; row++) {
+                crops[row] = new Crop((Integer) cropsModel.getValueAt(row, 0), (String) cropsModel.getValueAt(row, 1),
+                        (int) doubleAt(cropsModel, row, 2), (int) doubleAt(cropsModel, row, 3),
+                        doubleAt(cropsModel, row, 4), (Integer) cropsModel.getValueAt(row, 5));
+                cropIds[row] = crops[row].cropId();
+            }
+            cropsByLand = crops.clone();
+            Arrays.sort(cropsByLand, Comparator.comparingInt(Crop::landId).thenComparingInt(Crop::cropId));
+            cropLandIds = new int[cropCount];
+            for (int crop = 0; crop < cropCount; crop++) {
+                cropLandIds[crop] = cropsByLand[crop].landId();
+            }
+        }
+
+        // Snapshot of models loaded elsewhere, e.g. from a test database; it is never compared by marker
+        static Snapshot of(ColumnarTableModel landsModel, ColumnarTableModel cropsModel) {
+            return new Snapshot(0, null, landsModel, cropsModel);
+        }
+
+        private static double doubleAt(ColumnarTableModel model, int row, int column) {
+            Object value = model.getValueAt(row, column);
+            return value == null ? 0 : ((Number) value).doubleValue();
+        }
+
+        public Land land(int landId) {
+            int index = Arrays.binarySearch(landIds, landId);
+            return index >= 0 ? lands[index] : null;
+        }
+
+        public Crop crop(int cropId) {
+            int index = Arrays.binarySearch(cropIds, cropId);
+            return index >= 0 ? crops[index] : null;
+        }
+
+        // Every land ordered by land_id
+        public List<Land> lands() {
+            return List.of(lands);
+        }
+
+        // Every crop ordered by crop_id
+        public List<Crop> crops() {
+            return List.of(crops);
+        }
+
+        // Crops of one land ordered by crop_id
+        public List<Crop> cropsOfLand(int landId) {
+            int index = Arrays.binarySearch(cropLandIds, landId);
+            if (index < 0) {
+                return List.of();
+            }
+            int first = index;
+            while (first > 0 && cropLandIds[first - 1] == landId) {
+                first--;
+            }
+            int end = index + 1;
+            while (end < cropLandIds.length && cropLandIds[end] == landId) {
+                end++;
+            }
+            return List.of(Arrays.copyOfRange(cropsByLand, first, end));
+        }
+    }
+
+    // Hits are reads served from memory; misses needed a database round trip first
+    public record CacheStats(long hits, long misses, long reloads, long markerChecks, int lands, int crops,
+                             long lastLoadNanos) {
+        @Override
+        public String toString() {
+            long total = hits + misses;
+            return String.format("hits=%d, misses=%d (%.1f%% hit rate), reloads=%d, markerChecks=%d, lands=%d, "
+                            + "crops=%d, lastLoad=%.1f ms",
+                    hits, misses, total == 0 ? 0.0 : 100.0 * hits / total, reloads, markerChecks, lands, crops,
+                    lastLoadNanos / 1e6);
+        }
+    }
+}
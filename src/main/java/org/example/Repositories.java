@@ -0,0 +1,58 @@
+package org.example;
+
+// The data backend of this process, chosen once from -Dsmartagri.backend:
+//  - jdbc (default): MySQL through the DatabaseConnection pool (JdbcRepositories)
+//  - memory: concurrent in-memory tables that start empty (InMemoryRepositories), so panels, tests,
+//    benchmarks and offline demos run without a database
+// Schema migrations, the rollup job and SensorIngestor still talk to MySQL directly; they don't run in memory.
+public final class Repositories {
+    public static final String BACKEND = System.getProperty("smartagri.backend", "jdbc");
+
+    private Repositories() {
+    }
+
+    // Created on first use so that classes which never touch the data don't pick a backend
+    private static final class Holder {
+        private static final LandRepository LANDS;
+        private static final CropRepository CROPS;
+        private static final SensorRepository SENSORS;
+        private static final IrrigationRepository IRRIGATION;
+
+        static {
+            if (inMemory()) {
+                InMemoryRepositories memory = new InMemoryRepositories();
+                LANDS = memory.lands();
+                CROPS = memory.crops();
+                SENSORS = memory.sensors();
+                IRRIGATION = memory.irrigation();
+            } else if (BACKEND.equals("jdbc")) {
+                LANDS = new JdbcRepositories.Lands();
+                CROPS = new JdbcRepositories.Crops();
+                SENSORS = new JdbcRepositories.Sensors();
+                IRRIGATION = new JdbcRepositories.Irrigation();
+            } else {
+                throw new IllegalArgumentException("Unknown smartagri.backend " + BACKEND + "; use jdbc or memory");
+            }
+        }
+    }
+
+    public static boolean inMemory() {
+        return BACKEND.equals("memory");
+    }
+
+    public static LandRepository lands() {
+        return Holder.LANDS;
+    }
+
+    public static CropRepository crops() {
+        return Holder.CROPS;
+    }
+
+    public static SensorRepository sensors() {
+        return Holder.SENSORS;
+    }
+
+    public static IrrigationRepository irrigation() {
+        return Holder.IRRIGATION;
+    }
+}
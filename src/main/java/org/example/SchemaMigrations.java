@@ -0,0 +1,234 @@
+package org.example;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+// The ordered list of schema migrations. Append new migrations at the end with the next version number;
+// never edit a migration that has already shipped.
+public final class SchemaMigrations {
+
+    private SchemaMigrations() {
+    }
+
+    public static final List<Migration> ALL = List.of(
+            // V1: the original tables. IF NOT EXISTS makes this a no-op on installations created by the old setup.
+            Migration.sql(1, "Create lands, crops, sensors and irrigation tables",
+                    """
+                            CREATE TABLE IF NOT EXISTS lands (
+                                land_id INT AUTO_INCREMENT PRIMARY KEY,
+                                sector_name VARCHAR(50) NOT NULL,
+                                soil_type VARCHAR(50) NOT NULL,
+                                area DECIMAL(10, 2) NOT NULL
+                            )
+                            """,
+                    """
+                            CREATE TABLE IF NOT EXISTS crops (
+                                crop_id INT AUTO_INCREMENT PRIMARY KEY,
+                                crop_name VARCHAR(50) NOT NULL,
+                                ideal_temperature INT NOT NULL,
+                                ideal_moisture INT NOT NULL,
+                                ideal_ph DECIMAL(3, 1) NOT NULL,
+                                land_id INT NOT NULL,
+                                FOREIGN KEY (land_id) REFERENCES lands(land_id) ON DELETE CASCADE
+                            )
+                            """,
+                    """
+                            CREATE TABLE IF NOT EXISTS sensors (
+                                sensor_id INT AUTO_INCREMENT PRIMARY KEY,
+                                land_id INT,
+                                temperature DECIMAL(5, 2),
+                                soil_moisture DECIMAL(5, 2),
+                                ph DECIMAL(3, 1),
+                                timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                                FOREIGN KEY (land_id) REFERENCES lands(land_id) ON DELETE CASCADE
+                            )
+                            """,
+                    """
+                            CREATE TABLE IF NOT EXISTS irrigation (
+                                irrigation_id INT AUTO_INCREMENT PRIMARY KEY,
+                                land_id INT NOT NULL,
+                                start_time TIME NOT NULL,
+                                end_time TIME NOT NULL,
+                                FOREIGN KEY (land_id) REFERENCES lands(land_id)
+                            )
+                            """),
+
+            // V2: latest reading per land, kept up to date by a trigger in the same statement as every insert.
+            // A reading only replaces the stored one if it is at least as recent (late backfills don't win).
+            // Columns are assigned left to right, so timestamp must be the last one updated. Readings without a
+            // land or a timestamp are skipped, as sensor_latest.timestamp is NOT NULL.
+            Migration.sql(2, "Add sensor_latest with its insert trigger and backfill",
+                    """
+                            CREATE TABLE IF NOT EXISTS sensor_latest (
+                                land_id INT PRIMARY KEY,
+                                sensor_id INT NOT NULL,
+                                temperature DECIMAL(5, 2),
+                                soil_moisture DECIMAL(5, 2),
+                                ph DECIMAL(3, 1),
+                                timestamp TIMESTAMP NOT NULL,
+                                FOREIGN KEY (land_id) REFERENCES lands(land_id) ON DELETE CASCADE
+                            )
+                            """,
+                    "DROP TRIGGER IF EXISTS sensors_after_insert_latest",
+                    """
+                            CREATE TRIGGER sensors_after_insert_latest
+                            AFTER INSERT ON sensors
+                            FOR EACH ROW
+                            BEGIN
+                                IF NEW.land_id IS NOT NULL AND NEW.timestamp IS NOT NULL THEN
+                                    INSERT INTO sensor_latest (land_id, sensor_id, temperature, soil_moisture, ph, timestamp)
+                                    VALUES (NEW.land_id, NEW.sensor_id, NEW.temperature, NEW.soil_moisture, NEW.ph, NEW.timestamp)
+                                    ON DUPLICATE KEY UPDATE
+                                        sensor_id = IF(NEW.timestamp >= timestamp, NEW.sensor_id, sensor_id),
+                                        temperature = IF(NEW.timestamp >= timestamp, NEW.temperature, temperature),
+                                        soil_moisture = IF(NEW.timestamp >= timestamp, NEW.soil_moisture, soil_moisture),
+                                        ph = IF(NEW.timestamp >= timestamp, NEW.ph, ph),
+                                        timestamp = IF(NEW.timestamp >= timestamp, NEW.timestamp, timestamp);
+                                END IF;
+                            END
+                            """,
+                    """
+                            INSERT INTO sensor_latest (land_id, sensor_id, temperature, soil_moisture, ph, timestamp)
+                            SELECT s.land_id, s.sensor_id, s.temperature, s.soil_moisture, s.ph, s.timestamp
+                            FROM (SELECT land_id, sensor_id, temperature, soil_moisture, ph, timestamp,
+                                         ROW_NUMBER() OVER (PARTITION BY land_id ORDER BY timestamp DESC, sensor_id DESC) AS rn
+                                  FROM sensors
+                                  WHERE land_id IS NOT NULL AND timestamp IS NOT NULL) s
+                            WHERE s.rn = 1
+                            ON DUPLICATE KEY UPDATE
+                                sensor_id = IF(s.timestamp >= sensor_latest.timestamp, s.sensor_id, sensor_latest.sensor_id),
+                                temperature = IF(s.timestamp >= sensor_latest.timestamp, s.temperature, sensor_latest.temperature),
+                                soil_moisture = IF(s.timestamp >= sensor_latest.timestamp, s.soil_moisture, sensor_latest.soil_moisture),
+                                ph = IF(s.timestamp >= sensor_latest.timestamp, s.ph, sensor_latest.ph),
+                                timestamp = IF(s.timestamp >= sensor_latest.timestamp, s.timestamp, sensor_latest.timestamp)
+                            """),
+
+            // V3: time-series indexes so per-land history queries stop scanning the whole table.
+            // MySQL has no CREATE INDEX IF NOT EXISTS, so existing indexes are looked up first; a run interrupted
+            // between the two statements can then be retried.
+            new Migration(3, "Add (land_id, timestamp) and (land_id, start_time) indexes", null, connection -> {
+                createIndexIfMissing(connection, "sensors", "idx_sensors_land_timestamp", "land_id, timestamp");
+                createIndexIfMissing(connection, "irrigation", "idx_irrigation_land_start", "land_id, start_time");
+            }),
+
+            // V4 (opt-in with -Dsmartagri.partitionSensors=true): monthly range partitions on sensors.
+            // MySQL does not allow foreign keys on partitioned tables, so this drops sensors' FK to lands;
+            // deleting a land no longer cascades to its readings once this has run (Lands.delete removes them
+            // itself, and V7 stands in for the FK check on insert).
+            Migration.optional(4, "Partition sensors by month", "smartagri.partitionSensors",
+                    SensorPartitions::partitionSensors),
+
+            // V5: hourly and daily rollups of sensors, maintained incrementally by SensorRollups.
+            // Sums are stored instead of averages so increments merge exactly; avg = sum / reading_count.
+            // rollup_state holds the highest sensor_id rolled up so far.
+            Migration.sql(5, "Add sensors_hourly, sensors_daily and rollup_state",
+                    """
+                            CREATE TABLE IF NOT EXISTS sensors_hourly (
+                                land_id INT NOT NULL,
+                                bucket_start DATETIME NOT NULL,
+                                reading_count INT NOT NULL,
+                                temperature_min DECIMAL(5, 2),
+                                temperature_max DECIMAL(5, 2),
+                                temperature_sum DECIMAL(14, 2),
+                                soil_moisture_min DECIMAL(5, 2),
+                                soil_moisture_max DECIMAL(5, 2),
+                                soil_moisture_sum DECIMAL(14, 2),
+                                ph_min DECIMAL(3, 1),
+                                ph_max DECIMAL(3, 1),
+                                ph_sum DECIMAL(13, 1),
+                                PRIMARY KEY (land_id, bucket_start)
+                            )
+                            """,
+                    """
+                            CREATE TABLE IF NOT EXISTS sensors_daily (
+                                land_id INT NOT NULL,
+                                bucket_start DATETIME NOT NULL,
+                                reading_count INT NOT NULL,
+                                temperature_min DECIMAL(5, 2),
+                                temperature_max DECIMAL(5, 2),
+                                temperature_sum DECIMAL(14, 2),
+                                soil_moisture_min DECIMAL(5, 2),
+                                soil_moisture_max DECIMAL(5, 2),
+                                soil_moisture_sum DECIMAL(14, 2),
+                                ph_min DECIMAL(3, 1),
+                                ph_max DECIMAL(3, 1),
+                                ph_sum DECIMAL(13, 1),
+                                PRIMARY KEY (land_id, bucket_start)
+                            )
+                            """,
+                    """
+                            CREATE TABLE IF NOT EXISTS rollup_state (
+                                name VARCHAR(32) PRIMARY KEY,
+                                high_water_mark INT NOT NULL,
+                                updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+                            )
+                            """,
+                    "INSERT IGNORE INTO rollup_state (name, high_water_mark) VALUES ('sensors', 0)"),
+
+            // V6: sensor_ids waiting to be rolled up, queued by a trigger in the same transaction as the insert.
+            // A reading that commits after higher ids were rolled up is still picked up, and retention keeps it
+            // until it is. The trigger comes before the backfill, and INSERT IGNORE skips the rows queued twice.
+            // No foreign key: V4 may have partitioned sensors.
+            Migration.sql(6, "Add sensors_rollup_queue with its insert trigger and backfill",
+                    """
+                            CREATE TABLE IF NOT EXISTS sensors_rollup_queue (
+                                sensor_id INT PRIMARY KEY
+                            )
+                            """,
+                    "DROP TRIGGER IF EXISTS sensors_after_insert_rollup",
+                    """
+                            CREATE TRIGGER sensors_after_insert_rollup
+                            AFTER INSERT ON sensors
+                            FOR EACH ROW
+                            INSERT INTO sensors_rollup_queue (sensor_id) VALUES (NEW.sensor_id)
+                            """,
+                    """
+                            INSERT IGNORE INTO sensors_rollup_queue (sensor_id)
+                            SELECT sensor_id FROM sensors
+                            WHERE sensor_id > (SELECT high_water_mark FROM rollup_state WHERE name = 'sensors')
+                            """),
+
+            // V7: rejects readings of a land that does not exist, as sensors' FK to lands did before V4 dropped
+            // it; same SQLSTATE and error code, so the ingest paths reject such rows the same way. The shared
+            // lock on the land makes a concurrent land delete wait for the insert, as the FK check would. Created
+            // whether or not the FK is still there (it is then only redundant), so V4 can run later.
+            Migration.sql(7, "Add the land check trigger on sensors",
+                    "DROP TRIGGER IF EXISTS sensors_before_insert_land",
+                    """
+                            CREATE TRIGGER sensors_before_insert_land
+                            BEFORE INSERT ON sensors
+                            FOR EACH ROW
+                            BEGIN
+                                IF NEW.land_id IS NOT NULL
+                                        AND NOT EXISTS (SELECT 1 FROM lands WHERE land_id = NEW.land_id FOR SHARE) THEN
+                                    SIGNAL SQLSTATE '23000'
+                                        SET MESSAGE_TEXT = 'Cannot add a reading for a land that does not exist',
+                                            MYSQL_ERRNO = 1452;
+                                END IF;
+                            END
+                            """)
+    );
+
+    // Creates the index unless the table already has one with that name
+    private static void createIndexIfMissing(Connection connection, String table, String index, String columns)
+            throws SQLException {
+        String query = "SELECT 1 FROM information_schema.STATISTICS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND INDEX_NAME = ? LIMIT 1";
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setString(1, table);
+            statement.setString(2, index);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    return;
+                }
+            }
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE INDEX " + index + " ON " + table + " (" + columns + ")");
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package org.example;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Brings the database schema up to date by applying the pending migrations of SchemaMigrations in order.
+// Applied versions are recorded in schema_version, so running it again is a cheap no-op; a MySQL
+// named lock keeps two starting processes from migrating at the same time.
+public class SchemaMigrator {
+    private static final String LOCK_NAME = "smart_agriculture_schema_migration";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+    private final List<Migration> migrations;
+
+    public SchemaMigrator(List<Migration> migrations) {
+        this.migrations = migrations.stream()
+                .sorted((a, b) -> Integer.compare(a.version(), b.version()))
+                .toList();
+    }
+
+    // Startup check used by the application entry points
+    public static void ensureUpToDate() {
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            int applied = new SchemaMigrator(SchemaMigrations.ALL).migrate(connection);
+            if (applied > 0) {
+                System.out.println("Applied " + applied + " schema migration(s).");
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            System.out.println("Could not check the database schema version.");
+        }
+    }
+
+    // Applies every pending, enabled migration and returns how many were applied
+    public int migrate(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("""
+                    CREATE TABLE IF NOT EXISTS schema_version (
+                        version INT PRIMARY KEY,
+                        description VARCHAR(200) NOT NULL,
+                        applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                        execution_ms INT NOT NULL
+                    )
+                    """);
+        }
+
+        acquireLock(connection);
+        try {
+            Set<Integer> applied = appliedVersions(connection);
+            int count = 0;
+            for (Migration migration : migrations) {
+                if (applied.contains(migration.version()) || !migration.isEnabled()) {
+                    continue;
+                }
+                System.out.println("Applying schema migration V" + migration.version() + ": " + migration.description());
+                long start = System.currentTimeMillis();
+                // MySQL commits DDL implicitly, so a migration is recorded only after all its statements succeeded
+                migration.step().apply(connection);
+                record(connection, migration, System.currentTimeMillis() - start);
+                count++;
+            }
+            SensorPartitions.addUpcomingPartitions(connection);
+            return count;
+        } finally {
+            releaseLock(connection);
+        }
+    }
+
+    private static Set<Integer> appliedVersions(Connection connection) throws SQLException {
+        Set<Integer> versions = new HashSet<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT version FROM schema_version")) {
+            while (resultSet.next()) {
+                versions.add(resultSet.getInt(1));
+            }
+        }
+        return versions;
+    }
+
+    private static void record(Connection connection, Migration migration, long elapsedMillis) throws SQLException {
+        String query = "INSERT INTO schema_version (version, description, execution_ms) VALUES (?, ?, ?)";
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setInt(1, migration.version());
+            statement.setString(2, migration.description());
+            statement.setInt(3, (int) elapsedMillis);
+            statement.executeUpdate();
+        }
+    }
+
+    private static void acquireLock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            statement.setString(1, LOCK_NAME);
+            statement.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next() || resultSet.getInt(1) != 1) {
+                    throw new SQLException("Timed out waiting for another process to finish migrating the schema");
+                }
+            }
+        }
+    }
+
+    private static void releaseLock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            statement.setString(1, LOCK_NAME);
+            statement.executeQuery().close();
+        }
+    }
+}
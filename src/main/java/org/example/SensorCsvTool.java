@@ -0,0 +1,468 @@
+package org.example;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Bulk import and export of the sensors table as CSV, with flat memory whatever the file size.
+//
+// Import reads the file through a fixed 1 MB buffer and parses each line in place (no String per field),
+// inserting readings through the SensorRepository in batches of smartagri.csv.batchSize rows, one
+// transaction each. A batch refused for a data error (a bad value, an unknown land) is retried row by row
+// so every bad row is reported with its line number; rows that don't parse are reported the same way.
+// Reports go to the errors file and the first few to the console. Any other database error (a lost
+// connection, a lock wait timeout) stops the import with the line to resume from. Imported readings go
+// through the AlertPipeline's anomaly detector, but not the watering check, which is about current conditions.
+// Columns are taken from the header (land_id, temperature, soil_moisture, ph, timestamp; others such as
+// sensor_id are ignored); without a header they are expected in that order. timestamp is either
+// "yyyy-MM-dd HH:mm:ss[.SSS]" in local time or epoch milliseconds. Rows with an empty field are rejected.
+//
+// Export streams the readings in sensor_id order from the SensorRepository (a forward-only cursor on MySQL)
+// and writes the CSV through a 1 MB buffer straight to a FileChannel, optionally restricted to one land and
+// a time range. NULL columns are written as empty fields.
+//
+// Run with:
+//   java -cp ... org.example.SensorCsvTool import <file.csv> [errors.csv]
+//   java -cp ... org.example.SensorCsvTool export <file.csv> [land_id [from [to]]]   (from/to as "yyyy-MM-dd HH:mm:ss")
+public class SensorCsvTool {
+    static final int BUFFER_SIZE = 1 << 20;
+    private static final int CONSOLE_ERRORS = 20;
+    private static final String HEADER = "sensor_id,land_id,temperature,soil_moisture,ph,timestamp\n";
+    private static final String[] IMPORT_COLUMNS = {"land_id", "temperature", "soil_moisture", "ph", "timestamp"};
+
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final SensorRepository sensors;
+    private final AlertPipeline alerts = AlertPipeline.getInstance();
+    private final int batchSize;
+
+    public SensorCsvTool() {
+        this(Repositories.sensors(), Integer.getInteger("smartagri.csv.batchSize", 5_000));
+    }
+
+    SensorCsvTool(SensorRepository sensors, int batchSize) {
+        this.sensors = sensors;
+        this.batchSize = batchSize;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2 || !(args[0].equals("import") || args[0].equals("export"))) {
+            System.out.println("Usage: SensorCsvTool import <file.csv> [errors.csv]");
+            System.out.println("       SensorCsvTool export <file.csv> [land_id [from [to]]]");
+            System.exit(2);
+        }
+        SchemaMigrator.ensureUpToDate();
+        SensorCsvTool tool = new SensorCsvTool();
+        Path file = Path.of(args[1]);
+        if (args[0].equals("import")) {
+            Path errors = args.length > 2 ? Path.of(args[2]) : Path.of(args[1] + ".errors");
+            System.out.println("Import finished: " + tool.importCsv(file, errors));
+        } else {
+            Integer landId = args.length > 2 ? Integer.valueOf(args[2]) : null;
+            Timestamp from = args.length > 3 ? Timestamp.valueOf(args[3]) : null;
+            Timestamp to = args.length > 4 ? Timestamp.valueOf(args[4]) : null;
+            System.out.println("Export finished: " + tool.exportCsv(file, landId, from, to));
+        }
+    }
+
+    // ---- Import ----
+
+    public ImportStats importCsv(Path file, Path errorsFile) throws IOException, SQLException {
+        long start = System.nanoTime();
+        ImportRun run = new ImportRun(errorsFile);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            byte[] bytes = new byte[BUFFER_SIZE];
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            boolean skippingLongLine = false;
+            while (true) {
+                int read = channel.read(buffer);
+                int limit = buffer.position();
+                int lineStart = 0;
+                for (int i = 0; i < limit; i++) {
+                    if (bytes[i] == '\n') {
+                        if (skippingLongLine) {
+                            skippingLongLine = false;
+                        } else {
+                            run.line(bytes, lineStart, i);
+                        }
+                        lineStart = i + 1;
+                    }
+                }
+                if (read < 0) {
+                    if (lineStart < limit && !skippingLongLine) {
+                        run.line(bytes, lineStart, limit); // Last line without a newline
+                    }
+                    break;
+                }
+                if (lineStart == 0 && limit == bytes.length) {
+                    // A line longer than the buffer can't be a sensor reading; skip to its end
+                    if (!skippingLongLine) {
+                        run.lineNumber++;
+                        run.reject("line longer than " + BUFFER_SIZE + " bytes");
+                        skippingLongLine = true;
+                    }
+                    lineStart = limit;
+                }
+                // Keep the partial last line for the next read
+                System.arraycopy(bytes, lineStart, bytes, 0, limit - lineStart);
+                buffer.position(limit - lineStart);
+            }
+            run.flush();
+        } finally {
+            run.closeErrors();
+        }
+        return new ImportStats(run.lineNumber, run.imported, run.rejected, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // State of one import; fields are parsed straight out of the read buffer
+    private final class ImportRun {
+        private final Path errorsFile;
+        private BufferedWriter errors;
+        private long lineNumber;
+        private long imported;
+        private long rejected;
+        private long nextProgress = 1_000_000;
+        private boolean firstLine = true;
+        // Position of each import column in a line; -1 if absent
+        private final int[] columnIndexes = {0, 1, 2, 3, 4};
+        private int fieldCount = IMPORT_COLUMNS.length;
+        private int[] fieldStarts = new int[8];
+        private int[] fieldEnds = new int[8];
+        private final List<SensorReading> batch = new ArrayList<>(batchSize);
+        private final long[] batchLines = new long[batchSize];
+
+        private ImportRun(Path errorsFile) {
+            this.errorsFile = errorsFile;
+        }
+
+        private void line(byte[] bytes, int start, int end) throws IOException, SQLException {
+            lineNumber++;
+            while (end > start && (bytes[end - 1] == '\r' || bytes[end - 1] == ' ')) {
+                end--;
+            }
+            if (end == start) {
+                return; // Blank line
+            }
+            int fields = split(bytes, start, end);
+            if (firstLine) {
+                firstLine = false;
+                if (bytes[fieldStarts[0]] < '0' || bytes[fieldStarts[0]] > '9') {
+                    header(bytes, fields);
+                    return;
+                }
+            }
+            if (fields != fieldCount) {
+                reject("expected " + fieldCount + " fields but found " + fields);
+                return;
+            }
+            for (int column = 0; column < IMPORT_COLUMNS.length; column++) {
+                if (fieldStarts[columnIndexes[column]] == fieldEnds[columnIndexes[column]]) {
+                    // Export writes NULLs as empty fields; a reading can't hold them, so report the row
+                    reject("empty " + IMPORT_COLUMNS[column] + " (NULL values are not imported)");
+                    return;
+                }
+            }
+            SensorReading reading;
+            try {
+                reading = new SensorReading(
+                        SensorLineParser.parseLandId(bytes, fieldStarts[columnIndexes[0]], fieldEnds[columnIndexes[0]]),
+                        SensorLineParser.parseDouble(bytes, fieldStarts[columnIndexes[1]], fieldEnds[columnIndexes[1]]),
+                        SensorLineParser.parseDouble(bytes, fieldStarts[columnIndexes[2]], fieldEnds[columnIndexes[2]]),
+                        SensorLineParser.parseDouble(bytes, fieldStarts[columnIndexes[3]], fieldEnds[columnIndexes[3]]),
+                        parseTimestamp(bytes, fieldStarts[columnIndexes[4]], fieldEnds[columnIndexes[4]]));
+            } catch (RuntimeException e) {
+                reject("malformed value in \"" + new String(bytes, start, end - start, StandardCharsets.UTF_8) + "\"");
+                return;
+            }
+            batchLines[batch.size()] = lineNumber;
+            batch.add(reading);
+            if (batch.size() == batchSize) {
+                flush();
+            }
+        }
+
+        // Splits the line at commas, trimming spaces and surrounding quotes from each field
+        private int split(byte[] bytes, int start, int end) {
+            int fields = 0;
+            int fieldStart = start;
+            for (int i = start; i <= end; i++) {
+                if (i == end || bytes[i] == ',') {
+                    if (fields == fieldStarts.length) {
+                        fieldStarts = Arrays.copyOf(fieldStarts, fields * 2);
+                        fieldEnds = Arrays.copyOf(fieldEnds, fields * 2);
+                    }
+                    int s = fieldStart;
+                    int e = i;
+                    while (s < e && bytes[s] == ' ') {
+                        s++;
+                    }
+                    while (e > s && bytes[e - 1] == ' ') {
+                        e--;
+                    }
+                    if (e - s >= 2 && bytes[s] == '"' && bytes[e - 1] == '"') {
+                        s++;
+                        e--;
+                    }
+                    fieldStarts[fields] = s;
+                    fieldEnds[fields] = e;
+                    fields++;
+                    fieldStart = i + 1;
+                }
+            }
+            return fields;
+        }
+
+        // Maps the header's column names to the import columns
+        private void header(byte[] bytes, int fields) throws IOException {
+            Arrays.fill(columnIndexes, -1);
+            for (int field = 0; field < fields; field++) {
+                String name = new String(bytes, fieldStarts[field], fieldEnds[field] - fieldStarts[field], StandardCharsets.UTF_8)
+                        .replace("\uFEFF", "").trim(); // Excel writes a byte order mark
+                for (int column = 0; column < IMPORT_COLUMNS.length; column++) {
+                    if (IMPORT_COLUMNS[column].equalsIgnoreCase(name)) {
+                        columnIndexes[column] = field;
+                    }
+                }
+            }
+            for (int column = 0; column < IMPORT_COLUMNS.length; column++) {
+                if (columnIndexes[column] < 0) {
+                    throw new IOException("CSV header has no " + IMPORT_COLUMNS[column] + " column");
+                }
+            }
+            fieldCount = fields;
+        }
+
+        // Inserts the pending batch; if the database refuses it for a data error, finds the bad rows one by one.
+        // Other errors stop the import: the rows after them would fail the same way.
+        private void flush() throws IOException, SQLException {
+            if (batch.isEmpty()) {
+                return;
+            }
+            int next = 0; // First reading neither imported nor rejected
+            try {
+                try {
+                    sensors.insertBatch(batch);
+                    imported += batch.size();
+                    next = batch.size();
+                    for (SensorReading reading : batch) {
+                        alerts.observe(reading);
+                    }
+                } catch (SQLException batchFailure) {
+                    if (!SensorJournal.isDataError(batchFailure)) {
+                        throw batchFailure;
+                    }
+                }
+                for (; next < batch.size(); next++) {
+                    try {
+                        sensors.insertBatch(batch.subList(next, next + 1));
+                        imported++;
+                        alerts.observe(batch.get(next));
+                    } catch (SQLException e) {
+                        if (!SensorJournal.isDataError(e)) {
+                            throw e;
+                        }
+                        reject(batchLines[next], e.getMessage());
+                    }
+                }
+            } catch (SQLException e) {
+                throw new SQLException("Import stopped at line " + batchLines[next] + " after " + imported +
+                        " rows were imported; resume from that line: " + e.getMessage(), e.getSQLState(), e);
+            }
+            batch.clear();
+            if (imported >= nextProgress) {
+                System.out.println(imported + " rows imported, " + rejected + " rejected");
+                nextProgress += 1_000_000;
+            }
+        }
+
+        private void reject(String reason) throws IOException {
+            reject(lineNumber, reason);
+        }
+
+        private void reject(long line, String reason) throws IOException {
+            rejected++;
+            String message = "line " + line + ": " + reason;
+            if (rejected <= CONSOLE_ERRORS) {
+                System.out.println(message);
+            } else if (rejected == CONSOLE_ERRORS + 1) {
+                System.out.println("More rejected rows are listed in " + errorsFile);
+            }
+            if (errors == null) {
+                errors = Files.newBufferedWriter(errorsFile, StandardCharsets.UTF_8);
+            }
+            errors.write(message);
+            errors.newLine();
+        }
+
+        private void closeErrors() throws IOException {
+            if (errors != null) {
+                errors.close();
+            }
+        }
+    }
+
+    // "yyyy-MM-dd HH:mm:ss[.SSS]" (or with a 'T') in local time, or epoch milliseconds
+    private long parseTimestamp(byte[] bytes, int start, int end) {
+        if (end - start < 19 || bytes[start + 4] != '-') {
+            return SensorLineParser.parseLong(bytes, start, end);
+        }
+        int year = digits(bytes, start, 4);
+        int month = digits(bytes, start + 5, 2);
+        int day = digits(bytes, start + 8, 2);
+        int hour = digits(bytes, start + 11, 2);
+        int minute = digits(bytes, start + 14, 2);
+        int second = digits(bytes, start + 17, 2);
+        int millis = 0;
+        if (end - start > 20 && bytes[start + 19] == '.') {
+            int fractionDigits = Math.min(3, end - start - 20);
+            millis = digits(bytes, start + 20, fractionDigits);
+            for (int i = fractionDigits; i < 3; i++) {
+                millis *= 10;
+            }
+        } else if (end - start != 19) {
+            throw new NumberFormatException();
+        }
+        return LocalDateTime.of(year, month, day, hour, minute, second).atZone(zone).toInstant().toEpochMilli() + millis;
+    }
+
+    private static int digits(byte[] bytes, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException();
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    // ---- Export ----
+
+    public ExportStats exportCsv(Path file, Integer landId, Timestamp from, Timestamp to) throws IOException, SQLException {
+        long start = System.nanoTime();
+        long rows;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            buffer.put(HEADER.getBytes(StandardCharsets.US_ASCII));
+            try {
+                rows = sensors.readAll(landId, from, to, (sensorId, land, temperature, soilMoisture, ph, timestamp) -> {
+                    // Room for the longest row; drain to the file otherwise
+                    if (buffer.remaining() < 256) {
+                        try {
+                            drain(channel, buffer);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                    // NULL columns are written as empty fields
+                    putLong(buffer, sensorId);
+                    buffer.put((byte) ',');
+                    if (land != SensorRepository.NULL_LAND_ID) {
+                        putLong(buffer, land);
+                    }
+                    putField(buffer, temperature);
+                    putField(buffer, soilMoisture);
+                    putField(buffer, ph);
+                    buffer.put((byte) ',');
+                    if (timestamp != SensorRepository.NULL_TIMESTAMP) {
+                        putTimestamp(buffer, timestamp);
+                    }
+                    buffer.put((byte) '\n');
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            drain(channel, buffer);
+        }
+        return new ExportStats(rows, Files.size(file), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static void putLong(ByteBuffer buffer, long value) {
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        if (value >= 10) {
+            putLong(buffer, value / 10);
+        }
+        buffer.put((byte) ('0' + value % 10));
+    }
+
+    // A comma and the value; nothing after the comma for NULL (NaN)
+    private static void putField(ByteBuffer buffer, double value) {
+        buffer.put((byte) ',');
+        if (!Double.isNaN(value)) {
+            putDouble(buffer, value);
+        }
+    }
+
+    private static void putDouble(ByteBuffer buffer, double value) {
+        String text = Double.toString(value);
+        for (int i = 0; i < text.length(); i++) {
+            buffer.put((byte) text.charAt(i));
+        }
+    }
+
+    // "yyyy-MM-dd HH:mm:ss.SSS" in local time, the format import reads back
+    private void putTimestamp(ByteBuffer buffer, long millis) {
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), zone);
+        putDigits(buffer, time.getYear(), 4);
+        buffer.put((byte) '-');
+        putDigits(buffer, time.getMonthValue(), 2);
+        buffer.put((byte) '-');
+        putDigits(buffer, time.getDayOfMonth(), 2);
+        buffer.put((byte) ' ');
+        putDigits(buffer, time.getHour(), 2);
+        buffer.put((byte) ':');
+        putDigits(buffer, time.getMinute(), 2);
+        buffer.put((byte) ':');
+        putDigits(buffer, time.getSecond(), 2);
+        buffer.put((byte) '.');
+        putDigits(buffer, time.getNano() / 1_000_000, 3);
+    }
+
+    private static void putDigits(ByteBuffer buffer, int value, int count) {
+        for (int divisor = (int) Math.pow(10, count - 1); divisor > 0; divisor /= 10) {
+            buffer.put((byte) ('0' + value / divisor % 10));
+        }
+    }
+
+    public record ImportStats(long lines, long imported, long rejected, long elapsedMillis) {
+        @Override
+        public String toString() {
+            return String.format("%d lines, %d rows imported, %d rejected in %d ms (%.0f rows/s)", lines, imported,
+                    rejected, elapsedMillis, elapsedMillis > 0 ? imported * 1000.0 / elapsedMillis : 0);
+        }
+    }
+
+    public record ExportStats(long rows, long bytes, long elapsedMillis) {
+        @Override
+        public String toString() {
+            return String.format("%d rows, %d bytes in %d ms (%.0f rows/s)", rows, bytes, elapsedMillis,
+                    elapsedMillis > 0 ? rows * 1000.0 / elapsedMillis : 0);
+        }
+    }
+}
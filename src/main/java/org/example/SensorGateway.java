@@ -0,0 +1,283 @@
+package org.example;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.LongAdder;
+
+// Headless network gateway that lets probes push readings into the sensors table.
+// One selector thread serves a TCP port (one line per reading, many probes per port) and a UDP port
+// (one or more lines per datagram); see SensorLineParser for the line format. Readings go to a
+// SensorSink: by default a SensorJournal, so they survive database outages and are written in batches
+// by its replayer (-Dsmartagri.journal=false uses an in-memory SensorIngestor instead). Every reading is
+// also offered to the AlertPipeline, which checks it for watering alerts on its own thread.
+// When the sink's backlog passes the high-water mark the gateway stops reading from its sockets until
+// the database catches up, so TCP probes are slowed down by their socket buffers instead of readings
+// being dropped. UDP has no flow control; datagrams that arrive while paused are dropped by the OS.
+//
+// Run with: java -cp ... org.example.SensorGateway [tcpPort] [udpPort]   (0 disables a port)
+public class SensorGateway implements Runnable, AutoCloseable {
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final long SELECT_TIMEOUT_MILLIS = 50;
+
+    private final SensorSink sink;
+    private final long highWaterMark;
+    private final long lowWaterMark;
+    private final Selector selector;
+    private final ServerSocketChannel tcpServer;
+    private final DatagramChannel udpChannel;
+    private final SensorLineParser parser = new SensorLineParser();
+    private final AlertPipeline alerts = AlertPipeline.getInstance();
+    private final ByteBuffer datagramBuffer = ByteBuffer.allocate(64 * 1024);
+    private volatile boolean running = true;
+    private boolean paused;
+
+    // Counters
+    private final LongAdder connectionsOpened = new LongAdder();
+    private final LongAdder connectionsOpen = new LongAdder();
+    private final LongAdder readings = new LongAdder();
+    private final LongAdder malformed = new LongAdder();
+    private final LongAdder pauses = new LongAdder();
+
+    public SensorGateway(SensorSink sink, int tcpPort, int udpPort) throws IOException {
+        this.sink = sink;
+        this.highWaterMark = sink.capacity() * 8 / 10;
+        this.lowWaterMark = sink.capacity() / 2;
+        this.selector = Selector.open();
+
+        if (tcpPort > 0) {
+            tcpServer = ServerSocketChannel.open();
+            tcpServer.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            tcpServer.bind(new InetSocketAddress(tcpPort), 1024);
+            tcpServer.configureBlocking(false);
+            tcpServer.register(selector, SelectionKey.OP_ACCEPT);
+        } else {
+            tcpServer = null;
+        }
+
+        if (udpPort > 0) {
+            udpChannel = DatagramChannel.open();
+            udpChannel.setOption(StandardSocketOptions.SO_RCVBUF, 4 * 1024 * 1024);
+            udpChannel.bind(new InetSocketAddress(udpPort));
+            udpChannel.configureBlocking(false);
+            udpChannel.register(selector, SelectionKey.OP_READ);
+        } else {
+            udpChannel = null;
+        }
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                applyBackpressure();
+                selector.select(SELECT_TIMEOUT_MILLIS);
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else if (key.channel() == udpChannel) {
+                        receiveDatagrams();
+                    } else if (key.isReadable()) {
+                        readConnection(key);
+                    }
+                }
+                selector.selectedKeys().clear();
+            } catch (IOException e) {
+                e.printStackTrace();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+        }
+        closeChannels();
+    }
+
+    // Stops reading from every socket while the sink's backlog is above the high-water mark
+    private void applyBackpressure() {
+        long depth = sink.backlog();
+        if (!paused && depth >= highWaterMark) {
+            paused = true;
+            pauses.increment();
+            setReadInterest(false);
+        } else if (paused && depth <= lowWaterMark) {
+            paused = false;
+            setReadInterest(true);
+        }
+    }
+
+    private void setReadInterest(boolean read) {
+        for (SelectionKey key : selector.keys()) {
+            if (key.isValid() && key.channel() != tcpServer) {
+                key.interestOps(read ? SelectionKey.OP_READ : 0);
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = tcpServer.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.register(selector, paused ? 0 : SelectionKey.OP_READ, ByteBuffer.allocate(BUFFER_SIZE));
+            connectionsOpened.increment();
+            connectionsOpen.increment();
+        }
+    }
+
+    private void readConnection(SelectionKey key) throws InterruptedException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        ByteBuffer buffer = (ByteBuffer) key.attachment();
+        int read;
+        try {
+            read = channel.read(buffer);
+        } catch (IOException e) {
+            closeConnection(key);
+            return;
+        }
+        if (read > 0) {
+            buffer.flip();
+            consumeLines(buffer);
+            buffer.compact();
+            if (!buffer.hasRemaining()) {
+                // A full buffer without a newline is not our protocol
+                malformed.increment();
+                closeConnection(key);
+                return;
+            }
+        }
+        if (read < 0) {
+            closeConnection(key);
+        }
+    }
+
+    private void receiveDatagrams() throws IOException, InterruptedException {
+        while (true) {
+            datagramBuffer.clear();
+            if (udpChannel.receive(datagramBuffer) == null) {
+                return;
+            }
+            datagramBuffer.flip();
+            consumeLines(datagramBuffer);
+            if (datagramBuffer.hasRemaining()) {
+                // Last line of a datagram doesn't need a trailing newline
+                submitLine(datagramBuffer.array(), datagramBuffer.position(), datagramBuffer.limit());
+            }
+        }
+    }
+
+    // Submits every complete line in the buffer and leaves the position at the start of the partial line
+    private void consumeLines(ByteBuffer buffer) throws InterruptedException {
+        byte[] bytes = buffer.array();
+        int lineStart = buffer.position();
+        int limit = buffer.limit();
+        for (int i = lineStart; i < limit; i++) {
+            if (bytes[i] == '\n') {
+                submitLine(bytes, lineStart, i);
+                lineStart = i + 1;
+            }
+        }
+        buffer.position(lineStart);
+    }
+
+    private void submitLine(byte[] bytes, int start, int end) throws InterruptedException {
+        if (start == end) {
+            return;
+        }
+        SensorReading reading = parser.parse(bytes, start, end, System.currentTimeMillis());
+        if (reading == null) {
+            malformed.increment();
+            return;
+        }
+        // Blocks only in the short window between a burst and the next backpressure check
+        sink.submit(reading);
+        readings.increment();
+        alerts.submit(reading); // Never blocks; drops the check, not the reading, when the alert queue is full
+    }
+
+    private void closeConnection(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException ignored) {
+            // Already gone
+        }
+        connectionsOpen.decrement();
+    }
+
+    private void closeChannels() {
+        for (SelectionKey key : selector.keys()) {
+            try {
+                key.channel().close();
+            } catch (IOException ignored) {
+                // Shutting down
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException ignored) {
+            // Shutting down
+        }
+    }
+
+    public String stats() {
+        return "connections=" + connectionsOpen.sum() + " (opened " + connectionsOpened.sum() + ")"
+                + ", readings=" + readings.sum() + ", malformed=" + malformed.sum()
+                + ", paused=" + paused + " (" + pauses.sum() + " times)";
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int tcpPort = args.length > 0 ? Integer.parseInt(args[0]) : Integer.getInteger("smartagri.gateway.tcpPort", 7070);
+        int udpPort = args.length > 1 ? Integer.parseInt(args[1]) : Integer.getInteger("smartagri.gateway.udpPort", 7071);
+        SchemaMigrator.ensureUpToDate();
+
+        SensorSink sink;
+        if (Boolean.parseBoolean(System.getProperty("smartagri.journal", "true"))) {
+            sink = SensorJournal.open(SensorJournal.baseDirectory().resolve("gateway"));
+        } else {
+            sink = new SensorIngestor();
+        }
+        SensorGateway gateway = new SensorGateway(sink, tcpPort, udpPort);
+        Thread gatewayThread = new Thread(gateway, "sensor-gateway");
+        gatewayThread.start();
+        System.out.println("Sensor gateway listening on TCP " + tcpPort + ", UDP " + udpPort);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            gateway.close();
+            try {
+                gatewayThread.join();
+                ((AutoCloseable) sink).close();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            System.out.println("Sensor gateway stopped: " + gateway.stats() + "; " + sinkStats(sink));
+        }, "sensor-gateway-shutdown"));
+
+        while (gatewayThread.isAlive()) {
+            gatewayThread.join(10_000);
+            System.out.println("Gateway: " + gateway.stats() + "; " + sinkStats(sink)
+                    + "; alerts: " + AlertPipeline.getInstance().stats());
+        }
+    }
+
+    private static String sinkStats(SensorSink sink) {
+        if (sink instanceof SensorJournal journal) {
+            return "journal: " + journal.stats();
+        }
+        return "ingestor: " + ((SensorIngestor) sink).stats();
+    }
+}
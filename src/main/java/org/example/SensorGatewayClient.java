@@ -0,0 +1,92 @@
+package org.example;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Synthetic probe fleet for trying the SensorGateway locally.
+// Opens the given number of TCP connections (or one UDP socket) and sends random readings for the given
+// land ids at a fixed rate per probe.
+//
+// Run with: java -cp ... org.example.SensorGatewayClient [tcp|udp] [host] [port] [probes] [readingsPerSecondPerProbe] [seconds] [lands]
+public class SensorGatewayClient {
+
+    public static void main(String[] args) throws Exception {
+        String mode = args.length > 0 ? args[0] : "tcp";
+        String host = args.length > 1 ? args[1] : "localhost";
+        int port = args.length > 2 ? Integer.parseInt(args[2]) : ("udp".equals(mode) ? 7071 : 7070);
+        int probes = args.length > 3 ? Integer.parseInt(args[3]) : 1_000;
+        int ratePerProbe = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+        int seconds = args.length > 5 ? Integer.parseInt(args[5]) : 30;
+        int lands = args.length > 6 ? Integer.parseInt(args[6]) : 10;
+
+        InetSocketAddress address = new InetSocketAddress(host, port);
+        long sent = "udp".equals(mode)
+                ? runUdp(address, probes, ratePerProbe, seconds, lands)
+                : runTcp(address, probes, ratePerProbe, seconds, lands);
+        System.out.printf("Sent %d readings in %d s (%.0f/s)%n", sent, seconds, sent / (double) seconds);
+    }
+
+    private static long runTcp(InetSocketAddress address, int probes, int ratePerProbe, int seconds, int lands) throws IOException, InterruptedException {
+        List<SocketChannel> channels = new ArrayList<>(probes);
+        try {
+            for (int i = 0; i < probes; i++) {
+                channels.add(SocketChannel.open(address));
+            }
+            System.out.println("Opened " + probes + " probe connections to " + address);
+
+            long sent = 0;
+            long end = System.currentTimeMillis() + seconds * 1000L;
+            while (System.currentTimeMillis() < end) {
+                long tickStart = System.currentTimeMillis();
+                for (int probe = 0; probe < channels.size(); probe++) {
+                    ByteBuffer lines = ByteBuffer.wrap(randomLines(1 + probe % lands, ratePerProbe));
+                    while (lines.hasRemaining()) {
+                        channels.get(probe).write(lines);
+                    }
+                    sent += ratePerProbe;
+                }
+                Thread.sleep(Math.max(0, 1000 - (System.currentTimeMillis() - tickStart)));
+            }
+            return sent;
+        } finally {
+            for (SocketChannel channel : channels) {
+                channel.close();
+            }
+        }
+    }
+
+    private static long runUdp(InetSocketAddress address, int probes, int ratePerProbe, int seconds, int lands) throws IOException, InterruptedException {
+        try (DatagramChannel channel = DatagramChannel.open()) {
+            long sent = 0;
+            long end = System.currentTimeMillis() + seconds * 1000L;
+            while (System.currentTimeMillis() < end) {
+                long tickStart = System.currentTimeMillis();
+                for (int probe = 0; probe < probes; probe++) {
+                    channel.send(ByteBuffer.wrap(randomLines(1 + probe % lands, ratePerProbe)), address);
+                    sent += ratePerProbe;
+                }
+                Thread.sleep(Math.max(0, 1000 - (System.currentTimeMillis() - tickStart)));
+            }
+            return sent;
+        }
+    }
+
+    private static byte[] randomLines(int landId, int count) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder lines = new StringBuilder(count * 32);
+        for (int i = 0; i < count; i++) {
+            lines.append(landId).append(',')
+                    .append(Math.round((15 + random.nextDouble() * 20) * 100) / 100.0).append(',')
+                    .append(Math.round((20 + random.nextDouble() * 60) * 100) / 100.0).append(',')
+                    .append(Math.round((5 + random.nextDouble() * 3) * 10) / 10.0).append('\n');
+        }
+        return lines.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+}
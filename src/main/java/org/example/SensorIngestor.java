@@ -0,0 +1,260 @@
+package org.example;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// High-throughput entry point for sensor readings.
+// Any number of threads can submit readings; a single writer thread coalesces them into JDBC batch
+// inserts of up to maxBatchSize rows, waiting at most flushIntervalMillis for a batch to fill up.
+// Each batch is committed in one transaction (group commit).
+public class SensorIngestor implements SensorSink, AutoCloseable {
+    static final String INSERT_SQL =
+            "INSERT INTO sensors (land_id, temperature, soil_moisture, ph, timestamp) VALUES (?, ?, ?, ?, ?)";
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final BlockingQueue<SensorReading> queue;
+    private final int queueCapacity;
+    private final int maxBatchSize;
+    private final long flushIntervalMillis;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    // Counters
+    private final long startedAt = System.nanoTime();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final AtomicLong inserted = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    // Readings the database refused for a data error; also counted in failed
+    private final LongAdder refused = new LongAdder();
+    private volatile String lastRefusal;
+    private final LongAdder batches = new LongAdder();
+    private volatile long lastBatchSize;
+    private volatile long lastBatchNanos;
+
+    // Creates an ingestor configured from -Dsmartagri.ingest.* system properties
+    public SensorIngestor() {
+        this(Integer.getInteger("smartagri.ingest.queueCapacity", 100_000),
+                Integer.getInteger("smartagri.ingest.batchSize", 1_000),
+                Long.getLong("smartagri.ingest.flushIntervalMillis", 50L));
+    }
+
+    public SensorIngestor(int queueCapacity, int maxBatchSize, long flushIntervalMillis) {
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.queueCapacity = queueCapacity;
+        this.maxBatchSize = maxBatchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.writer = new Thread(this::writeLoop, "sensor-ingestor");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Queues a reading without blocking; returns false if the queue is full
+    @Override
+    public boolean offer(SensorReading reading) {
+        if (running && queue.offer(reading)) {
+            submitted.increment();
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    // Queues a reading, blocking while the queue is full
+    @Override
+    public void submit(SensorReading reading) throws InterruptedException {
+        if (!running) {
+            throw new IllegalStateException("Sensor ingestor is closed");
+        }
+        queue.put(reading);
+        submitted.increment();
+    }
+
+    // Blocks until every reading submitted before this call has been written or given up on
+    public void flush() throws InterruptedException {
+        long target = submitted.sum();
+        synchronized (this) {
+            while (inserted.get() + failed.get() < target && writer.isAlive()) {
+                wait(flushIntervalMillis);
+            }
+        }
+    }
+
+    public int queueDepth() {
+        return queue.size();
+    }
+
+    @Override
+    public long backlog() {
+        return queue.size();
+    }
+
+    @Override
+    public long capacity() {
+        return queueCapacity;
+    }
+
+    public IngestorStats stats() {
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+        long insertedRows = inserted.get();
+        return new IngestorStats(submitted.sum(), rejected.sum(), insertedRows, failed.get(), refused.sum(),
+                batches.sum(), queue.size(), lastBatchSize, lastBatchNanos, seconds > 0 ? insertedRows / seconds : 0,
+                lastRefusal);
+    }
+
+    private void writeLoop() {
+        List<SensorReading> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                SensorReading first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Let the batch fill up for at most one flush interval after its first reading
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    SensorReading next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                writeWithRetry(batch);
+            } catch (InterruptedException e) {
+                // Interrupted: stop taking new readings but keep draining what is already queued
+                running = false;
+            } finally {
+                batch.clear();
+                synchronized (this) {
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    // Writes the batch, retrying with backoff only while the database is unreachable or the transaction was
+    // rolled back for a transient reason. A batch refused for a data error (e.g. a reading for a deleted land)
+    // is written row by row so only the bad readings are given up on.
+    private void writeWithRetry(List<SensorReading> batch) throws InterruptedException {
+        int next = 0; // First reading neither written nor given up on
+        boolean rowByRow = false;
+        for (int attempt = 1; ; attempt++) {
+            long start = System.nanoTime();
+            try (Connection connection = DatabaseConnection.getConnection()) {
+                if (!rowByRow) {
+                    try {
+                        insertBatch(connection, batch);
+                        inserted.addAndGet(batch.size());
+                        next = batch.size();
+                    } catch (SQLException e) {
+                        if (!SensorJournal.isDataError(e)) {
+                            throw e;
+                        }
+                        rowByRow = true;
+                    }
+                }
+                for (; next < batch.size(); next++) {
+                    SensorReading reading = batch.get(next);
+                    try {
+                        insertBatch(connection, List.of(reading));
+                        inserted.incrementAndGet();
+                    } catch (SQLException e) {
+                        if (!SensorJournal.isDataError(e)) {
+                            throw e;
+                        }
+                        lastRefusal = reading + ": " + e.getMessage();
+                        refused.increment();
+                        failed.incrementAndGet();
+                    }
+                }
+                lastBatchNanos = System.nanoTime() - start;
+                lastBatchSize = batch.size();
+                batches.increment();
+                return;
+            } catch (SQLException e) {
+                if (attempt == MAX_ATTEMPTS || !isTransient(e)) {
+                    e.printStackTrace();
+                    failed.addAndGet(batch.size() - next);
+                    return;
+                }
+                try {
+                    Thread.sleep(100L << attempt);
+                } catch (InterruptedException interrupted) {
+                    // Shutting down: give up on the rest of the batch, counted, rather than retry it
+                    e.printStackTrace();
+                    failed.addAndGet(batch.size() - next);
+                    throw interrupted;
+                }
+            }
+        }
+    }
+
+    // Connection failures, timeouts and deadlock rollbacks; the same insert may succeed when retried
+    private static boolean isTransient(SQLException e) {
+        return e instanceof SQLTransientException || SensorJournal.isConnectionError(e);
+    }
+
+    // Inserts the readings as one JDBC batch in a single transaction
+    static void insertBatch(Connection connection, List<SensorReading> batch) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Diagnostics.QueryTimer timer = Diagnostics.query("sensors.insertBatch");
+             PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+            timer.rows(batch.size());
+            for (SensorReading reading : batch) {
+                statement.setInt(1, reading.landId());
+                statement.setDouble(2, reading.temperature());
+                statement.setDouble(3, reading.soilMoisture());
+                statement.setDouble(4, reading.ph());
+                statement.setTimestamp(5, new Timestamp(reading.timestampMillis()));
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            connection.commit();
+        } catch (SQLException | RuntimeException | Error e) {
+            // Restoring autocommit below would commit the rows already sent
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    // Stops accepting readings and waits for the queued ones to be written
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        writer.join();
+    }
+
+    // Ingestion counters; throughput is inserted rows per second since the ingestor started. refused counts the
+    // failed readings the database turned down for a data error, the last of them in lastRefusal (null if none).
+    public record IngestorStats(long submitted, long rejected, long inserted, long failed, long refused, long batches,
+                                int queueDepth, long lastBatchSize, long lastBatchNanos, double rowsPerSecond,
+                                String lastRefusal) {
+        @Override
+        public String toString() {
+            return String.format("submitted=%d, rejected=%d, inserted=%d, failed=%d, refused=%d, batches=%d, queueDepth=%d, "
+                            + "lastBatch=%d rows in %.1f ms, throughput=%.0f rows/s",
+                    submitted, rejected, inserted, failed, refused, batches, queueDepth,
+                    lastBatchSize, lastBatchNanos / 1e6, rowsPerSecond)
+                    + (lastRefusal == null ? "" : ", last refused " + lastRefusal);
+        }
+    }
+}
@@ -0,0 +1,606 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+// Local write-ahead journal for sensor readings, so readings survive a slow or unavailable database.
+// Readings are appended to memory-mapped segment files as fixed-width records and made durable by a
+// sync thread that forces the active segment every syncIntervalMillis (one fsync covers every reading
+// appended since the last one). A replayer thread drains the journal into sensors in batches and
+// records how far it got in a checkpoint file; fully replayed segments are deleted.
+// On startup the segments are scanned for the last valid record, so a crash loses at most the readings
+// appended after the last sync, and replay resumes from the checkpoint. A batch that was inserted just
+// before a crash but not yet checkpointed is inserted again (at-least-once). Appending continues in the
+// last segment when it ended cleanly and has room; after a torn record it starts a new one.
+//
+// Record layout (40 bytes, big-endian): land_id int, temperature double, soil_moisture double, ph double,
+// timestamp_millis long, CRC32C of the preceding 36 bytes. Unwritten space is zeros and fails the CRC.
+public class SensorJournal implements SensorSink, AutoCloseable {
+    static final int RECORD_SIZE = 40;
+    private static final int CRC_OFFSET = 36;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final long MAX_RETRY_DELAY_MILLIS = 5_000;
+    private static final long IDLE_POLL_MILLIS = 20;
+
+    private final Path directory;
+    private final int segmentRecords;
+    private final long maxRecords;
+    private final long syncIntervalMillis;
+    private final int replayBatchSize;
+    private final BatchInserter inserter;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private final Thread syncThread;
+    private final Thread replayThread;
+    private volatile boolean running = true;
+
+    // Guarded by this
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final ByteBuffer scratch = ByteBuffer.allocate(RECORD_SIZE);
+    private final CRC32C crc = new CRC32C();
+    private Segment active;
+    private long appendedSequence;
+    private long durableSequence;
+
+    // Replayer position, only touched by the replay thread after startup
+    private long checkpointSegment;
+    private int checkpointOffset;
+
+    // Counters
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong refused = new AtomicLong();
+    private final AtomicLong syncs = new AtomicLong();
+    private volatile long backlogAtStart;
+    private volatile boolean databaseDown;
+
+    // Opens the journal with the smartagri.journal.* settings
+    public static SensorJournal open(Path directory) throws IOException {
+        return new SensorJournal(directory,
+                Integer.getInteger("smartagri.journal.segmentBytes", 64 * 1024 * 1024),
+                Long.getLong("smartagri.journal.maxBytes", 4L * 1024 * 1024 * 1024),
+                Long.getLong("smartagri.journal.syncIntervalMillis", 10L),
+                Integer.getInteger("smartagri.journal.replayBatchSize", 1_000));
+    }
+
+    // Base directory for journals; every process gets its own sub-directory
+    public static Path baseDirectory() {
+        return Path.of(System.getProperty("smartagri.journal.dir", "sensor-journal"));
+    }
+
+    // Journal for readings entered in the desktop panels, opened on first use
+    private static SensorJournal desktop;
+
+    private static synchronized SensorJournal desktop() throws IOException {
+        if (desktop == null) {
+            desktop = open(baseDirectory().resolve("desktop"));
+        }
+        return desktop;
+    }
+
+    // Stores a reading the desktop couldn't insert and waits for it to reach the disk; false if that failed
+    public static boolean appendDesktop(SensorReading reading) {
+        try {
+            SensorJournal journal = desktop();
+            long sequence = journal.append(reading);
+            if (sequence < 0) {
+                return false;
+            }
+            journal.awaitDurable(sequence);
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // Statistics of the desktop journal; null if this session never opened it
+    public static synchronized JournalStats desktopStats() {
+        return desktop == null ? null : desktop.stats();
+    }
+
+    // Startup: resumes replaying readings a previous desktop session left in its journal
+    public static void resumeDesktop() {
+        if (Files.isDirectory(baseDirectory().resolve("desktop"))) {
+            try {
+                desktop();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // Where replayed readings go; one transaction per call
+    @FunctionalInterface
+    interface BatchInserter {
+        void insertBatch(List<SensorReading> readings) throws SQLException;
+    }
+
+    public SensorJournal(Path directory, int segmentBytes, long maxBytes, long syncIntervalMillis, int replayBatchSize)
+            throws IOException {
+        this(directory, segmentBytes, maxBytes, syncIntervalMillis, replayBatchSize, Repositories.sensors()::insertBatch);
+    }
+
+    SensorJournal(Path directory, int segmentBytes, long maxBytes, long syncIntervalMillis, int replayBatchSize,
+                  BatchInserter inserter) throws IOException {
+        this.directory = directory;
+        this.inserter = inserter;
+        this.segmentRecords = segmentBytes / RECORD_SIZE;
+        this.maxRecords = maxBytes / RECORD_SIZE;
+        this.syncIntervalMillis = syncIntervalMillis;
+        this.replayBatchSize = replayBatchSize;
+
+        Files.createDirectories(directory);
+        lockChannel = FileChannel.open(directory.resolve("lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        lock = lockChannel.tryLock();
+        if (lock == null) {
+            lockChannel.close();
+            throw new IOException("Journal " + directory + " is in use by another process");
+        }
+        recover();
+
+        syncThread = new Thread(this::syncLoop, "sensor-journal-sync");
+        syncThread.setDaemon(true);
+        syncThread.start();
+        replayThread = new Thread(this::replayLoop, "sensor-journal-replay");
+        replayThread.setDaemon(true);
+        replayThread.start();
+    }
+
+    // Appends a reading and returns its sequence number; it is durable once awaitDurable(sequence) returns.
+    // Returns -1 if the journal is full.
+    public long append(SensorReading reading) throws IOException {
+        synchronized (this) {
+            if (backlog() >= maxRecords) {
+                refused.incrementAndGet();
+                return -1;
+            }
+            if (active.writePosition + RECORD_SIZE > active.buffer.capacity()) {
+                roll();
+            }
+            scratch.clear();
+            scratch.putInt(reading.landId())
+                    .putDouble(reading.temperature())
+                    .putDouble(reading.soilMoisture())
+                    .putDouble(reading.ph())
+                    .putLong(reading.timestampMillis());
+            crc.reset();
+            crc.update(scratch.array(), 0, CRC_OFFSET);
+            scratch.putInt((int) crc.getValue());
+            active.buffer.put(active.writePosition, scratch, 0, RECORD_SIZE);
+            // Publishes the record to the replayer
+            active.writePosition += RECORD_SIZE;
+            appended.incrementAndGet();
+            return ++appendedSequence;
+        }
+    }
+
+    // Waits until the reading with the given sequence number has been forced to disk
+    public synchronized void awaitDurable(long sequence) throws InterruptedException {
+        while (durableSequence < sequence && running) {
+            wait();
+        }
+    }
+
+    @Override
+    public boolean offer(SensorReading reading) {
+        try {
+            return append(reading) >= 0;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    // Appends a reading, waiting while the journal is full. Doesn't wait for the fsync: the
+    // gateway can't acknowledge a reading anyway, so batching the fsyncs costs nothing.
+    @Override
+    public void submit(SensorReading reading) throws InterruptedException {
+        while (!offer(reading)) {
+            Thread.sleep(IDLE_POLL_MILLIS);
+        }
+    }
+
+    @Override
+    public long backlog() {
+        return backlogAtStart + appended.get() - replayed.get() - rejected.get();
+    }
+
+    @Override
+    public long capacity() {
+        return maxRecords;
+    }
+
+    public JournalStats stats() {
+        int segmentCount;
+        synchronized (this) {
+            segmentCount = segments.size();
+        }
+        return new JournalStats(appended.get(), replayed.get(), rejected.get(), refused.get(), syncs.get(),
+                backlog(), segmentCount, databaseDown);
+    }
+
+    // Seals the active segment and starts a new one
+    private void roll() throws IOException {
+        active.buffer.force();
+        active.sealed = true;
+        durableSequence = appendedSequence;
+        notifyAll();
+        active = createSegment(active.id + 1);
+    }
+
+    private Segment createSegment(long id) throws IOException {
+        Path path = directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+        Segment segment = new Segment(id, path, map(path, (long) segmentRecords * RECORD_SIZE));
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private static MappedByteBuffer map(Path path, long size) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            if (file.length() < size) {
+                file.setLength(size);
+            }
+            // The mapping stays valid after the channel is closed
+            return file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, file.length());
+        }
+    }
+
+    // Startup: finds the end of every segment and the replay checkpoint
+    private void recover() throws IOException {
+        List<Path> paths;
+        try (Stream<Path> files = Files.list(directory)) {
+            paths = files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted().toList();
+        }
+        readCheckpoint();
+
+        long records = 0;
+        for (Path path : paths) {
+            String name = path.getFileName().toString();
+            long id = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            if (id < checkpointSegment) {
+                // Replayed before the crash but not deleted yet
+                Files.deleteIfExists(path);
+                continue;
+            }
+            Segment segment = new Segment(id, path, map(path, Files.size(path)));
+            segment.writePosition = scanEnd(segment.buffer);
+            segment.sealed = true;
+            segments.put(id, segment);
+            records += segment.writePosition / RECORD_SIZE;
+            if (id == checkpointSegment) {
+                records -= Math.min(checkpointOffset, segment.writePosition) / RECORD_SIZE;
+            }
+        }
+        backlogAtStart = records;
+
+        if (segments.isEmpty()) {
+            active = createSegment(Math.max(checkpointSegment, 1));
+            if (checkpointSegment == 0) {
+                checkpointSegment = active.id;
+            }
+        } else {
+            Segment last = segments.lastEntry().getValue();
+            if (last.writePosition + RECORD_SIZE <= last.buffer.capacity() && zeroFrom(last.buffer, last.writePosition)
+                    && (last.id != checkpointSegment || checkpointOffset <= last.writePosition)) {
+                // Ended cleanly with room left: keep appending to it rather than mapping another full segment
+                last.sealed = false;
+                active = last;
+            } else {
+                // Never append after a torn record: readings after it would be unreachable
+                active = createSegment(segments.lastKey() + 1);
+            }
+            if (checkpointSegment < segments.firstKey()) {
+                checkpointSegment = segments.firstKey();
+                checkpointOffset = 0;
+            }
+        }
+        if (records > 0) {
+            System.out.println("Sensor journal " + directory + ": recovered " + records + " readings to replay.");
+        }
+    }
+
+    // Returns the offset just past the last valid record
+    private int scanEnd(ByteBuffer buffer) {
+        byte[] record = new byte[RECORD_SIZE];
+        int position = 0;
+        while (position + RECORD_SIZE <= buffer.capacity()) {
+            buffer.get(position, record, 0, RECORD_SIZE);
+            crc.reset();
+            crc.update(record, 0, CRC_OFFSET);
+            if ((int) crc.getValue() != ByteBuffer.wrap(record).getInt(CRC_OFFSET)) {
+                break;
+            }
+            position += RECORD_SIZE;
+        }
+        return position;
+    }
+
+    // True if nothing was ever written from position to the end of the buffer
+    private static boolean zeroFrom(ByteBuffer buffer, int position) {
+        int end = buffer.capacity();
+        for (; position + Long.BYTES <= end; position += Long.BYTES) {
+            if (buffer.getLong(position) != 0) {
+                return false;
+            }
+        }
+        for (; position < end; position++) {
+            if (buffer.get(position) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void readCheckpoint() throws IOException {
+        Path path = directory.resolve("checkpoint");
+        if (Files.exists(path)) {
+            ByteBuffer checkpoint = ByteBuffer.wrap(Files.readAllBytes(path));
+            checkpointSegment = checkpoint.getLong();
+            checkpointOffset = checkpoint.getInt();
+        }
+    }
+
+    // Written to a temporary file and renamed so a crash leaves either the old or the new checkpoint
+    private void writeCheckpoint() throws IOException {
+        Path temporary = directory.resolve("checkpoint.tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.allocate(12).putLong(checkpointSegment).putInt(checkpointOffset).flip());
+            channel.force(false);
+        }
+        Files.move(temporary, directory.resolve("checkpoint"), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void syncLoop() {
+        while (running) {
+            try {
+                Thread.sleep(syncIntervalMillis);
+            } catch (InterruptedException e) {
+                break;
+            }
+            sync();
+        }
+        sync();
+    }
+
+    private void sync() {
+        Segment segment;
+        long sequence;
+        synchronized (this) {
+            if (durableSequence == appendedSequence) {
+                return;
+            }
+            segment = active;
+            sequence = appendedSequence;
+        }
+        // Forced outside the lock so appends continue meanwhile; a roll forces its old segment itself
+        segment.buffer.force();
+        syncs.incrementAndGet();
+        synchronized (this) {
+            if (sequence > durableSequence) {
+                durableSequence = sequence;
+            }
+            notifyAll();
+        }
+    }
+
+    private void replayLoop() {
+        List<SensorReading> batch = new ArrayList<>(replayBatchSize);
+        byte[] record = new byte[RECORD_SIZE];
+        CRC32C replayCrc = new CRC32C();
+        long retryDelay = 100;
+        while (running || backlog() > 0) {
+            Segment segment;
+            int limit;
+            boolean sealed;
+            synchronized (this) {
+                Map.Entry<Long, Segment> entry = segments.ceilingEntry(checkpointSegment);
+                segment = entry.getValue();
+                if (segment.id != checkpointSegment) {
+                    checkpointSegment = segment.id;
+                    checkpointOffset = 0;
+                }
+                limit = segment.writePosition;
+                sealed = segment.sealed;
+            }
+
+            if (checkpointOffset >= limit) {
+                if (sealed) {
+                    finishSegment(segment);
+                    continue;
+                }
+                if (!running) {
+                    break;
+                }
+                sleepQuietly(IDLE_POLL_MILLIS);
+                continue;
+            }
+
+            int end = Math.min(limit, checkpointOffset + replayBatchSize * RECORD_SIZE);
+            int next = end;
+            for (int position = checkpointOffset; position < end; position += RECORD_SIZE) {
+                segment.buffer.get(position, record, 0, RECORD_SIZE);
+                ByteBuffer view = ByteBuffer.wrap(record);
+                replayCrc.reset();
+                replayCrc.update(record, 0, CRC_OFFSET);
+                if ((int) replayCrc.getValue() != view.getInt(CRC_OFFSET)) {
+                    // Only possible after disk corruption; the rest of the segment can't be trusted
+                    System.out.println("Sensor journal: corrupt record in " + segment.path + " at " + position
+                            + ", skipping the rest of the segment");
+                    rejected.addAndGet((limit - position) / RECORD_SIZE);
+                    next = limit;
+                    break;
+                }
+                batch.add(new SensorReading(view.getInt(0), view.getDouble(4), view.getDouble(12),
+                        view.getDouble(20), view.getLong(28)));
+            }
+
+            try {
+                int rejectedRows = insert(batch);
+                checkpointOffset = next;
+                writeCheckpoint();
+                replayed.addAndGet(batch.size() - rejectedRows);
+                rejected.addAndGet(rejectedRows);
+                if (databaseDown) {
+                    System.out.println("Sensor journal: database is back, replaying " + backlog() + " readings.");
+                }
+                databaseDown = false;
+                retryDelay = 100;
+            } catch (SQLException e) {
+                if (!databaseDown) {
+                    System.out.println("Sensor journal: database unavailable (" + e.getMessage()
+                            + "), holding readings until it is back.");
+                }
+                databaseDown = true;
+                sleepQuietly(retryDelay);
+                retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY_MILLIS);
+            } catch (IOException e) {
+                e.printStackTrace();
+                sleepQuietly(retryDelay);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Inserts a replayed batch and returns how many readings the database refused.
+    // A batch refused for a data error (e.g. a reading for a deleted land) is retried row by row so one
+    // bad reading doesn't hold up the whole journal; connection errors are thrown to retry later.
+    private int insert(List<SensorReading> batch) throws SQLException {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        try {
+            inserter.insertBatch(batch);
+            return 0;
+        } catch (SQLException e) {
+            if (!isDataError(e)) {
+                throw e;
+            }
+        }
+        int refusedRows = 0;
+        for (SensorReading reading : batch) {
+            try {
+                inserter.insertBatch(List.of(reading));
+            } catch (SQLException e) {
+                if (!isDataError(e)) {
+                    throw e;
+                }
+                System.out.println("Sensor journal: dropped reading " + reading + ": " + e.getMessage());
+                refusedRows++;
+            }
+        }
+        return refusedRows;
+    }
+
+    // SQLState class 22 (data exception) or 23 (integrity constraint violation)
+    static boolean isDataError(SQLException e) {
+        String state = e.getSQLState();
+        return state != null && (state.startsWith("22") || state.startsWith("23"));
+    }
+
+    // SQLState class 08 (connection exception) or a driver's connection-class exception; only these
+    // are worth journaling, since the insert can succeed once the database is reachable again
+    static boolean isConnectionError(SQLException e) {
+        if (e instanceof SQLTransientConnectionException || e instanceof SQLRecoverableException) {
+            return true;
+        }
+        String state = e.getSQLState();
+        return state != null && state.startsWith("08");
+    }
+
+    private void finishSegment(Segment segment) {
+        synchronized (this) {
+            if (segment == active) {
+                return;
+            }
+            segments.remove(segment.id);
+            checkpointSegment = segments.ceilingKey(segment.id);
+            checkpointOffset = 0;
+        }
+        try {
+            writeCheckpoint();
+            // The mapping itself is released when the buffer is garbage collected
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Stops accepting readings, syncs what was appended and gives the replayer a moment to catch up.
+    // Anything not replayed yet stays in the journal for the next start.
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        syncThread.join();
+        synchronized (this) {
+            notifyAll();
+        }
+        replayThread.join(MAX_RETRY_DELAY_MILLIS);
+        try {
+            lock.release();
+            lockChannel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static final class Segment {
+        final long id;
+        final Path path;
+        final MappedByteBuffer buffer;
+        volatile int writePosition;
+        volatile boolean sealed;
+
+        Segment(long id, Path path, MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.buffer = buffer;
+        }
+    }
+
+    public record JournalStats(long appended, long replayed, long rejected, long refused, long syncs,
+                               long backlog, int segments, boolean databaseDown) {
+        @Override
+        public String toString() {
+            return String.format("appended=%d, replayed=%d, rejected=%d, refused=%d, syncs=%d, backlog=%d, "
+                            + "segments=%d, database=%s",
+                    appended, replayed, rejected, refused, syncs, backlog, segments, databaseDown ? "down" : "up");
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package org.example;
+
+import java.nio.charset.StandardCharsets;
+
+// Parses the gateway's line protocol without allocating strings:
+//   land_id,temperature,soil_moisture,ph[,timestamp_millis]
+// Values are plain decimals (e.g. "12,23.5,41.25,6.8"); the timestamp defaults to the time of arrival.
+// land_id must be in 1..Integer.MAX_VALUE; integers that overflow a long, NaN, infinities and hex floats
+// are malformed.
+public final class SensorLineParser {
+    private int position;
+
+    // Returns the reading encoded in bytes[start, end), or null if the line is malformed
+    public SensorReading parse(byte[] bytes, int start, int end, long receivedAtMillis) {
+        // Tolerate Windows line endings and trailing spaces
+        while (end > start && (bytes[end - 1] == '\r' || bytes[end - 1] == ' ')) {
+            end--;
+        }
+        position = start;
+        try {
+            int landId = parseLandId(bytes, end);
+            double temperature = parseDouble(bytes, end);
+            double soilMoisture = parseDouble(bytes, end);
+            double ph = parseDouble(bytes, end);
+            long timestamp = position < end ? parseLong(bytes, end) : receivedAtMillis;
+            if (position < end) {
+                return null; // Too many fields
+            }
+            return new SensorReading(landId, temperature, soilMoisture, ph, timestamp);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private long parseLong(byte[] bytes, int end) {
+        int fieldEnd = fieldEnd(bytes, end);
+        long value = parseLong(bytes, position, fieldEnd);
+        advance(fieldEnd, end);
+        return value;
+    }
+
+    private int parseLandId(byte[] bytes, int end) {
+        int fieldEnd = fieldEnd(bytes, end);
+        int value = parseLandId(bytes, position, fieldEnd);
+        advance(fieldEnd, end);
+        return value;
+    }
+
+    private double parseDouble(byte[] bytes, int end) {
+        int fieldEnd = fieldEnd(bytes, end);
+        double value = parseDouble(bytes, position, fieldEnd);
+        advance(fieldEnd, end);
+        return value;
+    }
+
+    // Parses the land_id in bytes[start, end); throws NumberFormatException unless it's in 1..Integer.MAX_VALUE
+    static int parseLandId(byte[] bytes, int start, int end) {
+        long value = parseLong(bytes, start, end);
+        if (value < 1 || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException();
+        }
+        return (int) value;
+    }
+
+    // Parses the integer in bytes[start, end); throws NumberFormatException if it isn't one or overflows a long
+    static long parseLong(byte[] bytes, int start, int end) {
+        int i = start;
+        boolean negative = i < end && bytes[i] == '-';
+        if (negative) {
+            i++;
+        }
+        if (i == end) {
+            throw new NumberFormatException();
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10) {
+                throw new NumberFormatException();
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    // Parses the decimal in bytes[start, end); throws NumberFormatException if it isn't a finite one
+    static double parseDouble(byte[] bytes, int start, int end) {
+        int i = start;
+        boolean negative = i < end && bytes[i] == '-';
+        if (negative) {
+            i++;
+        }
+        long mantissa = 0;
+        int scale = 0;
+        int digits = 0;
+        boolean fraction = false;
+        for (; i < end; i++) {
+            byte b = bytes[i];
+            if (b == '.' && !fraction) {
+                fraction = true;
+                continue;
+            }
+            int digit = b - '0';
+            if (digit < 0 || digit > 9 || digits == 18) {
+                // Exponents or very long values: fall back to the JDK parser
+                return parseDecimal(bytes, start, end);
+            }
+            mantissa = mantissa * 10 + digit;
+            digits++;
+            if (fraction) {
+                scale++;
+            }
+        }
+        if (digits == 0) {
+            throw new NumberFormatException();
+        }
+        double value = mantissa / Math.pow(10, scale);
+        return negative ? -value : value;
+    }
+
+    // The JDK parser also reads "NaN", "Infinity", hex floats and a trailing 'd' or 'f'; allow only a plain
+    // decimal with an optional exponent, and no value that overflows to infinity
+    private static double parseDecimal(byte[] bytes, int start, int end) {
+        for (int i = start; i < end; i++) {
+            byte b = bytes[i];
+            if ((b < '0' || b > '9') && b != '.' && b != 'e' && b != 'E' && b != '-' && b != '+') {
+                throw new NumberFormatException();
+            }
+        }
+        double value = Double.parseDouble(new String(bytes, start, end - start, StandardCharsets.US_ASCII));
+        if (!Double.isFinite(value)) {
+            throw new NumberFormatException();
+        }
+        return value;
+    }
+
+    private int fieldEnd(byte[] bytes, int end) {
+        int i = position;
+        while (i < end && bytes[i] != ',') {
+            i++;
+        }
+        return i;
+    }
+
+    // Moves past the field and its separating comma
+    private void advance(int fieldEnd, int end) {
+        position = fieldEnd < end ? fieldEnd + 1 : end;
+    }
+}
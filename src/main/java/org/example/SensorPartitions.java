@@ -0,0 +1,147 @@
+package org.example;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+// Monthly RANGE partitioning of the sensors table (partition p2026_03 holds March 2026) plus a
+// trailing pmax partition. Partitions are kept MONTHS_AHEAD months ahead of the current month.
+final class SensorPartitions {
+    private static final int MONTHS_AHEAD = 3;
+    private static final String MAX_PARTITION = "pmax";
+
+    private SensorPartitions() {
+    }
+
+    // Migration step: converts sensors into a partitioned table
+    static void partitionSensors(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            // Partitioned InnoDB tables can't have foreign keys
+            for (String foreignKey : foreignKeys(connection)) {
+                statement.execute("ALTER TABLE sensors DROP FOREIGN KEY `" + foreignKey + "`");
+            }
+
+            // Every unique key must contain the partitioning column, which therefore can't be NULL
+            statement.execute("UPDATE sensors SET timestamp = CURRENT_TIMESTAMP WHERE timestamp IS NULL");
+            statement.execute("ALTER TABLE sensors MODIFY timestamp TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
+                    + "DROP PRIMARY KEY, ADD PRIMARY KEY (sensor_id, timestamp)");
+
+            YearMonth first = YearMonth.now();
+            try (ResultSet resultSet = statement.executeQuery("SELECT MIN(timestamp) FROM sensors")) {
+                if (resultSet.next() && resultSet.getTimestamp(1) != null) {
+                    first = YearMonth.from(resultSet.getTimestamp(1).toLocalDateTime());
+                }
+            }
+            List<String> partitions = new ArrayList<>();
+            for (YearMonth month = first; !month.isAfter(YearMonth.now().plusMonths(MONTHS_AHEAD)); month = month.plusMonths(1)) {
+                partitions.add(partitionDefinition(month));
+            }
+            partitions.add("PARTITION " + MAX_PARTITION + " VALUES LESS THAN MAXVALUE");
+            statement.execute("ALTER TABLE sensors PARTITION BY RANGE (UNIX_TIMESTAMP(timestamp)) ("
+                    + String.join(", ", partitions) + ")");
+        }
+    }
+
+    // Splits upcoming months out of pmax; a no-op when sensors is not partitioned or already up to date
+    static void addUpcomingPartitions(Connection connection) throws SQLException {
+        YearMonth last = null;
+        String query = "SELECT PARTITION_NAME FROM information_schema.PARTITIONS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'sensors' AND PARTITION_NAME IS NOT NULL";
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(query)) {
+            while (resultSet.next()) {
+                String name = resultSet.getString(1);
+                if (name.matches("p\\d{4}_\\d{2}")) {
+                    YearMonth month = YearMonth.of(Integer.parseInt(name.substring(1, 5)), Integer.parseInt(name.substring(6)));
+                    if (last == null || month.isAfter(last)) {
+                        last = month;
+                    }
+                }
+            }
+        }
+        if (last == null) {
+            return;
+        }
+
+        List<String> partitions = new ArrayList<>();
+        for (YearMonth month = last.plusMonths(1); !month.isAfter(YearMonth.now().plusMonths(MONTHS_AHEAD)); month = month.plusMonths(1)) {
+            partitions.add(partitionDefinition(month));
+        }
+        if (partitions.isEmpty()) {
+            return;
+        }
+        partitions.add("PARTITION " + MAX_PARTITION + " VALUES LESS THAN MAXVALUE");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE sensors REORGANIZE PARTITION " + MAX_PARTITION + " INTO ("
+                    + String.join(", ", partitions) + ")");
+        }
+    }
+
+    // Retention: drops the monthly partitions that end on or before the first day of keepFrom, as long as
+    // all their rows are at or below rolledUpTo and none is still queued (all are in the rollups). Much
+    // cheaper than deleting rows.
+    // Returns the number of partitions dropped; 0 when sensors is not partitioned.
+    static int dropPartitionsBefore(Connection connection, YearMonth keepFrom, int rolledUpTo) throws SQLException {
+        String query = "SELECT PARTITION_NAME FROM information_schema.PARTITIONS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'sensors' AND PARTITION_NAME IS NOT NULL";
+        List<String> expired = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(query)) {
+            while (resultSet.next()) {
+                String name = resultSet.getString(1);
+                if (name.matches("p\\d{4}_\\d{2}")
+                        && YearMonth.of(Integer.parseInt(name.substring(1, 5)), Integer.parseInt(name.substring(6))).isBefore(keepFrom)) {
+                    expired.add(name);
+                }
+            }
+        }
+        int dropped = 0;
+        try (Statement statement = connection.createStatement()) {
+            for (String name : expired) {
+                try (ResultSet resultSet = statement.executeQuery("SELECT MAX(sensor_id) FROM sensors PARTITION (" + name + ")")) {
+                    if (resultSet.next() && resultSet.getInt(1) > rolledUpTo) {
+                        continue; // Not rolled up yet
+                    }
+                }
+                try (ResultSet resultSet = statement.executeQuery("SELECT 1 FROM sensors_rollup_queue q JOIN sensors PARTITION ("
+                        + name + ") s ON s.sensor_id = q.sensor_id LIMIT 1")) {
+                    if (resultSet.next()) {
+                        continue; // Holds a late row that is still queued
+                    }
+                }
+                statement.execute("ALTER TABLE sensors DROP PARTITION " + name);
+                dropped++;
+            }
+        }
+        return dropped;
+    }
+
+    // True while sensors still has its foreign key to lands, i.e. V4 has not run
+    static boolean sensorsReferenceLands(Connection connection) throws SQLException {
+        return !foreignKeys(connection).isEmpty();
+    }
+
+    private static String partitionDefinition(YearMonth month) {
+        // No fractional seconds: the boundary must be an integer like the partitioning expression
+        return String.format("PARTITION p%04d_%02d VALUES LESS THAN (UNIX_TIMESTAMP('%s 00:00:00'))",
+                month.getYear(), month.getMonthValue(), month.plusMonths(1).atDay(1));
+    }
+
+    private static List<String> foreignKeys(Connection connection) throws SQLException {
+        String query = "SELECT CONSTRAINT_NAME FROM information_schema.REFERENTIAL_CONSTRAINTS " +
+                "WHERE CONSTRAINT_SCHEMA = DATABASE() AND TABLE_NAME = 'sensors'";
+        List<String> names = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(query);
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                names.add(resultSet.getString(1));
+            }
+        }
+        return names;
+    }
+}
@@ -0,0 +1,10 @@
+package org.example;
+
+// One probe reading as stored in the sensors table; the timestamp is in epoch millis
+public record SensorReading(int landId, double temperature, double soilMoisture, double ph, long timestampMillis) {
+
+    // A reading taken now
+    public static SensorReading now(int landId, double temperature, double soilMoisture, double ph) {
+        return new SensorReading(landId, temperature, soilMoisture, ph, System.currentTimeMillis());
+    }
+}
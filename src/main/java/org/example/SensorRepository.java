@@ -0,0 +1,64 @@
+package org.example;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+// Data access for the sensors history and the latest reading of every land.
+// Streaming ingestion goes through SensorIngestor; this covers single readings, batches, the paged history,
+// trends and CSV export.
+public interface SensorRepository {
+    // Markers for null land_id and timestamp columns in history rows; null readings are NaN
+    int NULL_LAND_ID = Integer.MIN_VALUE;
+    long NULL_TIMESTAMP = Long.MIN_VALUE;
+
+    // Receives history rows one at a time, without a row object per reading
+    @FunctionalInterface
+    interface RowConsumer {
+        void accept(int sensorId, int landId, double temperature, double soilMoisture, double ph, long timestampMillis);
+    }
+
+    // Receives the points of a trend in time order: raw readings or the averages of rollup buckets
+    @FunctionalInterface
+    interface TrendConsumer {
+        void accept(long timestampMillis, double soilMoisture, double temperature, double ph);
+    }
+
+    // Inserts the reading, updates the land's latest reading and returns the new sensor_id
+    int insert(SensorReading reading) throws SQLException;
+
+    // Inserts the readings in one transaction: all of them or, on an exception, none
+    void insertBatch(List<SensorReading> readings) throws SQLException;
+
+    int count() throws SQLException;
+
+    // Passes over the sensor_ids >= fromSensorId in order, reading only the primary key, and gives every
+    // step-th one, starting with the first, to the consumer; returns how many sensor_ids were passed.
+    // Used to find the first sensor_id of every page of the history in one pass.
+    int scanIds(int fromSensorId, int step, IntConsumer consumer) throws SQLException;
+
+    // Passes up to limit readings with sensor_id >= fromSensorId to the consumer in sensor_id order;
+    // returns how many were passed
+    int readPage(int fromSensorId, int limit, RowConsumer consumer) throws SQLException;
+
+    // Passes every reading, or those of one land and with from <= timestamp < to where these aren't null,
+    // to the consumer in sensor_id order; returns how many were passed
+    long readAll(Integer landId, Timestamp from, Timestamp to, RowConsumer consumer) throws SQLException;
+
+    // The latest reading of every land that has one, ordered by land_id; null values are NaN
+    List<SensorReading> latestReadings() throws SQLException;
+
+    // {first, last} reading time of the land, counting days whose raw readings only survive in the daily
+    // rollups; null if it has none
+    long[] extent(int landId) throws SQLException;
+
+    // True once hourly and daily rollups exist to read trends from
+    boolean rollupsAvailable() throws SQLException;
+
+    // Passes the land's readings with from <= timestamp <= to in time order or, for the HOURLY and DAILY
+    // resolutions, the average of each bucket with from < bucket_start <= to. Stops with
+    // InterruptedException once the calling thread is interrupted, e.g. by a newer trend query.
+    void readTrend(int landId, SensorRollups.Resolution resolution, long from, long to, TrendConsumer consumer)
+            throws SQLException, InterruptedException;
+}
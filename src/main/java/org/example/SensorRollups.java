@@ -0,0 +1,371 @@
+package org.example;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Keeps sensors_hourly and sensors_daily (min, max, sum and count per land and bucket) up to date and
+// trims the raw sensors history.
+//
+// Rollup: a trigger queues every new sensor_id in sensors_rollup_queue, in the inserting transaction. The
+// queued rows are folded in CHUNK_ROWS at a time, each chunk merged into both tables and taken off the queue
+// in one transaction, so a crash never counts a row twice. Auto-increment ids are handed out before commit,
+// so a slow transaction can commit an id below ones already rolled up; it is still in the queue and goes
+// into the next run. A run only takes ids up to the largest sensor_id seen by the previous run, so the
+// chunk's locks stay clear of the inserts at the end of the queue. rollup_state keeps the highest id rolled
+// up, and its row lock keeps two jobs from folding the same chunk.
+//
+// Retention: raw rows older than smartagri.retention.rawDays (0 keeps everything) are deleted only once
+// rolled up, i.e. at or below the high-water mark and no longer queued. Whole monthly partitions are dropped
+// when sensors is partitioned; otherwise rows go in sensor_id ranges of DELETE_BATCH rows with a pause between
+// ranges, so no statement holds row locks for long. Each range ends DELETE_BATCH rows after the previous one
+// and is deleted by primary key, so no statement scans the rows earlier batches already went through. Expired
+// rows are the oldest ids, so the scan stops at the first range with nothing to delete whose last row is
+// inside the horizon.
+// Hourly rollups are kept for smartagri.retention.hourlyDays; daily rollups are kept forever.
+//
+// Run with: java -cp ... org.example.SensorRollups   (one rollup and retention pass)
+public class SensorRollups {
+    private static final int CHUNK_ROWS = Integer.getInteger("smartagri.rollup.chunkRows", 50_000);
+    private static final int DELETE_BATCH = Integer.getInteger("smartagri.retention.batchRows", 5_000);
+    private static final long DELETE_PAUSE_MILLIS = Long.getLong("smartagri.retention.pauseMillis", 200L);
+    private static final int RAW_DAYS = Integer.getInteger("smartagri.retention.rawDays", 0);
+    private static final long SETTLE_MILLIS = 5_000;
+    private static final int HOURLY_DAYS = Integer.getInteger("smartagri.retention.hourlyDays", 730);
+
+    public enum Resolution {
+        RAW(0, null), HOURLY(3_600_000L, "sensors_hourly"), DAILY(86_400_000L, "sensors_daily");
+
+        private final long bucketMillis;
+        private final String table;
+
+        Resolution(long bucketMillis, String table) {
+            this.bucketMillis = bucketMillis;
+            this.table = table;
+        }
+
+        public long bucketMillis() {
+            return bucketMillis;
+        }
+
+        public String table() {
+            return table;
+        }
+    }
+
+    private static final String STATE_QUERY = "SELECT high_water_mark FROM rollup_state WHERE name = 'sensors' FOR UPDATE";
+    private static final String ADVANCE_STATE =
+            "UPDATE rollup_state SET high_water_mark = GREATEST(high_water_mark, ?) WHERE name = 'sensors'";
+    // Last id of the next chunk of queued ids up to ?, locking the chunk and the gaps between its ids
+    private static final String CLAIM_CHUNK = "SELECT MAX(sensor_id) FROM (SELECT sensor_id FROM sensors_rollup_queue "
+            + "WHERE sensor_id <= ? ORDER BY sensor_id LIMIT ? FOR UPDATE) chunk";
+    private static final String DEQUEUE = "DELETE FROM sensors_rollup_queue WHERE sensor_id <= ?";
+
+    // Folds the queued rows with sensor_id <= ? into a rollup table; %1$s is the table, %2$s the bucket expression
+    private static final String MERGE_TEMPLATE = """
+            INSERT INTO %1$s (land_id, bucket_start, reading_count,
+                              temperature_min, temperature_max, temperature_sum,
+                              soil_moisture_min, soil_moisture_max, soil_moisture_sum,
+                              ph_min, ph_max, ph_sum)
+            SELECT s.land_id, s.bucket_start, s.reading_count,
+                   s.temperature_min, s.temperature_max, s.temperature_sum,
+                   s.soil_moisture_min, s.soil_moisture_max, s.soil_moisture_sum,
+                   s.ph_min, s.ph_max, s.ph_sum
+            FROM (SELECT land_id, %2$s AS bucket_start, COUNT(*) AS reading_count,
+                         MIN(temperature) AS temperature_min, MAX(temperature) AS temperature_max, SUM(temperature) AS temperature_sum,
+                         MIN(soil_moisture) AS soil_moisture_min, MAX(soil_moisture) AS soil_moisture_max, SUM(soil_moisture) AS soil_moisture_sum,
+                         MIN(ph) AS ph_min, MAX(ph) AS ph_max, SUM(ph) AS ph_sum
+                  FROM sensors JOIN sensors_rollup_queue q ON q.sensor_id = sensors.sensor_id
+                  WHERE q.sensor_id <= ? AND land_id IS NOT NULL AND timestamp IS NOT NULL
+                  GROUP BY land_id, bucket_start) s
+            ON DUPLICATE KEY UPDATE
+                reading_count = %1$s.reading_count + s.reading_count,
+                temperature_min = LEAST(COALESCE(%1$s.temperature_min, s.temperature_min), COALESCE(s.temperature_min, %1$s.temperature_min)),
+                temperature_max = GREATEST(COALESCE(%1$s.temperature_max, s.temperature_max), COALESCE(s.temperature_max, %1$s.temperature_max)),
+                temperature_sum = COALESCE(%1$s.temperature_sum, 0) + COALESCE(s.temperature_sum, 0),
+                soil_moisture_min = LEAST(COALESCE(%1$s.soil_moisture_min, s.soil_moisture_min), COALESCE(s.soil_moisture_min, %1$s.soil_moisture_min)),
+                soil_moisture_max = GREATEST(COALESCE(%1$s.soil_moisture_max, s.soil_moisture_max), COALESCE(s.soil_moisture_max, %1$s.soil_moisture_max)),
+                soil_moisture_sum = COALESCE(%1$s.soil_moisture_sum, 0) + COALESCE(s.soil_moisture_sum, 0),
+                ph_min = LEAST(COALESCE(%1$s.ph_min, s.ph_min), COALESCE(s.ph_min, %1$s.ph_min)),
+                ph_max = GREATEST(COALESCE(%1$s.ph_max, s.ph_max), COALESCE(s.ph_max, %1$s.ph_max)),
+                ph_sum = COALESCE(%1$s.ph_sum, 0) + COALESCE(s.ph_sum, 0)
+            """;
+    private static final String MERGE_HOURLY = String.format(MERGE_TEMPLATE, "sensors_hourly", "DATE_FORMAT(timestamp, '%Y-%m-%d %H:00:00')");
+    private static final String MERGE_DAILY = String.format(MERGE_TEMPLATE, "sensors_daily", "CAST(DATE(timestamp) AS DATETIME)");
+
+    // Last sensor_id and timestamp of the next range of up to DELETE_BATCH rows after sensor_id ?
+    private static final String RAW_RANGE_END =
+            "SELECT sensor_id, timestamp FROM sensors WHERE sensor_id > ? AND sensor_id <= ? ORDER BY sensor_id LIMIT 1 OFFSET ?";
+    private static final String DELETE_RAW = "DELETE FROM sensors WHERE sensor_id > ? AND sensor_id <= ? AND timestamp < ? "
+            + "AND NOT EXISTS (SELECT 1 FROM sensors_rollup_queue q WHERE q.sensor_id = sensors.sensor_id)";
+    private static final String DELETE_HOURLY = "DELETE FROM sensors_hourly WHERE bucket_start < ? LIMIT ?";
+
+    private static SensorRollups desktop;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "sensor-rollups");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Largest sensor_id seen by the previous run; this run rolls up the queued ids up to it
+    private int settledMaxId = -1;
+
+    // Counters
+    private final LongAdder rolledUp = new LongAdder();
+    private final LongAdder rawDeleted = new LongAdder();
+    private final LongAdder hourlyDeleted = new LongAdder();
+    private final LongAdder partitionsDropped = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private volatile int highWaterMark;
+    private volatile long lastRunMillis;
+
+    // Desktop, when -Dsmartagri.rollup.desktop=true: rolls up every smartagri.rollup.intervalSeconds and applies
+    // retention once an hour. Only one instance per database should do this; the rest leave it to that one or
+    // to a scheduled run of main().
+    public static synchronized void startDesktop() {
+        if (desktop == null && Boolean.getBoolean("smartagri.rollup.desktop")) {
+            desktop = new SensorRollups();
+            long interval = Long.getLong("smartagri.rollup.intervalSeconds", 60L);
+            desktop.executor.scheduleWithFixedDelay(desktop::rollUpSafely, 0, interval, TimeUnit.SECONDS);
+            desktop.executor.scheduleWithFixedDelay(desktop::retainSafely, 1, 60, TimeUnit.MINUTES);
+        }
+    }
+
+    // Statistics of the desktop job; null if it isn't running
+    public static synchronized RollupStats desktopStats() {
+        return desktop == null ? null : desktop.stats();
+    }
+
+    public RollupStats stats() {
+        return new RollupStats(highWaterMark, rolledUp.sum(), rawDeleted.sum(), hourlyDeleted.sum(),
+                partitionsDropped.sum(), failures.sum(), lastRunMillis);
+    }
+
+    private void rollUpSafely() {
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            rollUp(connection);
+        } catch (SQLException e) {
+            failures.increment();
+            e.printStackTrace();
+        }
+    }
+
+    private void retainSafely() {
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            applyRetention(connection);
+        } catch (SQLException | InterruptedException e) {
+            failures.increment();
+            e.printStackTrace();
+        }
+    }
+
+    // Folds every settled queued row into the rollups; returns the rows taken off the queue
+    public long rollUp(Connection connection) throws SQLException {
+        int maxId;
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COALESCE(MAX(sensor_id), 0) FROM sensors")) {
+            resultSet.next();
+            maxId = resultSet.getInt(1);
+        }
+        int target = Math.min(settledMaxId, maxId);
+        settledMaxId = maxId;
+        if (target <= 0) {
+            return 0; // First run: only learn where the ids are
+        }
+
+        long rows = 0;
+        boolean autoCommit = connection.getAutoCommit();
+        int isolation = connection.getTransactionIsolation();
+        // The claim's gap locks keep a late insert out of the chunk until it is dequeued; READ COMMITTED has none
+        connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        connection.setAutoCommit(false);
+        try (Diagnostics.QueryTimer timer = Diagnostics.query("sensors.rollup");
+             PreparedStatement state = connection.prepareStatement(STATE_QUERY);
+             PreparedStatement claim = connection.prepareStatement(CLAIM_CHUNK);
+             PreparedStatement hourly = connection.prepareStatement(MERGE_HOURLY);
+             PreparedStatement daily = connection.prepareStatement(MERGE_DAILY);
+             PreparedStatement dequeue = connection.prepareStatement(DEQUEUE);
+             PreparedStatement advance = connection.prepareStatement(ADVANCE_STATE)) {
+            while (true) {
+                int mark;
+                try (ResultSet resultSet = state.executeQuery()) {
+                    if (!resultSet.next()) {
+                        throw new SQLException("rollup_state has no 'sensors' row; run the schema migrations");
+                    }
+                    mark = resultSet.getInt(1);
+                }
+                // Locking read first, so the merge sees every row committed in the chunk's range
+                int to;
+                claim.setInt(1, target);
+                claim.setInt(2, CHUNK_ROWS);
+                try (ResultSet resultSet = claim.executeQuery()) {
+                    resultSet.next();
+                    to = resultSet.getInt(1);
+                    if (resultSet.wasNull()) {
+                        connection.commit();
+                        highWaterMark = mark;
+                        break;
+                    }
+                }
+                for (PreparedStatement merge : new PreparedStatement[]{hourly, daily}) {
+                    merge.setInt(1, to);
+                    merge.executeUpdate();
+                }
+                dequeue.setInt(1, to);
+                rows += dequeue.executeUpdate();
+                advance.setInt(1, to);
+                advance.executeUpdate();
+                connection.commit();
+                highWaterMark = Math.max(mark, to);
+            }
+            timer.rows(rows);
+        } catch (SQLException | RuntimeException | Error e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+            connection.setTransactionIsolation(isolation);
+        }
+        rolledUp.add(rows);
+        lastRunMillis = System.currentTimeMillis();
+        return rows;
+    }
+
+    // Deletes rolled-up raw rows past the raw horizon and hourly rollups past the hourly horizon
+    public void applyRetention(Connection connection) throws SQLException, InterruptedException {
+        int rolledUpTo;
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT high_water_mark FROM rollup_state WHERE name = 'sensors'")) {
+            rolledUpTo = resultSet.next() ? resultSet.getInt(1) : 0;
+        }
+        if (RAW_DAYS > 0) {
+            LocalDate horizon = LocalDate.now().minusDays(RAW_DAYS);
+            // Whole months first; the rows of the partially expired month are deleted below
+            partitionsDropped.add(SensorPartitions.dropPartitionsBefore(connection, YearMonth.from(horizon), rolledUpTo));
+            rawDeleted.add(deleteRawInRanges(connection, Timestamp.valueOf(horizon.atStartOfDay()), rolledUpTo));
+        }
+        if (HOURLY_DAYS > 0) {
+            try (PreparedStatement delete = connection.prepareStatement(DELETE_HOURLY)) {
+                delete.setTimestamp(1, Timestamp.valueOf(LocalDate.now().minusDays(HOURLY_DAYS).atStartOfDay()));
+                delete.setInt(2, DELETE_BATCH);
+                hourlyDeleted.add(deleteInBatches(delete));
+            }
+        }
+    }
+
+    // Deletes raw rows older than horizon with sensor_id <= rolledUpTo that are no longer queued for the
+    // rollups, one bounded sensor_id range at a time
+    private static long deleteRawInRanges(Connection connection, Timestamp horizon, int rolledUpTo)
+            throws SQLException, InterruptedException {
+        long total = 0;
+        int lastId = 0; // End of the last range deleted
+        try (PreparedStatement rangeEnd = connection.prepareStatement(RAW_RANGE_END);
+             PreparedStatement delete = connection.prepareStatement(DELETE_RAW)) {
+            while (lastId < rolledUpTo) {
+                int endId = rolledUpTo;
+                boolean endExpired = true;
+                rangeEnd.setInt(1, lastId);
+                rangeEnd.setInt(2, rolledUpTo);
+                rangeEnd.setInt(3, DELETE_BATCH - 1);
+                try (ResultSet resultSet = rangeEnd.executeQuery()) {
+                    if (resultSet.next()) {
+                        endId = resultSet.getInt(1);
+                        Timestamp timestamp = resultSet.getTimestamp(2);
+                        endExpired = timestamp == null || timestamp.before(horizon);
+                    }
+                }
+                int deleted;
+                try (Diagnostics.QueryTimer timer = Diagnostics.query("sensors.retention")) {
+                    delete.setInt(1, lastId);
+                    delete.setInt(2, endId);
+                    delete.setTimestamp(3, horizon);
+                    deleted = delete.executeUpdate(); // Auto-commit: each range releases its locks right away
+                    timer.rows(deleted);
+                }
+                total += deleted;
+                lastId = endId;
+                if (deleted == 0 && !endExpired) {
+                    return total; // Past the horizon; a NULL timestamp is never deleted, so it doesn't stop the scan
+                }
+                if (lastId < rolledUpTo) {
+                    Thread.sleep(DELETE_PAUSE_MILLIS);
+                }
+            }
+        }
+        return total;
+    }
+
+    // Runs the limited DELETE until it deletes nothing, pausing between batches to leave room for inserts
+    private static long deleteInBatches(PreparedStatement delete) throws SQLException, InterruptedException {
+        long total = 0;
+        while (true) {
+            int deleted;
+            try (Diagnostics.QueryTimer timer = Diagnostics.query("sensors.retention")) {
+                deleted = delete.executeUpdate(); // Auto-commit: each batch releases its locks right away
+                timer.rows(deleted);
+            }
+            total += deleted;
+            if (deleted < DELETE_BATCH) {
+                return total;
+            }
+            Thread.sleep(DELETE_PAUSE_MILLIS);
+        }
+    }
+
+    // Coarsest resolution that still gives at least one point per bucket of the given width. Raw rows are
+    // only used while rollups are not being maintained or for ranges still inside the raw horizon.
+    public static Resolution resolutionFor(long from, long bucketMillis, boolean rollupsAvailable) {
+        if (!rollupsAvailable) {
+            return Resolution.RAW;
+        }
+        if (bucketMillis >= Resolution.DAILY.bucketMillis()) {
+            return Resolution.DAILY;
+        }
+        if (bucketMillis >= Resolution.HOURLY.bucketMillis()) {
+            return Resolution.HOURLY;
+        }
+        if (RAW_DAYS > 0 && from < System.currentTimeMillis() - RAW_DAYS * 86_400_000L) {
+            return Resolution.HOURLY; // The raw rows are gone
+        }
+        return Resolution.RAW;
+    }
+
+    // True once the rollup job has run at least once against this database
+    public static boolean rollupsAvailable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT high_water_mark FROM rollup_state WHERE name = 'sensors'")) {
+            return resultSet.next() && resultSet.getInt(1) > 0;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        SchemaMigrator.ensureUpToDate();
+        SensorRollups rollups = new SensorRollups();
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            rollups.rollUp(connection);
+            Thread.sleep(SETTLE_MILLIS); // Let inserts in flight commit before rolling up to the ids seen
+            rollups.rollUp(connection);
+            rollups.applyRetention(connection);
+        }
+        System.out.println("Rollups: " + rollups.stats());
+        rollups.executor.shutdown();
+    }
+
+    public record RollupStats(int highWaterMark, long rolledUp, long rawDeleted, long hourlyDeleted,
+                              long partitionsDropped, long failures, long lastRunMillis) {
+        @Override
+        public String toString() {
+            return String.format("highWaterMark=%d, rolledUp=%d, rawDeleted=%d, hourlyDeleted=%d, partitionsDropped=%d, failures=%d",
+                    highWaterMark, rolledUp, rawDeleted, hourlyDeleted, partitionsDropped, failures);
+        }
+    }
+}
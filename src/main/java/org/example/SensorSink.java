@@ -0,0 +1,17 @@
+package org.example;
+
+// Somewhere sensor readings can be handed off to on their way into the sensors table
+public interface SensorSink {
+
+    // Accepts the reading without blocking; returns false if the sink is full
+    boolean offer(SensorReading reading);
+
+    // Accepts the reading, blocking while the sink is full
+    void submit(SensorReading reading) throws InterruptedException;
+
+    // Readings accepted but not yet written to the database
+    long backlog();
+
+    // Backlog at which the sink stops accepting readings
+    long capacity();
+}
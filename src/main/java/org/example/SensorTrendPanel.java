@@ -0,0 +1,309 @@
+package org.example;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+// Moisture, temperature and pH trends of one land.
+// The visible time range is streamed from the SensorRepository, from the raw sensors rows over
+// idx_sensors_land_timestamp or, when a pixel spans an hour or more, from the hourly or daily rollups
+// (see SensorRollups.resolutionFor), and decimated on the fly by TrendDownsampler to about one point per
+// pixel, so painting costs the same for a day or ten years of readings. Mouse wheel zooms around the pointer and dragging pans; after the view settles,
+// only the visible range is queried again at the new resolution. Meanwhile the previous points are
+// stretched onto the new axis.
+public class SensorTrendPanel extends JFrame {
+    private static final int REQUERY_DELAY_MILLIS = 200;
+    private static final long MIN_SPAN_MILLIS = 60_000;
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final JTextField landIdField = new JTextField(6);
+    private final JLabel statusLabel = new JLabel(" ");
+    private final TrendChart chart = new TrendChart();
+    private final AsyncLoader loader = new AsyncLoader();
+    private final Timer requeryTimer = new Timer(REQUERY_DELAY_MILLIS, e -> queryVisibleRange());
+    private final ChangeEventBus.Listener changeListener = this::onChanges;
+
+    // View state, confined to the EDT
+    private int landId = -1;
+    private long extentFrom;
+    private long extentTo;
+    private long viewFrom;
+    private long viewTo;
+    private TrendDownsampler.Series[] series;
+
+    public SensorTrendPanel(Integer initialLandId) {
+        setTitle("Sensor Trends");
+        setSize(1200, 800);
+        setLocationRelativeTo(null);
+        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE); // Close only this panel
+        setLayout(new BorderLayout());
+
+        JPanel topPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 20, 10));
+        topPanel.add(new JLabel("Land ID:"));
+        topPanel.add(landIdField);
+        JButton showButton = new JButton("Show Trends");
+        showButton.addActionListener(e -> showLand());
+        landIdField.addActionListener(e -> showLand());
+        topPanel.add(showButton);
+        JButton resetButton = new JButton("Reset Zoom");
+        resetButton.addActionListener(e -> setView(extentFrom, extentTo));
+        topPanel.add(resetButton);
+        topPanel.add(statusLabel);
+        add(topPanel, BorderLayout.NORTH);
+        add(chart, BorderLayout.CENTER);
+
+        requeryTimer.setRepeats(false);
+        setVisible(true);
+
+        ChangeEventBus.getInstance().subscribe(changeListener);
+        if (initialLandId != null) {
+            landIdField.setText(String.valueOf(initialLandId));
+            showLand();
+        }
+    }
+
+    // Cancels any query still in flight when the window is closed
+    @Override
+    public void dispose() {
+        ChangeEventBus.getInstance().unsubscribe(changeListener);
+        requeryTimer.stop();
+        loader.cancelAll();
+        super.dispose();
+    }
+
+    // Looks up the time range the land has readings for and shows all of it
+    private void showLand() {
+        int land;
+        try {
+            land = Integer.parseInt(landIdField.getText().trim());
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(this, "Please enter a valid land ID.");
+            return;
+        }
+        statusLabel.setText("Loading...");
+        loader.load("extent", () -> queryExtent(land), extent -> {
+            landId = land;
+            series = null;
+            if (extent == null) {
+                statusLabel.setText("Land " + land + " has no sensor readings.");
+                chart.repaint();
+                return;
+            }
+            extentFrom = extent[0];
+            extentTo = Math.max(extent[1], extent[0] + MIN_SPAN_MILLIS);
+            setView(extentFrom, extentTo);
+        }, e -> statusLabel.setText("Failed to load sensor readings."));
+    }
+
+    // New readings of the shown land extend the range; a view that shows the latest readings follows them
+    private void onChanges(List<ChangeEventBus.Change> changes) {
+        for (ChangeEventBus.Change change : changes) {
+            if (change.table() == ChangeEventBus.Table.SENSORS && change.landId() == landId && series != null) {
+                boolean following = viewTo >= extentTo;
+                int land = landId;
+                loader.load("extent", () -> queryExtent(land), extent -> {
+                    if (extent == null) {
+                        return;
+                    }
+                    extentFrom = extent[0];
+                    extentTo = Math.max(extent[1], extent[0] + MIN_SPAN_MILLIS);
+                    if (following) {
+                        long span = viewTo - viewFrom;
+                        setView(extentTo - span, extentTo);
+                    }
+                }, e -> { });
+                return;
+            }
+        }
+    }
+
+    // Shows [from, to] clamped to the land's readings and queries it once the view stops changing
+    private void setView(long from, long to) {
+        long span = Math.min(Math.max(to - from, MIN_SPAN_MILLIS), Math.max(extentTo - extentFrom, MIN_SPAN_MILLIS));
+        from = Math.max(extentFrom, Math.min(from, extentTo - span));
+        viewFrom = from;
+        viewTo = from + span;
+        chart.repaint();
+        requeryTimer.restart();
+    }
+
+    private void queryVisibleRange() {
+        if (landId < 0) {
+            return;
+        }
+        int land = landId;
+        long from = viewFrom;
+        long to = viewTo;
+        int buckets = Math.max(2, chart.plotWidth());
+        long start = System.nanoTime();
+        loader.load("trend", () -> queryTrend(land, from, to, buckets), trend -> {
+            series = trend.downsampler().finish();
+            statusLabel.setText(String.format("%,d %s shown as %,d points (%.0f ms)", trend.downsampler().rows(),
+                    switch (trend.resolution()) {
+                        case RAW -> "readings";
+                        case HOURLY -> "hourly averages";
+                        case DAILY -> "daily averages";
+                    },
+                    series[TrendDownsampler.MOISTURE].size(), (System.nanoTime() - start) / 1e6));
+            chart.repaint();
+        }, e -> statusLabel.setText("Failed to load sensor readings."));
+    }
+
+    // {first, last} reading time of the land; null if it has none
+    private static long[] queryExtent(int landId) throws SQLException {
+        return Repositories.sensors().extent(landId);
+    }
+
+    // Decimated history of one land and the table it was read from
+    private record Trend(TrendDownsampler downsampler, SensorRollups.Resolution resolution) {
+    }
+
+    // Streams the land's history in [from, to] through the downsampler; gives up when the load is superseded.
+    // Wide ranges are read from the hourly or daily rollups, so a pixel never costs more than a few rows.
+    private static Trend queryTrend(int landId, long from, long to, int buckets) throws Exception {
+        TrendDownsampler downsampler = new TrendDownsampler(from, to + 1, buckets);
+        SensorRepository sensors = Repositories.sensors();
+        SensorRollups.Resolution resolution = SensorRollups.resolutionFor(from, (to - from) / buckets,
+                sensors.rollupsAvailable());
+        // A bucket that starts before from still holds readings inside the range
+        sensors.readTrend(landId, resolution, from - resolution.bucketMillis(), to, downsampler::add);
+        return new Trend(downsampler, resolution);
+    }
+
+    private static String formatTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault()).format(TIME_FORMAT);
+    }
+
+    // Three stacked plots sharing the time axis
+    private final class TrendChart extends JComponent {
+        private static final int LEFT = 70;
+        private static final int RIGHT = 20;
+        private static final int TOP = 10;
+        private static final int BOTTOM = 30;
+        private static final String[] LABELS = {"Soil moisture (%)", "Temperature (°C)", "pH"};
+        private static final Color[] COLORS = {new Color(0x1f77b4), new Color(0xd62728), new Color(0x2ca02c)};
+
+        private int dragX = -1;
+        private int[] xs = new int[0];
+        private int[] ys = new int[0];
+
+        private TrendChart() {
+            setBackground(Color.WHITE);
+            setOpaque(true);
+            MouseAdapter mouse = new MouseAdapter() {
+                @Override
+                public void mouseWheelMoved(MouseWheelEvent e) {
+                    if (series == null) {
+                        return;
+                    }
+                    // Zoom around the time under the pointer
+                    double factor = Math.pow(1.25, e.getPreciseWheelRotation());
+                    long pivot = timeAt(e.getX());
+                    long from = pivot - (long) ((pivot - viewFrom) * factor);
+                    long to = pivot + (long) ((viewTo - pivot) * factor);
+                    setView(from, to);
+                }
+
+                @Override
+                public void mousePressed(MouseEvent e) {
+                    dragX = e.getX();
+                }
+
+                @Override
+                public void mouseDragged(MouseEvent e) {
+                    if (series == null || dragX < 0) {
+                        return;
+                    }
+                    long shift = (long) ((double) (dragX - e.getX()) * (viewTo - viewFrom) / plotWidth());
+                    dragX = e.getX();
+                    setView(viewFrom + shift, viewTo + shift);
+                }
+
+                @Override
+                public void mouseReleased(MouseEvent e) {
+                    dragX = -1;
+                }
+            };
+            addMouseListener(mouse);
+            addMouseMotionListener(mouse);
+            addMouseWheelListener(mouse);
+        }
+
+        private int plotWidth() {
+            return Math.max(1, getWidth() - LEFT - RIGHT);
+        }
+
+        private long timeAt(int x) {
+            return viewFrom + (long) ((double) (x - LEFT) * (viewTo - viewFrom) / plotWidth());
+        }
+
+        @Override
+        protected void paintComponent(Graphics graphics) {
+            Graphics2D g = (Graphics2D) graphics.create();
+            g.setColor(getBackground());
+            g.fillRect(0, 0, getWidth(), getHeight());
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setColor(Color.GRAY);
+            if (series == null) {
+                g.drawString(landId < 0 ? "Enter a land ID to show its trends." : "", LEFT, TOP + 20);
+                g.dispose();
+                return;
+            }
+            int width = plotWidth();
+            int bandHeight = (getHeight() - TOP - BOTTOM) / series.length;
+            for (int metric = 0; metric < series.length; metric++) {
+                paintSeries(g, series[metric], LABELS[metric], COLORS[metric], TOP + metric * bandHeight, bandHeight - 10, width);
+            }
+            g.setColor(Color.DARK_GRAY);
+            int axisY = getHeight() - BOTTOM + 18;
+            g.drawString(formatTime(viewFrom), LEFT, axisY);
+            String end = formatTime(viewTo);
+            g.drawString(end, LEFT + width - g.getFontMetrics().stringWidth(end), axisY);
+            g.dispose();
+        }
+
+        private void paintSeries(Graphics2D g, TrendDownsampler.Series points, String label, Color color,
+                                 int top, int height, int width) {
+            g.setColor(new Color(0xf4f4f4));
+            g.fillRect(LEFT, top, width, height);
+            g.setColor(Color.DARK_GRAY);
+            g.drawString(label, LEFT + 5, top + 15);
+            if (points.size() == 0) {
+                return;
+            }
+            double min = points.min();
+            double max = points.max();
+            if (max - min < 1e-9) {
+                min -= 1;
+                max += 1;
+            }
+            g.drawString(String.format("%.1f", max), 5, top + 12);
+            g.drawString(String.format("%.1f", min), 5, top + height);
+
+            // At most about two points per pixel whatever the length of the history
+            if (xs.length < points.size()) {
+                xs = new int[points.size()];
+                ys = new int[points.size()];
+            }
+            double xScale = (double) width / (viewTo - viewFrom);
+            double yScale = height / (max - min);
+            for (int i = 0; i < points.size(); i++) {
+                xs[i] = LEFT + (int) Math.round((points.time(i) - viewFrom) * xScale);
+                ys[i] = top + height - (int) Math.round((points.value(i) - min) * yScale);
+            }
+            Shape clip = g.getClip();
+            g.clipRect(LEFT, top, width, height);
+            g.setColor(color);
+            g.drawPolyline(xs, ys, points.size());
+            g.setClip(clip);
+        }
+    }
+}
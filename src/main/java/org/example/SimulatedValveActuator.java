@@ -0,0 +1,71 @@
+package org.example;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// ValveActuator without hardware: remembers which valves are open and the last MAX_COMMANDS commands it
+// received, so a long-running desktop or headless executor doesn't grow it without bound.
+// failNext() makes the next command throw, to exercise the executor's retries.
+public class SimulatedValveActuator implements ValveActuator {
+    static final int MAX_COMMANDS = 1_000;
+
+    private final Clock clock;
+    private final boolean log;
+    private final Set<Integer> open = new HashSet<>();
+    private final ArrayDeque<Command> commands = new ArrayDeque<>();
+    private int failures;
+
+    // One valve command and when it arrived
+    public record Command(int landId, boolean open, long epochMillis) {
+    }
+
+    public SimulatedValveActuator(Clock clock, boolean log) {
+        this.clock = clock;
+        this.log = log;
+    }
+
+    @Override
+    public synchronized void open(int landId) throws IOException {
+        command(landId, true);
+        open.add(landId);
+    }
+
+    @Override
+    public synchronized void close(int landId) throws IOException {
+        command(landId, false);
+        open.remove(landId);
+    }
+
+    private void command(int landId, boolean opening) throws IOException {
+        if (failures > 0) {
+            failures--;
+            throw new IOException("Simulated valve failure on land " + landId);
+        }
+        if (commands.size() == MAX_COMMANDS) {
+            commands.removeFirst();
+        }
+        commands.addLast(new Command(landId, opening, clock.millis()));
+        if (log) {
+            System.out.println("Valve " + (opening ? "opened" : "closed") + " on land " + landId + " at "
+                    + clock.instant());
+        }
+    }
+
+    // The next count commands fail with an IOException
+    public synchronized void failNext(int count) {
+        failures = count;
+    }
+
+    public synchronized Set<Integer> openValves() {
+        return Set.copyOf(open);
+    }
+
+    // The last MAX_COMMANDS commands, oldest first
+    public synchronized List<Command> commands() {
+        return List.copyOf(commands);
+    }
+}
@@ -0,0 +1,200 @@
+package org.example;
+
+import java.util.Arrays;
+
+// Streaming Largest-Triangle-Three-Buckets decimation of sensor history for the trend charts.
+// The requested time range is cut into equal time buckets (about one per pixel). Readings are added in
+// timestamp order; from each bucket LTTB keeps the reading that forms the largest triangle with the point
+// kept from the previous bucket and the average of the next bucket, which preserves peaks and dips that
+// plain averaging would flatten. Moisture, temperature and pH are decimated independently.
+// Only the current and the next bucket are buffered, so memory depends on the bucket size, not on the
+// length of the history, and the result never has more than buckets + 2 points per metric.
+public class TrendDownsampler {
+    public static final int MOISTURE = 0;
+    public static final int TEMPERATURE = 1;
+    public static final int PH = 2;
+    private static final int METRICS = 3;
+
+    private final long from;
+    private final double bucketMillis;
+    private final Series[] series = new Series[METRICS];
+    private long rows;
+
+    // Points of the bucket being decided (current) and of the one after it (next)
+    private Bucket current = new Bucket();
+    private Bucket next = new Bucket();
+    private boolean first = true;
+    private long lastTime;
+    private final double[] lastValues = new double[METRICS];
+
+    // Decimated points of one metric, in time order
+    public static final class Series {
+        private long[] times = new long[256];
+        private double[] values = new double[256];
+        private int size;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+
+        private void add(long time, double value) {
+            if (size == times.length) {
+                times = Arrays.copyOf(times, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            times[size] = time;
+            values[size] = value;
+            size++;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public long time(int index) {
+            return times[index];
+        }
+
+        public double value(int index) {
+            return values[index];
+        }
+
+        public double min() {
+            return min;
+        }
+
+        public double max() {
+            return max;
+        }
+    }
+
+    private static final class Bucket {
+        private long index = -1;
+        private long[] times = new long[64];
+        private double[][] values = new double[METRICS][64];
+        private double[] sums = new double[METRICS];
+        private int size;
+
+        private void add(long time, double moisture, double temperature, double ph) {
+            if (size == times.length) {
+                times = Arrays.copyOf(times, size * 2);
+                for (int metric = 0; metric < METRICS; metric++) {
+                    values[metric] = Arrays.copyOf(values[metric], size * 2);
+                }
+            }
+            times[size] = time;
+            values[MOISTURE][size] = moisture;
+            values[TEMPERATURE][size] = temperature;
+            values[PH][size] = ph;
+            sums[MOISTURE] += moisture;
+            sums[TEMPERATURE] += temperature;
+            sums[PH] += ph;
+            size++;
+        }
+
+        private void reset(long index) {
+            this.index = index;
+            size = 0;
+            Arrays.fill(sums, 0);
+        }
+
+        private double averageTime() {
+            double sum = 0;
+            for (int i = 0; i < size; i++) {
+                sum += times[i];
+            }
+            return sum / size;
+        }
+    }
+
+    // Decimates readings in [from, to) to about the given number of buckets
+    public TrendDownsampler(long from, long to, int buckets) {
+        this.from = from;
+        this.bucketMillis = Math.max(1.0, (double) (to - from) / Math.max(1, buckets));
+        for (int metric = 0; metric < METRICS; metric++) {
+            series[metric] = new Series();
+        }
+    }
+
+    // Adds the next reading; timestamps must not decrease
+    public void add(long time, double moisture, double temperature, double ph) {
+        rows++;
+        if (first) {
+            // LTTB always keeps the first point
+            first = false;
+            series[MOISTURE].add(time, moisture);
+            series[TEMPERATURE].add(time, temperature);
+            series[PH].add(time, ph);
+        }
+        lastTime = time;
+        lastValues[MOISTURE] = moisture;
+        lastValues[TEMPERATURE] = temperature;
+        lastValues[PH] = ph;
+
+        long index = (long) ((time - from) / bucketMillis);
+        if (index != next.index) {
+            if (next.size > 0) {
+                // The next bucket is complete, so the current one can be decided
+                if (current.size > 0) {
+                    select(current, next.averageTime(), next.sums, next.size);
+                }
+                Bucket done = current;
+                current = next;
+                next = done;
+            }
+            next.reset(index);
+        }
+        next.add(time, moisture, temperature, ph);
+    }
+
+    // Decides the remaining buckets and returns the series, indexed by MOISTURE, TEMPERATURE and PH
+    public Series[] finish() {
+        if (current.size > 0) {
+            select(current, next.averageTime(), next.sums, next.size);
+        }
+        if (next.size > 0) {
+            // The last bucket is judged against the last reading, which is kept as well
+            double[] last = lastValues.clone();
+            select(next, lastTime, last, 1);
+            for (int metric = 0; metric < METRICS; metric++) {
+                Series target = series[metric];
+                if (target.times[target.size - 1] != lastTime) {
+                    target.add(lastTime, lastValues[metric]);
+                }
+            }
+        }
+        current.size = 0;
+        next.size = 0;
+        return series;
+    }
+
+    public long rows() {
+        return rows;
+    }
+
+    // Keeps, per metric, the point of the bucket with the largest triangle between the previously kept
+    // point and the average of the following bucket
+    private void select(Bucket bucket, double nextTime, double[] nextSums, int nextSize) {
+        for (int metric = 0; metric < METRICS; metric++) {
+            Series target = series[metric];
+            double previousTime = target.times[target.size - 1];
+            double previousValue = target.values[target.size - 1];
+            double nextValue = nextSums[metric] / nextSize;
+            double[] values = bucket.values[metric];
+            int best = 0;
+            double bestArea = -1;
+            for (int i = 0; i < bucket.size; i++) {
+                // Twice the triangle area; the factor doesn't change the maximum
+                double area = Math.abs((previousTime - nextTime) * (values[i] - previousValue)
+                        - (previousTime - bucket.times[i]) * (nextValue - previousValue));
+                if (area > bestArea) {
+                    bestArea = area;
+                    best = i;
+                }
+            }
+            if (bucket.times[best] != target.times[target.size - 1]) {
+                target.add(bucket.times[best], values[best]);
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package org.example;
+
+import java.io.IOException;
+
+// Opens and closes the irrigation valve of a land. Implementations talk to the field hardware;
+// SimulatedValveActuator stands in for it in tests and demos.
+public interface ValveActuator {
+    void open(int landId) throws IOException;
+
+    void close(int landId) throws IOException;
+}
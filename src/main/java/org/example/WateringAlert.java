@@ -1,51 +1,37 @@
 package org.example;
 
-import javax.swing.*;
-import java.sql.*;
+import java.util.List;
 
+// Watering alerts for single sensor readings. The readings are handed to the AlertPipeline, which checks
+// them off the caller's thread and notifies its sinks (alert list, log, file) instead of popping up dialogs.
 public class WateringAlert {
-    // Tolerance range for moisture level
-    private static final int MOISTURE_TOLERANCE = 10;
 
-    // This method will check a single sensor data and show alerts if watering conditions are out of range
-    public void checkWateringStatusForSensor(int landId) {
-        try (Connection connection = DatabaseConnection.getConnection()) {
-            // Query to get the soil moisture and ideal moisture level for the given land ID
-            String query =
-                    "SELECT s.soil_moisture, c.ideal_moisture " +
-                            "FROM sensors s " +
-                            "JOIN crops c ON s.land_id = c.land_id " +
-                            "WHERE s.land_id = ?";
-
-            PreparedStatement statement = connection.prepareStatement(query);
-            statement.setInt(1, landId);  // Set the land ID to check
-            ResultSet resultSet = statement.executeQuery();
-
-            if (resultSet.next()) {
-                double moistureLevel = resultSet.getDouble("soil_moisture");
-                int idealMoisture = resultSet.getInt("ideal_moisture");
-
-                // Calculate the acceptable moisture range for the crop
-                double lowerLimit = idealMoisture - MOISTURE_TOLERANCE;
-                double upperLimit = idealMoisture + MOISTURE_TOLERANCE;
+    // Queues a sensor reading for the watering check; never blocks
+    public void checkWateringStatusForSensor(SensorReading reading) {
+        if (!AlertPipeline.getInstance().submit(reading)) {
+            System.out.println("Alert queue full; reading of land " + reading.landId() + " was not checked");
+        }
+    }
 
-                // Determine if the moisture level is outside the acceptable range
-                if (moistureLevel < lowerLimit) {
-                    JOptionPane.showMessageDialog(null,
-                            "Alert: Land ID " + landId + " has low moisture (" + moistureLevel + "%). " +
-                                    "Moisture should be between " + lowerLimit + "% and " + upperLimit + "%.",
-                            "Watering Alert", JOptionPane.WARNING_MESSAGE);
-                } else if (moistureLevel > upperLimit) {
-                    JOptionPane.showMessageDialog(null,
-                            "Alert: Land ID " + landId + " has high moisture (" + moistureLevel + "%). " +
-                                    "Moisture should be between " + lowerLimit + "% and " + upperLimit + "%.",
-                            "Watering Alert", JOptionPane.WARNING_MESSAGE);
-                }
+    // One line per deviation
+    static String alertMessage(List<WateringEvaluator.Deviation> deviations) {
+        StringBuilder message = new StringBuilder();
+        for (WateringEvaluator.Deviation deviation : deviations) {
+            if (message.length() > 0) {
+                message.append('\n');
             }
-        } catch (SQLException e) {
-            e.printStackTrace();  // This will print the full stack trace for debugging
-            JOptionPane.showMessageDialog(null, "Error checking watering status. Please try again.",
-                    "Error", JOptionPane.ERROR_MESSAGE);
+            message.append(formatAlert(deviation));
         }
+        return message.toString();
+    }
+
+    // e.g. "Alert: Land ID 3 (Maize) has low moisture (12.0%). Moisture should be between 30.0% and 50.0%."
+    static String formatAlert(WateringEvaluator.Deviation deviation) {
+        WateringEvaluator.Metric metric = deviation.metric();
+        String unit = metric.unit();
+        return "Alert: Land ID " + deviation.landId() + " (" + deviation.cropName() + ") has "
+                + (deviation.isLow() ? "low " : "high ") + metric.label() + " (" + deviation.value() + unit + "). "
+                + Character.toUpperCase(metric.label().charAt(0)) + metric.label().substring(1)
+                + " should be between " + deviation.lowerLimit() + unit + " and " + deviation.upperLimit() + unit + ".";
     }
 }
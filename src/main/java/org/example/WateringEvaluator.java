@@ -0,0 +1,329 @@
+package org.example;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Checks sensor readings against the ideal conditions of the crops planted on the land, in memory.
+// The crops' ideal_moisture, ideal_temperature and ideal_ph are taken from the ReferenceDataCache and
+// laid out per land_id in primitive arrays, so a reading is checked with one hash lookup and no database
+// round trip. A land can carry several crops; the reading is checked against each of them. The arrays
+// are rebuilt whenever the cache swaps in a new snapshot.
+public class WateringEvaluator {
+    // Tolerance ranges around the crop's ideal values
+    static final int MOISTURE_TOLERANCE = 10;
+    static final int TEMPERATURE_TOLERANCE = 5;
+    static final double PH_TOLERANCE = 1.0;
+
+    private static final WateringEvaluator INSTANCE = new WateringEvaluator();
+
+    // Rows per fork/join leaf task
+    private static final int SWEEP_SPLIT_THRESHOLD = 1024;
+
+    public enum Metric {
+        MOISTURE("moisture", "%"),
+        TEMPERATURE("temperature", "°C"),
+        PH("pH", "");
+
+        private final String label;
+        private final String unit;
+
+        Metric(String label, String unit) {
+            this.label = label;
+            this.unit = unit;
+        }
+
+        public String label() {
+            return label;
+        }
+
+        public String unit() {
+            return unit;
+        }
+    }
+
+    // A reading value outside the acceptable range of one crop on the land
+    public record Deviation(int landId, int cropId, String cropName, Metric metric,
+                            double value, double lowerLimit, double upperLimit) {
+        public boolean isLow() {
+            return value < lowerLimit;
+        }
+    }
+
+    private volatile Thresholds thresholds;
+
+    public static WateringEvaluator getInstance() {
+        return INSTANCE;
+    }
+
+    // Drops the cached crop thresholds, for crop changes made outside the panels; the next evaluation reloads them
+    public void invalidate() {
+        ReferenceDataCache.getInstance().invalidate();
+    }
+
+    // Returns every crop window the reading falls outside of; empty if all is well or the land has no crops
+    public List<Deviation> evaluate(SensorReading reading) throws SQLException {
+        return evaluate(ReferenceDataCache.getInstance().snapshot(), reading);
+    }
+
+    // Evaluates against the given snapshot instead of the cache's current one
+    List<Deviation> evaluate(ReferenceDataCache.Snapshot snapshot, SensorReading reading) {
+        Thresholds current = thresholdsFor(snapshot);
+        int first = current.firstCrop(reading.landId());
+        if (first < 0) {
+            return List.of();
+        }
+        List<Deviation> deviations = new ArrayList<>(2);
+        for (int crop = first; crop < current.size && current.landIds[crop] == reading.landId(); crop++) {
+            check(current, crop, Metric.MOISTURE, reading.soilMoisture(), current.idealMoisture[crop], MOISTURE_TOLERANCE, deviations);
+            check(current, crop, Metric.TEMPERATURE, reading.temperature(), current.idealTemperature[crop], TEMPERATURE_TOLERANCE, deviations);
+            check(current, crop, Metric.PH, reading.ph(), current.idealPh[crop], PH_TOLERANCE, deviations);
+        }
+        return deviations;
+    }
+
+    private static void check(Thresholds thresholds, int crop, Metric metric, double value, double ideal,
+                              double tolerance, List<Deviation> deviations) {
+        double lowerLimit = ideal - tolerance;
+        double upperLimit = ideal + tolerance;
+        if (value < lowerLimit || value > upperLimit) {
+            deviations.add(new Deviation(thresholds.landIds[crop], thresholds.cropIds[crop], thresholds.cropNames[crop],
+                    metric, value, lowerLimit, upperLimit));
+        }
+    }
+
+    // Checks the latest reading of every land against its crops and reports the out-of-range pairs
+    public WateringReport checkAllLands() throws SQLException {
+        long start = System.nanoTime();
+        SweepRows rows = loadSweepRows();
+        int[] flags = new int[rows.size];
+        ForkJoinPool.commonPool().invoke(new SweepTask(rows, flags, 0, rows.size));
+
+        int outOfRange = 0;
+        for (int flag : flags) {
+            if (flag != 0) {
+                outOfRange++;
+            }
+        }
+        int[] landIds = new int[outOfRange];
+        int[] cropIds = new int[outOfRange];
+        int[] reportFlags = new int[outOfRange];
+        double[] moistures = new double[outOfRange];
+        double[] temperatures = new double[outOfRange];
+        double[] phs = new double[outOfRange];
+        int landsChecked = 0;
+        for (int row = 0, out = 0; row < rows.size; row++) {
+            if (row == 0 || rows.landIds[row] != rows.landIds[row - 1]) {
+                landsChecked++;
+            }
+            if (flags[row] != 0) {
+                landIds[out] = rows.landIds[row];
+                cropIds[out] = rows.cropIds[row];
+                reportFlags[out] = flags[row];
+                moistures[out] = rows.moistures[row];
+                temperatures[out] = rows.temperatures[row];
+                phs[out] = rows.phs[row];
+                out++;
+            }
+        }
+        return new WateringReport(landsChecked, landIds, cropIds, reportFlags, moistures, temperatures, phs,
+                System.nanoTime() - start);
+    }
+
+    // Latest reading of every land (sensor_latest) paired with the thresholds of each crop on it,
+    // ordered by land_id and crop_id
+    private static SweepRows loadSweepRows() throws SQLException {
+        ReferenceDataCache.Snapshot snapshot = ReferenceDataCache.getInstance().snapshot();
+        SweepRows rows = new SweepRows();
+        for (SensorReading reading : Repositories.sensors().latestReadings()) {
+            for (ReferenceDataCache.Crop crop : snapshot.cropsOfLand(reading.landId())) {
+                rows.add(reading, crop);
+            }
+        }
+        return rows;
+    }
+
+    // Flags for one row of the sweep; NaN (missing) readings never raise a flag
+    private static int sweepFlags(SweepRows rows, int row) {
+        int flags = 0;
+        flags |= rangeFlags(rows.moistures[row], rows.idealMoistures[row], MOISTURE_TOLERANCE,
+                WateringReport.MOISTURE_LOW, WateringReport.MOISTURE_HIGH);
+        flags |= rangeFlags(rows.temperatures[row], rows.idealTemperatures[row], TEMPERATURE_TOLERANCE,
+                WateringReport.TEMPERATURE_LOW, WateringReport.TEMPERATURE_HIGH);
+        flags |= rangeFlags(rows.phs[row], rows.idealPhs[row], PH_TOLERANCE,
+                WateringReport.PH_LOW, WateringReport.PH_HIGH);
+        return flags;
+    }
+
+    private static int rangeFlags(double value, double ideal, double tolerance, int lowFlag, int highFlag) {
+        if (value < ideal - tolerance) {
+            return lowFlag;
+        }
+        return value > ideal + tolerance ? highFlag : 0;
+    }
+
+    // Evaluates a range of sweep rows, splitting in half until the range is small enough
+    private static final class SweepTask extends RecursiveAction {
+        private final SweepRows rows;
+        private final int[] flags;
+        private final int from;
+        private final int to;
+
+        private SweepTask(SweepRows rows, int[] flags, int from, int to) {
+            this.rows = rows;
+            this.flags = flags;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SWEEP_SPLIT_THRESHOLD) {
+                for (int row = from; row < to; row++) {
+                    flags[row] = sweepFlags(rows, row);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new SweepTask(rows, flags, from, middle), new SweepTask(rows, flags, middle, to));
+        }
+    }
+
+    // Rows of the sweep in parallel primitive arrays
+    private static final class SweepRows {
+        private int size;
+        private int[] landIds = new int[256];
+        private int[] cropIds = new int[256];
+        private double[] temperatures = new double[256];
+        private double[] moistures = new double[256];
+        private double[] phs = new double[256];
+        private double[] idealTemperatures = new double[256];
+        private double[] idealMoistures = new double[256];
+        private double[] idealPhs = new double[256];
+
+        private void add(SensorReading reading, ReferenceDataCache.Crop crop) {
+            if (size == landIds.length) {
+                int capacity = size * 2;
+                landIds = Arrays.copyOf(landIds, capacity);
+                cropIds = Arrays.copyOf(cropIds, capacity);
+                temperatures = Arrays.copyOf(temperatures, capacity);
+                moistures = Arrays.copyOf(moistures, capacity);
+                phs = Arrays.copyOf(phs, capacity);
+                idealTemperatures = Arrays.copyOf(idealTemperatures, capacity);
+                idealMoistures = Arrays.copyOf(idealMoistures, capacity);
+                idealPhs = Arrays.copyOf(idealPhs, capacity);
+            }
+            landIds[size] = reading.landId();
+            temperatures[size] = reading.temperature();
+            moistures[size] = reading.soilMoisture();
+            phs[size] = reading.ph();
+            cropIds[size] = crop.cropId();
+            idealTemperatures[size] = crop.idealTemperature();
+            idealMoistures[size] = crop.idealMoisture();
+            idealPhs[size] = crop.idealPh();
+            size++;
+        }
+    }
+
+    private Thresholds thresholdsFor(ReferenceDataCache.Snapshot snapshot) {
+        Thresholds current = thresholds;
+        if (current != null && current.snapshot == snapshot) {
+            return current;
+        }
+        synchronized (this) {
+            current = thresholds;
+            if (current == null || current.snapshot != snapshot) {
+                current = build(snapshot);
+                thresholds = current;
+            }
+            return current;
+        }
+    }
+
+    private static Thresholds build(ReferenceDataCache.Snapshot snapshot) {
+        Thresholds thresholds = new Thresholds(snapshot);
+        for (ReferenceDataCache.Land land : snapshot.lands()) {
+            for (ReferenceDataCache.Crop crop : snapshot.cropsOfLand(land.landId())) {
+                thresholds.add(crop.landId(), crop.cropId(), crop.cropName(),
+                        crop.idealTemperature(), crop.idealMoisture(), crop.idealPh());
+            }
+        }
+        thresholds.buildIndex();
+        return thresholds;
+    }
+
+    // Crop thresholds sorted by land_id, with an open-addressing index from land_id to the land's first crop
+    private static final class Thresholds {
+        private static final int EMPTY = Integer.MIN_VALUE;
+
+        private final ReferenceDataCache.Snapshot snapshot;
+        private int size;
+        private int[] landIds = new int[64];
+        private int[] cropIds = new int[64];
+        private String[] cropNames = new String[64];
+        private double[] idealTemperature = new double[64];
+        private double[] idealMoisture = new double[64];
+        private double[] idealPh = new double[64];
+
+        private int[] indexKeys;
+        private int[] indexValues;
+        private int mask;
+
+        private Thresholds(ReferenceDataCache.Snapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        private void add(int landId, int cropId, String cropName, double temperature, double moisture, double ph) {
+            if (size == landIds.length) {
+                int capacity = size * 2;
+                landIds = Arrays.copyOf(landIds, capacity);
+                cropIds = Arrays.copyOf(cropIds, capacity);
+                cropNames = Arrays.copyOf(cropNames, capacity);
+                idealTemperature = Arrays.copyOf(idealTemperature, capacity);
+                idealMoisture = Arrays.copyOf(idealMoisture, capacity);
+                idealPh = Arrays.copyOf(idealPh, capacity);
+            }
+            landIds[size] = landId;
+            cropIds[size] = cropId;
+            cropNames[size] = cropName;
+            idealTemperature[size] = temperature;
+            idealMoisture[size] = moisture;
+            idealPh[size] = ph;
+            size++;
+        }
+
+        private void buildIndex() {
+            int capacity = Integer.highestOneBit(Math.max(16, size * 2) - 1) << 1;
+            indexKeys = new int[capacity];
+            indexValues = new int[capacity];
+            Arrays.fill(indexKeys, EMPTY);
+            mask = capacity - 1;
+            for (int crop = 0; crop < size; crop++) {
+                if (crop == 0 || landIds[crop] != landIds[crop - 1]) {
+                    int slot = slot(landIds[crop]);
+                    indexKeys[slot] = landIds[crop];
+                    indexValues[slot] = crop;
+                }
+            }
+        }
+
+        // Position of the first crop of the land, or -1 if nothing grows there
+        private int firstCrop(int landId) {
+            int slot = slot(landId);
+            return indexKeys[slot] == landId ? indexValues[slot] : -1;
+        }
+
+        // Linear probing from the land's hash to its slot or the first empty one
+        private int slot(int landId) {
+            int hash = landId * 0x9E3779B9;
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (indexKeys[slot] != EMPTY && indexKeys[slot] != landId) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+}
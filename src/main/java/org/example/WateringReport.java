@@ -0,0 +1,104 @@
+package org.example;
+
+import java.util.Arrays;
+
+// Result of a fleet-wide watering sweep: one entry per (land, crop) pair whose latest reading is out of range.
+// Entries are stored in parallel primitive arrays; flags() is a bitmask of the *_LOW / *_HIGH constants.
+public final class WateringReport {
+    public static final int MOISTURE_LOW = 1;
+    public static final int MOISTURE_HIGH = 1 << 1;
+    public static final int TEMPERATURE_LOW = 1 << 2;
+    public static final int TEMPERATURE_HIGH = 1 << 3;
+    public static final int PH_LOW = 1 << 4;
+    public static final int PH_HIGH = 1 << 5;
+
+    private final int landsChecked;
+    private final int[] landIds;
+    private final int[] cropIds;
+    private final int[] flags;
+    private final double[] soilMoistures;
+    private final double[] temperatures;
+    private final double[] phs;
+    private final long elapsedNanos;
+
+    WateringReport(int landsChecked, int[] landIds, int[] cropIds, int[] flags,
+                   double[] soilMoistures, double[] temperatures, double[] phs, long elapsedNanos) {
+        this.landsChecked = landsChecked;
+        this.landIds = landIds;
+        this.cropIds = cropIds;
+        this.flags = flags;
+        this.soilMoistures = soilMoistures;
+        this.temperatures = temperatures;
+        this.phs = phs;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int landsChecked() {
+        return landsChecked;
+    }
+
+    // Number of out-of-range (land, crop) pairs
+    public int size() {
+        return landIds.length;
+    }
+
+    public int landId(int index) {
+        return landIds[index];
+    }
+
+    public int cropId(int index) {
+        return cropIds[index];
+    }
+
+    public int flags(int index) {
+        return flags[index];
+    }
+
+    public double soilMoisture(int index) {
+        return soilMoistures[index];
+    }
+
+    public double temperature(int index) {
+        return temperatures[index];
+    }
+
+    public double ph(int index) {
+        return phs[index];
+    }
+
+    // Distinct land ids that need attention, in ascending order
+    public int[] outOfRangeLands() {
+        return Arrays.stream(landIds).distinct().toArray();
+    }
+
+    public long elapsedNanos() {
+        return elapsedNanos;
+    }
+
+    // Human-readable list of the problems, e.g. "Land 4, crop 9: low moisture (12.0%), high pH (8.9)"
+    public String describe() {
+        StringBuilder text = new StringBuilder();
+        text.append("Checked ").append(landsChecked).append(" lands in ")
+                .append(String.format("%.1f", elapsedNanos / 1e6)).append(" ms; ")
+                .append(outOfRangeLands().length).append(" out of range.");
+        for (int i = 0; i < landIds.length; i++) {
+            text.append("\nLand ").append(landIds[i]).append(", crop ").append(cropIds[i]).append(':');
+            appendFlag(text, flags[i], MOISTURE_LOW, "low moisture", soilMoistures[i], "%");
+            appendFlag(text, flags[i], MOISTURE_HIGH, "high moisture", soilMoistures[i], "%");
+            appendFlag(text, flags[i], TEMPERATURE_LOW, "low temperature", temperatures[i], "°C");
+            appendFlag(text, flags[i], TEMPERATURE_HIGH, "high temperature", temperatures[i], "°C");
+            appendFlag(text, flags[i], PH_LOW, "low pH", phs[i], "");
+            appendFlag(text, flags[i], PH_HIGH, "high pH", phs[i], "");
+        }
+        return text.toString();
+    }
+
+    private static void appendFlag(StringBuilder text, int flags, int flag, String label, double value, String unit) {
+        if ((flags & flag) != 0) {
+            if (text.charAt(text.length() - 1) != ':') {
+                text.append(',');
+            }
+            text.append(' ').append(label).append(" (").append(value).append(unit).append(')');
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnomalyDetectorTest {
+    private static final int WARMUP = 20;
+    private static final int STUCK_READINGS = 30;
+
+    private final AnomalyDetector detector = new AnomalyDetector(0.05, 4, WARMUP, STUCK_READINGS);
+    private int tick;
+
+    // Temperature and pH alternate between two values, so only the given moisture can look stuck
+    private int observe(int land, double moisture) {
+        tick++;
+        return detector.observe(new SensorReading(land, 20 + tick % 2 * 0.5, moisture, 6.5 + tick % 2 * 0.1, tick * 1_000L));
+    }
+
+    // n readings alternating between 30 and 31 % moisture
+    private void steady(int land, int n) {
+        for (int i = 0; i < n; i++) {
+            assertEquals(0, observe(land, 30 + i % 2));
+        }
+    }
+
+    @Test
+    void noOutliersDuringWarmup() {
+        steady(1, WARMUP - 2);
+
+        assertEquals(0, observe(1, 90));
+    }
+
+    @Test
+    void spikeAfterWarmupIsAnOutlier() {
+        steady(1, WARMUP);
+
+        assertEquals(AnomalyDetector.OUTLIER, observe(1, 90));
+        AnomalyDetector.Anomaly[] anomalies = detector.anomalies(new SensorReading(1, 20, 90, 6.5, tick * 1_000L));
+        assertEquals(1, anomalies.length);
+        assertEquals(WateringEvaluator.Metric.MOISTURE, anomalies[0].metric());
+        assertEquals(90, anomalies[0].value());
+        assertEquals(30.5, anomalies[0].mean(), 0.5);
+    }
+
+    @Test
+    void winsorizedSpikesDoNotHideTheNextOnes() {
+        steady(1, 40);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(AnomalyDetector.OUTLIER, observe(1, 90), "spike " + i);
+        }
+        // Each spike moved the mean by alpha × the band, not alpha × 60
+        AnomalyDetector.Anomaly last = detector.anomalies(new SensorReading(1, 20, 90, 6.5, tick * 1_000L))[0];
+        assertTrue(last.mean() < 32, "mean " + last.mean());
+    }
+
+    @Test
+    void stuckIsFlaggedOnceWhenTheRunReachesTheLimit() {
+        for (int i = 1; i < STUCK_READINGS; i++) {
+            assertEquals(0, observe(1, 42));
+        }
+        assertEquals(AnomalyDetector.STUCK, observe(1, 42));
+        assertEquals(STUCK_READINGS, detector.anomalies(new SensorReading(1, 20, 42, 6.5, tick * 1_000L))[0].repeats());
+        assertEquals(0, observe(1, 42));
+
+        // A new value starts a new run
+        assertEquals(0, observe(1, 43));
+    }
+
+    @Test
+    void phNeedsALongerRunToLookStuck() {
+        int phRun = STUCK_READINGS * 12;
+        for (int i = 1; i < phRun; i++) {
+            tick++;
+            assertEquals(0, detector.observe(new SensorReading(1, 20 + tick % 2 * 0.5, 30 + tick % 2, 6.5, tick * 1_000L)));
+        }
+        tick++;
+        SensorReading last = new SensorReading(1, 20 + tick % 2 * 0.5, 30 + tick % 2, 6.5, tick * 1_000L);
+
+        assertEquals(AnomalyDetector.STUCK, detector.observe(last));
+        AnomalyDetector.Anomaly[] anomalies = detector.anomalies(last);
+        assertEquals(WateringEvaluator.Metric.PH, anomalies[0].metric());
+        assertEquals(phRun, anomalies[0].repeats());
+    }
+
+    @Test
+    void nonFiniteValuesAreSkipped() {
+        steady(1, 40);
+
+        assertEquals(0, observe(1, Double.NaN));
+        assertEquals(0, observe(1, Double.POSITIVE_INFINITY));
+        assertEquals(0, observe(1, 30));
+        // The mean and variance are as before, so a spike still stands out against a finite mean
+        assertEquals(AnomalyDetector.OUTLIER, observe(1, 90));
+        assertEquals(30.5, detector.anomalies(new SensorReading(1, 20, 90, 6.5, tick * 1_000L))[0].mean(), 0.5);
+    }
+
+    @Test
+    void nonFiniteValueDoesNotBreakAStuckRun() {
+        for (int i = 1; i < STUCK_READINGS; i++) {
+            observe(1, 42);
+        }
+        observe(1, Double.NaN);
+
+        assertEquals(AnomalyDetector.STUCK, observe(1, 42));
+    }
+
+    @Test
+    void olderReadingsDoNotRewindTheState() {
+        steady(1, WARMUP);
+
+        assertEquals(0, detector.observe(new SensorReading(1, 20, 90, 6.5, 500L)));
+        assertEquals(0, observe(1, 31));
+    }
+
+    @Test
+    void landsKeepTheirOwnStatePastTheFirstTableSize() {
+        int lands = 41; // The land table starts with 16 entries and is at most half full
+        for (int round = 1; round <= STUCK_READINGS; round++) {
+            for (int land = 1; land <= lands; land++) {
+                int flags = observe(land * 1_000, land);
+                assertEquals(round == STUCK_READINGS ? AnomalyDetector.STUCK : 0, flags, "land " + land + ", round " + round);
+            }
+        }
+        tick++;
+        SensorReading reading = new SensorReading(7_000, 20, 7, 6.5, tick * 1_000L);
+        detector.observe(reading);
+        assertEquals(0, detector.anomalies(reading).length);
+
+        detector.reset(7_000);
+        assertEquals(0, observe(7_000, 7));
+    }
+}
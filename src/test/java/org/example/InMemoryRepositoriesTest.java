@@ -0,0 +1,265 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Each test works on fresh tables
+class InMemoryRepositoriesTest {
+    private static final int HOUR = 3_600;
+
+    private final InMemoryRepositories repositories = new InMemoryRepositories();
+    private final LandRepository lands = repositories.lands();
+    private final CropRepository crops = repositories.crops();
+    private final SensorRepository sensors = repositories.sensors();
+    private final IrrigationRepository irrigation = repositories.irrigation();
+
+    private static SensorReading reading(int landId, double moisture, long timestampMillis) {
+        return new SensorReading(landId, 20, moisture, 6.5, timestampMillis);
+    }
+
+    private static IrrigationScheduler.Window window(int landId, int start, int end) {
+        return new IrrigationScheduler.Window(0, landId, start, end);
+    }
+
+    // sensor_ids of the readings passed by readPage
+    private List<Integer> page(int fromSensorId, int limit) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        int rows = sensors.readPage(fromSensorId, limit, (sensorId, landId, temperature, soilMoisture, ph, timestamp) ->
+                ids.add(sensorId));
+        assertEquals(ids.size(), rows);
+        return ids;
+    }
+
+    @Test
+    void rowsForAMissingLandFailLikeTheForeignKey() throws SQLException {
+        int land = lands.insert("North", "Clay", 10);
+
+        assertThrows(SQLIntegrityConstraintViolationException.class, () -> crops.insert("Maize", 25, 30, 6.5, land + 1));
+        assertThrows(SQLIntegrityConstraintViolationException.class, () -> sensors.insert(reading(land + 1, 30, 0)));
+        assertThrows(SQLIntegrityConstraintViolationException.class,
+                () -> irrigation.save(0, List.of(window(land + 1, 0, HOUR)), Set.of()));
+        assertEquals(0, sensors.count());
+        assertEquals(List.of(), irrigation.findAllWindows());
+        assertEquals(0, crops.findAll().getRowCount());
+    }
+
+    @Test
+    void aFailedIrrigationSaveWritesNothing() throws SQLException {
+        int land = lands.insert("North", "Clay", 10);
+        IrrigationScheduler.Window kept = irrigation.save(0, List.of(window(land, 0, HOUR)), Set.of()).get(0);
+
+        assertThrows(SQLIntegrityConstraintViolationException.class, () -> irrigation.save(0,
+                List.of(window(land, 2 * HOUR, 3 * HOUR), window(land + 1, 0, HOUR)), Set.of(kept.irrigationId())));
+        assertEquals(List.of(kept), irrigation.findAllWindows());
+    }
+
+    @Test
+    void deletingALandWithSchedulesIsRefused() throws SQLException {
+        int land = lands.insert("North", "Clay", 10);
+        IrrigationScheduler.Window window = irrigation.save(0, List.of(window(land, 0, HOUR)), Set.of()).get(0);
+
+        assertThrows(SQLIntegrityConstraintViolationException.class, () -> lands.delete(land));
+        assertTrue(irrigation.delete(window.irrigationId()));
+        assertTrue(lands.delete(land));
+        assertFalse(lands.delete(land));
+    }
+
+    @Test
+    void deletingALandCascadesToCropsReadingsAndLatest() throws SQLException {
+        int north = lands.insert("North", "Clay", 10);
+        int south = lands.insert("South", "Loam", 20);
+        crops.insert("Maize", 25, 30, 6.5, north);
+        crops.insert("Wheat", 20, 40, 6.5, south);
+        sensors.insert(reading(north, 30, 1_000));
+        sensors.insert(reading(south, 31, 1_000));
+        sensors.insert(reading(north, 32, 2_000));
+
+        assertTrue(lands.delete(north));
+
+        assertEquals(1, sensors.count());
+        assertEquals(1, crops.findAll().getRowCount());
+        assertEquals(south, crops.findAll().getValueAt(0, 5));
+        assertEquals(List.of(south), sensors.latestReadings().stream().map(SensorReading::landId).toList());
+    }
+
+    @Test
+    void latestReadingKeepsTheNewestTimestamp() throws SQLException {
+        int land = lands.insert("North", "Clay", 10);
+        sensors.insert(reading(land, 30, 2_000));
+        sensors.insert(reading(land, 10, 1_000)); // Late backfill of an older reading
+        assertEquals(List.of(reading(land, 30, 2_000)), sensors.latestReadings());
+
+        sensors.insert(reading(land, 40, 2_000)); // Same timestamp: the later insert wins, as in the trigger
+        assertEquals(List.of(reading(land, 40, 2_000)), sensors.latestReadings());
+
+        sensors.insert(reading(land, 50, 3_000));
+        assertEquals(List.of(reading(land, 50, 3_000)), sensors.latestReadings());
+        assertEquals(4, sensors.count());
+    }
+
+    @Test
+    void latestReadingShowsInTheLandTable() throws SQLException {
+        int withReading = lands.insert("North", "Clay", 10);
+        int without = lands.insert("South", "Loam", 20);
+        sensors.insert(reading(withReading, 30.456, 5_000));
+
+        ColumnarTableModel model = lands.findWithLatestReading(List.of(without, withReading));
+        assertEquals(2, model.getRowCount());
+        assertEquals(withReading, model.getValueAt(0, 0));
+        assertEquals(30.46, model.getValueAt(0, 5)); // Rounded like DECIMAL(5, 2)
+        assertEquals(new Timestamp(5_000), model.getValueAt(0, 7));
+        assertNull(model.getValueAt(1, 5));
+    }
+
+    @Test
+    void pagesFollowSensorIdOrderAcrossGaps() throws SQLException {
+        int north = lands.insert("North", "Clay", 10);
+        int south = lands.insert("South", "Loam", 20);
+        List<Integer> kept = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            int land = i % 5 == 0 ? south : north;
+            int sensorId = sensors.insert(reading(land, i, i));
+            if (land == north) {
+                kept.add(sensorId);
+            }
+        }
+        // Leaves a gap in sensor_id every five readings
+        assertTrue(lands.delete(south));
+        assertEquals(20, sensors.count());
+
+        List<Integer> anchors = new ArrayList<>();
+        assertEquals(20, sensors.scanIds(0, 8, anchors::add));
+        assertEquals(List.of(kept.get(0), kept.get(8), kept.get(16)), anchors);
+        assertEquals(kept.subList(0, 8), page(anchors.get(0), 8));
+        assertEquals(kept.subList(8, 16), page(anchors.get(1), 8));
+        assertEquals(kept.subList(16, 20), page(anchors.get(2), 8));
+        assertEquals(List.of(), page(kept.get(19) + 1, 8));
+    }
+
+    @Test
+    void scanFromAGapStartsAtTheNextReading() throws SQLException {
+        int land = lands.insert("North", "Clay", 10);
+        int first = sensors.insert(reading(land, 1, 1));
+        int second = sensors.insert(reading(land, 2, 2));
+        int third = sensors.insert(reading(land, 3, 3));
+
+        List<Integer> anchors = new ArrayList<>();
+        assertEquals(2, sensors.scanIds(first + 1, 1, anchors::add));
+        assertEquals(List.of(second, third), anchors);
+        anchors.clear();
+        assertEquals(3, sensors.scanIds(first - 1, 2, anchors::add));
+        assertEquals(List.of(first, third), anchors);
+        assertEquals(0, sensors.scanIds(third + 1, 1, anchors::add));
+    }
+
+    @Test
+    void trendIsInTimeOrderWithinTheRange() throws Exception {
+        int land = lands.insert("North", "Clay", 10);
+        int other = lands.insert("South", "Loam", 20);
+        for (long timestamp : new long[]{3_000, 1_000, 5_000, 2_000, 500}) {
+            sensors.insert(reading(land, timestamp / 100.0, timestamp));
+        }
+        sensors.insert(reading(other, 1, 2_000));
+
+        List<Long> times = new ArrayList<>();
+        List<Double> moistures = new ArrayList<>();
+        sensors.readTrend(land, SensorRollups.Resolution.RAW, 1_000, 3_000, (timestamp, soilMoisture, temperature, ph) -> {
+            times.add(timestamp);
+            moistures.add(soilMoisture);
+        });
+
+        assertEquals(List.of(1_000L, 2_000L, 3_000L), times);
+        assertEquals(List.of(10.0, 20.0, 30.0), moistures);
+        assertEquals(List.of(500L, 5_000L), Arrays.stream(sensors.extent(land)).boxed().toList());
+        assertNull(sensors.extent(lands.insert("East", "Sand", 5)));
+        assertFalse(sensors.rollupsAvailable());
+    }
+
+    @Test
+    void irrigationSaveReplacesAndRemoves() throws SQLException {
+        int land = lands.insert("North", "Clay", 10);
+        List<IrrigationScheduler.Window> first =
+                irrigation.save(0, List.of(window(land, HOUR, 2 * HOUR), window(land, 3 * HOUR, 4 * HOUR)), Set.of());
+        int replaced = first.get(0).irrigationId();
+        int removed = first.get(1).irrigationId();
+        assertNotEquals(replaced, removed);
+        List<Long> marker = irrigation.changeMarker();
+
+        // Move the first schedule across midnight: it keeps its id for the first half, the second half is new
+        List<IrrigationScheduler.Window> saved = irrigation.save(replaced,
+                List.of(window(land, 23 * HOUR, IrrigationScheduler.DAY_SECONDS), window(land, 0, HOUR)), Set.of(removed));
+
+        assertEquals(replaced, saved.get(0).irrigationId());
+        int added = saved.get(1).irrigationId();
+        assertTrue(added != replaced && added != removed);
+        assertEquals(List.of(new IrrigationScheduler.Window(added, land, 0, HOUR),
+                new IrrigationScheduler.Window(replaced, land, 23 * HOUR, IrrigationScheduler.DAY_SECONDS)),
+                irrigation.findAllWindows());
+        assertNotEquals(marker, irrigation.changeMarker());
+        assertEquals(2, irrigation.findAll().getRowCount());
+    }
+
+    @Test
+    void replacingADeletedScheduleWritesNothing() throws SQLException {
+        int land = lands.insert("North", "Clay", 10);
+        IrrigationScheduler.Window deleted = irrigation.save(0, List.of(window(land, HOUR, 2 * HOUR)), Set.of()).get(0);
+        IrrigationScheduler.Window kept = irrigation.save(0, List.of(window(land, 3 * HOUR, 4 * HOUR)), Set.of()).get(0);
+        assertTrue(irrigation.delete(deleted.irrigationId()));
+
+        SQLException e = assertThrows(SQLException.class, () -> irrigation.save(deleted.irrigationId(),
+                List.of(window(land, 5 * HOUR, 6 * HOUR)), Set.of(kept.irrigationId())));
+        assertEquals("02000", e.getSQLState());
+        assertEquals(List.of(kept), irrigation.findAllWindows());
+    }
+
+    @Test
+    void irrigationSaveWithoutReplacementOnlyInserts() throws SQLException {
+        int land = lands.insert("North", "Clay", 10);
+        IrrigationScheduler.Window existing = irrigation.save(0, List.of(window(land, HOUR, 2 * HOUR)), Set.of()).get(0);
+
+        IrrigationScheduler.Window added = irrigation.save(0, List.of(window(land, 5 * HOUR, 6 * HOUR)), Set.of()).get(0);
+
+        assertNotEquals(existing.irrigationId(), added.irrigationId());
+        assertEquals(List.of(existing, added), irrigation.findAllWindows());
+        assertFalse(irrigation.delete(added.irrigationId() + 100));
+    }
+
+    @Test
+    void countFollowsConcurrentInserts() throws Exception {
+        int land = lands.insert("North", "Clay", 10);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    try {
+                        sensors.insert(reading(land, i % 100, i));
+                    } catch (SQLException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(20_000, sensors.count());
+        assertEquals(20_000, page(0, 30_000).size());
+    }
+}
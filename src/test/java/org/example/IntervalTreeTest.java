@@ -0,0 +1,124 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IntervalTreeTest {
+
+    private static IrrigationScheduler.Window window(int id, int start, int end) {
+        return new IrrigationScheduler.Window(id, 1, start, end);
+    }
+
+    // The windows of the list that overlap [start, end), ordered like the tree
+    private static List<IrrigationScheduler.Window> bruteForce(List<IrrigationScheduler.Window> windows, int start, int end) {
+        List<IrrigationScheduler.Window> result = new ArrayList<>();
+        for (IrrigationScheduler.Window window : windows) {
+            if (window.start() < end && start < window.end()) {
+                result.add(window);
+            }
+        }
+        result.sort(Comparator.comparingInt(IrrigationScheduler.Window::start)
+                .thenComparingInt(IrrigationScheduler.Window::irrigationId));
+        return result;
+    }
+
+    @Test
+    void ascendingInsertsStayBalanced() {
+        IntervalTree tree = new IntervalTree();
+        for (int i = 0; i < 1_000; i++) {
+            tree.insert(window(i + 1, i * 10, i * 10 + 5));
+            tree.checkInvariants();
+        }
+        assertEquals(1_000, tree.size());
+        assertEquals(bruteForce(tree.toList(), 0, 10_000), tree.toList());
+    }
+
+    @Test
+    void randomInsertsAndRemovesKeepInvariantsAndAnswers() {
+        Random random = new Random(42);
+        IntervalTree tree = new IntervalTree();
+        List<IrrigationScheduler.Window> expected = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            if (!expected.isEmpty() && random.nextInt(3) == 0) {
+                IrrigationScheduler.Window removed = expected.remove(random.nextInt(expected.size()));
+                assertTrue(tree.remove(removed));
+            } else {
+                int start = random.nextInt(IrrigationScheduler.DAY_SECONDS - 1);
+                int end = start + 1 + random.nextInt(Math.min(7_200, IrrigationScheduler.DAY_SECONDS - start));
+                IrrigationScheduler.Window window = window(i + 1, start, end);
+                tree.insert(window);
+                expected.add(window);
+            }
+            tree.checkInvariants();
+            assertEquals(expected.size(), tree.size());
+
+            int from = random.nextInt(IrrigationScheduler.DAY_SECONDS);
+            int to = from + 1 + random.nextInt(3_600);
+            assertEquals(bruteForce(expected, from, to), tree.overlapping(from, to));
+        }
+    }
+
+    @Test
+    void removingEveryNodeEmptiesTheTree() {
+        IntervalTree tree = new IntervalTree();
+        List<IrrigationScheduler.Window> windows = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            IrrigationScheduler.Window window = window(i + 1, (i * 37) % 500, (i * 37) % 500 + 60);
+            windows.add(window);
+            tree.insert(window);
+        }
+        for (IrrigationScheduler.Window window : windows) {
+            assertTrue(tree.remove(window));
+            tree.checkInvariants();
+        }
+        assertTrue(tree.isEmpty());
+    }
+
+    @Test
+    void removeOfAnUnknownWindowReturnsFalse() {
+        IntervalTree tree = new IntervalTree();
+        tree.insert(window(1, 100, 200));
+
+        assertFalse(tree.remove(window(2, 100, 200)));
+        assertFalse(tree.remove(window(1, 150, 200)));
+        assertEquals(1, tree.size());
+        tree.checkInvariants();
+    }
+
+    @Test
+    void sameStartIsOrderedByIrrigationId() {
+        IntervalTree tree = new IntervalTree();
+        tree.insert(window(3, 100, 200));
+        tree.insert(window(1, 100, 300));
+        tree.insert(window(2, 100, 150));
+
+        assertEquals(List.of(window(1, 100, 300), window(2, 100, 150), window(3, 100, 200)), tree.toList());
+        assertTrue(tree.remove(window(2, 100, 150)));
+        assertEquals(List.of(window(1, 100, 300), window(3, 100, 200)), tree.toList());
+    }
+
+    @Test
+    void backToBackWindowsDoNotOverlap() {
+        IntervalTree tree = new IntervalTree();
+        IrrigationScheduler.Window morning = window(1, 3_600, 7_200);
+        IrrigationScheduler.Window next = window(2, 7_200, 10_800);
+        tree.insert(morning);
+        tree.insert(next);
+
+        assertEquals(List.of(), tree.overlapping(0, 3_600));
+        assertEquals(List.of(morning), tree.overlapping(0, 3_601));
+        assertEquals(List.of(next), tree.overlapping(7_200, 9_000));
+        assertEquals(List.of(next), tree.containing(7_200));
+        assertEquals(List.of(morning), tree.containing(7_199));
+        assertEquals(List.of(), tree.containing(10_800));
+        assertFalse(morning.overlaps(next));
+    }
+}
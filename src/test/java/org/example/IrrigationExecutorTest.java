@@ -0,0 +1,188 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Drives the executor with a clock the test sets: rebuild(), fire() and retryFailed() are called directly,
+// and the next real firing is always an hour or more away, so the executor thread never runs meanwhile
+class IrrigationExecutorTest {
+    private static final int HOUR = 3_600;
+    private static final LocalDateTime DAY = LocalDateTime.of(2026, 3, 10, 0, 0);
+
+    private final TestClock clock = new TestClock();
+    private final SimulatedValveActuator actuator = new SimulatedValveActuator(clock, false);
+    private final IrrigationExecutor executor =
+            new IrrigationExecutor(IrrigationScheduler.getInstance(), actuator, clock, 3_600);
+
+    // A clock that only moves when the test sets it
+    private static final class TestClock extends Clock {
+        private volatile Instant now = DAY.toInstant(ZoneOffset.UTC);
+
+        void set(LocalDateTime time) {
+            now = time.toInstant(ZoneOffset.UTC);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    @AfterEach
+    void closeExecutor() throws InterruptedException {
+        executor.close();
+    }
+
+    private static IrrigationScheduler.Window window(int id, int landId, int start, int end) {
+        return new IrrigationScheduler.Window(id, landId, start, end);
+    }
+
+    private void fireAt(LocalDateTime time) {
+        clock.set(time);
+        executor.fire();
+    }
+
+    private static SimulatedValveActuator.Command command(int landId, boolean open, LocalDateTime at) {
+        return new SimulatedValveActuator.Command(landId, open, at.toInstant(ZoneOffset.UTC).toEpochMilli());
+    }
+
+    @Test
+    void backToBackWindowsKeepTheValveOpen() {
+        clock.set(DAY.plusHours(5));
+        executor.rebuild(List.of(window(1, 1, 6 * HOUR, 7 * HOUR), window(2, 1, 7 * HOUR, 8 * HOUR)));
+        assertEquals(List.of(), actuator.commands());
+
+        fireAt(DAY.plusHours(6));
+        fireAt(DAY.plusHours(7));
+        assertEquals(Set.of(1), actuator.openValves());
+        fireAt(DAY.plusHours(8));
+
+        assertEquals(List.of(command(1, true, DAY.plusHours(6)), command(1, false, DAY.plusHours(8))),
+                actuator.commands());
+        assertEquals(Set.of(), actuator.openValves());
+    }
+
+    @Test
+    void windowSplitAtMidnightRunsThrough() {
+        clock.set(DAY.plusHours(22));
+        executor.rebuild(List.of(window(1, 4, 23 * HOUR, IrrigationScheduler.DAY_SECONDS), window(1, 4, 0, HOUR)));
+
+        fireAt(DAY.plusHours(23));
+        fireAt(DAY.plusDays(1));
+        assertEquals(Set.of(4), actuator.openValves());
+        fireAt(DAY.plusDays(1).plusHours(1));
+
+        assertEquals(List.of(command(4, true, DAY.plusHours(23)), command(4, false, DAY.plusDays(1).plusHours(1))),
+                actuator.commands());
+    }
+
+    @Test
+    void rebuildInsideAWindowOpensTheValveRightAway() {
+        clock.set(DAY.plusHours(6).plusMinutes(30));
+        executor.rebuild(List.of(window(1, 2, 6 * HOUR, 7 * HOUR)));
+
+        assertEquals(Set.of(2), actuator.openValves());
+        assertEquals(1, executor.stats().openValves());
+    }
+
+    @Test
+    void missedEventsAreCaughtUpOnTheNextFiring() {
+        clock.set(DAY.plusHours(5));
+        executor.rebuild(List.of(window(1, 1, 6 * HOUR, 7 * HOUR), window(2, 2, 6 * HOUR, 9 * HOUR)));
+
+        // Asleep from 05:00 to 08:00: land 1's window came and went, land 2's is still running
+        fireAt(DAY.plusHours(8));
+
+        assertEquals(Set.of(2), actuator.openValves());
+        assertEquals(List.of(command(2, true, DAY.plusHours(8))), actuator.commands());
+    }
+
+    @Test
+    void failedCommandIsRetried() {
+        clock.set(DAY.plusHours(5));
+        executor.rebuild(List.of(window(1, 3, 6 * HOUR, 7 * HOUR)));
+        actuator.failNext(1);
+
+        fireAt(DAY.plusHours(6));
+        assertEquals(Set.of(), actuator.openValves());
+        assertEquals(1, executor.stats().failures());
+
+        clock.set(DAY.plusHours(6).plusSeconds(5));
+        executor.retryFailed();
+        assertEquals(Set.of(3), actuator.openValves());
+        assertEquals(1, executor.stats().commands());
+    }
+
+    @Test
+    void retryAfterTheWindowEndedLeavesTheValveClosed() {
+        clock.set(DAY.plusHours(5));
+        executor.rebuild(List.of(window(1, 3, 6 * HOUR, 7 * HOUR)));
+        actuator.failNext(1);
+        fireAt(DAY.plusHours(6));
+
+        clock.set(DAY.plusHours(7).plusMinutes(1));
+        executor.retryFailed();
+
+        assertEquals(List.of(), actuator.commands());
+    }
+
+    @Test
+    void scheduleMovedToAnotherLandMovesTheWater() {
+        clock.set(DAY.plusHours(6).plusMinutes(30));
+        executor.rebuild(List.of(window(7, 1, 6 * HOUR, 7 * HOUR)));
+        assertEquals(Set.of(1), actuator.openValves());
+
+        // The panel moved schedule 7 from land 1 to land 2; both lands are re-read
+        executor.replaceLand(1, List.of());
+        executor.replaceLand(2, List.of(window(7, 2, 6 * HOUR, 7 * HOUR)));
+
+        assertEquals(Set.of(2), actuator.openValves());
+        assertEquals(1, executor.stats().windows());
+        fireAt(DAY.plusHours(7));
+        assertEquals(Set.of(), actuator.openValves());
+    }
+
+    @Test
+    void replacingTheLastWindowsOfALandDropsItsEvents() {
+        clock.set(DAY.plusHours(5));
+        executor.rebuild(List.of(window(1, 1, 6 * HOUR, 7 * HOUR), window(2, 2, 6 * HOUR, 7 * HOUR)));
+
+        executor.replaceLand(1, List.of());
+        fireAt(DAY.plusHours(6));
+
+        assertEquals(Set.of(2), actuator.openValves());
+        assertEquals(1, executor.stats().windows());
+    }
+
+    @Test
+    void closeShutsEveryOpenValve() throws InterruptedException {
+        clock.set(DAY.plusHours(6).plusMinutes(30));
+        executor.rebuild(List.of(window(1, 1, 6 * HOUR, 7 * HOUR), window(2, 2, 6 * HOUR, 7 * HOUR)));
+        assertEquals(Set.of(1, 2), actuator.openValves());
+
+        executor.close();
+
+        assertTrue(actuator.openValves().isEmpty());
+    }
+}
@@ -0,0 +1,170 @@
+package org.example;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs against the in-memory repositories (smartagri.backend=memory is set by surefire); every test uses
+// lands of its own, since the scheduler and the repositories are shared by the whole test run
+class IrrigationSchedulerTest {
+    private static final int HOUR = 3_600;
+
+    private final IrrigationScheduler scheduler = IrrigationScheduler.getInstance();
+    private int land;
+
+    @BeforeEach
+    void createLand() throws SQLException {
+        land = Repositories.lands().insert("Sector", "Loam", 1);
+        scheduler.reload();
+    }
+
+    private IrrigationScheduler.Window save(int start, int end) throws SQLException {
+        return scheduler.save(0, IrrigationScheduler.split(land, start, end), Set.of()).get(0);
+    }
+
+    private static long count(int[] landIds, int landId) {
+        return Arrays.stream(landIds).filter(id -> id == landId).count();
+    }
+
+    @Test
+    void splitKeepsAWindowWithinTheDay() {
+        assertEquals(List.of(new IrrigationScheduler.Window(0, 7, 6 * HOUR, 8 * HOUR)),
+                IrrigationScheduler.split(7, 6 * HOUR, 8 * HOUR));
+    }
+
+    @Test
+    void splitCutsAWindowAcrossMidnight() {
+        assertEquals(List.of(new IrrigationScheduler.Window(0, 7, 22 * HOUR, IrrigationScheduler.DAY_SECONDS),
+                        new IrrigationScheduler.Window(0, 7, 0, 2 * HOUR)),
+                IrrigationScheduler.split(7, 22 * HOUR, 2 * HOUR));
+    }
+
+    @Test
+    void splitReadsAnEndOfMidnightAsTheEndOfTheDay() {
+        assertEquals(List.of(new IrrigationScheduler.Window(0, 7, 22 * HOUR, IrrigationScheduler.DAY_SECONDS)),
+                IrrigationScheduler.split(7, 22 * HOUR, 0));
+    }
+
+    @Test
+    void midnightWindowIsActiveOnBothSides() throws SQLException {
+        List<IrrigationScheduler.Window> saved =
+                scheduler.save(0, IrrigationScheduler.split(land, 23 * HOUR, HOUR), Set.of());
+
+        assertEquals(2, saved.size());
+        assertEquals(1, count(scheduler.landsIrrigatingAt(23 * HOUR + 1_800), land));
+        assertEquals(1, count(scheduler.landsIrrigatingAt(1_800), land));
+        assertEquals(0, count(scheduler.landsIrrigatingAt(HOUR), land));
+        assertEquals(2, scheduler.windowsOfLand(land).size());
+    }
+
+    @Test
+    void conflictsFindOverlapsButNotAdjacentWindows() throws SQLException {
+        IrrigationScheduler.Window morning = save(6 * HOUR, 8 * HOUR);
+
+        assertEquals(List.of(morning), scheduler.conflicts(new IrrigationScheduler.Window(0, land, 7 * HOUR, 9 * HOUR), Set.of()));
+        assertEquals(List.of(), scheduler.conflicts(new IrrigationScheduler.Window(0, land, 8 * HOUR, 9 * HOUR), Set.of()));
+        assertEquals(List.of(), scheduler.conflicts(new IrrigationScheduler.Window(0, land, 5 * HOUR, 6 * HOUR), Set.of()));
+    }
+
+    @Test
+    void conflictsSkipIgnoredSchedules() throws SQLException {
+        IrrigationScheduler.Window morning = save(6 * HOUR, 8 * HOUR);
+        IrrigationScheduler.Window late = save(8 * HOUR, 10 * HOUR);
+        IrrigationScheduler.Window edited = new IrrigationScheduler.Window(morning.irrigationId(), land, 7 * HOUR, 9 * HOUR);
+
+        assertEquals(List.of(morning, late), scheduler.conflicts(edited, Set.of()));
+        assertEquals(List.of(late), scheduler.conflicts(edited, Set.of(morning.irrigationId())));
+        assertEquals(List.of(), scheduler.conflicts(edited, Set.of(morning.irrigationId(), late.irrigationId())));
+    }
+
+    @Test
+    void conflictsOnlyLookAtTheSameLand() throws SQLException {
+        save(6 * HOUR, 8 * HOUR);
+        int otherLand = Repositories.lands().insert("Other", "Clay", 1);
+
+        assertEquals(List.of(), scheduler.conflicts(new IrrigationScheduler.Window(0, otherLand, 6 * HOUR, 8 * HOUR), Set.of()));
+    }
+
+    @Test
+    void saveRejectsAnOverlapUnlessItIsReplaced() throws SQLException {
+        IrrigationScheduler.Window morning = save(6 * HOUR, 8 * HOUR);
+
+        assertThrows(IllegalStateException.class, () -> save(7 * HOUR, 9 * HOUR));
+        List<IrrigationScheduler.Window> moved = scheduler.save(morning.irrigationId(),
+                List.of(new IrrigationScheduler.Window(0, land, 7 * HOUR, 9 * HOUR)), Set.of());
+
+        assertEquals(morning.irrigationId(), moved.get(0).irrigationId());
+        assertEquals(moved, scheduler.windowsOfLand(land));
+    }
+
+    @Test
+    void landsIrrigatingAtListsEachLandOnce() throws SQLException {
+        // Overlapping rows stored before the scheduler validated them, written past it
+        Repositories.irrigation().save(0, List.of(new IrrigationScheduler.Window(0, land, 6 * HOUR, 8 * HOUR),
+                new IrrigationScheduler.Window(0, land, 7 * HOUR, 9 * HOUR)), Set.of());
+        int otherLand = Repositories.lands().insert("Other", "Clay", 1);
+        Repositories.irrigation().save(0, List.of(new IrrigationScheduler.Window(0, otherLand, 7 * HOUR, 8 * HOUR)), Set.of());
+        scheduler.reload();
+
+        int[] lands = scheduler.landsIrrigatingAt(7 * HOUR + 1_800);
+        assertEquals(1, count(lands, land));
+        assertEquals(1, count(lands, otherLand));
+        for (int i = 1; i < lands.length; i++) {
+            assertTrue(lands[i - 1] < lands[i], "sorted without duplicates");
+        }
+        assertEquals(2, scheduler.activeAt(7 * HOUR + 1_800).stream().filter(w -> w.landId() == land).count());
+    }
+
+    @Test
+    void deleteRemovesEachHalfOfAMidnightWindow() throws SQLException {
+        // A window across midnight is saved as two schedules
+        List<IrrigationScheduler.Window> night =
+                scheduler.save(0, IrrigationScheduler.split(land, 23 * HOUR, HOUR), Set.of());
+
+        assertEquals(land, scheduler.delete(night.get(1).irrigationId()));
+        assertEquals(List.of(night.get(0)), scheduler.windowsOfLand(land));
+        assertEquals(0, count(scheduler.landsIrrigatingAt(1_800), land));
+        assertEquals(land, scheduler.delete(night.get(0).irrigationId()));
+        assertEquals(List.of(), scheduler.windowsOfLand(land));
+        assertEquals(0, scheduler.delete(night.get(0).irrigationId()));
+    }
+
+    @Test
+    void ownWritesDoNotCountAsChanges() throws SQLException {
+        IrrigationScheduler.Window morning = save(6 * HOUR, 8 * HOUR);
+        scheduler.delete(save(9 * HOUR, 10 * HOUR).irrigationId());
+
+        assertFalse(scheduler.reloadIfChanged());
+        assertEquals(List.of(morning), scheduler.windowsOfLand(land));
+    }
+
+    @Test
+    void writesElsewhereAreStillPickedUp() throws SQLException {
+        save(6 * HOUR, 8 * HOUR);
+        // Another process adds a schedule, then this one saves its own
+        Repositories.irrigation().save(0, List.of(new IrrigationScheduler.Window(0, land, 12 * HOUR, 13 * HOUR)), Set.of());
+        save(9 * HOUR, 10 * HOUR);
+
+        assertTrue(scheduler.reloadIfChanged());
+        assertEquals(3, scheduler.windowsOfLand(land).size());
+        assertFalse(scheduler.reloadIfChanged());
+    }
+
+    @Test
+    void storedOverlapsAreCounted() throws SQLException {
+        Repositories.irrigation().save(0, List.of(new IrrigationScheduler.Window(0, land, 6 * HOUR, 8 * HOUR),
+                new IrrigationScheduler.Window(0, land, 7 * HOUR, 9 * HOUR)), Set.of());
+        scheduler.reload();
+
+        assertTrue(scheduler.overlappingStored() >= 1);
+    }
+}
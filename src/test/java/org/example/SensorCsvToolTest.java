@@ -0,0 +1,287 @@
+package org.example;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Imports into the in-memory repositories (smartagri.backend=memory is set by surefire); every test uses a
+// land of its own and looks only at that land's readings
+class SensorCsvToolTest {
+    private static final long MORNING = millis("2026-03-10T06:00:00");
+
+    @TempDir
+    Path directory;
+
+    private final SensorCsvTool tool = new SensorCsvTool(Repositories.sensors(), 3);
+    private int land;
+
+    @BeforeEach
+    void createLand() throws SQLException {
+        land = Repositories.lands().insert("Import", "Loam", 1);
+    }
+
+    private static long millis(String localTime) {
+        return LocalDateTime.parse(localTime).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private SensorCsvTool.ImportStats importLines(String... lines) throws IOException, SQLException {
+        return importText(String.join("\n", lines) + "\n");
+    }
+
+    private SensorCsvTool.ImportStats importText(String text) throws IOException, SQLException {
+        Path file = directory.resolve("sensors.csv");
+        Files.writeString(file, text, StandardCharsets.UTF_8);
+        return tool.importCsv(file, errorsFile());
+    }
+
+    private Path errorsFile() {
+        return directory.resolve("sensors.csv.errors");
+    }
+
+    private List<String> errors() throws IOException {
+        return Files.exists(errorsFile()) ? Files.readAllLines(errorsFile()) : List.of();
+    }
+
+    // The readings of this test's land, in sensor_id order
+    private List<SensorReading> readings() throws SQLException {
+        List<SensorReading> readings = new ArrayList<>();
+        Repositories.sensors().readPage(0, Integer.MAX_VALUE, (sensorId, landId, temperature, soilMoisture, ph, timestamp) -> {
+            if (landId == land) {
+                readings.add(new SensorReading(landId, temperature, soilMoisture, ph, timestamp));
+            }
+        });
+        return readings;
+    }
+
+    @Test
+    void withoutAHeaderColumnsAreInImportOrder() throws Exception {
+        SensorCsvTool.ImportStats stats = importLines(land + ",21.5,30,6.5,2026-03-10 06:00:00");
+
+        assertEquals(1, stats.imported());
+        assertEquals(List.of(new SensorReading(land, 21.5, 30, 6.5, MORNING)), readings());
+    }
+
+    @Test
+    void headerMapsColumnsInAnyOrderAndIgnoresOthers() throws Exception {
+        // Byte order mark and CRLF line ends, as Excel writes them
+        SensorCsvTool.ImportStats stats = importText("﻿ph,timestamp,\"land_id\",sensor_id,Temperature,soil_moisture\r\n" +
+                "6.5,2026-03-10 06:00:00," + land + ",99,21.5,30\r\n");
+
+        assertEquals(2, stats.lines());
+        assertEquals(List.of(new SensorReading(land, 21.5, 30, 6.5, MORNING)), readings());
+    }
+
+    @Test
+    void headerWithoutAnImportColumnFails() {
+        IOException e = assertThrows(IOException.class, () -> importLines("land_id,temperature,soil_moisture,timestamp"));
+        assertTrue(e.getMessage().contains("ph"));
+    }
+
+    @Test
+    void quotesAndSpacesAroundFieldsAreTrimmed() throws Exception {
+        importLines("\"" + land + "\" , 21.5 ,\"30\",6.5, \"2026-03-10 06:00:00\"  ");
+
+        assertEquals(List.of(new SensorReading(land, 21.5, 30, 6.5, MORNING)), readings());
+    }
+
+    @Test
+    void timestampsAreReadInEachFormat() throws Exception {
+        SensorCsvTool.ImportStats stats = importLines(
+                land + ",20,30,6.5,2026-03-10 06:00:00",
+                land + ",20,30,6.5,2026-03-10T06:00:00.5",
+                land + ",20,30,6.5,2026-03-10 06:00:00.123456",
+                land + ",20,30,6.5," + (MORNING + 7),
+                land + ",20,30,6.5,2026-03-10 06:00",
+                land + ",20,30,6.5,2026-03-10 06:00:00Z");
+
+        assertEquals(4, stats.imported());
+        assertEquals(2, stats.rejected());
+        assertEquals(List.of(MORNING, MORNING + 500, MORNING + 123, MORNING + 7),
+                readings().stream().map(SensorReading::timestampMillis).toList());
+        assertEquals(2, errors().size());
+        assertTrue(errors().get(0).startsWith("line 5: malformed value"));
+        assertTrue(errors().get(1).startsWith("line 6: malformed value"));
+    }
+
+    @Test
+    void badRowsAreReportedWithTheirLineNumbers() throws Exception {
+        SensorCsvTool.ImportStats stats = importLines(
+                "land_id,temperature,soil_moisture,ph,timestamp",
+                land + ",20,30,6.5,2026-03-10 06:00:00",
+                land + ",20,30,6.5",
+                "",
+                land + ",,30,6.5,2026-03-10 06:00:00",
+                land + ",warm,30,6.5,2026-03-10 06:00:00",
+                land + ",20,30,6.5,2026-03-10 07:00:00");
+
+        assertEquals(7, stats.lines());
+        assertEquals(2, stats.imported());
+        assertEquals(3, stats.rejected());
+        List<String> errors = errors();
+        assertEquals("line 3: expected 5 fields but found 4", errors.get(0));
+        assertEquals("line 5: empty temperature (NULL values are not imported)", errors.get(1));
+        assertTrue(errors.get(2).startsWith("line 6: malformed value"));
+    }
+
+    @Test
+    void lastLineWithoutANewlineIsImported() throws Exception {
+        SensorCsvTool.ImportStats stats = importText(land + ",20,30,6.5,2026-03-10 06:00:00\n" +
+                land + ",21,31,6.6,2026-03-10 07:00:00");
+
+        assertEquals(2, stats.imported());
+        assertEquals(21, readings().get(1).temperature());
+    }
+
+    @Test
+    void lineLongerThanTheBufferIsSkipped() throws Exception {
+        String longLine = land + ",20,30,6.5," + "9".repeat(SensorCsvTool.BUFFER_SIZE + 100);
+        SensorCsvTool.ImportStats stats = importLines(
+                land + ",20,30,6.5,2026-03-10 06:00:00",
+                longLine,
+                land + ",21,31,6.6,2026-03-10 07:00:00");
+
+        assertEquals(3, stats.lines());
+        assertEquals(2, stats.imported());
+        assertEquals(List.of("line 2: line longer than " + SensorCsvTool.BUFFER_SIZE + " bytes"), errors());
+    }
+
+    @Test
+    void rowsOfAnUnknownLandAreRejectedAndTheRestOfTheBatchImported() throws Exception {
+        int missing = Repositories.lands().insert("Gone", "Clay", 1);
+        Repositories.lands().delete(missing);
+
+        SensorCsvTool.ImportStats stats = importLines(
+                land + ",20,30,6.5,2026-03-10 06:00:00",
+                missing + ",20,30,6.5,2026-03-10 06:00:00",
+                land + ",21,31,6.6,2026-03-10 07:00:00",
+                land + ",22,32,6.7,2026-03-10 08:00:00");
+
+        assertEquals(3, stats.imported());
+        assertEquals(1, stats.rejected());
+        assertEquals(3, readings().size());
+        assertTrue(errors().get(0).startsWith("line 2: "));
+    }
+
+    @Test
+    void exportWritesWhatImportReadsBack() throws Exception {
+        int other = Repositories.lands().insert("Other", "Clay", 1);
+        Repositories.sensors().insert(new SensorReading(land, 20, 30, 6.5, MORNING - 1));
+        Repositories.sensors().insert(new SensorReading(land, 21.5, 30.25, 6.5, MORNING + 250));
+        Repositories.sensors().insert(new SensorReading(other, 22, 32, 6.7, MORNING));
+        Repositories.sensors().insert(new SensorReading(land, 23, 33, 6.8, MORNING + 3_600_000));
+        Path file = directory.resolve("export.csv");
+
+        SensorCsvTool.ExportStats stats = tool.exportCsv(file, land, new Timestamp(MORNING), null);
+
+        assertEquals(2, stats.rows());
+        List<String> lines = Files.readAllLines(file);
+        assertEquals("sensor_id,land_id,temperature,soil_moisture,ph,timestamp", lines.get(0));
+        assertTrue(lines.get(1).endsWith("," + land + ",21.5,30.25,6.5,2026-03-10 06:00:00.250"), lines.get(1));
+        assertEquals(3, lines.size());
+
+        List<SensorReading> exported = readings().subList(1, 3);
+        assertEquals(2, tool.importCsv(file, errorsFile()).imported());
+        assertEquals(exported, readings().subList(3, 5));
+    }
+
+    @Test
+    void aLostConnectionStopsTheImport() throws Exception {
+        SensorCsvTool failing = new SensorCsvTool(new FailingSensors(1), 2);
+        Path file = directory.resolve("sensors.csv");
+        Files.writeString(file, String.join("\n",
+                land + ",20,30,6.5,2026-03-10 06:00:00",
+                land + ",21,31,6.6,2026-03-10 07:00:00",
+                land + ",22,32,6.7,2026-03-10 08:00:00",
+                land + ",23,33,6.8,2026-03-10 09:00:00",
+                land + ",24,34,6.9,2026-03-10 10:00:00") + "\n");
+
+        SQLException e = assertThrows(SQLException.class, () -> failing.importCsv(file, errorsFile()));
+
+        assertTrue(e.getMessage().startsWith("Import stopped at line 3 after 2 rows were imported"));
+        assertEquals("08S01", e.getSQLState());
+        assertEquals(2, readings().size());
+        assertFalse(Files.exists(errorsFile()));
+    }
+
+    // The in-memory sensors, losing the connection after the given number of batches
+    private static final class FailingSensors implements SensorRepository {
+        private final SensorRepository sensors = Repositories.sensors();
+        private int batchesLeft;
+
+        private FailingSensors(int batches) {
+            this.batchesLeft = batches;
+        }
+
+        @Override
+        public void insertBatch(List<SensorReading> readings) throws SQLException {
+            if (batchesLeft-- <= 0) {
+                throw new SQLNonTransientConnectionException("Communications link failure", "08S01");
+            }
+            sensors.insertBatch(readings);
+        }
+
+        @Override
+        public int insert(SensorReading reading) throws SQLException {
+            return sensors.insert(reading);
+        }
+
+        @Override
+        public int count() throws SQLException {
+            return sensors.count();
+        }
+
+        @Override
+        public int scanIds(int fromSensorId, int step, IntConsumer consumer) throws SQLException {
+            return sensors.scanIds(fromSensorId, step, consumer);
+        }
+
+        @Override
+        public int readPage(int fromSensorId, int limit, RowConsumer consumer) throws SQLException {
+            return sensors.readPage(fromSensorId, limit, consumer);
+        }
+
+        @Override
+        public long readAll(Integer landId, Timestamp from, Timestamp to, RowConsumer consumer) throws SQLException {
+            return sensors.readAll(landId, from, to, consumer);
+        }
+
+        @Override
+        public List<SensorReading> latestReadings() throws SQLException {
+            return sensors.latestReadings();
+        }
+
+        @Override
+        public long[] extent(int landId) throws SQLException {
+            return sensors.extent(landId);
+        }
+
+        @Override
+        public boolean rollupsAvailable() throws SQLException {
+            return sensors.rollupsAvailable();
+        }
+
+        @Override
+        public void readTrend(int landId, SensorRollups.Resolution resolution, long from, long to,
+                              TrendConsumer consumer) throws SQLException, InterruptedException {
+            sensors.readTrend(landId, resolution, from, to, consumer);
+        }
+    }
+}
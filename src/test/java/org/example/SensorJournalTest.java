@@ -0,0 +1,144 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Segment files are written byte by byte here in the journal's record layout, so recovery is tested on
+// exactly what a crashed process leaves behind
+class SensorJournalTest {
+    private static final int SEGMENT_RECORDS = 10;
+    private static final int SEGMENT_BYTES = SEGMENT_RECORDS * SensorJournal.RECORD_SIZE;
+
+    @TempDir
+    Path directory;
+
+    private final List<SensorReading> inserted = Collections.synchronizedList(new ArrayList<>());
+    private SensorJournal journal;
+
+    @AfterEach
+    void close() throws InterruptedException {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    private SensorJournal open() throws IOException {
+        journal = new SensorJournal(directory, SEGMENT_BYTES, 1 << 20, 1, 4, inserted::addAll);
+        return journal;
+    }
+
+    private static SensorReading reading(int i) {
+        return new SensorReading(1, 20 + i, 30 + i, 6.5, 1_000L * i);
+    }
+
+    private static List<SensorReading> readings(int from, int to) {
+        List<SensorReading> readings = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            readings.add(reading(i));
+        }
+        return readings;
+    }
+
+    private static byte[] record(SensorReading reading) {
+        ByteBuffer record = ByteBuffer.allocate(SensorJournal.RECORD_SIZE);
+        record.putInt(reading.landId()).putDouble(reading.temperature()).putDouble(reading.soilMoisture())
+                .putDouble(reading.ph()).putLong(reading.timestampMillis());
+        CRC32C crc = new CRC32C();
+        crc.update(record.array(), 0, 36);
+        record.putInt((int) crc.getValue());
+        return record.array();
+    }
+
+    // A full-size segment file holding the records, the rest zeros as the journal leaves it
+    private Path writeSegment(long id, List<SensorReading> readings) throws IOException {
+        ByteBuffer segment = ByteBuffer.allocate(SEGMENT_BYTES);
+        for (SensorReading reading : readings) {
+            segment.put(record(reading));
+        }
+        return Files.write(directory.resolve(String.format("segment-%016d.log", id)), segment.array());
+    }
+
+    private void writeCheckpoint(long segment, int offset) throws IOException {
+        Files.write(directory.resolve("checkpoint"), ByteBuffer.allocate(12).putLong(segment).putInt(offset).array());
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("segment-")).sorted().toList();
+        }
+    }
+
+    private void awaitReplayed(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (inserted.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        Thread.sleep(50); // Anything replayed twice would show up meanwhile
+        assertEquals(count, inserted.size());
+    }
+
+    @Test
+    void replayResumesFromTheCheckpoint() throws Exception {
+        writeSegment(1, readings(0, 5));
+        writeCheckpoint(1, 2 * SensorJournal.RECORD_SIZE);
+
+        open();
+
+        awaitReplayed(3);
+        assertEquals(readings(2, 5), inserted);
+    }
+
+    @Test
+    void tornRecordEndsTheSegmentAndAppendsGoToANewOne() throws Exception {
+        Path segment = writeSegment(1, readings(0, 3));
+        byte[] bytes = Files.readAllBytes(segment);
+        bytes[2 * SensorJournal.RECORD_SIZE + 5] ^= 1; // The third record was only partly written
+        Files.write(segment, bytes);
+
+        open().append(reading(9));
+
+        awaitReplayed(3);
+        assertEquals(List.of(reading(0), reading(1), reading(9)), inserted);
+        assertTrue(segmentFiles().stream().noneMatch(path -> path.equals(segment)), "replayed segment deleted");
+        assertEquals(1, segmentFiles().size());
+    }
+
+    @Test
+    void cleanSegmentWithRoomIsAppendedTo() throws Exception {
+        Path segment = writeSegment(1, readings(0, 2));
+
+        open().append(reading(2));
+
+        awaitReplayed(3);
+        assertEquals(readings(0, 3), inserted);
+        assertEquals(List.of(segment), segmentFiles());
+        assertEquals(SEGMENT_BYTES, Files.size(segment));
+    }
+
+    @Test
+    void appendsRollOverToNewSegmentsAndReplayInOrder() throws Exception {
+        open();
+        for (SensorReading reading : readings(0, 25)) {
+            journal.append(reading);
+        }
+
+        awaitReplayed(25);
+        assertEquals(readings(0, 25), inserted);
+        assertEquals(List.of(directory.resolve("segment-0000000000000003.log")), segmentFiles());
+        assertEquals(0, journal.stats().backlog());
+    }
+}
@@ -0,0 +1,54 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SimulatedValveActuatorTest {
+    private final SimulatedValveActuator actuator =
+            new SimulatedValveActuator(Clock.fixed(Instant.EPOCH, ZoneOffset.UTC), false);
+
+    @Test
+    void tracksOpenValvesAndCommands() throws IOException {
+        actuator.open(1);
+        actuator.open(2);
+        actuator.close(1);
+
+        assertEquals(Set.of(2), actuator.openValves());
+        assertEquals(List.of(new SimulatedValveActuator.Command(1, true, 0), new SimulatedValveActuator.Command(2, true, 0),
+                new SimulatedValveActuator.Command(1, false, 0)), actuator.commands());
+    }
+
+    @Test
+    void failNextFailsThatManyCommandsWithoutChangingTheValve() throws IOException {
+        actuator.failNext(2);
+
+        assertThrows(IOException.class, () -> actuator.open(1));
+        assertThrows(IOException.class, () -> actuator.open(1));
+        assertEquals(Set.of(), actuator.openValves());
+        actuator.open(1);
+        assertEquals(Set.of(1), actuator.openValves());
+        assertEquals(1, actuator.commands().size());
+    }
+
+    @Test
+    void keepsOnlyTheLastCommands() throws IOException {
+        int extra = 5;
+        for (int i = 0; i < SimulatedValveActuator.MAX_COMMANDS + extra; i++) {
+            actuator.open(i);
+        }
+
+        List<SimulatedValveActuator.Command> commands = actuator.commands();
+        assertEquals(SimulatedValveActuator.MAX_COMMANDS, commands.size());
+        assertEquals(extra, commands.get(0).landId());
+        assertEquals(SimulatedValveActuator.MAX_COMMANDS + extra - 1, commands.get(commands.size() - 1).landId());
+    }
+}